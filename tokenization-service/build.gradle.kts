@@ -4,6 +4,8 @@ plugins {
     id("org.springframework.boot") version "3.4.2"
     id("io.spring.dependency-management") version "1.1.6"
     id("jacoco")
+    id("me.champeau.jmh") version "0.7.3"
+    id("com.google.protobuf") version "0.9.4"
 }
 
 group = "nz.co.anz"
@@ -17,20 +19,33 @@ repositories {
     mavenCentral()
 }
 
+val grpcVersion = "1.68.1"
+val protobufVersion = "3.25.5"
+
 dependencies {
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-validation")
     implementation("org.springframework.boot:spring-boot-starter-data-jpa")
     implementation("org.springframework.boot:spring-boot-starter-cache")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
+    runtimeOnly("io.micrometer:micrometer-registry-prometheus")
     implementation("com.h2database:h2")
     implementation("org.apache.commons:commons-lang3:3.18.0")
     implementation("com.github.ben-manes.caffeine:caffeine")
+    implementation("io.lettuce:lettuce-core")
+    implementation("io.grpc:grpc-netty-shaded:$grpcVersion")
+    implementation("io.grpc:grpc-protobuf:$grpcVersion")
+    implementation("io.grpc:grpc-stub:$grpcVersion")
+    implementation("com.google.protobuf:protobuf-java:$protobufVersion")
+    // javax.annotation.Generated on the generated gRPC stubs.
+    compileOnly("org.apache.tomcat:annotations-api:6.0.53")
     compileOnly("org.projectlombok:lombok")
     annotationProcessor("org.projectlombok:lombok")
 
     testImplementation("org.springframework.boot:spring-boot-starter-test")
     testImplementation("org.springframework.boot:spring-boot-starter-webflux")
     testImplementation("io.projectreactor:reactor-test")
+    testImplementation("io.grpc:grpc-inprocess:$grpcVersion")
     testImplementation("org.assertj:assertj-core:3.27.7")
     testImplementation("org.junit.jupiter:junit-jupiter:6.0.0")
     testCompileOnly("org.projectlombok:lombok")
@@ -38,12 +53,33 @@ dependencies {
     testRuntimeOnly("org.junit.platform:junit-platform-launcher:1.10.0")
 }
 
+// Generates the protobuf messages and gRPC stubs of src/main/proto.
+protobuf {
+    protoc {
+        artifact = "com.google.protobuf:protoc:$protobufVersion"
+    }
+    plugins {
+        id("grpc") {
+            artifact = "io.grpc:protoc-gen-grpc-java:$grpcVersion"
+        }
+    }
+    generateProtoTasks {
+        all().forEach { task ->
+            task.plugins {
+                id("grpc")
+            }
+        }
+    }
+}
+
 jacoco {
     toolVersion = "0.8.12"
 }
 
 tasks.test {
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("load")
+    }
 
     reports {
         junitXml.required.set(true)
@@ -63,6 +99,31 @@ tasks.test {
     finalizedBy(tasks.jacocoTestReport)
 }
 
+/**
+ * Load tests comparing platform-thread and virtual-thread request execution, and lookup coalescing at a fixed
+ * request rate, excluded from `test`. e.g. ./gradlew loadTest -Pload.duration=PT30S -Pload.rate=5000; results are
+ * appended to build/reports/load/results.csv and build/reports/load/coalescing.csv.
+ */
+val loadTest by tasks.registering(Test::class) {
+    description = "Runs the @Tag(\"load\") tests: request thread modes and lookup coalescing."
+    group = "verification"
+    testClassesDirs = sourceSets.test.get().output.classesDirs
+    classpath = sourceSets.test.get().runtimeClasspath
+    useJUnitPlatform {
+        includeTags("load")
+    }
+    maxHeapSize = "2g"
+    // Prints a stack trace whenever a virtual thread blocks while pinned to its carrier.
+    jvmArgs("-Djdk.tracePinnedThreads=short")
+    systemProperty("load.duration", providers.gradleProperty("load.duration").getOrElse("PT10S"))
+    systemProperty("load.rate", providers.gradleProperty("load.rate").getOrElse("5000"))
+    testLogging {
+        events("passed", "skipped", "failed")
+        showStandardStreams = true
+    }
+    outputs.upToDateWhen { false }
+}
+
 tasks.jacocoTestReport {
     dependsOn(tasks.test)
 
@@ -94,6 +155,87 @@ tasks.named<JacocoCoverageVerification>("jacocoTestCoverageVerification") {
     }
 }
 
+val jmhResults = layout.buildDirectory.file("reports/jmh/results.json")
+val jmhBaseline = layout.projectDirectory.file("src/jmh/baseline/results.json")
+
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = jmhResults
+    // e.g. ./gradlew jmh -Pjmh.includes=TokenizeBatchBenchmark
+    providers.gradleProperty("jmh.includes").orNull?.let { includes.add(it) }
+    // e.g. ./gradlew jmh -Pjmh.profilers=gc for allocation rates (gc.alloc.rate.norm = bytes per operation)
+    providers.gradleProperty("jmh.profilers").orNull?.let { profilers.addAll(it.split(",")) }
+}
+
+/**
+ * Compares the latest JMH results with the committed baseline and fails when any benchmark is slower
+ * by more than -Pjmh.regressionThreshold (a fraction, default 0.10). Throughput modes regress when the
+ * score drops; time-based modes regress when it grows. Without a baseline the check only warns, except
+ * under -Pperf, where it fails so that the performance gate cannot pass without comparing anything.
+ */
+val jmhRegressionCheck by tasks.registering {
+    group = "verification"
+    description = "Fails the build when JMH results regress beyond the configured threshold against the baseline."
+    dependsOn(tasks.named("jmh"))
+
+    val resultsFile = jmhResults.get().asFile
+    val baselineFile = jmhBaseline.asFile
+    val threshold = providers.gradleProperty("jmh.regressionThreshold").map(String::toDouble).orElse(0.10).get()
+    val perf = providers.gradleProperty("perf").isPresent
+
+    doLast {
+        if (!baselineFile.exists()) {
+            val message = "No JMH baseline at $baselineFile; run ./gradlew jmhUpdateBaseline to create one."
+            if (perf) {
+                throw GradleException(message)
+            }
+            logger.warn(message)
+            return@doLast
+        }
+
+        @Suppress("UNCHECKED_CAST")
+        fun scores(file: File): Map<String, Pair<String, Double>> =
+            (groovy.json.JsonSlurper().parse(file) as List<Map<String, Any?>>).associate { result ->
+                val params = (result["params"] as Map<String, Any?>?)
+                    ?.toSortedMap()
+                    ?.entries
+                    ?.joinToString(",", "[", "]") { "${it.key}=${it.value}" }
+                    ?: ""
+                val primaryMetric = result["primaryMetric"] as Map<String, Any?>
+                "${result["benchmark"]}$params" to
+                    (result["mode"] as String to (primaryMetric["score"] as Number).toDouble())
+            }
+
+        val baseline = scores(baselineFile)
+        val regressions = scores(resultsFile).mapNotNull { (benchmark, current) ->
+            val (mode, score) = current
+            val baselineScore = baseline[benchmark]?.second ?: return@mapNotNull null
+            val change = if (mode == "thrpt") (baselineScore - score) / baselineScore else (score - baselineScore) / baselineScore
+            if (change > threshold) "%s (%s): %.3f -> %.3f (%.1f%% worse)".format(benchmark, mode, baselineScore, score, change * 100) else null
+        }
+        if (regressions.isNotEmpty()) {
+            throw GradleException("JMH regressions beyond ${threshold * 100}%:\n" + regressions.joinToString("\n"))
+        }
+        logger.lifecycle("No JMH regressions beyond ${threshold * 100}% against $baselineFile")
+    }
+}
+
+val jmhUpdateBaseline by tasks.registering(Copy::class) {
+    group = "verification"
+    description = "Replaces the committed JMH baseline with the latest results."
+    dependsOn(tasks.named("jmh"))
+    from(jmhResults)
+    into(jmhBaseline.asFile.parentFile)
+}
+
+// Performance profile: ./gradlew check -Pperf runs the benchmarks and fails on regressions.
+if (providers.gradleProperty("perf").isPresent) {
+    tasks.named("check") {
+        dependsOn(jmhRegressionCheck)
+    }
+}
+
 tasks.withType<org.springframework.boot.gradle.tasks.bundling.BootJar> {
     enabled = true
 }
@@ -0,0 +1,143 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Latency of looking up an account's token on a table of {@code rows} mappings, by the account number string
+ * under a unique index ({@code account_number}, the previous schema) or by the 16-byte keyed hash of its digits
+ * under a unique index ({@code account_hash}).
+ * <p>
+ * The table lives in a file-backed H2 database in a temporary directory, so 10 million rows do not have to fit
+ * in the heap; only the index of the benchmarked column is created. Each lookup picks a random existing account,
+ * and the {@code account_hash} path includes hashing the account number, as the service does.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=AccountLookupBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class AccountLookupBenchmark
+{
+    private static final int KEYS = 1 << 16;
+    private static final int INSERT_BATCH_SIZE = 10_000;
+
+    @Param({"1000000", "10000000"})
+    public int rows;
+
+    @Param({"account_number", "account_hash"})
+    public String column;
+
+    private Path directory;
+    private Connection connection;
+    private PreparedStatement lookup;
+    private AccountKeyHasher accountKeyHasher;
+    private String[] accountNumbers;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void createTable() throws IOException, SQLException
+    {
+        directory = Files.createTempDirectory("account-lookup");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("vault") + ";CACHE_SIZE=262144");
+        accountKeyHasher = new AccountKeyHasher();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table tokens (token varchar(32) primary key, account_number varchar(19) not null, "
+                + "account_hash binary(16))");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert =
+                 connection.prepareStatement("insert into tokens (token, account_number, account_hash) values (?, ?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                final String accountNumber = accountNumber(i);
+                insert.setString(1, String.format("AccountLookupToken%014d", i));
+                insert.setString(2, accountNumber);
+                insert.setBytes(3, accountKeyHasher.keyOf(accountNumber).toBytes());
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        connection.setAutoCommit(true);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create unique index idx_tokens_" + column + " on tokens (" + column + ")");
+            statement.execute("analyze");
+        }
+        lookup = connection.prepareStatement("select token from tokens where " + column + " = ?");
+
+        random = new SplittableRandom(42);
+        accountNumbers = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            accountNumbers[i] = accountNumber(random.nextInt(rows));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void dropTable() throws IOException, SQLException
+    {
+        lookup.close();
+        connection.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (final Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public String lookup() throws SQLException
+    {
+        final String accountNumber = accountNumbers[random.nextInt(KEYS)];
+        if ("account_hash".equals(column)) {
+            lookup.setBytes(1, accountKeyHasher.keyOf(accountNumber).toBytes());
+        }
+        else {
+            lookup.setString(1, accountNumber);
+        }
+        try (ResultSet resultSet = lookup.executeQuery()) {
+            return resultSet.next() ? resultSet.getString(1) : null;
+        }
+    }
+
+    private static String accountNumber(final int i)
+    {
+        return String.format("4000 %04d %04d %04d", i / 100_000_000, i / 10_000 % 10_000, i % 10_000);
+    }
+}
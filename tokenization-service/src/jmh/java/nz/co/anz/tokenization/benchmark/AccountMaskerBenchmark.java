@@ -0,0 +1,61 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.utils.AccountMasker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of masking an account number for the per-account tokenize log line, compared with the original
+ * {@code StringUtils}-based masker. Run with the GC profiler to compare allocations per call:
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=AccountMaskerBenchmark -Pjmh.profilers=gc
+ * </pre>
+ *
+ * {@code formatTo} is what a log event costs when INFO is on: the masked form is appended to log4j's
+ * reusable buffer and should report {@code gc.alloc.rate.norm} of about 0 B/op.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountMaskerBenchmark
+{
+    @Param({"4111-1111-1111-1111", "4111 1111 1111 1111", "4111111111111111"})
+    public String accountNumber;
+
+    private final StringBuilder buffer = new StringBuilder(64);
+
+    @Benchmark
+    public String legacy()
+    {
+        return LegacyAccountMasker.maskAccountNumber(accountNumber);
+    }
+
+    @Benchmark
+    public String mask()
+    {
+        return AccountMasker.maskAccountNumber(accountNumber);
+    }
+
+    @Benchmark
+    public int formatTo()
+    {
+        buffer.setLength(0);
+        AccountMasker.masked(accountNumber).formatTo(buffer);
+        return buffer.length();
+    }
+}
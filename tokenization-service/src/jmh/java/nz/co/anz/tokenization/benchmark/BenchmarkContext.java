@@ -0,0 +1,98 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.TokenizationServiceMain;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Boots the tokenization service for JMH benchmarks, without the web layer unless a benchmark measures it.
+ * <p>
+ * Each context gets its own in-memory H2 database, or a file-backed vault in a given directory, and
+ * per-account INFO logging is switched off so that the measurements reflect the service and persistence
+ * paths rather than log I/O.
+ * </p>
+ */
+final class BenchmarkContext
+{
+    private BenchmarkContext()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    /**
+     * Starts a non-web application context on its own in-memory database.
+     *
+     * @param extraProperties additional {@code key=value} properties overriding the defaults and
+     *                        {@code application.properties}
+     * @return the running context; callers are responsible for closing it
+     */
+    static ConfigurableApplicationContext start(final String... extraProperties)
+    {
+        return run(WebApplicationType.NONE, List.of(), inMemoryVault(), extraProperties);
+    }
+
+    /**
+     * Starts a web application context on its own in-memory database, listening on a free port
+     * ({@code local.server.port}).
+     *
+     * @param extraProperties additional {@code key=value} properties overriding the defaults and
+     *                        {@code application.properties}
+     * @return the running context; callers are responsible for closing it
+     */
+    static ConfigurableApplicationContext startWeb(final String... extraProperties)
+    {
+        final List<String> properties = new ArrayList<>(List.of("server.port=0"));
+        properties.addAll(List.of(extraProperties));
+        return run(WebApplicationType.SERVLET, List.of(), inMemoryVault(), properties.toArray(String[]::new));
+    }
+
+    /**
+     * Starts a non-web application context on the file-backed vault of the {@code persistent} profile.
+     *
+     * @param directory       directory of the vault files
+     * @param extraProperties additional {@code key=value} properties overriding the defaults and
+     *                        {@code application*.properties}
+     * @return the running context; callers are responsible for closing it
+     */
+    static ConfigurableApplicationContext startPersistent(final Path directory, final String... extraProperties)
+    {
+        return run(WebApplicationType.NONE, List.of("persistent"), "tokenization.vault.directory=" + directory,
+            extraProperties);
+    }
+
+    private static String inMemoryVault()
+    {
+        return "spring.datasource.url=jdbc:h2:mem:jmh-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static ConfigurableApplicationContext run(final WebApplicationType webApplicationType,
+                                                      final List<String> profiles, final String vault,
+                                                      final String... extraProperties)
+    {
+        final List<String> properties = new ArrayList<>(List.of(
+            vault,
+            "spring.main.banner-mode=off",
+            "tokenization.cache.warm-up.enabled=false",
+            "tokenization.grpc.port=0",
+            // Benchmark-only secrets; the service has none by default.
+            "tokenization.account-key.secret=dG9rZW5pemF0aW9uLXNlcnZpY2UtYmVuY2htYXJrLWFjY291bnQta2V5LTAx",
+            "tokenization.token-strategy.secret=dG9rZW5pemF0aW9uLXNlcnZpY2UtYmVuY2htYXJrLXRva2VuLWtleS0wMDAx",
+            "logging.level.root=WARN",
+            "logging.level.nz.co.anz=WARN"));
+        properties.addAll(List.of(extraProperties));
+
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(webApplicationType)
+            .logStartupInfo(false)
+            .profiles(profiles.toArray(String[]::new))
+            // Passed as arguments: default properties would lose to application*.properties.
+            .run(properties.stream().map(property -> "--" + property).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,32 @@
+package nz.co.anz.tokenization.benchmark;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The original {@code AccountMasker} implementation, kept as the baseline for {@link AccountMaskerBenchmark}:
+ * separate {@link StringUtils} calls for separator removal, the last four digits and the mask, then concatenation.
+ */
+final class LegacyAccountMasker
+{
+    private LegacyAccountMasker()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    static String maskAccountNumber(String accountNumber) {
+        if (StringUtils.isBlank(accountNumber)) {
+            return "****";
+        }
+
+        final String cleanNumber = StringUtils.replaceChars(accountNumber, "-", "");
+
+        if (StringUtils.length(cleanNumber) < 4) {
+            return "****";
+        }
+
+        final String lastFour = StringUtils.right(cleanNumber, 4);
+        final String mask = StringUtils.repeat('*', StringUtils.length(cleanNumber) - 4);
+
+        return mask + lastFour;
+    }
+}
@@ -0,0 +1,24 @@
+package nz.co.anz.tokenization.benchmark;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+/**
+ * The original {@code TokenizationController} parameter constraints, kept as the baseline for
+ * {@link RequestValidationBenchmark}: a per-element {@code @Pattern} on each list.
+ */
+final class LegacyRequestConstraints
+{
+    public List<String> tokenize(@NotEmpty @Size(max = 50, message = "Maximum 50 account numbers per request")
+        final List<@Pattern(regexp = "^(\\d{4}[-\\s]?){3}\\d{4}$", message = "Wrong account number format") String> accountNumbers) {
+        return accountNumbers;
+    }
+
+    public List<String> detokenize(@NotEmpty @Size(max = 50, message = "Maximum 50 tokens per request")
+        final List<@Pattern(regexp = "^[A-Za-z0-9]{32}$", message = "Wrong token format.") String> tokens) {
+        return tokens;
+    }
+}
@@ -0,0 +1,28 @@
+package nz.co.anz.tokenization.benchmark;
+
+import java.security.SecureRandom;
+
+/**
+ * The original {@code TokenGenerator} implementation, kept as the baseline for {@link TokenGeneratorBenchmark}:
+ * one shared {@link SecureRandom}, one {@code nextInt} call and one {@link StringBuilder} append per character.
+ */
+final class LegacyTokenGenerator
+{
+    private static final String ALPHANUMERIC =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    private LegacyTokenGenerator()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    static String generate(int length) {
+        final StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(ALPHANUMERIC.charAt(SECURE_RANDOM.nextInt(ALPHANUMERIC.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,96 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.cache.OffHeapTokenIndex;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of the {@link OffHeapTokenIndex} with 1 and 10 million mappings, for indexed and unknown tokens.
+ * <p>
+ * The heap holds nothing but the lookup keys, so heap size and GC activity do not grow with {@code size}.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=OffHeapTokenIndexBenchmark -Pjmh.profilers=gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OffHeapTokenIndexBenchmark
+{
+    private static final int KEYS = 1 << 16;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private Path directory;
+    private OffHeapTokenIndex index;
+    private String[] indexedTokens;
+    private String[] unknownTokens;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void buildIndex() throws IOException
+    {
+        directory = Files.createTempDirectory("token-index");
+        index = OffHeapTokenIndex.open(directory.resolve("tokens.idx"), size);
+        for (int i = 0; i < size; i++) {
+            index.put(token(i), String.format("4000-%04d-%04d-%04d", i / 100_000_000, i / 10_000 % 10_000,
+                i % 10_000));
+        }
+        random = new SplittableRandom(42);
+        indexedTokens = new String[KEYS];
+        unknownTokens = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            indexedTokens[i] = token(random.nextInt(size));
+            unknownTokens[i] = token(size + i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteIndex() throws IOException
+    {
+        index.close();
+        Files.deleteIfExists(directory.resolve("tokens.idx"));
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public String hit()
+    {
+        return index.get(indexedTokens[random.nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public String miss()
+    {
+        return index.get(unknownTokens[random.nextInt(KEYS)]);
+    }
+
+    private static String token(final int i)
+    {
+        return String.format("BenchmarkToken%018d", i);
+    }
+}
@@ -0,0 +1,108 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.rest.TokenizationController;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.executable.ExecutableValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of the method-level Bean Validation applied to the {@code /tokenize} and {@code /detokenize}
+ * request bodies, i.e. what the {@code @Validated} controller proxy runs before each call, compared with
+ * the original per-element {@code @Pattern} constraints ({@code legacy*}).
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=RequestValidationBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RequestValidationBenchmark
+{
+    @Param({"1", "50"})
+    public int elements;
+
+    private ValidatorFactory validatorFactory;
+    private ExecutableValidator validator;
+    private TokenizationController controller;
+    private LegacyRequestConstraints legacyController;
+    private Method tokenize;
+    private Method detokenize;
+    private Method legacyTokenize;
+    private Method legacyDetokenize;
+    private Object[] accountNumbers;
+    private Object[] tokens;
+
+    @Setup(Level.Trial)
+    public void setUp() throws NoSuchMethodException
+    {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator().forExecutables();
+        controller = new TokenizationController(null, null);
+        tokenize = TokenizationController.class.getMethod("tokenize", List.class);
+        detokenize = TokenizationController.class.getMethod("detokenize", List.class);
+        legacyController = new LegacyRequestConstraints();
+        legacyTokenize = LegacyRequestConstraints.class.getMethod("tokenize", List.class);
+        legacyDetokenize = LegacyRequestConstraints.class.getMethod("detokenize", List.class);
+        accountNumbers = new Object[] {IntStream.range(0, elements)
+            .mapToObj(i -> String.format("4111-1111-1111-%04d", i))
+            .toList()};
+        tokens = new Object[] {IntStream.range(0, elements)
+            .mapToObj(i -> String.format("AbCdEfGhIjKlMnOpQrStUvWxYz01%04d", i))
+            .toList()};
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TokenizationController>> validateAccountNumbers()
+    {
+        return validator.validateParameters(controller, tokenize, accountNumbers);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<TokenizationController>> validateTokens()
+    {
+        return validator.validateParameters(controller, detokenize, tokens);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<LegacyRequestConstraints>> legacyValidateAccountNumbers()
+    {
+        return validator.validateParameters(legacyController, legacyTokenize, accountNumbers);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<LegacyRequestConstraints>> legacyValidateTokens()
+    {
+        return validator.validateParameters(legacyController, legacyDetokenize, tokens);
+    }
+}
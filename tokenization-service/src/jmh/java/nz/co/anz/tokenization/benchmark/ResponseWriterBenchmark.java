@@ -0,0 +1,104 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.rest.JsonStringArray;
+import nz.co.anz.tokenization.rest.JsonStringArrayHttpMessageConverter;
+import nz.co.anz.tokenization.utils.TokenGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a {@code /tokenize} response of {@code batchSize} tokens with Spring's Jackson converter, as before,
+ * and with {@link JsonStringArrayHttpMessageConverter}. Both write through the full
+ * {@link org.springframework.http.converter.HttpMessageConverter#write} path, headers included, into a reused
+ * buffer standing in for the servlet response. Run with the GC profiler to compare allocations per response:
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=ResponseWriterBenchmark -Pjmh.profilers=gc
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ResponseWriterBenchmark
+{
+    @Param({"1", "10", "50"})
+    public int batchSize;
+
+    private final MappingJackson2HttpMessageConverter jacksonConverter =
+        new MappingJackson2HttpMessageConverter(Jackson2ObjectMapperBuilder.json().build());
+    private final JsonStringArrayHttpMessageConverter jsonStringArrayConverter =
+        new JsonStringArrayHttpMessageConverter();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream(4096);
+    private List<String> tokens;
+
+    @Setup
+    public void generateTokens()
+    {
+        tokens = Arrays.asList(TokenGenerator.generate(batchSize, 32));
+    }
+
+    @Benchmark
+    public int jackson() throws IOException
+    {
+        final ResponseMessage response = new ResponseMessage(body);
+        jacksonConverter.write(tokens, List.class, MediaType.APPLICATION_JSON, response);
+        return body.size();
+    }
+
+    @Benchmark
+    public int jsonStringArray() throws IOException
+    {
+        final ResponseMessage response = new ResponseMessage(body);
+        jsonStringArrayConverter.write(JsonStringArray.of(tokens), MediaType.APPLICATION_JSON, response);
+        return body.size();
+    }
+
+    private static final class ResponseMessage implements HttpOutputMessage
+    {
+        private final HttpHeaders headers = new HttpHeaders();
+        private final ByteArrayOutputStream body;
+
+        private ResponseMessage(final ByteArrayOutputStream body)
+        {
+            body.reset();
+            this.body = body;
+        }
+
+        @Override
+        public OutputStream getBody()
+        {
+            return body;
+        }
+
+        @Override
+        public HttpHeaders getHeaders()
+        {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Tokens created per second on the file-backed vault of the {@code persistent} profile, in each
+ * {@link nz.co.anz.tokenization.properties.VaultDurability}.
+ * <p>
+ * 32 threads each tokenize one account that has never been seen before per operation, so the score is new tokens
+ * per second, every one of them acknowledged as the durability mode promises: committed ({@code ASYNC}), committed
+ * and forced to disk on its own ({@code SYNC}) or together with the concurrent calls ({@code GROUP}). The vault lives
+ * in a temporary directory; place it on the disk to be measured with {@code -Djava.io.tmpdir}.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenCreationBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class TokenCreationBenchmark
+{
+    @Param({"ASYNC", "SYNC", "GROUP"})
+    public String durability;
+
+    private final AtomicLong accountSequence = new AtomicLong();
+    private Path directory;
+    private ConfigurableApplicationContext context;
+    private TokenizationService tokenizationService;
+
+    @Setup(Level.Trial)
+    public void startContext() throws IOException
+    {
+        directory = Files.createTempDirectory("token-creation");
+        context = BenchmarkContext.startPersistent(directory,
+            "tokenization.vault.durability=" + durability,
+            "spring.datasource.hikari.maximum-pool-size=32");
+        tokenizationService = context.getBean(TokenizationService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() throws IOException
+    {
+        context.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (final Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> createToken()
+    {
+        final long account = accountSequence.getAndIncrement();
+        return tokenizationService.tokenize(List.of(String.format("4000-%04d-%04d-%04d",
+            account / 100_000_000, account / 10_000 % 10_000, account % 10_000)));
+    }
+}
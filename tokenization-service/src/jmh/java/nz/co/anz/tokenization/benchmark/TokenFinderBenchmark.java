@@ -0,0 +1,87 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.services.TokenFinder;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Cost of the Caffeine-backed {@link TokenFinder#resolve(String)} at different cache hit ratios.
+ * <p>
+ * Each invocation resolves one of 1,000 existing tokens; with probability {@code 1 - hitRatio} the token
+ * is invalidated first so the lookup falls through to the database. The invalidation itself costs a few
+ * hundred nanoseconds and is included in the score.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenFinderBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenFinderBenchmark
+{
+    private static final int TOKENS = 1_000;
+
+    @Param({"0.0", "0.5", "0.9", "0.99", "1.0"})
+    public double hitRatio;
+
+    private ConfigurableApplicationContext context;
+    private TokenFinder tokenFinder;
+    private Cache<Object, Object> tokenToAccountCache;
+    private String[] tokens;
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings("unchecked")
+    public void startContext()
+    {
+        context = BenchmarkContext.start();
+        tokenFinder = context.getBean(TokenFinder.class);
+        tokenToAccountCache = context.getBean("tokenToAccountCache", Cache.class);
+        final List<String> accountNumbers = IntStream.range(0, TOKENS)
+            .mapToObj(i -> String.format("4111-3333-5555-%04d", i))
+            .toList();
+        tokens = context.getBean(TokenizationService.class).tokenize(accountNumbers).toArray(String[]::new);
+        random = new SplittableRandom(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    public String resolve()
+    {
+        final String token = tokens[random.nextInt(TOKENS)];
+        if (random.nextDouble() >= hitRatio) {
+            tokenToAccountCache.invalidate(token);
+        }
+        return tokenFinder.resolve(token);
+    }
+}
@@ -0,0 +1,78 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.utils.TokenGenerator;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens per second of {@link TokenGenerator} against the original single-{@code SecureRandom} implementation,
+ * single-threaded and with 32 concurrent threads. Batch variants report throughput per token.
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenGeneratorBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TokenGeneratorBenchmark
+{
+    private static final int TOKEN_LENGTH = 32;
+    private static final int BATCH_SIZE = 50;
+
+    @Benchmark
+    @Threads(1)
+    public String legacySingleThread()
+    {
+        return LegacyTokenGenerator.generate(TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String legacy32Threads()
+    {
+        return LegacyTokenGenerator.generate(TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String singleThread()
+    {
+        return TokenGenerator.generate(TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String threads32()
+    {
+        return TokenGenerator.generate(TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public String[] batchSingleThread()
+    {
+        return TokenGenerator.generate(BATCH_SIZE, TOKEN_LENGTH);
+    }
+
+    @Benchmark
+    @Threads(32)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public String[] batch32Threads()
+    {
+        return TokenGenerator.generate(BATCH_SIZE, TOKEN_LENGTH);
+    }
+}
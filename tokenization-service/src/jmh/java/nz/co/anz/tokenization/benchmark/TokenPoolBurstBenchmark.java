@@ -0,0 +1,79 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.properties.TokenPoolProperties;
+import nz.co.anz.tokenization.services.TokenPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a burst of token creation: 32 threads each take the tokens of 100 {@code /tokenize} requests of
+ * {@code tokensPerRequest} first-time accounts from {@link TokenPool}, with the pool enabled and disabled (every
+ * token generated inline, as before). Each iteration starts from a full pool; bursts of 50-token requests outrun
+ * it, so they also cover the inline fallback while the minter catches up.
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenPoolBurstBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = 100)
+@Measurement(iterations = 20, batchSize = 100)
+@Fork(1)
+@Threads(32)
+@State(Scope.Benchmark)
+public class TokenPoolBurstBenchmark
+{
+    @Param({"true", "false"})
+    public boolean pooled;
+
+    @Param({"1", "50"})
+    public int tokensPerRequest;
+
+    private TokenPool tokenPool;
+
+    @Setup(Level.Trial)
+    public void startPool()
+    {
+        final TokenPoolProperties properties = new TokenPoolProperties();
+        properties.setEnabled(pooled);
+        tokenPool = new TokenPool(properties);
+        tokenPool.start();
+    }
+
+    @Setup(Level.Iteration)
+    public void awaitFullPool() throws InterruptedException
+    {
+        final int highWatermark = new TokenPoolProperties().getHighWatermark();
+        while (pooled && tokenPool.depth() < highWatermark) {
+            Thread.sleep(10);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopPool()
+    {
+        tokenPool.stop();
+    }
+
+    @Benchmark
+    public String[] take()
+    {
+        return tokenPool.take(tokensPerRequest);
+    }
+}
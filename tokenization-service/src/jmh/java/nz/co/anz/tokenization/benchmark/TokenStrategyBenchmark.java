@@ -0,0 +1,102 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Accounts tokenized per second with the {@code RANDOM} and {@code DETERMINISTIC} token strategies, against the
+ * in-memory H2 vault, 8 threads each tokenizing {@value #BATCH_SIZE} accounts per call.
+ * <p>
+ * {@code repeat} draws the accounts from {@value #REPEAT_ACCOUNTS} accounts tokenized up front, far more than the
+ * {@code accountToToken} cache holds, so {@code RANDOM} mostly reads existing mappings from the database while
+ * {@code DETERMINISTIC} derives their tokens again and has the writer check them in one query per batch.
+ * {@code create} only tokenizes accounts never seen before: a lookup, a token and an insert per account with
+ * {@code RANDOM}, a derivation and an insert batched with those of the other threads with {@code DETERMINISTIC}.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenStrategyBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TokenStrategyBenchmark
+{
+    private static final int BATCH_SIZE = 50;
+    private static final int REPEAT_ACCOUNTS = 100_000;
+
+    @Param({"RANDOM", "DETERMINISTIC"})
+    public String strategy;
+
+    private final AtomicLong accountSequence = new AtomicLong(REPEAT_ACCOUNTS);
+    private ConfigurableApplicationContext context;
+    private TokenizationService tokenizationService;
+
+    @Setup(Level.Trial)
+    public void startContext()
+    {
+        context = BenchmarkContext.start("tokenization.token-strategy.type=" + strategy,
+            "spring.datasource.hikari.maximum-pool-size=8");
+        tokenizationService = context.getBean(TokenizationService.class);
+        for (int first = 0; first < REPEAT_ACCOUNTS; first += BATCH_SIZE) {
+            tokenizationService.tokenize(accounts(first));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> repeat()
+    {
+        return tokenizationService.tokenize(accounts(ThreadLocalRandom.current().nextInt(REPEAT_ACCOUNTS - BATCH_SIZE)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> create()
+    {
+        return tokenizationService.tokenize(accounts(accountSequence.getAndAdd(BATCH_SIZE)));
+    }
+
+    private static List<String> accounts(final long first)
+    {
+        final List<String> accountNumbers = new ArrayList<>(BATCH_SIZE);
+        for (long account = first; account < first + BATCH_SIZE; account++) {
+            accountNumbers.add(String.format("4000-%04d-%04d-%04d",
+                account / 100_000_000, account / 10_000 % 10_000, account % 10_000));
+        }
+        return accountNumbers;
+    }
+}
@@ -0,0 +1,91 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * End-to-end cost of {@link TokenizationService#tokenize(List)} and {@link TokenizationService#detokenize(List)}
+ * for already-tokenized accounts against the in-memory H2 vault, with the caches either warm ({@code hit}) or
+ * invalidated before every call ({@code miss}) so every lookup goes to the database.
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenizationServiceBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizationServiceBenchmark
+{
+    @Param({"1", "10", "50"})
+    public int batchSize;
+
+    @Param({"hit", "miss"})
+    public String cache;
+
+    private ConfigurableApplicationContext context;
+    private TokenizationService tokenizationService;
+    private TokenMappingCache tokenMappingCache;
+    private List<String> accountNumbers;
+    private List<String> tokens;
+
+    @Setup(Level.Trial)
+    public void startContext()
+    {
+        context = BenchmarkContext.start();
+        tokenizationService = context.getBean(TokenizationService.class);
+        tokenMappingCache = context.getBean(TokenMappingCache.class);
+        accountNumbers = IntStream.range(0, batchSize)
+            .mapToObj(i -> String.format("4111-2222-3333-%04d", i))
+            .toList();
+        tokens = tokenizationService.tokenize(accountNumbers);
+    }
+
+    @Setup(Level.Invocation)
+    public void prepareCache()
+    {
+        if ("miss".equals(cache)) {
+            tokenMappingCache.invalidateAll();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> tokenize()
+    {
+        return tokenizationService.tokenize(accountNumbers);
+    }
+
+    @Benchmark
+    public List<String> detokenize()
+    {
+        return tokenizationService.detokenize(tokens);
+    }
+}
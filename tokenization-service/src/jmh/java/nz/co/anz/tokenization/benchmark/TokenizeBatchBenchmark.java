@@ -0,0 +1,138 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.services.TokenizationService;
+import nz.co.anz.tokenization.utils.TokenGenerator;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares the set-based {@code /tokenize} path with the previous per-account round trips.
+ * <p>
+ * Every invocation tokenizes {@code batchSize} account numbers that have never been seen before,
+ * i.e. the worst case where every account needs a new mapping. {@link Mode#SampleTime} reports the
+ * latency distribution (p50/p90/p99/p99.9) per request; the number of JDBC statements prepared per
+ * request is taken from Hibernate statistics and printed at the end of each iteration.
+ * </p>
+ * <p>
+ * The {@code per-account} path reproduces the old implementation: one lookup per account (now
+ * {@code findByAccountKey}), and one auto-committed {@code merge} (SELECT by id, then INSERT) per new mapping.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TokenizeBatchBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TokenizeBatchBenchmark
+{
+    @Param({"1", "10", "50"})
+    public int batchSize;
+
+    @Param({"batch", "per-account"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private TokenizationService tokenizationService;
+    private TokenRepository repository;
+    private AccountKeyHasher accountKeyHasher;
+    private TransactionTemplate transactionTemplate;
+    private EntityManager entityManager;
+    private Statistics statistics;
+    private long accountSequence;
+    private long requests;
+
+    @Setup(Level.Trial)
+    public void startContext()
+    {
+        context = BenchmarkContext.start("spring.jpa.properties.hibernate.generate_statistics=true");
+        tokenizationService = context.getBean(TokenizationService.class);
+        repository = context.getBean(TokenRepository.class);
+        accountKeyHasher = context.getBean(AccountKeyHasher.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        final EntityManagerFactory entityManagerFactory = context.getBean(EntityManagerFactory.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(entityManagerFactory);
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Setup(Level.Iteration)
+    public void resetStatistics()
+    {
+        statistics.clear();
+        requests = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportStatements()
+    {
+        System.out.printf("%n[%s, batchSize=%d] statements/request = %.2f%n",
+            path, batchSize, (double) statistics.getPrepareStatementCount() / Math.max(1, requests));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext()
+    {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> tokenize()
+    {
+        final List<String> accountNumbers = IntStream.range(0, batchSize)
+            .mapToObj(i -> String.format("4%015d", accountSequence++))
+            .toList();
+        requests++;
+        return "batch".equals(path)
+            ? tokenizationService.tokenize(accountNumbers)
+            : tokenizePerAccount(accountNumbers);
+    }
+
+    private List<String> tokenizePerAccount(final List<String> accountNumbers)
+    {
+        return accountNumbers.stream()
+            .map(accountNumber -> {
+                final AccountKey accountKey = accountKeyHasher.keyOf(accountNumber);
+                return repository.findByAccountKey(accountKey)
+                    .map(TokenEntity::getToken)
+                    .orElseGet(() -> {
+                        final String token = TokenGenerator.generate(32);
+                        transactionTemplate.executeWithoutResult(
+                            status -> entityManager.merge(new TokenEntity(token, accountNumber, accountKey)));
+                        return token;
+                    });
+            })
+            .toList();
+    }
+}
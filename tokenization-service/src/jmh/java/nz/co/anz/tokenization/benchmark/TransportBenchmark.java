@@ -0,0 +1,265 @@
+package nz.co.anz.tokenization.benchmark;
+
+import nz.co.anz.tokenization.grpc.GrpcServer;
+import nz.co.anz.tokenization.grpc.TokenizationGrpcService;
+import nz.co.anz.tokenization.grpc.api.DetokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.DetokenizeResponse;
+import nz.co.anz.tokenization.grpc.api.TokenizationGrpc;
+import nz.co.anz.tokenization.grpc.api.TokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.TokenizeResponse;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.stub.StreamObserver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput and CPU per token of tokenizing and detokenizing over localhost through the REST API, unary gRPC
+ * calls, and one bidirectional gRPC stream per client thread, for already-tokenized accounts (warm caches).
+ * <p>
+ * Client and server share the JVM, so the CPU per token printed after every iteration (process CPU time over
+ * the tokens sent) covers both sides of the call, serialization and the loopback network stack included. Compare
+ * it between transports rather than reading it as the cost of the server alone.
+ * </p>
+ *
+ * <pre>
+ * ./gradlew jmh -Pjmh.includes=TransportBenchmark
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class TransportBenchmark
+{
+    /**
+     * How the batches are sent.
+     */
+    public enum Transport
+    {
+        REST, GRPC_UNARY, GRPC_STREAMING
+    }
+
+    private static final com.sun.management.OperatingSystemMXBean OPERATING_SYSTEM =
+        (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    @Param({"REST", "GRPC_UNARY", "GRPC_STREAMING"})
+    public Transport transport;
+
+    // The REST API takes at most 50 items per request.
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private final LongAdder tokens = new LongAdder();
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest restTokenize;
+    private HttpRequest restDetokenize;
+    private ManagedChannel channel;
+    private TokenizationGrpc.TokenizationBlockingStub blockingStub;
+    private TokenizeRequest tokenizeRequest;
+    private DetokenizeRequest detokenizeRequest;
+    private long cpuAtStart;
+
+    @Setup(Level.Trial)
+    public void startContext()
+    {
+        context = BenchmarkContext.startWeb("tokenization.grpc.enabled=true");
+        final List<String> accountNumbers = IntStream.range(0, batchSize)
+            .mapToObj(i -> String.format("4111-2222-3333-%04d", i))
+            .toList();
+        final List<String> batchTokens = context.getBean(TokenizationService.class).tokenize(accountNumbers);
+
+        final String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        restTokenize = post(baseUri + "/tokenize", accountNumbers);
+        restDetokenize = post(baseUri + "/detokenize", batchTokens);
+
+        channel = ManagedChannelBuilder.forAddress("localhost", context.getBean(GrpcServer.class).getPort())
+            .usePlaintext()
+            .build();
+        blockingStub = TokenizationGrpc.newBlockingStub(channel);
+        tokenizeRequest = TokenizeRequest.newBuilder().addAllAccountNumbers(accountNumbers).build();
+        detokenizeRequest = DetokenizeRequest.newBuilder()
+            .setTokens(TokenizationGrpcService.encode(batchTokens))
+            .build();
+    }
+
+    @Setup(Level.Iteration)
+    public void startCpuClock()
+    {
+        tokens.reset();
+        cpuAtStart = OPERATING_SYSTEM.getProcessCpuTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCpuPerToken()
+    {
+        final long cpu = OPERATING_SYSTEM.getProcessCpuTime() - cpuAtStart;
+        final long sent = tokens.sum();
+        if (sent > 0) {
+            System.out.printf("%n[%s, batchSize=%d] CPU per token: %.2f us (%d tokens)%n", transport, batchSize,
+                cpu / 1e3 / sent, sent);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() throws InterruptedException
+    {
+        channel.shutdownNow().awaitTermination(10, TimeUnit.SECONDS);
+        httpClient.close();
+        context.close();
+    }
+
+    /**
+     * The bidirectional streams of one client thread, open for the whole trial.
+     */
+    @State(Scope.Thread)
+    public static class Streams
+    {
+        private Exchange<TokenizeRequest, TokenizeResponse> tokenize;
+        private Exchange<DetokenizeRequest, DetokenizeResponse> detokenize;
+
+        @Setup(Level.Trial)
+        public void open(final TransportBenchmark benchmark)
+        {
+            if (benchmark.transport == Transport.GRPC_STREAMING) {
+                final TokenizationGrpc.TokenizationStub stub = TokenizationGrpc.newStub(benchmark.channel);
+                tokenize = new Exchange<>(stub::tokenizeStream);
+                detokenize = new Exchange<>(stub::detokenizeStream);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void close()
+        {
+            if (tokenize != null) {
+                tokenize.close();
+                detokenize.close();
+            }
+        }
+    }
+
+    @Benchmark
+    public Object tokenize(final Streams streams) throws IOException, InterruptedException
+    {
+        final Object response = switch (transport) {
+            case REST -> send(restTokenize);
+            case GRPC_UNARY -> blockingStub.tokenize(tokenizeRequest);
+            case GRPC_STREAMING -> streams.tokenize.call(tokenizeRequest);
+        };
+        tokens.add(batchSize);
+        return response;
+    }
+
+    @Benchmark
+    public Object detokenize(final Streams streams) throws IOException, InterruptedException
+    {
+        final Object response = switch (transport) {
+            case REST -> send(restDetokenize);
+            case GRPC_UNARY -> blockingStub.detokenize(detokenizeRequest);
+            case GRPC_STREAMING -> streams.detokenize.call(detokenizeRequest);
+        };
+        tokens.add(batchSize);
+        return response;
+    }
+
+    private static HttpRequest post(final String uri, final List<String> items)
+    {
+        final String body = items.stream().collect(Collectors.joining("\",\"", "[\"", "\"]"));
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body))
+            .build();
+    }
+
+    private byte[] send(final HttpRequest request) throws IOException, InterruptedException
+    {
+        final HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("HTTP " + response.statusCode() + " from " + request.uri());
+        }
+        return response.body();
+    }
+
+    /**
+     * Request-response over a bidirectional stream: one message out, then waits for its answer.
+     */
+    private static final class Exchange<Q, R> implements StreamObserver<R>
+    {
+        private final BlockingQueue<Object> responses = new ArrayBlockingQueue<>(1);
+        private final StreamObserver<Q> requests;
+
+        private Exchange(final Function<StreamObserver<R>, StreamObserver<Q>> open)
+        {
+            this.requests = open.apply(this);
+        }
+
+        @SuppressWarnings("unchecked")
+        private R call(final Q request) throws InterruptedException
+        {
+            requests.onNext(request);
+            final Object response = responses.take();
+            if (response instanceof Throwable failure) {
+                throw new IllegalStateException("gRPC stream failed", failure);
+            }
+            return (R) response;
+        }
+
+        private void close()
+        {
+            requests.onCompleted();
+        }
+
+        @Override
+        public void onNext(final R response)
+        {
+            responses.add(response);
+        }
+
+        @Override
+        public void onError(final Throwable t)
+        {
+            responses.offer(t);
+        }
+
+        @Override
+        public void onCompleted()
+        {
+            // Nothing to wait for: every request was answered.
+        }
+    }
+}
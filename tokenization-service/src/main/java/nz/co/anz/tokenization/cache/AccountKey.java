@@ -0,0 +1,45 @@
+package nz.co.anz.tokenization.cache;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Compact key standing in for an account number.
+ * <p>
+ * Holds the leading 128 bits of a keyed hash of the canonical account number (see {@link AccountKeyHasher}),
+ * so neither the reverse cache nor the {@code account_hash} column keeps raw account numbers as keys, and
+ * a lookup compares two longs (or 16 bytes) instead of strings.
+ * </p>
+ *
+ * @param high the first 64 bits of the keyed hash
+ * @param low  the next 64 bits of the keyed hash
+ */
+public record AccountKey(long high, long low)
+{
+    /**
+     * Size of a key in bytes.
+     */
+    public static final int BYTES = 2 * Long.BYTES;
+
+    /**
+     * Reads a key from its binary form.
+     *
+     * @param bytes the {@link #BYTES} bytes returned by {@link #toBytes()}
+     * @return the key
+     */
+    public static AccountKey fromBytes(final byte[] bytes)
+    {
+        if (bytes.length != BYTES) {
+            throw new IllegalArgumentException("Account key must be " + BYTES + " bytes: " + bytes.length);
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new AccountKey(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * @return the key as {@link #BYTES} big-endian bytes
+     */
+    public byte[] toBytes()
+    {
+        return ByteBuffer.allocate(BYTES).putLong(high).putLong(low).array();
+    }
+}
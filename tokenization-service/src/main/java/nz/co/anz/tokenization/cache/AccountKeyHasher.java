@@ -0,0 +1,106 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.properties.AccountKeyProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Derives {@link AccountKey}s from account numbers with HMAC-SHA256.
+ * <p>
+ * The hash is taken over the canonical form of the account number, its digits only, so
+ * {@code 4111-1111-1111-1111}, {@code 4111 1111 1111 1111} and {@code 4111111111111111} share one key,
+ * and therefore one row in the vault and one entry in the reverse cache.
+ * </p>
+ * <p>
+ * The keys are persisted in the {@code account_hash} column, so the HMAC secret
+ * ({@code tokenization.account-key.secret}) must be the same on every replica and must not change once
+ * mappings have been written. Being keyed, the column cannot be reversed by hashing candidate account
+ * numbers offline without the secret.
+ * </p>
+ */
+@Component
+public class AccountKeyHasher
+{
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Mac prototype;
+
+    /**
+     * Constructor with the configured HMAC secret.
+     *
+     * @param properties holds the HMAC secret
+     */
+    @Autowired
+    public AccountKeyHasher(final AccountKeyProperties properties)
+    {
+        this(properties.secretBytes());
+    }
+
+    /**
+     * Constructor with a random HMAC secret, for keys that never outlive the process (tests, benchmarks).
+     */
+    public AccountKeyHasher()
+    {
+        this(randomSecret());
+    }
+
+    private AccountKeyHasher(final byte[] secret)
+    {
+        try {
+            prototype = Mac.getInstance(ALGORITHM);
+            prototype.init(new SecretKeySpec(secret, ALGORITHM));
+        }
+        catch (final GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    /**
+     * Computes the key of an account number.
+     *
+     * @param accountNumber the account number, in any of the accepted formats; must not be {@code null}
+     * @return the keyed hash of the digits of the account number
+     */
+    public AccountKey keyOf(final String accountNumber)
+    {
+        final byte[] digits = new byte[accountNumber.length()];
+        int length = 0;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            final char c = accountNumber.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits[length++] = (byte) c;
+            }
+        }
+        final Mac mac = newMac();
+        mac.update(digits, 0, length);
+        final ByteBuffer buffer = ByteBuffer.wrap(mac.doFinal());
+        return new AccountKey(buffer.getLong(), buffer.getLong());
+    }
+
+    /**
+     * {@link Mac} instances are not thread-safe; cloning the initialised prototype is much cheaper
+     * than {@code Mac.getInstance} plus {@code init} on every call.
+     */
+    private Mac newMac()
+    {
+        try {
+            return (Mac) prototype.clone();
+        }
+        catch (final CloneNotSupportedException e) {
+            throw new IllegalStateException("HmacSHA256 implementation is not cloneable", e);
+        }
+    }
+
+    private static byte[] randomSecret()
+    {
+        final byte[] secret = new byte[AccountKeyProperties.MINIMUM_SECRET_BYTES];
+        new SecureRandom().nextBytes(secret);
+        return secret;
+    }
+}
@@ -0,0 +1,113 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.utils.AccountMasker;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.RemovalListener;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+
+/**
+ * Aggregates the removals of one Caffeine cache into counters by {@link RemovalCause}.
+ * <p>
+ * Installed as the cache's {@code removalListener}, which Caffeine runs on its executor rather than on the
+ * maintenance path, so an eviction storm costs one {@link LongAdder} increment per entry instead of a log line.
+ * The counts are logged as a periodic summary ({@code tokenization.cache.removals.summary-interval}) and exposed
+ * as the {@code cache.removals} metric, tagged by {@code cache} and {@code cause}, next to the cache's
+ * {@code recordStats()} metrics. A fraction of removals ({@code tokenization.cache.removals.sample-rate},
+ * off by default) is also logged individually with the token masked.
+ * </p>
+ */
+public class CacheRemovalCounter implements RemovalListener<Object, Object>, MeterBinder
+{
+    private static final Logger logger = LogManager.getLogger(CacheRemovalCounter.class);
+
+    private static final RemovalCause[] CAUSES = RemovalCause.values();
+
+    private final String cacheName;
+    private final BiFunction<Object, Object, Object> tokenOf;
+    private final double sampleRate;
+    private final LongAdder[] counts = new LongAdder[CAUSES.length];
+    private final long[] reported = new long[CAUSES.length];
+
+    /**
+     * Constructor.
+     *
+     * @param cacheName  the name of the cache, used in logs and as the {@code cache} tag
+     * @param tokenOf    extracts the token from a removed key and value, for sampled detail
+     * @param sampleRate fraction of removals, between 0 and 1, to log individually
+     */
+    public CacheRemovalCounter(final String cacheName, final BiFunction<Object, Object, Object> tokenOf,
+                               final double sampleRate)
+    {
+        this.cacheName = cacheName;
+        this.tokenOf = tokenOf;
+        this.sampleRate = sampleRate;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onRemoval(final Object key, final Object value, final RemovalCause cause)
+    {
+        counts[cause.ordinal()].increment();
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate) {
+            final Object token = tokenOf.apply(key, value);
+            logger.info("Token '{}' was removed ({}) from {}",
+                AccountMasker.masked(token == null ? null : token.toString()), cause, cacheName);
+        }
+    }
+
+    /**
+     * @param cause the removal cause
+     * @return the number of entries removed for {@code cause} since startup
+     */
+    public long count(final RemovalCause cause)
+    {
+        return counts[cause.ordinal()].sum();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry)
+    {
+        for (final RemovalCause cause : CAUSES) {
+            FunctionCounter.builder("cache.removals", this, counter -> counter.count(cause))
+                .description("Entries removed from the cache, by cause")
+                .tag("cache", cacheName)
+                .tag("cause", cause.name())
+                .register(registry);
+        }
+    }
+
+    /**
+     * Logs the removals since the previous summary, if there were any.
+     */
+    @Scheduled(fixedDelayString = "${tokenization.cache.removals.summary-interval:PT1M}",
+        initialDelayString = "${tokenization.cache.removals.summary-interval:PT1M}")
+    public void logSummary()
+    {
+        final StringJoiner summary = new StringJoiner(", ");
+        long total = 0;
+        for (final RemovalCause cause : CAUSES) {
+            final long count = count(cause);
+            final long delta = count - reported[cause.ordinal()];
+            reported[cause.ordinal()] = count;
+            if (delta > 0) {
+                summary.add(cause + "=" + delta);
+                total += delta;
+            }
+        }
+        if (total > 0) {
+            logger.info("{} entries removed from {} since last summary: {}", total, cacheName, summary);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.validators.Formats;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+/**
+ * Preloads the {@code tokenToAccount} cache on startup so a fresh instance does not send every
+ * detokenization to the database.
+ * <p>
+ * At shutdown the tokens the cache rates hottest are written to {@code tokenization.cache.warm-up.snapshot-file}
+ * (tokens only, never account numbers). At startup the snapshot is loaded back through the repository; without a
+ * snapshot, the most recently created mappings are loaded instead, since reads are not recorded in the database.
+ * Either way at most {@code tokenization.cache.maximum-size} mappings are loaded.
+ * </p>
+ * <p>
+ * The warm-up runs as an {@link ApplicationRunner}, and Spring Boot only reports the application as ready
+ * ({@code /actuator/health/readiness}) once all runners have returned. The runner waits for the warm-up up to
+ * {@code tokenization.cache.warm-up.timeout}, then lets the service become ready with a partially warm cache.
+ * </p>
+ */
+@Component
+public class CacheWarmUp implements ApplicationRunner
+{
+    private static final Logger logger = LogManager.getLogger(CacheWarmUp.class);
+
+    private static final Comparator<TokenEntity> NEWEST_FIRST = Comparator
+        .comparing(TokenEntity::getCreatedAt, Comparator.nullsFirst(Comparator.naturalOrder()))
+        .reversed();
+
+    private final TokenRepository repository;
+    private final ShardRouter shardRouter;
+    private final TokenMappingCache tokenMappingCache;
+    private final TokenCacheProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param repository        loads the mappings to warm the cache with
+     * @param shardRouter       reads the snapshot's mappings from their shards, and the recent ones from every shard
+     * @param tokenMappingCache the caches to warm
+     * @param properties        cache size and warm-up settings
+     */
+    public CacheWarmUp(final TokenRepository repository, final ShardRouter shardRouter,
+                       final TokenMappingCache tokenMappingCache, final TokenCacheProperties properties)
+    {
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.tokenMappingCache = tokenMappingCache;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args) throws InterruptedException
+    {
+        final TokenCacheProperties.WarmUp warmUp = properties.getWarmUp();
+        if (!warmUp.isEnabled()) {
+            return;
+        }
+
+        final long startedAt = System.nanoTime();
+        final FutureTask<Integer> loading = new FutureTask<>(this::warmUp);
+        Thread.ofPlatform().name("cache-warm-up").daemon().start(loading);
+        try {
+            final int loaded = loading.get(warmUp.getTimeout().toMillis(), TimeUnit.MILLISECONDS);
+            logger.info("Cache warm-up loaded {} mappings in {} ms", loaded,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        catch (final TimeoutException e) {
+            loading.cancel(true);
+            logger.warn("Cache warm-up did not finish within {}, accepting traffic with a partially warm cache",
+                warmUp.getTimeout());
+        }
+        catch (final ExecutionException e) {
+            logger.warn("Cache warm-up failed, accepting traffic with a cold cache", e.getCause());
+        }
+    }
+
+    /**
+     * Loads the snapshot, or the most recent mappings if there is none, into the caches.
+     *
+     * @return the number of mappings loaded
+     */
+    int warmUp()
+    {
+        final int limit = properties.getMaximumSize();
+        final List<String> snapshot = readSnapshot(limit);
+        if (snapshot.isEmpty()) {
+            final List<TokenEntity> recent =
+                shardRouter.onEachShard(() -> repository.findByOrderByCreatedAtDesc(Limit.of(limit))).stream()
+                    .flatMap(List::stream)
+                    .sorted(NEWEST_FIRST)
+                    .limit(limit)
+                    .toList();
+            tokenMappingCache.putAll(recent);
+            return recent.size();
+        }
+
+        int loaded = 0;
+        final int batchSize = properties.getWarmUp().getBatchSize();
+        for (int from = 0; from < snapshot.size() && !Thread.currentThread().isInterrupted(); from += batchSize) {
+            final List<TokenEntity> mappings =
+                shardRouter.findAllById(snapshot.subList(from, Math.min(from + batchSize, snapshot.size())));
+            tokenMappingCache.putAll(mappings);
+            loaded += mappings.size();
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes the hottest cached tokens to the snapshot file.
+     */
+    @PreDestroy
+    public void writeSnapshot()
+    {
+        final Path snapshotFile = properties.getWarmUp().getSnapshotFile();
+        if (!properties.getWarmUp().isEnabled() || snapshotFile == null) {
+            return;
+        }
+
+        final List<String> tokens = tokenMappingCache.hottestTokens(properties.getMaximumSize());
+        try {
+            final Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            // Temporary files are created readable by the owner only.
+            final Path temporary = Files.createTempFile(directory, "hot-tokens", ".tmp");
+            Files.write(temporary, tokens, StandardCharsets.US_ASCII);
+            try {
+                Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (final AtomicMoveNotSupportedException e) {
+                Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING);
+            }
+            logger.info("Wrote {} hot tokens to {}", tokens.size(), snapshotFile);
+        }
+        catch (final IOException e) {
+            logger.warn("Could not write the cache snapshot to {}", snapshotFile, e);
+        }
+    }
+
+    private List<String> readSnapshot(final int limit)
+    {
+        final Path snapshotFile = properties.getWarmUp().getSnapshotFile();
+        if (snapshotFile == null || Files.notExists(snapshotFile)) {
+            return List.of();
+        }
+        try (Stream<String> lines = Files.lines(snapshotFile, StandardCharsets.US_ASCII)) {
+            return lines.map(String::strip)
+                .filter(Formats::isToken)
+                .limit(limit)
+                .toList();
+        }
+        catch (final IOException | RuntimeException e) {
+            logger.warn("Could not read the cache snapshot {}, warming up from recent mappings", snapshotFile, e);
+            return List.of();
+        }
+    }
+}
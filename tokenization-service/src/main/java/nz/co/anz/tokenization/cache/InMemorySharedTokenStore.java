@@ -0,0 +1,57 @@
+package nz.co.anz.tokenization.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * In-process {@link SharedTokenStore}, standing in for an out-of-process store in tests and local runs.
+ * <p>
+ * Replicas only share it when they share the JVM, so it is meant for simulating several replicas
+ * against one store rather than for production.
+ * </p>
+ */
+public class InMemorySharedTokenStore implements SharedTokenStore
+{
+    private final Cache<String, String> entries;
+
+    /**
+     * Constructor.
+     *
+     * @param ttl         how long mappings are kept
+     * @param negativeTtl how long unknown tokens are remembered
+     * @param maximumSize the maximum number of entries
+     */
+    public InMemorySharedTokenStore(final Duration ttl, final Duration negativeTtl, final long maximumSize)
+    {
+        this.entries = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(Expiry.<String, String>writing(
+                (token, accountNumber) -> NOT_FOUND.equals(accountNumber) ? negativeTtl : ttl))
+            .build();
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> tokens)
+    {
+        return entries.getAllPresent(tokens);
+    }
+
+    @Override
+    public void putAll(final Map<String, String> accountsByToken)
+    {
+        entries.putAll(accountsByToken);
+    }
+
+    @Override
+    public void putNotFound(final Collection<String> tokens)
+    {
+        for (final String token : tokens) {
+            entries.put(token, NOT_FOUND);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package nz.co.anz.tokenization.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+
+import java.time.Duration;
+
+/**
+ * Access-based expiry whose duration varies per key between {@code ttl * (1 - jitter)} and {@code ttl}.
+ * <p>
+ * The fraction is derived from the key's hash, so a given token always gets the same lifetime, while a batch
+ * of tokens cached at the same moment expires spread out over time instead of in one burst of misses.
+ * </p>
+ */
+public class JitteredExpiry implements Expiry<Object, Object>
+{
+    private final long ttlNanos;
+    private final double jitter;
+
+    /**
+     * Constructor.
+     *
+     * @param ttl    the longest lifetime of an idle entry
+     * @param jitter the largest fraction, between 0 and 1, an entry's lifetime is shortened by
+     */
+    public JitteredExpiry(final Duration ttl, final double jitter)
+    {
+        this.ttlNanos = ttl.toNanos();
+        this.jitter = jitter;
+    }
+
+    /**
+     * @param key the cache key
+     * @return the idle lifetime of entries with {@code key}, in nanoseconds
+     */
+    public long lifetimeOf(final Object key)
+    {
+        final double fraction = (key.hashCode() & Integer.MAX_VALUE) / (double) Integer.MAX_VALUE;
+        return ttlNanos - (long) (ttlNanos * jitter * fraction);
+    }
+
+    @Override
+    public long expireAfterCreate(final Object key, final Object value, final long currentTime)
+    {
+        return lifetimeOf(key);
+    }
+
+    @Override
+    public long expireAfterUpdate(final Object key, final Object value, final long currentTime,
+                                  final long currentDuration)
+    {
+        return lifetimeOf(key);
+    }
+
+    @Override
+    public long expireAfterRead(final Object key, final Object value, final long currentTime,
+                                final long currentDuration)
+    {
+        return lifetimeOf(key);
+    }
+}
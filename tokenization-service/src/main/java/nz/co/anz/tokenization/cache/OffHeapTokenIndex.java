@@ -0,0 +1,385 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.validators.Formats;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link TokenIndex} kept in a memory-mapped file as an insert-only, open-addressing hash table.
+ * <p>
+ * Every mapping occupies one 64-byte slot: the 32 token characters, the length of the account number and
+ * up to 31 account number characters, all as single bytes. Slots are probed linearly from a hash of the
+ * token; the table never holds more than three quarters of its slots, and since mappings are never
+ * removed there are no tombstones. Nothing but the mapped regions is allocated per mapping, so the
+ * index can hold tens of millions of mappings without adding to the Java heap or to GC work.
+ * </p>
+ * <p>
+ * Writers are serialised on a {@link ReentrantLock}, which a virtual thread waits on without pinning its
+ * carrier; readers take no lock. A slot is published by writing its first eight token
+ * bytes last, with release semantics, and readers read them with acquire semantics, so a reader sees
+ * either an empty slot or a complete one.
+ * </p>
+ * <p>
+ * The file starts with a header recording the table size and whether it was closed cleanly after being
+ * fully built; a file that was not is discarded on {@link #open} and the index starts empty.
+ * </p>
+ * <p>
+ * The file holds account numbers in the clear, so on a POSIX file system it is readable and writable by the
+ * owner only, and directories created for it are accessible by the owner only.
+ * </p>
+ */
+public final class OffHeapTokenIndex implements TokenIndex
+{
+    static final int SLOT_BYTES = 64;
+    static final int MAX_ACCOUNT_BYTES = SLOT_BYTES - Formats.TOKEN_LENGTH - 1;
+
+    private static final long MAGIC = 0x5844_4E49_4E4B_4F54L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int STATE_OFFSET = 12;
+    private static final int SLOTS_OFFSET = 16;
+    private static final int SIZE_OFFSET = 24;
+    private static final int STATE_DIRTY = 0;
+    private static final int STATE_COMPLETE = 1;
+
+    /**
+     * Slots per mapped region: 2^24 slots of 64 bytes is 1 GiB, below the 2 GiB limit of a mapped buffer.
+     */
+    private static final int REGION_SHIFT = 24;
+
+    private static final Set<PosixFilePermission> FILE_PERMISSIONS = PosixFilePermissions.fromString("rw-------");
+    private static final Set<PosixFilePermission> DIRECTORY_PERMISSIONS = PosixFilePermissions.fromString("rwx------");
+
+    private static final VarHandle LONG_VIEW =
+        MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final MappedByteBuffer[] regions;
+    private final long slotMask;
+    private final long regionMask;
+    private final long maximumSize;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile long size;
+    private volatile boolean complete;
+
+    private OffHeapTokenIndex(final FileChannel channel, final long slots, final long size, final boolean complete)
+        throws IOException
+    {
+        this.channel = channel;
+        this.header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        final long regionSlots = Math.min(slots, 1L << REGION_SHIFT);
+        this.regions = new MappedByteBuffer[(int) (slots / regionSlots)];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = channel.map(FileChannel.MapMode.READ_WRITE,
+                HEADER_BYTES + i * regionSlots * SLOT_BYTES, regionSlots * SLOT_BYTES);
+        }
+        this.slotMask = slots - 1;
+        this.regionMask = regionSlots - 1;
+        this.maximumSize = slots / 4 * 3;
+        this.size = size;
+        this.complete = complete;
+    }
+
+    /**
+     * Opens the index in {@code file}, reusing its contents if it was closed cleanly after being fully
+     * built with the same number of slots, and starting empty otherwise.
+     *
+     * @param file     the index file; created if missing, with its directories, accessible by the owner only
+     * @param capacity the number of mappings the index must be able to hold
+     * @return the index; {@link #isComplete()} tells whether it still has to be built
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static OffHeapTokenIndex open(final Path file, final long capacity) throws IOException
+    {
+        final long slots = slotsFor(capacity);
+        final boolean posix = file.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (file.getParent() != null) {
+            if (posix) {
+                Files.createDirectories(file.getParent(), PosixFilePermissions.asFileAttribute(DIRECTORY_PERMISSIONS));
+            }
+            else {
+                Files.createDirectories(file.getParent());
+            }
+        }
+        final Set<StandardOpenOption> options =
+            EnumSet.of(StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        final FileChannel channel = posix
+            ? FileChannel.open(file, options, PosixFilePermissions.asFileAttribute(FILE_PERMISSIONS))
+            : FileChannel.open(file, options);
+        try {
+            if (posix) {
+                // A file left by an older version was created with the umask.
+                Files.setPosixFilePermissions(file, FILE_PERMISSIONS);
+            }
+            OffHeapTokenIndex index = null;
+            if (channel.size() == HEADER_BYTES + slots * SLOT_BYTES) {
+                final ByteBuffer existing = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                if (existing.getLong(MAGIC_OFFSET) == MAGIC
+                    && existing.getInt(VERSION_OFFSET) == VERSION
+                    && existing.getInt(STATE_OFFSET) == STATE_COMPLETE
+                    && existing.getLong(SLOTS_OFFSET) == slots) {
+                    index = new OffHeapTokenIndex(channel, slots, existing.getLong(SIZE_OFFSET), true);
+                }
+            }
+            if (index == null) {
+                channel.truncate(0);
+                index = new OffHeapTokenIndex(channel, slots, 0, false);
+            }
+            index.writeHeader(STATE_DIRTY);
+            return index;
+        }
+        catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> tokens)
+    {
+        final Map<String, String> accountsByToken = HashMap.newHashMap(tokens.size());
+        for (final String token : tokens) {
+            final String accountNumber = get(token);
+            if (accountNumber != null) {
+                accountsByToken.put(token, accountNumber);
+            }
+        }
+        return accountsByToken;
+    }
+
+    /**
+     * Looks up one token.
+     *
+     * @param token the token
+     * @return its account number, or {@code null} if the token is not indexed
+     */
+    public String get(final String token)
+    {
+        if (!Formats.isToken(token)) {
+            return null;
+        }
+        final long tag = tagOf(token);
+        for (long slot = hash(token) & slotMask; ; slot = (slot + 1) & slotMask) {
+            final MappedByteBuffer region = regions[(int) (slot >>> REGION_SHIFT)];
+            final int offset = (int) ((slot & regionMask) * SLOT_BYTES);
+            final long slotTag = (long) LONG_VIEW.getAcquire(region, offset);
+            if (slotTag == 0) {
+                return null;
+            }
+            if (slotTag == tag && matches(region, offset, token)) {
+                final byte[] accountNumber = new byte[region.get(offset + Formats.TOKEN_LENGTH)];
+                region.get(offset + Formats.TOKEN_LENGTH + 1, accountNumber);
+                return new String(accountNumber, StandardCharsets.ISO_8859_1);
+            }
+        }
+    }
+
+    @Override
+    public void putAll(final Map<String, String> accountsByToken)
+    {
+        writeLock.lock();
+        try {
+            accountsByToken.forEach(this::put);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds one mapping unless it is already indexed, the index is full, or it does not fit a slot
+     * (a malformed token, or a non-ASCII account number longer than {@value #MAX_ACCOUNT_BYTES} characters).
+     *
+     * @param token         the token
+     * @param accountNumber its account number
+     * @return {@code true} if the mapping is indexed afterwards
+     */
+    public boolean put(final String token, final String accountNumber)
+    {
+        if (!Formats.isToken(token) || !fitsSlot(accountNumber)) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            return insert(token, accountNumber);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of indexed mappings
+     */
+    public long size()
+    {
+        return size;
+    }
+
+    /**
+     * @return the number of mappings the index holds at most
+     */
+    public long maximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * @return {@code true} once the index holds every mapping of the vault, i.e. it was reopened or
+     *         {@linkplain #markComplete() marked} complete
+     */
+    public boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * Records that the index has been built from the whole vault, so it is reused after a clean close.
+     */
+    public void markComplete()
+    {
+        complete = true;
+    }
+
+    /**
+     * Flushes the table to the file and, if the index is complete, marks the file reusable.
+     */
+    @Override
+    public void close()
+    {
+        writeLock.lock();
+        try {
+            for (final MappedByteBuffer region : regions) {
+                region.force();
+            }
+            writeHeader(complete ? STATE_COMPLETE : STATE_DIRTY);
+            channel.close();
+        }
+        catch (final IOException e) {
+            throw new IllegalStateException("Could not close token index", e);
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @param capacity the number of mappings to hold
+     * @return the smallest power-of-two number of slots holding {@code capacity} mappings at 75% load
+     */
+    static long slotsFor(final long capacity)
+    {
+        final long minimumSlots = Math.max(1, (capacity * 4 + 2) / 3);
+        return Math.max(Long.highestOneBit(minimumSlots - 1) << 1, 1L << 4);
+    }
+
+    private boolean insert(final String token, final String accountNumber)
+    {
+        final long tag = tagOf(token);
+        for (long slot = hash(token) & slotMask; ; slot = (slot + 1) & slotMask) {
+            final MappedByteBuffer region = regions[(int) (slot >>> REGION_SHIFT)];
+            final int offset = (int) ((slot & regionMask) * SLOT_BYTES);
+            final long slotTag = (long) LONG_VIEW.get(region, offset);
+            if (slotTag == 0) {
+                if (size >= maximumSize) {
+                    return false;
+                }
+                for (int i = Long.BYTES; i < Formats.TOKEN_LENGTH; i++) {
+                    region.put(offset + i, (byte) token.charAt(i));
+                }
+                region.put(offset + Formats.TOKEN_LENGTH, (byte) accountNumber.length());
+                for (int i = 0; i < accountNumber.length(); i++) {
+                    region.put(offset + Formats.TOKEN_LENGTH + 1 + i, (byte) accountNumber.charAt(i));
+                }
+                LONG_VIEW.setRelease(region, offset, tag);
+                size++;
+                return true;
+            }
+            if (slotTag == tag && matches(region, offset, token)) {
+                return true;
+            }
+        }
+    }
+
+    private void writeHeader(final int state)
+    {
+        header.order(ByteOrder.LITTLE_ENDIAN)
+            .putLong(MAGIC_OFFSET, MAGIC)
+            .putInt(VERSION_OFFSET, VERSION)
+            .putInt(STATE_OFFSET, state)
+            .putLong(SLOTS_OFFSET, slotMask + 1)
+            .putLong(SIZE_OFFSET, size);
+        header.force();
+    }
+
+    private static boolean fitsSlot(final String accountNumber)
+    {
+        if (accountNumber == null || accountNumber.isEmpty() || accountNumber.length() > MAX_ACCOUNT_BYTES) {
+            return false;
+        }
+        for (int i = 0; i < accountNumber.length(); i++) {
+            if (accountNumber.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(final MappedByteBuffer region, final int offset, final String token)
+    {
+        for (int i = Long.BYTES; i < Formats.TOKEN_LENGTH; i++) {
+            if (region.get(offset + i) != (byte) token.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The first eight token characters as the little-endian long stored at the start of the slot; never
+     * zero for a well-formed token, so zero marks an empty slot.
+     */
+    private static long tagOf(final String token)
+    {
+        long tag = 0;
+        for (int i = Long.BYTES - 1; i >= 0; i--) {
+            tag = (tag << Byte.SIZE) | token.charAt(i);
+        }
+        return tag;
+    }
+
+    private static long hash(final String token)
+    {
+        long hash = 0;
+        for (int i = 0; i < Formats.TOKEN_LENGTH; i++) {
+            hash = hash * 31 + token.charAt(i);
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,175 @@
+package nz.co.anz.tokenization.cache;
+
+import io.lettuce.core.ClientOptions;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.SocketOptions;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.protocol.ProtocolVersion;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link SharedTokenStore} kept in Redis (or any server speaking the Redis protocol), accessed with Lettuce.
+ * <p>
+ * Lookups are a single {@code MGET}; writes are pipelined {@code SET ... EX} commands on the one shared,
+ * thread-safe connection. While the connection is down commands are rejected immediately rather than
+ * queued, so a lost store costs each request one failed call before it falls back to the vault.
+ * </p>
+ * <p>
+ * The connection is opened on first use, not on startup, so the service starts while the store is down. A
+ * failed attempt is retried at most every {@code reconnectDelay}, and calls in between fail at once, like
+ * calls on a lost connection; once connected, Lettuce reconnects by itself. The store holds account numbers,
+ * so the URI must either use TLS ({@code rediss://}) or carry credentials (see {@code TokenCacheProperties}).
+ * </p>
+ */
+public class RedisSharedTokenStore implements SharedTokenStore
+{
+    private static final Logger logger = LogManager.getLogger(RedisSharedTokenStore.class);
+
+    private final RedisClient client;
+    private final String keyPrefix;
+    private final SetArgs positiveArgs;
+    private final SetArgs negativeArgs;
+    private final long reconnectDelayNanos;
+    private final ReentrantLock connecting = new ReentrantLock();
+    private volatile StatefulRedisConnection<String, String> connection;
+    private volatile long nextAttemptAt = System.nanoTime();
+
+    /**
+     * Constructor; the store is connected to on first use.
+     *
+     * @param uri            the store's {@code rediss://} or {@code redis://} URI
+     * @param timeout        the connect and command timeout
+     * @param reconnectDelay how long after a failed connection attempt calls fail without another attempt
+     * @param keyPrefix      prepended to every token to form its key
+     * @param ttl            how long mappings are kept
+     * @param negativeTtl    how long unknown tokens are remembered
+     */
+    public RedisSharedTokenStore(final String uri, final Duration timeout, final Duration reconnectDelay,
+                                 final String keyPrefix, final Duration ttl, final Duration negativeTtl)
+    {
+        final RedisURI redisUri = RedisURI.create(uri);
+        redisUri.setTimeout(timeout);
+        if (!redisUri.isSsl()) {
+            logger.warn("Shared token store at {}:{} is not using TLS; account numbers cross the network in the "
+                + "clear", redisUri.getHost(), redisUri.getPort());
+        }
+        this.client = RedisClient.create(redisUri);
+        this.client.setOptions(ClientOptions.builder()
+            .protocolVersion(ProtocolVersion.RESP2)
+            .socketOptions(SocketOptions.builder().connectTimeout(timeout).build())
+            .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+            .build());
+        this.keyPrefix = keyPrefix;
+        this.positiveArgs = SetArgs.Builder.ex(ttl);
+        this.negativeArgs = SetArgs.Builder.ex(negativeTtl);
+        this.reconnectDelayNanos = reconnectDelay.toNanos();
+    }
+
+    @Override
+    public Map<String, String> getAll(final Collection<String> tokens)
+    {
+        if (tokens.isEmpty()) {
+            return Map.of();
+        }
+        final List<String> orderedTokens = List.copyOf(tokens);
+        final String[] keys = new String[orderedTokens.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyPrefix + orderedTokens.get(i);
+        }
+        final List<KeyValue<String, String>> values = connection().sync().mget(keys);
+        final Map<String, String> accountsByToken = HashMap.newHashMap(values.size());
+        for (int i = 0; i < keys.length; i++) {
+            final KeyValue<String, String> value = values.get(i);
+            if (value.hasValue()) {
+                accountsByToken.put(orderedTokens.get(i), value.getValue());
+            }
+        }
+        return accountsByToken;
+    }
+
+    @Override
+    public void putAll(final Map<String, String> accountsByToken)
+    {
+        final RedisAsyncCommands<String, String> commands = connection().async();
+        final List<RedisFuture<String>> replies = new ArrayList<>(accountsByToken.size());
+        accountsByToken.forEach((token, accountNumber) ->
+            replies.add(commands.set(keyPrefix + token, accountNumber, positiveArgs)));
+        await(replies);
+    }
+
+    @Override
+    public void putNotFound(final Collection<String> tokens)
+    {
+        final RedisAsyncCommands<String, String> commands = connection().async();
+        final List<RedisFuture<String>> replies = new ArrayList<>(tokens.size());
+        for (final String token : tokens) {
+            replies.add(commands.set(keyPrefix + token, NOT_FOUND, negativeArgs));
+        }
+        await(replies);
+    }
+
+    @Override
+    public void close()
+    {
+        final StatefulRedisConnection<String, String> current = connection;
+        if (current != null) {
+            current.close();
+        }
+        client.shutdown();
+    }
+
+    /**
+     * @return the connection, opened if this is the first call or the last attempt is {@code reconnectDelay} ago
+     * @throws RedisConnectionException if the store cannot be reached, or another thread is connecting
+     */
+    private StatefulRedisConnection<String, String> connection()
+    {
+        final StatefulRedisConnection<String, String> current = connection;
+        if (current != null) {
+            return current;
+        }
+        // Callers fall back to the vault rather than queue up behind a connection attempt.
+        if (System.nanoTime() - nextAttemptAt < 0 || !connecting.tryLock()) {
+            throw new RedisConnectionException("Shared token store is not connected");
+        }
+        try {
+            if (connection == null) {
+                try {
+                    connection = client.connect();
+                    logger.info("Connected to the shared token store");
+                }
+                catch (final RuntimeException e) {
+                    nextAttemptAt = System.nanoTime() + reconnectDelayNanos;
+                    throw e;
+                }
+            }
+            return connection;
+        }
+        finally {
+            connecting.unlock();
+        }
+    }
+
+    private void await(final List<RedisFuture<String>> replies)
+    {
+        if (!replies.isEmpty()) {
+            LettuceFutures.awaitAll(connection().getTimeout(), replies.toArray(new RedisFuture[0]));
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package nz.co.anz.tokenization.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Second-level token-to-account store shared by all replicas of the service.
+ * <p>
+ * It sits between each replica's {@code tokenToAccount} Caffeine cache and the vault: misses of the
+ * near cache are looked up here before the database, mappings read from or written to the vault are
+ * written through, and tokens the vault does not know are remembered for a short time as
+ * {@link #NOT_FOUND} so repeated lookups of unknown tokens do not reach the database either.
+ * </p>
+ * <p>
+ * Implementations may fail with a runtime exception when the store is unreachable; callers treat the
+ * store as an optimisation and fall back to the vault.
+ * </p>
+ */
+public interface SharedTokenStore extends AutoCloseable
+{
+    /**
+     * Value returned for tokens recorded with {@link #putNotFound}; account numbers are never empty.
+     */
+    String NOT_FOUND = "";
+
+    /**
+     * Looks up tokens.
+     *
+     * @param tokens the tokens to look up
+     * @return the account numbers, or {@link #NOT_FOUND}, of the stored tokens; tokens not stored are absent
+     */
+    Map<String, String> getAll(Collection<String> tokens);
+
+    /**
+     * Stores mappings, replacing any negative entry of the same tokens.
+     *
+     * @param accountsByToken the account numbers keyed by token
+     */
+    void putAll(Map<String, String> accountsByToken);
+
+    /**
+     * Records tokens the vault does not know, for the store's negative TTL.
+     *
+     * @param tokens the unknown tokens
+     */
+    void putNotFound(Collection<String> tokens);
+
+    @Override
+    default void close()
+    {
+    }
+
+    /**
+     * @return a store that holds nothing, for single-replica deployments
+     */
+    static SharedTokenStore none()
+    {
+        return NoSharedTokenStore.INSTANCE;
+    }
+
+    /**
+     * The store of {@link #none()}.
+     */
+    enum NoSharedTokenStore implements SharedTokenStore
+    {
+        INSTANCE;
+
+        @Override
+        public Map<String, String> getAll(final Collection<String> tokens)
+        {
+            return Map.of();
+        }
+
+        @Override
+        public void putAll(final Map<String, String> accountsByToken)
+        {
+        }
+
+        @Override
+        public void putNotFound(final Collection<String> tokens)
+        {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package nz.co.anz.tokenization.cache;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Token-to-account index consulted before the {@code tokenToAccount} cache.
+ * <p>
+ * A miss is not authoritative: the index may not (yet) hold mappings created by other replicas or
+ * mappings that did not fit, so callers fall back to the caches and the vault and add what they load.
+ * </p>
+ */
+public interface TokenIndex extends AutoCloseable
+{
+    /**
+     * Looks up tokens.
+     *
+     * @param tokens the tokens to look up
+     * @return the account numbers of the indexed tokens; tokens not indexed are absent
+     */
+    Map<String, String> getAll(Collection<String> tokens);
+
+    /**
+     * Adds mappings; mappings that are already indexed or cannot be indexed are skipped.
+     *
+     * @param accountsByToken the account numbers keyed by token
+     */
+    void putAll(Map<String, String> accountsByToken);
+
+    @Override
+    default void close()
+    {
+    }
+
+    /**
+     * @return an index that holds nothing, used when {@code tokenization.index.enabled} is false
+     */
+    static TokenIndex none()
+    {
+        return NoTokenIndex.INSTANCE;
+    }
+
+    /**
+     * The index of {@link #none()}.
+     */
+    enum NoTokenIndex implements TokenIndex
+    {
+        INSTANCE;
+
+        @Override
+        public Map<String, String> getAll(final Collection<String> tokens)
+        {
+            return Map.of();
+        }
+
+        @Override
+        public void putAll(final Map<String, String> accountsByToken)
+        {
+        }
+    }
+}
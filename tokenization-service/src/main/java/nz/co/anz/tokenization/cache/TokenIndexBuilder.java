@@ -0,0 +1,103 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.properties.TokenIndexProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds the off-heap token index from the repository on startup when it could not be reused.
+ * <p>
+ * The vault is read in token order, one batch per query and one shard after the other, on a background thread.
+ * Lookups fall back to the caches and the vault while the index is incomplete, so the service does not wait for it.
+ * </p>
+ */
+@Component
+public class TokenIndexBuilder implements ApplicationRunner
+{
+    private static final Logger logger = LogManager.getLogger(TokenIndexBuilder.class);
+
+    private final TokenRepository repository;
+    private final ShardRouter shardRouter;
+    private final TokenIndex tokenIndex;
+    private final TokenIndexProperties properties;
+
+    /**
+     * Constructor.
+     *
+     * @param repository  the token repository
+     * @param shardRouter the shards to read
+     * @param tokenIndex  the index to build
+     * @param properties  the index settings
+     */
+    public TokenIndexBuilder(final TokenRepository repository, final ShardRouter shardRouter,
+                             final TokenIndex tokenIndex, final TokenIndexProperties properties)
+    {
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.tokenIndex = tokenIndex;
+        this.properties = properties;
+    }
+
+    @Override
+    public void run(final ApplicationArguments args)
+    {
+        if (tokenIndex instanceof OffHeapTokenIndex index && !index.isComplete()) {
+            Thread.ofPlatform().name("token-index-build").daemon().start(() -> build(index));
+        }
+    }
+
+    /**
+     * Adds every mapping of the vault to {@code index} and marks it complete.
+     *
+     * @param index the index to build
+     */
+    void build(final OffHeapTokenIndex index)
+    {
+        final long startedAt = System.nanoTime();
+        try {
+            shardRouter.forEachShard(() -> addShard(index));
+
+            if (index.size() >= index.maximumSize()) {
+                logger.warn("Token index is full at {} mappings, raise tokenization.index.capacity", index.size());
+                return;
+            }
+            index.markComplete();
+            logger.info("Token index built with {} mappings in {} ms", index.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Token index build failed, lookups fall back to the caches", e);
+        }
+    }
+
+    private void addShard(final OffHeapTokenIndex index)
+    {
+        final Limit batch = Limit.of(properties.getRebuildBatchSize());
+        String after = "";
+        List<TokenEntity> mappings;
+        do {
+            mappings = repository.findByTokenGreaterThanOrderByTokenAsc(after, batch);
+            final Map<String, String> accountsByToken = HashMap.newHashMap(mappings.size());
+            for (final TokenEntity mapping : mappings) {
+                accountsByToken.put(mapping.getToken(), mapping.getAccountNumber());
+            }
+            index.putAll(accountsByToken);
+            if (!mappings.isEmpty()) {
+                after = mappings.getLast().getToken();
+            }
+        }
+        while (mappings.size() == properties.getRebuildBatchSize());
+    }
+}
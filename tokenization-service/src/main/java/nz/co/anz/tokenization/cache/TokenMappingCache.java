@@ -0,0 +1,269 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.data.TokenEntity;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Keeps the {@code tokenToAccount} and {@code accountToToken} caches coherent.
+ * <p>
+ * Every mapping written through this class populates both directions together, and mappings
+ * written inside a transaction are only published once that transaction commits, so neither
+ * cache can ever hand out a token whose row was rolled back. Because mappings are immutable once
+ * persisted, an entry evicted from one direction only costs a database read on the next lookup.
+ * The {@code accountToToken} direction is keyed by {@link AccountKey} and only filled from vault rows that
+ * own their account's key, so a duplicate left by an older version is never handed out by tokenize.
+ * </p>
+ * <p>
+ * Misses of the {@code tokenToAccount} near cache are looked up in the {@link SharedTokenStore} before
+ * the database, and every mapping cached here is written through to it, so a token created or loaded by
+ * one replica is a shared-store hit on the others. Tokens the database does not know are recorded there
+ * as negative entries. A token only becomes known to clients once its mapping has committed, so a
+ * negative entry can never hide a mapping that existed when the lookup was made.
+ * </p>
+ * <p>
+ * If a {@link TokenIndex} is configured it is consulted first, and every mapping resolved or written
+ * here is added to it, so the heap caches only see the tokens the index does not hold.
+ * </p>
+ */
+@Component
+public class TokenMappingCache
+{
+    private static final Logger logger = LogManager.getLogger(TokenMappingCache.class);
+
+    private final Cache<Object, Object> tokenToAccountCache;
+    private final Cache<Object, Object> accountToTokenCache;
+    private final SharedTokenStore sharedTokenStore;
+    private final TokenIndex tokenIndex;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenToAccountCache the native cache backing {@code "tokenToAccount"}
+     * @param accountToTokenCache the native cache backing {@code "accountToToken"}
+     * @param sharedTokenStore    the second-level store shared by all replicas
+     * @param tokenIndex          the index consulted before the caches
+     */
+    public TokenMappingCache(@Qualifier("tokenToAccountCache") final Cache<Object, Object> tokenToAccountCache,
+                             @Qualifier("accountToTokenCache") final Cache<Object, Object> accountToTokenCache,
+                             final SharedTokenStore sharedTokenStore,
+                             final TokenIndex tokenIndex)
+    {
+        this.tokenToAccountCache = tokenToAccountCache;
+        this.accountToTokenCache = accountToTokenCache;
+        this.sharedTokenStore = sharedTokenStore;
+        this.tokenIndex = tokenIndex;
+    }
+
+    /**
+     * Looks up the cached tokens of the given accounts.
+     *
+     * @param accountKeys the keys of the accounts to look up
+     * @return the cached tokens keyed by account key; uncached accounts are absent
+     */
+    public Map<AccountKey, String> getTokens(final Collection<AccountKey> accountKeys)
+    {
+        final Map<AccountKey, String> tokensByAccount = HashMap.newHashMap(accountKeys.size());
+        for (final AccountKey accountKey : accountKeys) {
+            final Object token = accountToTokenCache.getIfPresent(accountKey);
+            if (token != null) {
+                tokensByAccount.put(accountKey, (String) token);
+            }
+        }
+        return tokensByAccount;
+    }
+
+    /**
+     * Resolves tokens to account numbers from the index and the caches, looking up misses in the shared
+     * store and loading the rest
+     * with one call to {@code loader}. Resolved mappings are cached in both directions; tokens that
+     * cannot be resolved are absent from the result and are only cached, as negative entries, in the
+     * shared store.
+     *
+     * @param tokens the tokens to resolve
+     * @param loader loads the mappings of the tokens that are not cached
+     * @return the account numbers keyed by token
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, String> getAccounts(final Collection<String> tokens,
+                                           final Function<List<String>, ? extends Iterable<TokenEntity>> loader)
+    {
+        final Map<String, String> indexed = tokenIndex.getAll(tokens);
+        if (indexed.isEmpty()) {
+            final Map<Object, Object> accountsByToken =
+                tokenToAccountCache.getAll(tokens, missing -> load(missing, loader));
+            return (Map<String, String>) (Map<?, ?>) accountsByToken;
+        }
+
+        final List<String> unindexed = tokens.stream()
+            .filter(token -> !indexed.containsKey(token))
+            .toList();
+        if (unindexed.isEmpty()) {
+            return indexed;
+        }
+        final Map<String, String> accountsByToken = new HashMap<>(indexed);
+        accountsByToken.putAll((Map<String, String>) (Map<?, ?>)
+            tokenToAccountCache.getAll(unindexed, missing -> load(missing, loader)));
+        return accountsByToken;
+    }
+
+    /**
+     * Caches mappings in both directions, deferring until after commit when called inside a transaction.
+     *
+     * @param mappings the persisted (or about to be persisted) mappings
+     */
+    public void putAll(final Collection<TokenEntity> mappings)
+    {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization()
+            {
+                @Override
+                public void afterCommit()
+                {
+                    publish(mappings);
+                }
+            });
+        }
+        else {
+            publish(mappings);
+        }
+    }
+
+    /**
+     * Returns the tokens the {@code tokenToAccount} eviction policy rates most likely to be used again,
+     * i.e. the entries it would evict last.
+     *
+     * @param limit the maximum number of tokens to return
+     * @return up to {@code limit} cached tokens, hottest first
+     */
+    public List<String> hottestTokens(final int limit)
+    {
+        return tokenToAccountCache.policy().eviction()
+            .map(eviction -> eviction.hottest(limit).keySet().stream()
+                .map(String.class::cast)
+                .toList())
+            .orElseGet(List::of);
+    }
+
+    /**
+     * Drops every entry from both caches.
+     */
+    public void invalidateAll()
+    {
+        tokenToAccountCache.invalidateAll();
+        accountToTokenCache.invalidateAll();
+    }
+
+    private Map<Object, Object> load(final Set<?> missing,
+                                     final Function<List<String>, ? extends Iterable<TokenEntity>> loader)
+    {
+        final List<String> missingTokens = missing.stream()
+            .map(String.class::cast)
+            .toList();
+        final Map<Object, Object> accountsByToken = HashMap.newHashMap(missingTokens.size());
+        final Map<String, String> shared = getShared(missingTokens);
+        final List<String> unsharedTokens = shared.isEmpty() ? missingTokens : new ArrayList<>();
+        if (!shared.isEmpty()) {
+            for (final String token : missingTokens) {
+                final String accountNumber = shared.get(token);
+                if (accountNumber == null) {
+                    unsharedTokens.add(token);
+                }
+                else if (!SharedTokenStore.NOT_FOUND.equals(accountNumber)) {
+                    accountsByToken.put(token, accountNumber);
+                }
+            }
+        }
+        if (unsharedTokens.isEmpty()) {
+            putIndex(accountsByToken);
+            return accountsByToken;
+        }
+
+        final Map<String, String> loaded = HashMap.newHashMap(unsharedTokens.size());
+        for (final TokenEntity entity : loader.apply(unsharedTokens)) {
+            loaded.put(entity.getToken(), entity.getAccountNumber());
+            putAccountKey(entity);
+        }
+        accountsByToken.putAll(loaded);
+        final List<String> unknownTokens = loaded.size() == unsharedTokens.size()
+            ? List.of()
+            : unsharedTokens.stream().filter(token -> !loaded.containsKey(token)).toList();
+        putShared(loaded, unknownTokens);
+        putIndex(accountsByToken);
+        return accountsByToken;
+    }
+
+    private void publish(final Collection<TokenEntity> mappings)
+    {
+        final Map<String, String> accountsByToken = HashMap.newHashMap(mappings.size());
+        for (final TokenEntity mapping : mappings) {
+            tokenToAccountCache.put(mapping.getToken(), mapping.getAccountNumber());
+            putAccountKey(mapping);
+            accountsByToken.put(mapping.getToken(), mapping.getAccountNumber());
+        }
+        putShared(accountsByToken, List.of());
+        tokenIndex.putAll(accountsByToken);
+    }
+
+    /**
+     * Caches the reverse direction of a mapping if it owns its account's key. Mappings without a key are
+     * duplicates left by older versions (see {@code AccountKeyMigration}) and must not replace the
+     * account's token.
+     */
+    private void putAccountKey(final TokenEntity mapping)
+    {
+        if (mapping.getAccountKey() != null) {
+            accountToTokenCache.put(mapping.getAccountKey(), mapping.getToken());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void putIndex(final Map<Object, Object> accountsByToken)
+    {
+        if (!accountsByToken.isEmpty()) {
+            tokenIndex.putAll((Map<String, String>) (Map<?, ?>) accountsByToken);
+        }
+    }
+
+    private Map<String, String> getShared(final List<String> tokens)
+    {
+        try {
+            return sharedTokenStore.getAll(tokens);
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Shared token store lookup failed, falling back to the database: {}", e.toString());
+            return Map.of();
+        }
+    }
+
+    private void putShared(final Map<String, String> accountsByToken, final List<String> unknownTokens)
+    {
+        try {
+            if (!accountsByToken.isEmpty()) {
+                sharedTokenStore.putAll(accountsByToken);
+            }
+            if (!unknownTokens.isEmpty()) {
+                sharedTokenStore.putNotFound(unknownTokens);
+            }
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Shared token store write failed: {}", e.toString());
+        }
+    }
+}
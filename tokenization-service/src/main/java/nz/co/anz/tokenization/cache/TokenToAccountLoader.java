@@ -0,0 +1,55 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads {@code tokenToAccount} entries from the repository; used by Caffeine to refresh entries
+ * in the background ({@code tokenization.cache.refresh-after-write}).
+ * <p>
+ * Mappings are immutable once written, so a refresh is a primary-key read that normally returns the value
+ * already cached; its purpose is to restart the entry's write timer while readers keep being served from
+ * the cache. A mapping that has disappeared from the vault is dropped from the cache on refresh.
+ * </p>
+ */
+public class TokenToAccountLoader implements CacheLoader<Object, Object>
+{
+    private final ShardRouter shardRouter;
+
+    /**
+     * Constructor.
+     *
+     * @param shardRouter reads the mappings from the shard of each token
+     */
+    public TokenToAccountLoader(final ShardRouter shardRouter)
+    {
+        this.shardRouter = shardRouter;
+    }
+
+    @Override
+    public Object load(final Object token)
+    {
+        return shardRouter.findById((String) token)
+            .map(TokenEntity::getAccountNumber)
+            .orElse(null);
+    }
+
+    @Override
+    public Map<Object, Object> loadAll(final Set<?> tokens)
+    {
+        final List<String> ids = tokens.stream()
+            .map(String.class::cast)
+            .toList();
+        final Map<Object, Object> accountsByToken = HashMap.newHashMap(ids.size());
+        for (final TokenEntity entity : shardRouter.findAllById(ids)) {
+            accountsByToken.put(entity.getToken(), entity.getAccountNumber());
+        }
+        return accountsByToken;
+    }
+}
@@ -0,0 +1,228 @@
+package nz.co.anz.tokenization.cache;
+
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.utils.TokenBloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps lookups of unknown tokens off the database.
+ * <p>
+ * A short-lived negative cache rejects tokens the database did not know when they were last looked up. Only
+ * misses confirmed by the database are remembered, and a token reaches clients only once its mapping is
+ * committed, so a token handed out by any replica is never rejected here; one issued here also leaves the cache
+ * at once.
+ * </p>
+ * <p>
+ * With {@code bloom-filter-enabled}, a {@link TokenBloomFilter} over every issued token also rejects tokens that
+ * were definitely never issued, without asking the database. The filter is built from the vault in the background
+ * on startup and lets every token through until it is complete. Tokens issued here are added as they are created;
+ * tokens issued by other replicas are added every {@code refresh-interval} from their creation time, and until then
+ * are only found in the shared token store, which is therefore required. A token whose write to the shared store
+ * failed is rejected by the other replicas until their next refresh.
+ * </p>
+ */
+@Component
+public class UnknownTokenFilter implements ApplicationRunner
+{
+    private static final Logger logger = LogManager.getLogger(UnknownTokenFilter.class);
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+
+    private final TokenRepository repository;
+    private final ShardRouter shardRouter;
+    private final TokenCacheProperties.UnknownTokens properties;
+    private final TokenizationMetrics metrics;
+    private final Cache<String, Boolean> unknownTokens;
+    private volatile TokenBloomFilter filter;
+    private volatile boolean ready;
+    private volatile Instant refreshedSince;
+
+    /**
+     * Constructor.
+     *
+     * @param repository          reads the issued tokens
+     * @param shardRouter         reads them from every shard
+     * @param tokenCacheProperties configuration of the filter and the negative cache
+     * @param metrics             counts rejected tokens
+     */
+    public UnknownTokenFilter(final TokenRepository repository, final ShardRouter shardRouter,
+                              final TokenCacheProperties tokenCacheProperties, final TokenizationMetrics metrics)
+    {
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.properties = tokenCacheProperties.getUnknownTokens();
+        this.metrics = metrics;
+        this.unknownTokens = Caffeine.newBuilder()
+            .maximumSize(properties.getNegativeMaximumSize())
+            .expireAfterWrite(properties.getNegativeTtl())
+            .build();
+    }
+
+    @Override
+    public void run(final ApplicationArguments args)
+    {
+        if (properties.isBloomFilterEnabled()) {
+            Thread.ofPlatform().name("token-bloom-filter-build").daemon().start(this::build);
+        }
+    }
+
+    /**
+     * Builds the Bloom filter from the vault; lookups are not filtered until it completes.
+     */
+    public void build()
+    {
+        final long startedAt = System.nanoTime();
+        try {
+            final Instant buildStart = Instant.now();
+            final long vaultSize = shardRouter.onEachShard(repository::count).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+            final TokenBloomFilter building = TokenBloomFilter.create(
+                Math.max(properties.getExpectedTokens(), 2 * vaultSize), properties.getFalsePositiveRate());
+            filter = building;
+            final LongAdder tokens = new LongAdder();
+            shardRouter.forEachShard(() -> tokens.add(putShard(building)));
+
+            // Tokens created while the vault was paged through may have been committed behind the cursor.
+            refreshedSince = buildStart.minus(properties.getRefreshInterval());
+            refresh();
+            ready = true;
+            logger.info("Token Bloom filter built over {} tokens ({} bits, {} hashes) in {} ms", tokens.sum(),
+                building.bitSize(), building.hashFunctions(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Token Bloom filter build failed, unknown tokens are looked up in the database", e);
+        }
+    }
+
+    private long putShard(final TokenBloomFilter building)
+    {
+        long tokens = 0;
+        String after = "";
+        List<String> page;
+        do {
+            page = repository.findTokensAfter(after, Limit.of(BUILD_BATCH_SIZE));
+            page.forEach(building::put);
+            tokens += page.size();
+            if (!page.isEmpty()) {
+                after = page.getLast();
+            }
+        }
+        while (page.size() == BUILD_BATCH_SIZE);
+        return tokens;
+    }
+
+    /**
+     * Adds the tokens created since the last refresh, by any writer, to the Bloom filter. Each refresh
+     * overlaps the previous one by one interval, to allow for clock skew between writers.
+     */
+    @Scheduled(fixedDelayString = "${tokenization.cache.unknown-tokens.refresh-interval:PT30S}")
+    public void refresh()
+    {
+        final TokenBloomFilter current = filter;
+        final Instant since = refreshedSince;
+        if (current == null || since == null) {
+            return;
+        }
+        final Instant now = Instant.now();
+        shardRouter.onEachShard(() -> repository.findTokensCreatedSince(since))
+            .forEach(tokens -> tokens.forEach(current::put));
+        refreshedSince = now.minus(properties.getRefreshInterval());
+    }
+
+    /**
+     * Drops the tokens that are definitely unknown.
+     *
+     * @param tokens the tokens about to be looked up in the database
+     * @return the tokens that may exist, {@code tokens} itself if none was dropped
+     */
+    public List<String> candidates(final List<String> tokens)
+    {
+        final boolean negativeCache = properties.isEnabled();
+        final TokenBloomFilter current = properties.isBloomFilterEnabled() && ready ? filter : null;
+        if (!negativeCache && current == null) {
+            return tokens;
+        }
+        List<String> candidates = null;
+        int rejectedByFilter = 0;
+        int rejectedByCache = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            final String token = tokens.get(i);
+            final boolean rejected;
+            if (current != null && !current.mightContain(token)) {
+                rejectedByFilter++;
+                rejected = true;
+            }
+            else if (negativeCache && unknownTokens.getIfPresent(token) != null) {
+                rejectedByCache++;
+                rejected = true;
+            }
+            else {
+                rejected = false;
+            }
+            if (rejected && candidates == null) {
+                candidates = new ArrayList<>(tokens.subList(0, i));
+            }
+            else if (!rejected && candidates != null) {
+                candidates.add(token);
+            }
+        }
+        if (candidates == null) {
+            return tokens;
+        }
+        metrics.recordUnknownTokens(rejectedByFilter, rejectedByCache, 0);
+        return candidates;
+    }
+
+    /**
+     * Remembers tokens the database did not know, for {@code negative-ttl}; must only be called with tokens the
+     * database was asked for.
+     *
+     * @param tokens the unknown tokens
+     */
+    public void recordUnknown(final Collection<String> tokens)
+    {
+        metrics.recordUnknownTokens(0, 0, tokens.size());
+        if (properties.isEnabled()) {
+            tokens.forEach(token -> unknownTokens.put(token, Boolean.TRUE));
+        }
+    }
+
+    /**
+     * Adds newly issued tokens; must be called before the tokens are handed out.
+     *
+     * @param tokens the new tokens
+     */
+    public void recordIssued(final Collection<String> tokens)
+    {
+        if (!properties.isEnabled() && !properties.isBloomFilterEnabled()) {
+            return;
+        }
+        final TokenBloomFilter current = filter;
+        for (final String token : tokens) {
+            if (current != null) {
+                current.put(token);
+            }
+            unknownTokens.invalidate(token);
+        }
+    }
+}
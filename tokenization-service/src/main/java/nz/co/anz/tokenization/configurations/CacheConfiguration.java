@@ -1,15 +1,33 @@
 package nz.co.anz.tokenization.configurations;
 
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.CacheRemovalCounter;
+import nz.co.anz.tokenization.cache.InMemorySharedTokenStore;
+import nz.co.anz.tokenization.cache.JitteredExpiry;
+import nz.co.anz.tokenization.cache.OffHeapTokenIndex;
+import nz.co.anz.tokenization.cache.RedisSharedTokenStore;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndex;
+import nz.co.anz.tokenization.cache.TokenToAccountLoader;
+import nz.co.anz.tokenization.data.ShardRouter;
 import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.properties.TokenIndexProperties;
 import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalListener;
 import com.github.benmanes.caffeine.cache.Scheduler;
-import org.apache.logging.log4j.LogManager;
-import org.apache.logging.log4j.Logger;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Cache configuration for the Tokenization service.
@@ -19,47 +37,215 @@ import org.springframework.context.annotation.Configuration;
  * {@code /detokenize} flow to avoid repeated database lookups for frequently
  * accessed tokens.</p>
  *
+ * <p>A second, reverse cache ({@code "accountToToken"}) serves the {@code /tokenize}
+ * flow. It is keyed by an {@link AccountKey} (a keyed hash of the account number)
+ * so raw account numbers are never held as cache keys.</p>
+ *
  * <p>The cache characteristics (initial capacity, maximum size and TTL) are
  * externalised via {@link TokenCacheProperties} to allow tuning without code
  * changes.</p>
  *
- * <p>Eviction and removal events are logged for operational visibility, and
- * cache statistics are recorded to support monitoring and performance analysis.</p>
+ * <p>Removals are counted by cause and logged as a periodic summary by a
+ * {@link CacheRemovalCounter} per cache, and cache statistics are recorded to
+ * support monitoring and performance analysis.</p>
  */
 @Configuration
+@EnableScheduling
 public class CacheConfiguration
 {
-    private static final Logger logger = LogManager.getLogger(CacheConfiguration.class);
+    /**
+     * Name of the cache holding token-to-account-number mappings.
+     */
+    public static final String TOKEN_TO_ACCOUNT = "tokenToAccount";
 
     /**
-     * Creates and configures the application's {@link CacheManager}.
+     * Name of the cache holding account-key-to-token mappings.
+     */
+    public static final String ACCOUNT_TO_TOKEN = "accountToToken";
+
+    /**
+     * Counts removals from {@code "tokenToAccount"}, whose keys are tokens.
      *
-     * <p>This cache manager registers a custom Caffeine cache named
-     * {@code "tokenToAccount"}, which stores mappings between generated tokens
-     * and their corresponding account numbers.</p>
+     * @param tokenCacheProperties configuration of the removal summary and sampling
+     * @return the removal counter of the token-to-account cache
+     */
+    @Bean
+    public CacheRemovalCounter tokenToAccountRemovals(final TokenCacheProperties tokenCacheProperties) {
+        return new CacheRemovalCounter(TOKEN_TO_ACCOUNT, (token, accountNumber) -> token,
+            tokenCacheProperties.getRemovals().getSampleRate());
+    }
+
+    /**
+     * Counts removals from {@code "accountToToken"}, whose values are tokens.
+     *
+     * @param tokenCacheProperties configuration of the removal summary and sampling
+     * @return the removal counter of the account-to-token cache
+     */
+    @Bean
+    public CacheRemovalCounter accountToTokenRemovals(final TokenCacheProperties tokenCacheProperties) {
+        return new CacheRemovalCounter(ACCOUNT_TO_TOKEN, (accountKey, token) -> token,
+            tokenCacheProperties.getRemovals().getSampleRate());
+    }
+
+    /**
+     * Creates the native Caffeine cache backing {@code "tokenToAccount"}.
+     *
+     * <p>The cache uses a configurable time-based expiry policy
+     * ({@code tokenization.cache.expiry}), size limits, and a system scheduler
+     * to ensure timely eviction of entries. With
+     * {@code tokenization.cache.refresh-after-write} set, entries that are still
+     * being read are reloaded through the repository in the background, so hot
+     * tokens never expire into a synchronous database read. Removals are counted
+     * by cause off the maintenance path.</p>
      *
-     * <p>The cache uses a time-based eviction policy (expire-after-write),
-     * size limits, and a system scheduler to ensure timely eviction of entries.
-     * Cache eviction and removal events are logged to assist with debugging and
-     * operational monitoring.</p>
+     * <p>The native cache is exposed as a bean so that bulk lookups can use
+     * {@link Cache#getAll} directly instead of going through the per-key
+     * Spring {@link org.springframework.cache.Cache} abstraction.</p>
      *
      * @param tokenCacheProperties configuration properties defining cache size,
-     *                             TTL and initial capacity
-     * @return a fully configured {@link CacheManager} instance
+     *                             TTL, expiry policy and initial capacity
+     * @param tokenToAccountRemovals counts the cache's removals
+     * @param shardRouter reloads entries on refresh
+     * @return the native token-to-account cache
      */
     @Bean
-    public CacheManager cacheManager(final TokenCacheProperties tokenCacheProperties) {
-        final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
-        final Cache<Object, Object> tokenCache = Caffeine.newBuilder()
+    public Cache<Object, Object> tokenToAccountCache(final TokenCacheProperties tokenCacheProperties,
+                                                     @Qualifier("tokenToAccountRemovals")
+                                                     final CacheRemovalCounter tokenToAccountRemovals,
+                                                     final ShardRouter shardRouter) {
+        return buildTokenToAccountCache(tokenCacheProperties, tokenToAccountRemovals,
+            new TokenToAccountLoader(shardRouter), Ticker.systemTicker(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Builds the {@code "tokenToAccount"} cache; separated from the bean method so tests can drive
+     * expiry and refresh with a fake clock and a same-thread executor.
+     *
+     * @param tokenCacheProperties configuration properties of the cache
+     * @param removalListener      receives removed entries
+     * @param loader               reloads entries on refresh
+     * @param ticker               the cache's clock
+     * @param executor             runs refreshes and removal notifications
+     * @return the native token-to-account cache
+     */
+    public static Cache<Object, Object> buildTokenToAccountCache(final TokenCacheProperties tokenCacheProperties,
+                                                                 final RemovalListener<Object, Object> removalListener,
+                                                                 final CacheLoader<Object, Object> loader,
+                                                                 final Ticker ticker, final Executor executor) {
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
             .initialCapacity(tokenCacheProperties.getInitialCapacity())
             .maximumSize(tokenCacheProperties.getMaximumSize())
-            .expireAfterWrite(tokenCacheProperties.getTtl())
-            .evictionListener((key, value, cause) -> logger.info("Key '{}' was evicted ({}) from tokenCache", key, cause))
-            .removalListener((key, value, cause) -> logger.info("Key '{}' was removed ({}) from tokenCache", key, cause))
-            .scheduler(Scheduler.systemScheduler())
-            .recordStats()
-            .build();
-        cacheManager.registerCustomCache("tokenToAccount", tokenCache);
+            .removalListener(removalListener)
+            .ticker(ticker)
+            .executor(executor)
+            .scheduler(Scheduler.systemScheduler());
+        switch (tokenCacheProperties.getExpiry()) {
+            case WRITE -> builder.expireAfterWrite(tokenCacheProperties.getTtl());
+            case ACCESS -> builder.expireAfterAccess(tokenCacheProperties.getTtl());
+            case VARIABLE -> builder.expireAfter(
+                new JitteredExpiry(tokenCacheProperties.getTtl(), tokenCacheProperties.getExpiryJitter()));
+        }
+        if (tokenCacheProperties.isRecordStats()) {
+            builder.recordStats();
+        }
+        if (tokenCacheProperties.getRefreshAfterWrite() != null) {
+            builder.refreshAfterWrite(tokenCacheProperties.getRefreshAfterWrite());
+            return builder.build(loader);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the native Caffeine cache backing {@code "accountToToken"}.
+     *
+     * <p>Entries map an {@link AccountKey} to the token issued for that account.
+     * Size, TTL and statistics are configured independently of the
+     * token-to-account cache via {@code tokenization.cache.account-to-token.*}.</p>
+     *
+     * @param tokenCacheProperties configuration properties of both caches
+     * @param accountToTokenRemovals counts the cache's removals
+     * @return the native account-to-token cache
+     */
+    @Bean
+    public Cache<Object, Object> accountToTokenCache(final TokenCacheProperties tokenCacheProperties,
+                                                     @Qualifier("accountToTokenRemovals")
+                                                     final CacheRemovalCounter accountToTokenRemovals) {
+        final TokenCacheProperties.AccountToToken properties = tokenCacheProperties.getAccountToToken();
+        final Caffeine<Object, Object> builder = Caffeine.newBuilder()
+            .initialCapacity(properties.getInitialCapacity())
+            .maximumSize(properties.getMaximumSize())
+            .expireAfterWrite(properties.getTtl())
+            .removalListener(accountToTokenRemovals)
+            .scheduler(Scheduler.systemScheduler());
+        if (properties.isRecordStats()) {
+            builder.recordStats();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates the second-level token store shared by all replicas, selected by
+     * {@code tokenization.cache.shared.type}.
+     *
+     * <p>With {@code NONE} every near-cache miss goes to the database, as with a
+     * single replica. A Redis store is connected to on first use, so startup does
+     * not depend on it. The store is closed with the application context.</p>
+     *
+     * @param tokenCacheProperties configuration properties of the caches
+     * @return the shared token store
+     */
+    @Bean
+    public SharedTokenStore sharedTokenStore(final TokenCacheProperties tokenCacheProperties) {
+        final TokenCacheProperties.Shared properties = tokenCacheProperties.getShared();
+        return switch (properties.getType()) {
+            case NONE -> SharedTokenStore.none();
+            case MEMORY -> new InMemorySharedTokenStore(properties.getTtl(), properties.getNegativeTtl(),
+                properties.getMaximumSize());
+            case REDIS -> new RedisSharedTokenStore(properties.getUri(), properties.getTimeout(),
+                properties.getReconnectDelay(), properties.getKeyPrefix(), properties.getTtl(),
+                properties.getNegativeTtl());
+        };
+    }
+
+    /**
+     * Opens the off-heap token index consulted before the caches when
+     * {@code tokenization.index.enabled} is set.
+     *
+     * <p>An index file left by a clean shutdown is reused; otherwise the index
+     * starts empty and is built from the repository in the background by
+     * {@link nz.co.anz.tokenization.cache.TokenIndexBuilder}. The index is
+     * flushed and closed with the application context.</p>
+     *
+     * @param tokenIndexProperties configuration properties of the index
+     * @return the token index
+     * @throws IOException if the index file cannot be created or mapped
+     */
+    @Bean
+    public TokenIndex tokenIndex(final TokenIndexProperties tokenIndexProperties) throws IOException {
+        if (!tokenIndexProperties.isEnabled()) {
+            return TokenIndex.none();
+        }
+        return OffHeapTokenIndex.open(tokenIndexProperties.getFile(), tokenIndexProperties.getCapacity());
+    }
+
+    /**
+     * Creates and configures the application's {@link CacheManager}.
+     *
+     * <p>This cache manager registers the custom Caffeine caches named
+     * {@code "tokenToAccount"}, which stores mappings between generated tokens
+     * and their corresponding account numbers, and {@code "accountToToken"},
+     * which stores the reverse direction.</p>
+     *
+     * @param tokenToAccountCache the native token-to-account cache
+     * @param accountToTokenCache the native account-to-token cache
+     * @return a fully configured {@link CacheManager} instance
+     */
+    @Bean
+    public CacheManager cacheManager(@Qualifier("tokenToAccountCache") final Cache<Object, Object> tokenToAccountCache,
+                                     @Qualifier("accountToTokenCache") final Cache<Object, Object> accountToTokenCache) {
+        final CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.registerCustomCache(TOKEN_TO_ACCOUNT, tokenToAccountCache);
+        cacheManager.registerCustomCache(ACCOUNT_TO_TOKEN, accountToTokenCache);
         return cacheManager;
     }
 }
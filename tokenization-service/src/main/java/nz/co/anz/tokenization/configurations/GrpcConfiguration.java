@@ -0,0 +1,50 @@
+package nz.co.anz.tokenization.configurations;
+
+import nz.co.anz.tokenization.grpc.GrpcServer;
+import nz.co.anz.tokenization.grpc.TokenizationGrpcService;
+import nz.co.anz.tokenization.properties.GrpcProperties;
+import nz.co.anz.tokenization.services.TokenizationService;
+import io.grpc.BindableService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+/**
+ * gRPC API configuration, active when {@code tokenization.grpc.enabled} is {@code true}.
+ *
+ * <p>Serves {@link TokenizationGrpcService}, and any other {@link BindableService}
+ * bean, from a {@link GrpcServer} on {@code tokenization.grpc.port}, next to the
+ * REST API. Both APIs share the same {@link TokenizationService}, caches and
+ * vault.</p>
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "tokenization.grpc", name = "enabled", havingValue = "true")
+public class GrpcConfiguration
+{
+    /**
+     * Creates the tokenization gRPC service.
+     *
+     * @param tokenizationService tokenizes and detokenizes the batches
+     * @param grpcProperties      the batch size limit
+     * @return the gRPC service
+     */
+    @Bean
+    public TokenizationGrpcService tokenizationGrpcService(final TokenizationService tokenizationService,
+                                                           final GrpcProperties grpcProperties) {
+        return new TokenizationGrpcService(tokenizationService, grpcProperties.getMaxBatchSize());
+    }
+
+    /**
+     * Creates the gRPC server, started and stopped with the application context.
+     *
+     * @param grpcProperties the address, port and shutdown grace period
+     * @param services       the gRPC services
+     * @return the gRPC server
+     */
+    @Bean
+    public GrpcServer grpcServer(final GrpcProperties grpcProperties, final List<BindableService> services) {
+        return new GrpcServer(grpcProperties, services);
+    }
+}
@@ -0,0 +1,82 @@
+package nz.co.anz.tokenization.configurations;
+
+import nz.co.anz.tokenization.data.ShardRoutingDataSource;
+import nz.co.anz.tokenization.data.ShardSchemaIntegrator;
+import nz.co.anz.tokenization.properties.ShardProperties;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.jpa.boot.spi.JpaSettings;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data source configuration of a sharded token vault, active when {@code tokenization.shards.count} is above one.
+ *
+ * <p>Every shard is a database of its own, reached through its own connection
+ * pool; the application sees a single {@link ShardRoutingDataSource}, so JPA,
+ * the repositories and the transaction manager are configured as for one
+ * database, and {@link nz.co.anz.tokenization.data.ShardRouter} picks the
+ * shard of each unit of work. Without this configuration the vault is the
+ * single {@code spring.datasource} database.</p>
+ */
+@Configuration
+@ConditionalOnExpression("${tokenization.shards.count:1} > 1")
+public class ShardingConfiguration
+{
+    /**
+     * Binds {@code spring.datasource.hikari.*}, the pool settings applied to every shard.
+     *
+     * @return the pool settings
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig shardPoolConfig() {
+        return new HikariConfig();
+    }
+
+    /**
+     * Creates the data source routing to one connection pool per shard, closed with the application context.
+     *
+     * @param shardProperties      the URL of every shard
+     * @param dataSourceProperties the credentials and driver, shared by all shards
+     * @param shardPoolConfig      the pool settings, shared by all shards
+     * @return the routing data source
+     */
+    @Bean
+    public ShardRoutingDataSource dataSource(final ShardProperties shardProperties,
+                                             final DataSourceProperties dataSourceProperties,
+                                             final HikariConfig shardPoolConfig) {
+        final List<HikariDataSource> shards = new ArrayList<>(shardProperties.getCount());
+        for (int shard = 0; shard < shardProperties.getCount(); shard++) {
+            final HikariConfig config = new HikariConfig();
+            shardPoolConfig.copyStateTo(config);
+            config.setPoolName("vault-shard-" + shard);
+            config.setJdbcUrl(shardProperties.getUrls().get(shard));
+            config.setUsername(dataSourceProperties.determineUsername());
+            config.setPassword(dataSourceProperties.determinePassword());
+            config.setDriverClassName(dataSourceProperties.determineDriverClassName());
+            shards.add(new HikariDataSource(config));
+        }
+        return new ShardRoutingDataSource(shards);
+    }
+
+    /**
+     * Registers the {@link ShardSchemaIntegrator}, so the schema is managed on every shard.
+     *
+     * @param shardProperties the number of shards
+     * @return the Hibernate properties customizer
+     */
+    @Bean
+    public HibernatePropertiesCustomizer shardSchemaCustomizer(final ShardProperties shardProperties) {
+        return properties -> properties.put(JpaSettings.INTEGRATOR_PROVIDER,
+            (IntegratorProvider) () -> List.of(new ShardSchemaIntegrator(shardProperties.getCount())));
+    }
+}
@@ -0,0 +1,70 @@
+package nz.co.anz.tokenization.configurations;
+
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.DeferredVaultWriter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.VaultCommitter;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenStrategyProperties;
+import nz.co.anz.tokenization.services.DeterministicTokenizationService;
+import nz.co.anz.tokenization.services.TokenFinder;
+import nz.co.anz.tokenization.services.TokenWriter;
+import nz.co.anz.tokenization.services.TokenizationService;
+import nz.co.anz.tokenization.services.TokenizationServiceImpl;
+import nz.co.anz.tokenization.utils.HmacTokenGenerator;
+import nz.co.anz.tokenization.validators.Formats;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Tokenization strategy configuration.
+ *
+ * <p>The {@link TokenizationService} is chosen by
+ * {@code tokenization.token-strategy.type}: random tokens looked up and
+ * created in the vault, or tokens derived from the account number with a
+ * keyed HMAC and written to the vault behind the response. Detokenize
+ * resolves the tokens of either strategy.</p>
+ */
+@Configuration
+public class TokenizationConfiguration
+{
+    /**
+     * Creates the tokenization service of the configured strategy.
+     *
+     * <p>A {@link DeterministicTokenizationService} is closed with the
+     * application context, after writing the mappings still queued.</p>
+     *
+     * @param properties         the strategy and its key and write settings
+     * @param shardRouter        reads mappings from the shard of each token or account
+     * @param tokenFinder        resolves tokens back to account numbers
+     * @param tokenMappingCache  the token/account caches
+     * @param tokenWriter        creates random tokens
+     * @param unknownTokenFilter learns derived tokens before they are handed out
+     * @param accountKeyHasher   keys account numbers by their canonical form
+     * @param vaultCommitter     stores derived mappings with the configured durability
+     * @param metrics            records batch sizes and token origins
+     * @return the tokenization service
+     */
+    @Bean
+    public TokenizationService tokenizationService(final TokenStrategyProperties properties,
+                                                   final ShardRouter shardRouter, final TokenFinder tokenFinder,
+                                                   final TokenMappingCache tokenMappingCache,
+                                                   final TokenWriter tokenWriter,
+                                                   final UnknownTokenFilter unknownTokenFilter,
+                                                   final AccountKeyHasher accountKeyHasher,
+                                                   final VaultCommitter vaultCommitter,
+                                                   final TokenizationMetrics metrics) {
+        return switch (properties.getType()) {
+            case RANDOM -> new TokenizationServiceImpl(shardRouter, tokenFinder, tokenMappingCache, tokenWriter,
+                accountKeyHasher, metrics);
+            case DETERMINISTIC -> new DeterministicTokenizationService(tokenFinder, tokenMappingCache,
+                unknownTokenFilter, accountKeyHasher,
+                new HmacTokenGenerator(properties.secretBytes(), Formats.TOKEN_LENGTH),
+                new DeferredVaultWriter(shardRouter, vaultCommitter, properties.getFlushInterval(),
+                    properties.getMaxBatchSize(), properties.getMaxPending()),
+                metrics);
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package nz.co.anz.tokenization.configurations;
+
+import nz.co.anz.tokenization.data.DirectVaultCommitter;
+import nz.co.anz.tokenization.data.GroupVaultCommitter;
+import nz.co.anz.tokenization.data.ShardContext;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.ShardedVaultCommitter;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.data.VaultCommitter;
+import nz.co.anz.tokenization.properties.VaultProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Write path configuration of the token vault.
+ *
+ * <p>New token mappings are stored through a {@link VaultCommitter} chosen by
+ * {@code tokenization.vault.durability}. The in-memory default needs none of
+ * this; with the {@code persistent} profile the vault is a file-backed H2
+ * database and the mode decides whether, and how often, commits are forced
+ * to disk before tokens are handed out.</p>
+ *
+ * <p>In a sharded vault every shard has a committer of its own, and a
+ * {@link ShardedVaultCommitter} commits each mapping on its token's shard.</p>
+ */
+@Configuration
+public class VaultConfiguration
+{
+    /**
+     * Creates the committer of new token mappings for the configured durability mode.
+     *
+     * <p>A {@link GroupVaultCommitter} is closed with the application context,
+     * after committing the mappings still queued.</p>
+     *
+     * @param vaultProperties    the durability mode and group commit settings
+     * @param repository         inserts the mappings
+     * @param transactionManager runs the inserts
+     * @param jdbcTemplate       runs the statement forcing commits to disk
+     * @param shardRouter        the shards of the vault
+     * @return the vault committer
+     */
+    @Bean
+    public VaultCommitter vaultCommitter(final VaultProperties vaultProperties, final TokenRepository repository,
+                                         final PlatformTransactionManager transactionManager,
+                                         final JdbcTemplate jdbcTemplate, final ShardRouter shardRouter) {
+        if (shardRouter.shards() == 1) {
+            return committer(vaultProperties, repository, transactionManager, jdbcTemplate);
+        }
+        final List<VaultCommitter> shards = new ArrayList<>(shardRouter.shards());
+        for (int shard = 0; shard < shardRouter.shards(); shard++) {
+            shards.add(ShardContext.call(shard,
+                () -> committer(vaultProperties, repository, transactionManager, jdbcTemplate)));
+        }
+        return new ShardedVaultCommitter(shardRouter, shards);
+    }
+
+    private static VaultCommitter committer(final VaultProperties vaultProperties, final TokenRepository repository,
+                                            final PlatformTransactionManager transactionManager,
+                                            final JdbcTemplate jdbcTemplate) {
+        final Runnable sync = () -> jdbcTemplate.execute(vaultProperties.getSyncStatement());
+        return switch (vaultProperties.getDurability()) {
+            case ASYNC -> new DirectVaultCommitter(repository, transactionManager, () -> { });
+            case SYNC -> new DirectVaultCommitter(repository, transactionManager, sync);
+            case GROUP -> new GroupVaultCommitter(repository, transactionManager, sync,
+                vaultProperties.getGroupCommit().getWindow(), vaultProperties.getGroupCommit().getMaxBatchSize());
+        };
+    }
+}
@@ -0,0 +1,27 @@
+package nz.co.anz.tokenization.configurations;
+
+import nz.co.anz.tokenization.rest.JsonStringArrayHttpMessageConverter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Web layer configuration of the Tokenization service.
+ *
+ * <p>Registers the message converter writing the {@code /tokenize} and
+ * {@code /detokenize} responses. Spring Boot places converter beans ahead
+ * of its defaults, so these responses bypass Jackson; everything else,
+ * including problem details, is still written by Jackson.</p>
+ */
+@Configuration
+public class WebConfiguration
+{
+    /**
+     * Creates the converter writing {@link nz.co.anz.tokenization.rest.JsonStringArray} responses.
+     *
+     * @return the JSON string array converter
+     */
+    @Bean
+    public JsonStringArrayHttpMessageConverter jsonStringArrayHttpMessageConverter() {
+        return new JsonStringArrayHttpMessageConverter();
+    }
+}
@@ -0,0 +1,22 @@
+package nz.co.anz.tokenization.data;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores an {@link AccountKey} as its 16-byte binary form.
+ */
+@Converter
+public class AccountKeyConverter implements AttributeConverter<AccountKey, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(final AccountKey accountKey) {
+        return accountKey == null ? null : accountKey.toBytes();
+    }
+
+    @Override
+    public AccountKey convertToEntityAttribute(final byte[] bytes) {
+        return bytes == null ? null : AccountKey.fromBytes(bytes);
+    }
+}
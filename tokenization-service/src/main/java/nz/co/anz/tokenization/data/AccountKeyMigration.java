@@ -0,0 +1,189 @@
+package nz.co.anz.tokenization.data;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.properties.AccountKeyProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Backfills {@code account_hash} for mappings written before accounts were keyed by their canonical form.
+ * <p>
+ * Older versions matched account numbers as submitted, so one account may have been tokenized once per
+ * format ({@code 4111-1111-1111-1111}, {@code 4111 1111 1111 1111}, ...). The mappings that are neither keyed
+ * nor flagged as duplicates are paged through in token order, one transaction per page. If a mapping already
+ * holds an account's key, it keeps it; otherwise the oldest mapping of the account in the page is given the key
+ * and becomes the account's token from now on. An account is only matched by its key, so pages are not compared
+ * with each other: an older mapping of the same account in a later page becomes a duplicate. The others are
+ * flagged as duplicates and stay without a key: clients may still hold their tokens, so they remain resolvable
+ * by detokenize, but tokenize never hands them out again.
+ * </p>
+ * <p>
+ * The migration runs before the other {@link ApplicationRunner}s, so before the service reports ready. Every
+ * mapping written by this version is keyed or flagged, so a migrated vault, duplicates included, is recognised
+ * by one index lookup and the migration adds nothing to startup. If a page conflicts with another replica
+ * backfilling the same rows, it is read again. In a sharded vault the shards are migrated in parallel, each on
+ * its own.
+ * </p>
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class AccountKeyMigration implements ApplicationRunner
+{
+    private static final Logger logger = LogManager.getLogger(AccountKeyMigration.class);
+
+    private static final int MAX_PAGE_ATTEMPTS = 3;
+
+    private static final Comparator<TokenEntity> OLDEST_FIRST = Comparator
+        .comparing(TokenEntity::getCreatedAt, Comparator.nullsLast(Comparator.naturalOrder()))
+        .thenComparing(TokenEntity::getToken);
+
+    private final TokenRepository repository;
+    private final ShardRouter shardRouter;
+    private final AccountKeyHasher accountKeyHasher;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    /**
+     * Constructor.
+     *
+     * @param repository         reads and updates the mappings
+     * @param shardRouter        the shards to migrate
+     * @param accountKeyHasher   derives the account keys
+     * @param transactionManager runs each page in its own transaction
+     * @param properties         the migration batch size
+     */
+    public AccountKeyMigration(final TokenRepository repository, final ShardRouter shardRouter,
+                               final AccountKeyHasher accountKeyHasher,
+                               final PlatformTransactionManager transactionManager,
+                               final AccountKeyProperties properties)
+    {
+        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.accountKeyHasher = accountKeyHasher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = properties.getMigrationBatchSize();
+    }
+
+    @Override
+    public void run(final ApplicationArguments args)
+    {
+        migrate();
+    }
+
+    /**
+     * Backfills every mapping without an account key.
+     *
+     * @return the number of mappings given a key and the number flagged as duplicates
+     */
+    public Result migrate()
+    {
+        return shardRouter.onEachShard(this::migrateShard).stream()
+            .reduce(new Result(0, 0), (total, shard) ->
+                new Result(total.keyed() + shard.keyed(), total.duplicates() + shard.duplicates()));
+    }
+
+    private Result migrateShard()
+    {
+        if (!repository.existsByAccountKeyIsNullAndDuplicateIsNull()) {
+            return new Result(0, 0);
+        }
+        final long startedAt = System.nanoTime();
+        Result total = new Result(0, 0);
+        String after = "";
+        while (true) {
+            final Page page = migratePage(after);
+            total = new Result(total.keyed() + page.result().keyed(), total.duplicates() + page.result().duplicates());
+            if (page.size() < batchSize) {
+                break;
+            }
+            after = page.lastToken();
+        }
+        if (total.keyed() > 0 || total.duplicates() > 0) {
+            logger.info("Account key migration keyed {} mappings and found {} duplicates in {} ms", total.keyed(),
+                total.duplicates(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        return total;
+    }
+
+    private Page migratePage(final String after)
+    {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> keyPage(after));
+            }
+            catch (final DataIntegrityViolationException e) {
+                if (attempt >= MAX_PAGE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Account keys backfilled concurrently elsewhere, retrying ({}/{})", attempt,
+                    MAX_PAGE_ATTEMPTS);
+            }
+        }
+    }
+
+    private Page keyPage(final String after)
+    {
+        final List<TokenEntity> page = repository
+            .findByAccountKeyIsNullAndDuplicateIsNullAndTokenGreaterThanOrderByTokenAsc(after, Limit.of(batchSize));
+        if (page.isEmpty()) {
+            return new Page(0, after, new Result(0, 0));
+        }
+        final Map<AccountKey, List<TokenEntity>> byAccount = page.stream()
+            .collect(Collectors.groupingBy(entity -> accountKeyHasher.keyOf(entity.getAccountNumber()),
+                LinkedHashMap::new, Collectors.toList()));
+        final Set<AccountKey> owned = repository.findByAccountKeyIn(byAccount.keySet()).stream()
+            .map(TokenEntity::getAccountKey)
+            .collect(Collectors.toSet());
+
+        int keyed = 0;
+        int duplicates = 0;
+        for (final Map.Entry<AccountKey, List<TokenEntity>> account : byAccount.entrySet()) {
+            final List<TokenEntity> mappings = account.getValue();
+            final TokenEntity owner = owned.contains(account.getKey()) ? null
+                : mappings.stream().min(OLDEST_FIRST).orElseThrow();
+            for (final TokenEntity mapping : mappings) {
+                if (mapping == owner) {
+                    mapping.setAccountKey(account.getKey());
+                    keyed++;
+                }
+                else {
+                    mapping.markDuplicate();
+                    duplicates++;
+                }
+            }
+        }
+        return new Page(page.size(), page.getLast().getToken(), new Result(keyed, duplicates));
+    }
+
+    /**
+     * Outcome of a migration.
+     *
+     * @param keyed      mappings given an account key
+     * @param duplicates mappings flagged as duplicates because another mapping owns their account
+     */
+    public record Result(int keyed, int duplicates)
+    {
+    }
+
+    private record Page(int size, String lastToken, Result result)
+    {
+    }
+}
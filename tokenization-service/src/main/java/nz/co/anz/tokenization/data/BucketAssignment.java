@@ -0,0 +1,75 @@
+package nz.co.anz.tokenization.data;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Entity recording which shard of a sharded vault holds a bucket of tokens.
+ * <p>
+ * A token's bucket is its first character (see {@link ShardRouter#bucketOf(String)}). While a bucket is moved by
+ * the {@link ShardRebalancer}, {@code movingTo} names the shard it is being copied to: new mappings of the bucket
+ * are written there and lookups try it before the owning shard. The assignment is kept on shard {@code 0}.
+ * </p>
+ * <p>
+ * Every change is stamped with a {@code version} above all earlier ones; the highest is the version of the whole
+ * assignment, which replicas acknowledge in {@link RoutingAcknowledgement}.
+ * </p>
+ * <p>
+ * {@code legacyAccounts} marks a bucket that may hold mappings written before tokens carried their account's bucket:
+ * such a mapping's account belongs to another bucket, so lookups by account also try the shards of these buckets.
+ * The flag moves with the bucket.
+ * </p>
+ */
+@Entity
+@Table(name = "shard_buckets")
+public class BucketAssignment {
+
+    // A wrapper, so that saving an assignment of bucket 0 updates it instead of inserting it again.
+    @Id
+    private Integer bucket;
+
+    @Column(nullable = false)
+    private int shard;
+
+    @Column(name = "moving_to")
+    private Integer movingTo;
+
+    // Null on assignments stored before versions were recorded.
+    private Long version;
+
+    // Null on assignments stored before the flag was recorded, which may hold such mappings.
+    @Column(name = "legacy_accounts")
+    private Boolean legacyAccounts;
+
+    protected BucketAssignment() {}
+
+    public BucketAssignment(int bucket, int shard, Integer movingTo, long version, boolean legacyAccounts) {
+        this.bucket = bucket;
+        this.shard = shard;
+        this.movingTo = movingTo;
+        this.version = version;
+        this.legacyAccounts = legacyAccounts;
+    }
+
+    public int getBucket() {
+        return bucket;
+    }
+
+    public int getShard() {
+        return shard;
+    }
+
+    public Integer getMovingTo() {
+        return movingTo;
+    }
+
+    public long getVersion() {
+        return version == null ? 0 : version;
+    }
+
+    public boolean hasLegacyAccounts() {
+        return legacyAccounts == null || legacyAccounts;
+    }
+}
@@ -0,0 +1,9 @@
+package nz.co.anz.tokenization.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository for the bucket assignment of a sharded vault; always used on shard {@code 0}.
+ */
+public interface BucketAssignmentRepository extends JpaRepository<BucketAssignment, Integer> {
+}
@@ -0,0 +1,242 @@
+package nz.co.anz.tokenization.data;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Writes mappings to the vault in batches, if they are absent, for the {@code DETERMINISTIC} token strategy.
+ * <p>
+ * Callers queue their mappings and block. A single writer thread collects the mappings of concurrent callers for up
+ * to {@code flushInterval} (or until {@code maxBatchSize} are collected) and stores them through the
+ * {@link VaultCommitter}, so with the configured durability, before the callers are released: a derived token is
+ * handed out only once its mapping is committed, like a random one. As a deterministic token is always the same for
+ * its account, writing is idempotent: mappings whose token is already in the vault are skipped, and a mapping whose
+ * account is already owned by another token, e.g. a random one issued before the strategy was switched, is stored
+ * without an account key, like the duplicates of {@link AccountKeyMigration}, so both tokens keep resolving.
+ * </p>
+ * <p>
+ * At most {@code maxPending} mappings are queued; beyond that callers write their own mappings instead of queuing
+ * them. If a batch fails, e.g. because another replica wrote one of its mappings in the meantime, each caller's
+ * mappings are checked and written again on their own, and only the callers whose write fails again see the
+ * exception.
+ * </p>
+ */
+public class DeferredVaultWriter implements AutoCloseable
+{
+    private static final Logger logger = LogManager.getLogger(DeferredVaultWriter.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final ShardRouter shardRouter;
+    private final VaultCommitter vaultCommitter;
+    private final long flushIntervalNanos;
+    private final int maxBatchSize;
+    private final int maxPending;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * Constructor; starts the writer thread.
+     *
+     * @param shardRouter    finds the mappings already in the vault
+     * @param vaultCommitter stores the absent mappings
+     * @param flushInterval  how long the first queued mappings wait for more
+     * @param maxBatchSize   mappings after which a batch is written without waiting
+     * @param maxPending     mappings queued at most; callers beyond that write their mappings themselves
+     */
+    public DeferredVaultWriter(final ShardRouter shardRouter, final VaultCommitter vaultCommitter,
+                               final Duration flushInterval, final int maxBatchSize, final int maxPending)
+    {
+        this.shardRouter = shardRouter;
+        this.vaultCommitter = vaultCommitter;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.maxPending = maxPending;
+        this.writer = Thread.ofPlatform().name("vault-deferred-writer").daemon().start(this::run);
+    }
+
+    /**
+     * Writes mappings unless already in the vault, together with those of concurrent callers, and returns once
+     * they are committed. If {@code maxPending} mappings are queued already, they are written on the calling thread.
+     *
+     * @param mappings the mappings, each with its account key
+     * @throws IllegalStateException if the writer is closed
+     * @throws RuntimeException      if the mappings could not be written
+     */
+    public void write(final List<TokenEntity> mappings)
+    {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Deferred vault writer is closed");
+        }
+        if (pending.addAndGet(mappings.size()) > maxPending) {
+            pending.addAndGet(-mappings.size());
+            writeIfAbsent(mappings);
+            return;
+        }
+        final Submission submission = new Submission(mappings, new CompletableFuture<>());
+        queue.add(submission);
+        try {
+            submission.written().join();
+        }
+        catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of mappings queued and not yet being written
+     */
+    public int pending()
+    {
+        return pending.get();
+    }
+
+    /**
+     * Stops accepting mappings, writes those already queued and stops the writer thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer thread
+     */
+    @Override
+    public void close() throws InterruptedException
+    {
+        closed = true;
+        writer.join();
+    }
+
+    private void run()
+    {
+        while (!closed || !queue.isEmpty()) {
+            final List<Submission> batch = new ArrayList<>();
+            try {
+                collect(batch);
+            }
+            catch (final InterruptedException e) {
+                logger.warn("Deferred vault writer interrupted, writing the queued mappings and stopping");
+                closed = true;
+            }
+            if (batch.isEmpty()) {
+                continue;
+            }
+            try {
+                writeBatch(batch);
+            }
+            catch (final Throwable e) {
+                // Never leave a caller blocked, nor the thread dead with callers still to come.
+                logger.error("Deferred vault write failed", e);
+                batch.forEach(submission -> submission.written().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void collect(final List<Submission> batch) throws InterruptedException
+    {
+        final Submission first = closed ? queue.poll() : queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        take(batch, first);
+        int size = first.mappings().size();
+        final long deadline = System.nanoTime() + flushIntervalNanos;
+        while (size < maxBatchSize) {
+            // Whatever queued up during the previous write joins without waiting.
+            Submission next = queue.poll();
+            if (next == null) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    break;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+            }
+            take(batch, next);
+            size += next.mappings().size();
+        }
+    }
+
+    private void take(final List<Submission> batch, final Submission submission)
+    {
+        batch.add(submission);
+        pending.addAndGet(-submission.mappings().size());
+    }
+
+    private void writeBatch(final List<Submission> batch)
+    {
+        try {
+            writeIfAbsent(batch.stream().flatMap(submission -> submission.mappings().stream()).toList());
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Deferred vault write of {} calls failed, writing each on its own: {}", batch.size(),
+                e.toString());
+            writeEach(batch);
+            return;
+        }
+        batch.forEach(submission -> submission.written().complete(null));
+    }
+
+    private void writeEach(final List<Submission> batch)
+    {
+        for (final Submission submission : batch) {
+            try {
+                writeIfAbsent(submission.mappings());
+                submission.written().complete(null);
+            }
+            catch (final RuntimeException e) {
+                submission.written().completeExceptionally(e);
+            }
+        }
+    }
+
+    private void writeIfAbsent(final List<TokenEntity> batch)
+    {
+        final Map<String, TokenEntity> byToken = LinkedHashMap.newLinkedHashMap(batch.size());
+        batch.forEach(mapping -> byToken.putIfAbsent(mapping.getToken(), mapping));
+        shardRouter.findAllById(byToken.keySet()).forEach(existing -> byToken.remove(existing.getToken()));
+        if (byToken.isEmpty()) {
+            return;
+        }
+
+        final Set<AccountKey> accountKeys = byToken.values().stream()
+            .map(TokenEntity::getAccountKey)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toSet());
+        final Set<AccountKey> owned = shardRouter.findByAccountKeyIn(accountKeys).stream()
+            .map(TokenEntity::getAccountKey)
+            .collect(Collectors.toSet());
+        final List<TokenEntity> absent = byToken.values().stream()
+            .map(mapping -> owned.contains(mapping.getAccountKey())
+                ? new TokenEntity(mapping.getToken(), mapping.getAccountNumber())
+                : mapping)
+            .toList();
+        vaultCommitter.commit(absent);
+    }
+
+    private record Submission(List<TokenEntity> mappings, CompletableFuture<Void> written)
+    {
+    }
+}
@@ -0,0 +1,40 @@
+package nz.co.anz.tokenization.data;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Commits the mappings of each caller in its own transaction, for the {@code ASYNC} and {@code SYNC} durability
+ * modes.
+ */
+public class DirectVaultCommitter implements VaultCommitter
+{
+    private final TokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Runnable sync;
+
+    /**
+     * Constructor.
+     *
+     * @param repository         inserts the mappings
+     * @param transactionManager runs each commit in its own transaction
+     * @param sync               forces committed transactions to disk after each commit; a no-op for {@code ASYNC}
+     */
+    public DirectVaultCommitter(final TokenRepository repository, final PlatformTransactionManager transactionManager,
+                                final Runnable sync)
+    {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sync = sync;
+    }
+
+    @Override
+    public void commit(final List<TokenEntity> mappings)
+    {
+        // Flush inside the transaction so constraint violations surface as DataIntegrityViolationException.
+        transactionTemplate.executeWithoutResult(status -> repository.saveAllAndFlush(mappings));
+        sync.run();
+    }
+}
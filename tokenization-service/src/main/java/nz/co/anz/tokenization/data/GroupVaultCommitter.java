@@ -0,0 +1,212 @@
+package nz.co.anz.tokenization.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Commits the mappings of concurrent callers together, for the {@code GROUP} durability mode.
+ * <p>
+ * Callers queue their mappings and block. A single committer thread takes the first queued mappings, collects
+ * whatever else arrives within {@code window} (or until {@code maxBatchSize} mappings are collected), inserts them
+ * in one transaction and forces that transaction to disk once. Only then are the callers released, so every token
+ * handed out is durable, while a burst of tokenize calls costs one commit and one disk sync instead of one each.
+ * </p>
+ * <p>
+ * If a group fails, e.g. because one caller's account was tokenized concurrently by another node, its callers'
+ * mappings are committed one caller at a time, so only the conflicting caller sees the exception.
+ * </p>
+ * <p>
+ * The committer thread works on the {@link ShardContext} shard of the thread that created the committer.
+ * </p>
+ */
+public class GroupVaultCommitter implements VaultCommitter, AutoCloseable
+{
+    private static final Logger logger = LogManager.getLogger(GroupVaultCommitter.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final TokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Runnable sync;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Submission> queue = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean closed;
+
+    /**
+     * Constructor; starts the committer thread.
+     *
+     * @param repository         inserts the mappings
+     * @param transactionManager runs each group in its own transaction
+     * @param sync               forces committed transactions to disk, once per group
+     * @param window             how long the first mappings of a group wait for more
+     * @param maxBatchSize       mappings after which a group is committed without waiting
+     */
+    public GroupVaultCommitter(final TokenRepository repository, final PlatformTransactionManager transactionManager,
+                               final Runnable sync, final Duration window, final int maxBatchSize)
+    {
+        this.repository = repository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sync = sync;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        final int shard = ShardContext.current();
+        this.committer = Thread.ofPlatform().name("vault-group-commit-" + shard).daemon()
+            .start(() -> ShardContext.run(shard, this::run));
+    }
+
+    @Override
+    public void commit(final List<TokenEntity> mappings)
+    {
+        if (mappings.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Vault committer is closed");
+        }
+        final Submission submission = new Submission(mappings, new CompletableFuture<>());
+        queue.add(submission);
+        try {
+            submission.committed().join();
+        }
+        catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stops accepting mappings, commits those already queued and stops the committer thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the committer thread
+     */
+    @Override
+    public void close() throws InterruptedException
+    {
+        closed = true;
+        committer.join();
+    }
+
+    private void run()
+    {
+        while (!closed || !queue.isEmpty()) {
+            final List<Submission> group = new ArrayList<>();
+            try {
+                collect(group);
+            }
+            catch (final InterruptedException e) {
+                logger.warn("Vault group committer interrupted, committing the queued mappings and stopping");
+                closed = true;
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+            try {
+                commitGroup(group);
+            }
+            catch (final Throwable e) {
+                // Never leave a caller blocked, nor the thread dead with callers still to come.
+                logger.error("Vault group commit failed", e);
+                group.forEach(submission -> submission.committed().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void collect(final List<Submission> group) throws InterruptedException
+    {
+        final Submission first = closed ? queue.poll() : queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        int size = first.mappings().size();
+        final long deadline = System.nanoTime() + windowNanos;
+        while (size < maxBatchSize) {
+            // Whatever queued up during the previous commit joins without waiting.
+            Submission next = queue.poll();
+            if (next == null) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || closed) {
+                    break;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+            }
+            group.add(next);
+            size += next.mappings().size();
+        }
+    }
+
+    private void commitGroup(final List<Submission> group)
+    {
+        try {
+            insert(group.stream().flatMap(submission -> submission.mappings().stream()).toList());
+        }
+        catch (final RuntimeException e) {
+            if (group.size() == 1) {
+                group.getFirst().committed().completeExceptionally(e);
+            }
+            else {
+                commitEach(group);
+            }
+            return;
+        }
+        syncAndRelease(group);
+    }
+
+    private void commitEach(final List<Submission> group)
+    {
+        final List<Submission> inserted = new ArrayList<>(group.size());
+        for (final Submission submission : group) {
+            try {
+                insert(submission.mappings());
+                inserted.add(submission);
+            }
+            catch (final RuntimeException e) {
+                submission.committed().completeExceptionally(e);
+            }
+        }
+        syncAndRelease(inserted);
+    }
+
+    private void insert(final List<TokenEntity> mappings)
+    {
+        // Flush inside the transaction so constraint violations surface as DataIntegrityViolationException.
+        transactionTemplate.executeWithoutResult(status -> repository.saveAllAndFlush(mappings));
+    }
+
+    private void syncAndRelease(final List<Submission> committed)
+    {
+        if (committed.isEmpty()) {
+            return;
+        }
+        try {
+            sync.run();
+        }
+        catch (final RuntimeException e) {
+            committed.forEach(submission -> submission.committed().completeExceptionally(e));
+            return;
+        }
+        committed.forEach(submission -> submission.committed().complete(null));
+    }
+
+    private record Submission(List<TokenEntity> mappings, CompletableFuture<Void> committed)
+    {
+    }
+}
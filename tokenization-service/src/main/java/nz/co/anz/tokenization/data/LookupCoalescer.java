@@ -0,0 +1,236 @@
+package nz.co.anz.tokenization.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Coalesces the vault lookups of concurrent callers into one {@code IN}-list query.
+ * <p>
+ * Callers queue their keys and block. A single flusher thread takes the first queued lookup together with
+ * whatever queued up during the previous query, and, while lookups overlap, collects whatever else arrives until
+ * {@code window} after the first was queued (or until {@code maxBatchSize} keys are collected). It then queries the
+ * distinct keys of the group at once and hands every caller the mappings of its own keys. A lookup arriving while
+ * the flusher is idle and the previous group was a single lookup is queried at once, so at low traffic no lookup
+ * waits for the window; under load the window bounds the time a lookup waits for others.
+ * </p>
+ * <p>
+ * A lookup of {@code maxBatchSize} keys or more is already a batch and is queried on the caller's thread, as are
+ * lookups after {@link #close()}. If the query of a group fails, all its callers see the exception.
+ * </p>
+ *
+ * @param <K> the key type, a token or an account key
+ */
+public class LookupCoalescer<K> implements AutoCloseable
+{
+    private static final Logger logger = LogManager.getLogger(LookupCoalescer.class);
+
+    private static final long IDLE_POLL_MILLIS = 100;
+
+    private final Function<List<K>, List<TokenEntity>> query;
+    private final Function<TokenEntity, K> keyOf;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final BlockingQueue<Lookup<K>> queue = new LinkedBlockingQueue<>();
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder queries = new LongAdder();
+    private final Thread flusher;
+    private volatile boolean closed;
+    private boolean overlapping;
+
+    /**
+     * Constructor; starts the flusher thread.
+     *
+     * @param name         name of the flusher thread
+     * @param query        finds the mappings of a list of distinct keys
+     * @param keyOf        the key a mapping was found by
+     * @param window       how long the first lookup of a group waits for more while lookups overlap
+     * @param maxBatchSize keys after which a group is queried without waiting
+     */
+    public LookupCoalescer(final String name, final Function<List<K>, List<TokenEntity>> query,
+                           final Function<TokenEntity, K> keyOf, final Duration window, final int maxBatchSize)
+    {
+        this.query = query;
+        this.keyOf = keyOf;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.flusher = Thread.ofPlatform().name(name).daemon().start(this::run);
+    }
+
+    /**
+     * Finds the mappings of {@code keys}, together with the lookups of concurrent callers.
+     *
+     * @param keys the keys
+     * @return the mappings found, in no particular order
+     */
+    public List<TokenEntity> find(final Collection<K> keys)
+    {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        lookups.increment();
+        if (closed || keys.size() >= maxBatchSize) {
+            return queryNow(keys);
+        }
+        final Lookup<K> lookup = new Lookup<>(keys, System.nanoTime(), new CompletableFuture<>());
+        queue.add(lookup);
+        if (closed && queue.remove(lookup)) {
+            // Queued after the flusher stopped.
+            return queryNow(keys);
+        }
+        try {
+            return lookup.found().join();
+        }
+        catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return the lookups requested by callers
+     */
+    public long lookups()
+    {
+        return lookups.sum();
+    }
+
+    /**
+     * @return the queries run for them
+     */
+    public long queries()
+    {
+        return queries.sum();
+    }
+
+    /**
+     * Stops coalescing, answers the lookups already queued and stops the flusher thread.
+     *
+     * @throws InterruptedException if interrupted while waiting for the flusher thread
+     */
+    @Override
+    public void close() throws InterruptedException
+    {
+        closed = true;
+        flusher.join();
+    }
+
+    private List<TokenEntity> queryNow(final Collection<K> keys)
+    {
+        queries.increment();
+        return query.apply(keys instanceof List<K> list ? list : new ArrayList<>(keys));
+    }
+
+    private void run()
+    {
+        while (!closed || !queue.isEmpty()) {
+            final List<Lookup<K>> group = new ArrayList<>();
+            try {
+                collect(group);
+            }
+            catch (final InterruptedException e) {
+                logger.warn("Lookup coalescer interrupted, answering the queued lookups and stopping");
+                closed = true;
+            }
+            if (group.isEmpty()) {
+                continue;
+            }
+            try {
+                queryGroup(group);
+            }
+            catch (final Throwable e) {
+                // Never leave a caller blocked, nor the thread dead with callers still to come.
+                logger.error("Coalesced vault lookup failed", e);
+                group.forEach(lookup -> lookup.found().completeExceptionally(e));
+            }
+        }
+    }
+
+    private void collect(final List<Lookup<K>> group) throws InterruptedException
+    {
+        final Lookup<K> first = closed ? queue.poll() : queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        group.add(first);
+        int size = first.keys().size();
+        // Whatever queued up during the previous query joins without waiting.
+        Lookup<K> next;
+        while (size < maxBatchSize && (next = queue.poll()) != null) {
+            group.add(next);
+            size += next.keys().size();
+        }
+        if (group.size() > 1 || overlapping) {
+            final long deadline = first.queuedAt() + windowNanos;
+            while (size < maxBatchSize && !closed) {
+                final long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || (next = queue.poll(remaining, TimeUnit.NANOSECONDS)) == null) {
+                    break;
+                }
+                group.add(next);
+                size += next.keys().size();
+            }
+        }
+        overlapping = group.size() > 1;
+    }
+
+    private void queryGroup(final List<Lookup<K>> group)
+    {
+        if (group.size() == 1) {
+            final Lookup<K> only = group.getFirst();
+            try {
+                only.found().complete(queryNow(only.keys()));
+            }
+            catch (final RuntimeException e) {
+                only.found().completeExceptionally(e);
+            }
+            return;
+        }
+
+        final Set<K> keys = new LinkedHashSet<>();
+        group.forEach(lookup -> keys.addAll(lookup.keys()));
+        final List<TokenEntity> found;
+        try {
+            found = queryNow(keys);
+        }
+        catch (final RuntimeException e) {
+            group.forEach(lookup -> lookup.found().completeExceptionally(e));
+            return;
+        }
+        final Map<K, TokenEntity> byKey = HashMap.newHashMap(found.size());
+        found.forEach(mapping -> byKey.put(keyOf.apply(mapping), mapping));
+        for (final Lookup<K> lookup : group) {
+            final List<TokenEntity> own = new ArrayList<>(lookup.keys().size());
+            final Set<K> handed = lookup.keys().size() > 1 ? new HashSet<>() : null;
+            for (final K key : lookup.keys()) {
+                final TokenEntity mapping = byKey.get(key);
+                if (mapping != null && (handed == null || handed.add(key))) {
+                    own.add(mapping);
+                }
+            }
+            lookup.found().complete(own);
+        }
+    }
+
+    private record Lookup<K>(Collection<K> keys, long queuedAt, CompletableFuture<List<TokenEntity>> found)
+    {
+    }
+}
@@ -0,0 +1,50 @@
+package nz.co.anz.tokenization.data;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+import java.time.Instant;
+
+/**
+ * Entity recording the version of the bucket assignment a replica of a sharded vault has applied.
+ * <p>
+ * Every replica writes its row on shard {@code 0} each time it has re-read the assignment and no write routed by an
+ * older one is still running, and deletes it on shutdown. The {@link ShardRebalancer} waits for these rows before it
+ * copies or deletes the mappings of a bucket.
+ * </p>
+ */
+@Entity
+@Table(name = "shard_replicas")
+public class RoutingAcknowledgement {
+
+    @Id
+    private String replica;
+
+    @Column(nullable = false)
+    private long version;
+
+    @Column(name = "acknowledged_at", nullable = false)
+    private Instant acknowledgedAt;
+
+    protected RoutingAcknowledgement() {}
+
+    public RoutingAcknowledgement(String replica, long version, Instant acknowledgedAt) {
+        this.replica = replica;
+        this.version = version;
+        this.acknowledgedAt = acknowledgedAt;
+    }
+
+    public String getReplica() {
+        return replica;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Instant getAcknowledgedAt() {
+        return acknowledgedAt;
+    }
+}
@@ -0,0 +1,9 @@
+package nz.co.anz.tokenization.data;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+/**
+ * Repository for the routing acknowledgements of the replicas of a sharded vault; always used on shard {@code 0}.
+ */
+public interface RoutingAcknowledgementRepository extends JpaRepository<RoutingAcknowledgement, String> {
+}
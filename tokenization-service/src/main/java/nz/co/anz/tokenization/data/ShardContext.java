@@ -0,0 +1,69 @@
+package nz.co.anz.tokenization.data;
+
+import java.util.function.Supplier;
+
+/**
+ * The vault shard the current thread's database work goes to, read by {@link ShardRoutingDataSource}.
+ * <p>
+ * A connection is bound to a shard when it is taken from the routing data source, i.e. when a transaction or a
+ * non-transactional repository call starts, so the shard must be set around the whole unit of work. Threads that
+ * never set one work on shard {@code 0}, which is the whole vault when it is not sharded.
+ * </p>
+ */
+public final class ShardContext
+{
+    private static final ThreadLocal<Integer> SHARD = new ThreadLocal<>();
+
+    private ShardContext()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    /**
+     * @return the shard of the current thread, {@code 0} if none is set
+     */
+    public static int current()
+    {
+        final Integer shard = SHARD.get();
+        return shard == null ? 0 : shard;
+    }
+
+    /**
+     * Runs {@code work} on {@code shard}, restoring the current thread's shard afterwards.
+     *
+     * @param shard the shard
+     * @param work  the database work
+     * @param <T>   the result type
+     * @return the result of {@code work}
+     */
+    public static <T> T call(final int shard, final Supplier<T> work)
+    {
+        final Integer previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        }
+        finally {
+            if (previous == null) {
+                SHARD.remove();
+            }
+            else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs {@code work} on {@code shard}, restoring the current thread's shard afterwards.
+     *
+     * @param shard the shard
+     * @param work  the database work
+     */
+    public static void run(final int shard, final Runnable work)
+    {
+        call(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+}
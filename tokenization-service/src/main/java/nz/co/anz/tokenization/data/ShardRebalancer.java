@@ -0,0 +1,335 @@
+package nz.co.anz.tokenization.data;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.properties.ShardProperties;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Moves token buckets between the shards of a sharded vault while it serves traffic.
+ * <p>
+ * {@link #rebalance(int)} spreads the {@value ShardRouter#BUCKETS} buckets evenly over the first {@code shards}
+ * shards, moving as few buckets as possible, on a background thread. To add a shard, append its URL to
+ * {@code tokenization.shards.urls}, raise {@code count} (the new shard starts without buckets) and rebalance
+ * over all shards; to retire the last shards, rebalance over the others.
+ * </p>
+ * <p>
+ * Each bucket is moved in three steps. After each change of its assignment, the move waits until every replica has
+ * acknowledged it (see {@link ShardRouter#awaitReplicas(long)}), so no write routed by the previous assignment is
+ * still running:
+ * </p>
+ * <ol>
+ *     <li>The bucket is marked as moving: its new mappings are written to the target shard, and lookups try the
+ *     target before the source.</li>
+ *     <li>Its mappings are copied from the source, page by page in token order, through the {@link VaultCommitter}
+ *     (so with the configured durability), skipping those already on the target; a mapping whose account is
+ *     already owned on the target is copied without its account key, like the duplicates of
+ *     {@link AccountKeyMigration}. The target then becomes the owner, and the bucket loses its legacy accounts
+ *     flag if none of its mappings belongs to an account of another bucket.</li>
+ *     <li>The bucket's mappings are paged through on the source once more: whatever is missing on the target is
+ *     copied, and only the mappings found on the target are deleted from the source.</li>
+ * </ol>
+ * <p>
+ * A move interrupted by a restart is left marked as moving, which keeps every mapping reachable; the next
+ * rebalancing completes it first.
+ * </p>
+ */
+@Component
+public class ShardRebalancer
+{
+    private static final Logger logger = LogManager.getLogger(ShardRebalancer.class);
+
+    private static final int MAX_PAGE_ATTEMPTS = 3;
+
+    private final ShardRouter shardRouter;
+    private final TokenRepository repository;
+    private final VaultCommitter vaultCommitter;
+    private final ShardProperties properties;
+    private volatile Status status = new Status(false, 0, 0, 0, 0, null);
+    private Thread rebalancing;
+
+    /**
+     * Constructor.
+     *
+     * @param shardRouter    the bucket assignment
+     * @param repository     reads and deletes the mappings, routed by {@link ShardContext}
+     * @param vaultCommitter writes the copied mappings to the shard a bucket is moving to
+     * @param properties     the number of shards and the page size
+     */
+    public ShardRebalancer(final ShardRouter shardRouter, final TokenRepository repository,
+                           final VaultCommitter vaultCommitter, final ShardProperties properties)
+    {
+        this.shardRouter = shardRouter;
+        this.repository = repository;
+        this.vaultCommitter = vaultCommitter;
+        this.properties = properties;
+    }
+
+    /**
+     * Starts moving buckets in the background so they are spread evenly over shards {@code 0} to {@code shards - 1}.
+     *
+     * @param shards the number of shards to spread the buckets over
+     * @return the status of the rebalancing started
+     * @throws IllegalArgumentException if {@code shards} is not between 1 and {@code tokenization.shards.count}
+     * @throws IllegalStateException    if a rebalancing is already running
+     */
+    public synchronized Status rebalance(final int shards)
+    {
+        if (shards < 1 || shards > shardRouter.shards()) {
+            throw new IllegalArgumentException(
+                "Buckets can be spread over 1 to " + shardRouter.shards() + " shards: " + shards);
+        }
+        if (rebalancing != null && rebalancing.isAlive()) {
+            throw new IllegalStateException("A rebalancing is already running");
+        }
+        status = new Status(true, shards, 0, 0, 0, null);
+        rebalancing = Thread.ofPlatform().name("shard-rebalancer").daemon().start(() -> run(shards));
+        return status;
+    }
+
+    /**
+     * @return the progress of the current, or last, rebalancing
+     */
+    public Status status()
+    {
+        return status;
+    }
+
+    /**
+     * Waits for the current rebalancing, if any, to finish.
+     *
+     * @param timeout the longest time to wait
+     * @return the status of the rebalancing
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Status await(final Duration timeout) throws InterruptedException
+    {
+        final Thread thread;
+        synchronized (this) {
+            thread = rebalancing;
+        }
+        if (thread != null) {
+            thread.join(timeout);
+        }
+        return status;
+    }
+
+    /**
+     * Plans which buckets to move: every shard keeps as many of its buckets as its even share allows, and the
+     * others go to the shards below their share.
+     *
+     * @param owners the shard of every bucket, by bucket
+     * @param shards the number of shards to spread the buckets over
+     * @return the target shard of every bucket, by bucket
+     */
+    public static int[] plan(final int[] owners, final int shards)
+    {
+        final int[] quota = new int[shards];
+        for (int shard = 0; shard < shards; shard++) {
+            quota[shard] = owners.length / shards + (shard < owners.length % shards ? 1 : 0);
+        }
+        final int[] targets = new int[owners.length];
+        final List<Integer> unassigned = new ArrayList<>();
+        for (int bucket = 0; bucket < owners.length; bucket++) {
+            final int owner = owners[bucket];
+            if (owner < shards && quota[owner] > 0) {
+                targets[bucket] = owner;
+                quota[owner]--;
+            }
+            else {
+                unassigned.add(bucket);
+            }
+        }
+        int shard = 0;
+        for (final int bucket : unassigned) {
+            while (quota[shard] == 0) {
+                shard++;
+            }
+            targets[bucket] = shard;
+            quota[shard]--;
+        }
+        return targets;
+    }
+
+    private void run(final int shards)
+    {
+        final long startedAt = System.nanoTime();
+        try {
+            // Finish moves interrupted by a restart first, so every bucket has a single shard again.
+            for (final ShardRouter.Bucket bucket : shardRouter.buckets()) {
+                if (bucket.movingTo() != null) {
+                    move(bucket.bucket(), bucket.shard(), bucket.movingTo(), bucket.legacyAccounts());
+                }
+            }
+            final List<ShardRouter.Bucket> buckets = shardRouter.buckets();
+            final int[] owners = buckets.stream().mapToInt(ShardRouter.Bucket::shard).toArray();
+            final int[] targets = plan(owners, shards);
+            final List<Integer> moves = new ArrayList<>();
+            for (int bucket = 0; bucket < targets.length; bucket++) {
+                if (targets[bucket] != owners[bucket]) {
+                    moves.add(bucket);
+                }
+            }
+            status = new Status(true, shards, moves.size(), 0, status.mappingsCopied(), null);
+            logger.info("Rebalancing token buckets over {} shards: {} buckets to move", shards, moves.size());
+            for (final int bucket : moves) {
+                move(bucket, owners[bucket], targets[bucket], buckets.get(bucket).legacyAccounts());
+                status = new Status(true, shards, moves.size(), status.bucketsMoved() + 1, status.mappingsCopied(),
+                    null);
+            }
+            status = new Status(false, shards, moves.size(), status.bucketsMoved(), status.mappingsCopied(), null);
+            logger.info("Rebalanced token buckets over {} shards, copying {} mappings, in {} ms", shards,
+                status.mappingsCopied(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        }
+        catch (final InterruptedException e) {
+            logger.warn("Shard rebalancing interrupted; buckets being moved stay readable on both shards");
+            status = failed("interrupted");
+        }
+        catch (final RuntimeException e) {
+            logger.error("Shard rebalancing failed; buckets being moved stay readable on both shards", e);
+            status = failed(e.toString());
+        }
+    }
+
+    private void move(final int bucket, final int source, final int target, final boolean legacyAccounts)
+        throws InterruptedException
+    {
+        final String prefix = String.valueOf(ShardRouter.prefixOf(bucket));
+        shardRouter.awaitReplicas(shardRouter.reassign(bucket, source, target, legacyAccounts));
+        boolean legacyFound = false;
+
+        String after = "";
+        List<TokenEntity> page;
+        do {
+            final String from = after;
+            page = ShardContext.call(source, () -> repository
+                .findByTokenStartingWithAndTokenGreaterThanOrderByTokenAsc(prefix, from,
+                    Limit.of(properties.getMoveBatchSize())));
+            if (!page.isEmpty()) {
+                copy(page, target);
+                legacyFound = legacyFound
+                    || legacyAccounts && page.stream().anyMatch(mapping -> isLegacy(mapping, bucket));
+                after = page.getLast().getToken();
+            }
+        }
+        while (page.size() == properties.getMoveBatchSize());
+
+        // Mappings written meanwhile carry their account's bucket, so the flag is cleared if none was found.
+        shardRouter.awaitReplicas(shardRouter.reassign(bucket, target, null, legacyFound));
+
+        // Nothing routes to the source any more; whatever reached it after its page was copied is copied now.
+        after = "";
+        long kept = 0;
+        do {
+            final String from = after;
+            page = ShardContext.call(source, () -> repository
+                .findByTokenStartingWithAndTokenGreaterThanOrderByTokenAsc(prefix, from,
+                    Limit.of(properties.getMoveBatchSize())));
+            if (!page.isEmpty()) {
+                copy(page, target);
+                final List<String> tokens = page.stream().map(TokenEntity::getToken).toList();
+                final List<String> copied = ShardContext.call(target, () -> repository.findAllById(tokens)).stream()
+                    .map(TokenEntity::getToken)
+                    .toList();
+                if (!copied.isEmpty()) {
+                    ShardContext.run(source, () -> repository.deleteAllByIdInBatch(copied));
+                }
+                kept += page.size() - copied.size();
+                after = page.getLast().getToken();
+            }
+        }
+        while (page.size() == properties.getMoveBatchSize());
+        if (kept > 0) {
+            logger.warn("{} mappings of token bucket '{}' were not found on shard {} and are kept on shard {}", kept,
+                prefix, target, source);
+        }
+        logger.info("Moved token bucket '{}' from shard {} to shard {}", prefix, source, target);
+    }
+
+    /**
+     * Whether a mapping's account belongs to another bucket, or may once {@link AccountKeyMigration} keys it.
+     */
+    private static boolean isLegacy(final TokenEntity mapping, final int bucket)
+    {
+        return mapping.getAccountKey() == null
+            ? !mapping.isDuplicate()
+            : ShardRouter.bucketOf(mapping.getAccountKey()) != bucket;
+    }
+
+    private void copy(final List<TokenEntity> page, final int target)
+    {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                copyIfAbsent(page, target);
+                return;
+            }
+            catch (final DataIntegrityViolationException e) {
+                // A mapping of the page was written to the target meanwhile; the page is re-checked.
+                if (attempt >= MAX_PAGE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void copyIfAbsent(final List<TokenEntity> page, final int target)
+    {
+        final Set<String> present = ShardContext.call(target, () -> repository
+                .findAllById(page.stream().map(TokenEntity::getToken).toList()))
+            .stream()
+            .map(TokenEntity::getToken)
+            .collect(Collectors.toSet());
+        final List<TokenEntity> absent = page.stream()
+            .filter(mapping -> !present.contains(mapping.getToken()))
+            .toList();
+        if (absent.isEmpty()) {
+            return;
+        }
+        final List<AccountKey> accountKeys = absent.stream()
+            .map(TokenEntity::getAccountKey)
+            .filter(Objects::nonNull)
+            .toList();
+        final Set<AccountKey> owned = accountKeys.isEmpty() ? Set.of()
+            : ShardContext.call(target, () -> repository.findByAccountKeyIn(accountKeys)).stream()
+                .map(TokenEntity::getAccountKey)
+                .collect(Collectors.toSet());
+        vaultCommitter.commit(absent.stream()
+            .map(mapping -> mapping.copy(owned.contains(mapping.getAccountKey()) ? null : mapping.getAccountKey()))
+            .toList());
+        status = new Status(true, status.shards(), status.bucketsToMove(), status.bucketsMoved(),
+            status.mappingsCopied() + absent.size(), null);
+    }
+
+    private Status failed(final String failure)
+    {
+        final Status current = status;
+        return new Status(false, current.shards(), current.bucketsToMove(), current.bucketsMoved(),
+            current.mappingsCopied(), failure);
+    }
+
+    /**
+     * Progress of a rebalancing.
+     *
+     * @param running        whether it is still moving buckets
+     * @param shards         the number of shards the buckets are spread over
+     * @param bucketsToMove  the buckets it moves
+     * @param bucketsMoved   the buckets moved so far
+     * @param mappingsCopied the mappings copied so far
+     * @param failure        why it stopped early, or {@code null}
+     */
+    public record Status(boolean running, int shards, int bucketsToMove, int bucketsMoved, long mappingsCopied,
+                         String failure)
+    {
+    }
+}
@@ -0,0 +1,693 @@
+package nz.co.anz.tokenization.data;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.properties.LookupCoalescingProperties;
+import nz.co.anz.tokenization.properties.ShardProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Routes vault reads and writes to the shard holding each mapping.
+ * <p>
+ * Tokens are split into {@value #BUCKETS} buckets by their first character, and every new token's first character
+ * is the bucket of its account key (see {@link #inBucketOf(String, AccountKey)}), so both a token and an account
+ * number lead to the same bucket without a lookup. Each bucket is assigned to one shard; the assignment is stored
+ * in {@code shard_buckets} on shard {@code 0} and re-read every {@code tokenization.shards.refresh-interval}, so
+ * every replica follows the {@link ShardRebalancer}.
+ * </p>
+ * <p>
+ * Mappings written before that, by older versions, sit in the bucket of their token's first character, which is
+ * not their account's, and cannot be moved to it since clients hold their tokens. The buckets of a vault that
+ * already held mappings when it was first sharded are therefore flagged as holding such legacy accounts, and an
+ * account not found on its bucket's shard is also looked up on the shards of the flagged buckets. The rebalancer
+ * clears the flag of a bucket it moves without finding any, and a vault sharded from empty never looks further
+ * than an account's bucket.
+ * </p>
+ * <p>
+ * Writes run through {@link #write(Runnable)}. Once a replica has applied a new version of the assignment and the
+ * writes routed by the previous one have finished, it acknowledges the version in {@code shard_replicas}, and the
+ * rebalancer waits for these acknowledgements before it copies or deletes mappings. A replica that cannot read and
+ * acknowledge the assignment for {@code tokenization.shards.replica-timeout} refuses writes, so a stale routing
+ * never writes to a shard a bucket has left.
+ * </p>
+ * <p>
+ * A batch is split by shard and the shards are queried in parallel, one query per shard, on virtual threads. While a
+ * bucket is being moved, its new mappings go to the target shard and lookups try the target first and the source
+ * for whatever was not copied yet. With a single shard every call goes straight to the repository.
+ * </p>
+ * <p>
+ * Lookups by token and by account key are coalesced with those of concurrent requests by a {@link LookupCoalescer}
+ * ({@code tokenization.lookup.coalescing.*}), so a stream of single-item requests costs one query per group rather
+ * than one each. Published metrics: {@code tokenization.lookup.requests} and {@code tokenization.lookup.queries},
+ * tagged by {@code lookup}: {@code token} or {@code account}.
+ * </p>
+ */
+@Component
+public class ShardRouter implements AutoCloseable, MeterBinder
+{
+    private static final Logger logger = LogManager.getLogger(ShardRouter.class);
+
+    /**
+     * Number of buckets, one per token character.
+     */
+    public static final int BUCKETS = 62;
+
+    private static final String PREFIXES = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private static final int[] BUCKET_OF_PREFIX = new int[128];
+
+    static {
+        Arrays.fill(BUCKET_OF_PREFIX, -1);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            BUCKET_OF_PREFIX[PREFIXES.charAt(bucket)] = bucket;
+        }
+    }
+
+    private final TokenRepository repository;
+    private final BucketAssignmentRepository assignments;
+    private final RoutingAcknowledgementRepository acknowledgements;
+    private final String replica = UUID.randomUUID().toString();
+    private final int shards;
+    private final Duration refreshInterval;
+    private final Duration replicaTimeout;
+    private final ReentrantReadWriteLock writes = new ReentrantReadWriteLock();
+    private final ExecutorService fanOut;
+    private final LookupCoalescer<String> tokenLookups;
+    private final LookupCoalescer<AccountKey> accountLookups;
+    private volatile Routing routing;
+    private volatile long acknowledgedAt = System.nanoTime();
+
+    /**
+     * Constructor.
+     *
+     * @param repository       the token repository, routed by {@link ShardContext}
+     * @param assignments      stores the bucket assignment on shard {@code 0}
+     * @param acknowledgements stores the assignment version every replica has applied on shard {@code 0}
+     * @param properties       the number of shards, the refresh interval and the replica timeout
+     * @param coalescing       whether and how lookups of concurrent requests are coalesced
+     */
+    public ShardRouter(final TokenRepository repository, final BucketAssignmentRepository assignments,
+                       final RoutingAcknowledgementRepository acknowledgements, final ShardProperties properties,
+                       final LookupCoalescingProperties coalescing)
+    {
+        this.repository = repository;
+        this.assignments = assignments;
+        this.acknowledgements = acknowledgements;
+        this.shards = properties.getCount();
+        this.refreshInterval = properties.getRefreshInterval();
+        this.replicaTimeout = properties.getReplicaTimeout();
+        this.fanOut = shards == 1 ? null
+            : Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("shard-fan-out-", 0).factory());
+        this.routing = Routing.allOn(0);
+        if (coalescing.isEnabled()) {
+            this.tokenLookups = new LookupCoalescer<>("vault-lookup-tokens", this::queryById, TokenEntity::getToken,
+                coalescing.getWindow(), coalescing.getMaxBatchSize());
+            this.accountLookups = new LookupCoalescer<>("vault-lookup-accounts", this::queryByAccountKey,
+                TokenEntity::getAccountKey, coalescing.getWindow(), coalescing.getMaxBatchSize());
+        }
+        else {
+            this.tokenLookups = null;
+            this.accountLookups = null;
+        }
+    }
+
+    /**
+     * Creates the router of an unsharded vault, which hands every call to {@code repository} without coalescing.
+     *
+     * @param repository the token repository
+     * @return the router
+     */
+    public static ShardRouter unsharded(final TokenRepository repository)
+    {
+        final LookupCoalescingProperties coalescing = new LookupCoalescingProperties();
+        coalescing.setEnabled(false);
+        return new ShardRouter(repository, null, null, new ShardProperties(), coalescing);
+    }
+
+    /**
+     * Returns the bucket of a token.
+     *
+     * @param token the token
+     * @return the bucket, from {@code 0} to {@value #BUCKETS} (excluded)
+     */
+    public static int bucketOf(final String token)
+    {
+        final char prefix = token.charAt(0);
+        return prefix < BUCKET_OF_PREFIX.length && BUCKET_OF_PREFIX[prefix] >= 0
+            ? BUCKET_OF_PREFIX[prefix]
+            : prefix % BUCKETS;
+    }
+
+    /**
+     * Returns the bucket of an account, i.e. of the tokens issued for it.
+     *
+     * @param accountKey the account key
+     * @return the bucket, from {@code 0} to {@value #BUCKETS} (excluded)
+     */
+    public static int bucketOf(final AccountKey accountKey)
+    {
+        return (int) Math.floorMod(accountKey.high(), (long) BUCKETS);
+    }
+
+    /**
+     * Returns the first character of the tokens of a bucket.
+     *
+     * @param bucket the bucket
+     * @return the token prefix
+     */
+    public static char prefixOf(final int bucket)
+    {
+        return PREFIXES.charAt(bucket);
+    }
+
+    /**
+     * Puts a new token into its account's bucket by replacing its first character.
+     *
+     * @param token      the token
+     * @param accountKey the key of the account it is issued for
+     * @return the token, starting with the prefix of the account's bucket
+     */
+    public static String inBucketOf(final String token, final AccountKey accountKey)
+    {
+        final char prefix = prefixOf(bucketOf(accountKey));
+        return token.charAt(0) == prefix ? token : prefix + token.substring(1);
+    }
+
+    /**
+     * @return the number of shards
+     */
+    public int shards()
+    {
+        return shards;
+    }
+
+    /**
+     * Reads the bucket assignment, assigning the buckets on first start: all to shard {@code 0} if it already holds
+     * mappings, which the {@link ShardRebalancer} then spreads, or evenly over the shards otherwise.
+     */
+    @PostConstruct
+    public void load()
+    {
+        if (shards == 1) {
+            return;
+        }
+        List<BucketAssignment> stored = ShardContext.call(0, assignments::findAll);
+        if (stored.size() < BUCKETS) {
+            stored = ShardContext.call(0, this::assignBuckets);
+        }
+        apply(stored);
+    }
+
+    /**
+     * Re-reads and acknowledges the bucket assignment; the previous one stays in use if it cannot be read, and
+     * writes are refused once it has not been acknowledged for {@code tokenization.shards.replica-timeout}.
+     */
+    @Scheduled(fixedDelayString = "${tokenization.shards.refresh-interval:PT5S}")
+    public void refresh()
+    {
+        if (shards == 1) {
+            return;
+        }
+        try {
+            apply(ShardContext.call(0, assignments::findAll));
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Shard bucket assignment could not be refreshed, keeping the current one", e);
+        }
+    }
+
+    /**
+     * Stores a new assignment of a bucket, with a version above all earlier ones, and applies it to this replica
+     * at once.
+     *
+     * @param bucket         the bucket
+     * @param shard          the shard holding it
+     * @param movingTo       the shard it is being moved to, or {@code null}
+     * @param legacyAccounts whether the bucket may hold mappings of accounts of other buckets
+     * @return the version of the assignment, to pass to {@link #awaitReplicas(long)}
+     */
+    public long reassign(final int bucket, final int shard, final Integer movingTo, final boolean legacyAccounts)
+    {
+        final long version = ShardContext.call(0, assignments::findAll).stream()
+            .mapToLong(BucketAssignment::getVersion)
+            .max()
+            .orElse(0) + 1;
+        ShardContext.run(0, () -> assignments.save(new BucketAssignment(bucket, shard, movingTo, version,
+            legacyAccounts)));
+        apply(ShardContext.call(0, assignments::findAll));
+        return version;
+    }
+
+    /**
+     * Waits until every replica has acknowledged a version of the bucket assignment, i.e. none routes writes by an
+     * older one any more. A replica whose last acknowledgement is older than twice
+     * {@code tokenization.shards.replica-timeout} is not waited for: it refuses writes by then, or has stopped
+     * without deleting its acknowledgement.
+     *
+     * @param version the version returned by {@link #reassign(int, int, Integer, boolean)}
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitReplicas(final long version) throws InterruptedException
+    {
+        while (true) {
+            final Instant expired = Instant.now().minus(replicaTimeout.multipliedBy(2));
+            final List<String> pending = ShardContext.call(0, acknowledgements::findAll).stream()
+                .filter(acknowledgement -> acknowledgement.getVersion() < version
+                    && acknowledgement.getAcknowledgedAt().isAfter(expired))
+                .map(RoutingAcknowledgement::getReplica)
+                .toList();
+            if (pending.isEmpty()) {
+                return;
+            }
+            logger.debug("Waiting for replicas {} to acknowledge shard bucket assignment {}", pending, version);
+            Thread.sleep(refreshInterval);
+        }
+    }
+
+    /**
+     * Runs a write with the current bucket assignment: the assignment is not acknowledged as replaced while the
+     * write runs, so the rebalancer never copies or deletes a bucket under it.
+     *
+     * @param write the write, which picks its shards with {@link #writeShardOf(String)}
+     * @throws IllegalStateException if this replica has not acknowledged the assignment for
+     *                               {@code tokenization.shards.replica-timeout}
+     */
+    public void write(final Runnable write)
+    {
+        if (shards == 1) {
+            write.run();
+            return;
+        }
+        writes.readLock().lock();
+        try {
+            if (System.nanoTime() - acknowledgedAt > replicaTimeout.toNanos()) {
+                throw new IllegalStateException("Shard bucket assignment not acknowledged for over " + replicaTimeout
+                    + "; refusing writes, which might go to the old shard of a bucket");
+            }
+            write.run();
+        }
+        finally {
+            writes.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the current assignment of every bucket, by bucket
+     */
+    public List<Bucket> buckets()
+    {
+        final Routing current = routing;
+        final List<Bucket> buckets = new ArrayList<>(BUCKETS);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets.add(new Bucket(bucket, prefixOf(bucket), current.owners()[bucket],
+                current.movingTo()[bucket] < 0 ? null : current.movingTo()[bucket], current.legacy()[bucket]));
+        }
+        return buckets;
+    }
+
+    /**
+     * Returns the shard a new mapping is written to: the shard its bucket is moving to, if any, or its owner.
+     *
+     * @param token the token of the mapping
+     * @return the shard
+     */
+    public int writeShardOf(final String token)
+    {
+        return shards == 1 ? 0 : routing.readShard(bucketOf(token));
+    }
+
+    /**
+     * Finds the mapping of a token on its shard.
+     *
+     * @param token the token
+     * @return the mapping, if the token exists
+     */
+    public Optional<TokenEntity> findById(final String token)
+    {
+        if (shards == 1) {
+            return repository.findById(token);
+        }
+        return findAllById(List.of(token)).stream().findFirst();
+    }
+
+    /**
+     * Finds the mappings of {@code tokens}, querying each shard involved once, in parallel.
+     *
+     * @param tokens the tokens
+     * @return the mappings found, in no particular order
+     */
+    public List<TokenEntity> findAllById(final Collection<String> tokens)
+    {
+        return tokenLookups == null ? queryById(tokens) : tokenLookups.find(tokens);
+    }
+
+    /**
+     * Finds the mappings owning {@code accountKeys}, querying each shard involved once, in parallel, and the shards
+     * of buckets flagged as holding legacy accounts for the accounts not found on the shards of their buckets.
+     *
+     * @param accountKeys the account keys
+     * @return the mappings found, in no particular order
+     */
+    public List<TokenEntity> findByAccountKeyIn(final Collection<AccountKey> accountKeys)
+    {
+        if (accountKeys.isEmpty()) {
+            return List.of();
+        }
+        return accountLookups == null ? queryByAccountKey(accountKeys) : accountLookups.find(accountKeys);
+    }
+
+    /**
+     * Runs a query on every shard, in parallel.
+     *
+     * @param query the query, run with the shard set in {@link ShardContext}
+     * @param <T>   the result type
+     * @return the result of every shard, by shard
+     */
+    public <T> List<T> onEachShard(final Supplier<T> query)
+    {
+        if (shards == 1) {
+            return List.of(query.get());
+        }
+        final List<CompletableFuture<T>> results = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            final int target = shard;
+            results.add(CompletableFuture.supplyAsync(() -> ShardContext.call(target, query), fanOut));
+        }
+        return results.stream().map(ShardRouter::join).toList();
+    }
+
+    /**
+     * Runs work on every shard, one shard after the other.
+     *
+     * @param work the work, run with the shard set in {@link ShardContext}
+     */
+    public void forEachShard(final Runnable work)
+    {
+        for (int shard = 0; shard < shards; shard++) {
+            ShardContext.run(shard, work);
+        }
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry)
+    {
+        if (tokenLookups == null) {
+            return;
+        }
+        bind(registry, "token", tokenLookups);
+        bind(registry, "account", accountLookups);
+    }
+
+    /**
+     * Withdraws this replica's acknowledgement and stops the lookup coalescers and the fan-out threads.
+     */
+    @Override
+    public void close()
+    {
+        if (shards > 1) {
+            try {
+                ShardContext.run(0, () -> acknowledgements.deleteById(replica));
+            }
+            catch (final RuntimeException e) {
+                logger.warn("Shard routing acknowledgement could not be withdrawn; rebalancing waits for it to expire",
+                    e);
+            }
+        }
+        try {
+            if (tokenLookups != null) {
+                tokenLookups.close();
+                accountLookups.close();
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (fanOut != null) {
+            fanOut.close();
+        }
+    }
+
+    private static void bind(final MeterRegistry registry, final String lookup, final LookupCoalescer<?> coalescer)
+    {
+        FunctionCounter.builder("tokenization.lookup.requests", coalescer, LookupCoalescer::lookups)
+            .description("Vault lookups requested, before coalescing")
+            .tag("lookup", lookup)
+            .register(registry);
+        FunctionCounter.builder("tokenization.lookup.queries", coalescer, LookupCoalescer::queries)
+            .description("Vault queries run for the coalesced lookups")
+            .tag("lookup", lookup)
+            .register(registry);
+    }
+
+    private List<TokenEntity> queryById(final Collection<String> tokens)
+    {
+        if (shards == 1) {
+            return repository.findAllById(tokens);
+        }
+        return route(tokens, ShardRouter::bucketOf, TokenEntity::getToken, repository::findAllById);
+    }
+
+    private List<TokenEntity> queryByAccountKey(final Collection<AccountKey> accountKeys)
+    {
+        if (shards == 1) {
+            return repository.findByAccountKeyIn(accountKeys);
+        }
+        final List<TokenEntity> found = route(accountKeys, ShardRouter::bucketOf, TokenEntity::getAccountKey,
+            repository::findByAccountKeyIn);
+
+        // Mappings written before tokens carried their account's bucket live in the bucket of their token.
+        final Routing current = routing;
+        final Set<Integer> legacyShards = current.legacyShards();
+        if (legacyShards.isEmpty()) {
+            return found;
+        }
+        final Map<AccountKey, TokenEntity> byAccount = LinkedHashMap.newLinkedHashMap(accountKeys.size());
+        found.forEach(mapping -> byAccount.putIfAbsent(mapping.getAccountKey(), mapping));
+        final List<AccountKey> missing = accountKeys.stream()
+            .filter(accountKey -> !byAccount.containsKey(accountKey))
+            .distinct()
+            .toList();
+        final Map<Integer, List<AccountKey>> byShard = new LinkedHashMap<>();
+        for (final AccountKey accountKey : missing) {
+            final int bucket = bucketOf(accountKey);
+            for (final int shard : legacyShards) {
+                // The shards of the account's own bucket were queried already.
+                if (shard != current.readShard(bucket) && shard != current.owners()[bucket]) {
+                    byShard.computeIfAbsent(shard, key -> new ArrayList<>()).add(accountKey);
+                }
+            }
+        }
+        if (byShard.isEmpty()) {
+            return found;
+        }
+        onShards(byShard, repository::findByAccountKeyIn)
+            .forEach(mapping -> byAccount.putIfAbsent(mapping.getAccountKey(), mapping));
+        return new ArrayList<>(byAccount.values());
+    }
+
+    private <K> List<TokenEntity> route(final Collection<K> keys, final ToIntFunction<K> bucketOf,
+                                        final Function<TokenEntity, K> keyOf,
+                                        final Function<List<K>, List<TokenEntity>> query)
+    {
+        final Routing current = routing;
+        final Map<Integer, List<K>> byShard = new LinkedHashMap<>();
+        for (final K key : keys) {
+            byShard.computeIfAbsent(current.readShard(bucketOf.applyAsInt(key)), shard -> new ArrayList<>()).add(key);
+        }
+        final List<TokenEntity> found = onShards(byShard, query);
+        if (!current.isMoving()) {
+            return found;
+        }
+
+        // Mappings of a bucket being moved that are not on the target shard yet are still on the source.
+        final Set<K> foundKeys = new HashSet<>();
+        found.forEach(mapping -> foundKeys.add(keyOf.apply(mapping)));
+        final Map<Integer, List<K>> notCopied = new LinkedHashMap<>();
+        for (final K key : keys) {
+            final int bucket = bucketOf.applyAsInt(key);
+            if (current.movingTo()[bucket] >= 0 && !foundKeys.contains(key)) {
+                notCopied.computeIfAbsent(current.owners()[bucket], shard -> new ArrayList<>()).add(key);
+            }
+        }
+        if (notCopied.isEmpty()) {
+            return found;
+        }
+        final List<TokenEntity> all = new ArrayList<>(found);
+        all.addAll(onShards(notCopied, query));
+        return all;
+    }
+
+    private <K> List<TokenEntity> onShards(final Map<Integer, List<K>> byShard,
+                                           final Function<List<K>, List<TokenEntity>> query)
+    {
+        if (byShard.size() == 1) {
+            final Map.Entry<Integer, List<K>> only = byShard.entrySet().iterator().next();
+            return ShardContext.call(only.getKey(), () -> query.apply(only.getValue()));
+        }
+        final List<CompletableFuture<List<TokenEntity>>> results = byShard.entrySet().stream()
+            .map(shard -> CompletableFuture.supplyAsync(
+                () -> ShardContext.call(shard.getKey(), () -> query.apply(shard.getValue())), fanOut))
+            .toList();
+        final List<TokenEntity> found = new ArrayList<>();
+        results.forEach(result -> found.addAll(join(result)));
+        return found;
+    }
+
+    private synchronized void apply(final List<BucketAssignment> stored)
+    {
+        final Routing next = Routing.of(stored, shards);
+        if (next.version() > routing.version()) {
+            // The writes routed by the previous assignment finish before the new one is acknowledged.
+            writes.writeLock().lock();
+            try {
+                routing = next;
+            }
+            finally {
+                writes.writeLock().unlock();
+            }
+        }
+        else if (next.version() == routing.version()) {
+            routing = next;
+        }
+        // Otherwise it was read before a newer assignment was applied by reassign, and is dropped.
+        final long version = routing.version();
+        ShardContext.run(0, () -> acknowledgements.save(new RoutingAcknowledgement(replica, version, Instant.now())));
+        acknowledgedAt = System.nanoTime();
+    }
+
+    private List<BucketAssignment> assignBuckets()
+    {
+        final boolean populated = !repository.findTokensAfter("", Limit.of(1)).isEmpty();
+        final List<BucketAssignment> initial = new ArrayList<>(BUCKETS);
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            initial.add(new BucketAssignment(bucket, populated ? 0 : bucket % shards, null, 0, populated));
+        }
+        try {
+            assignments.saveAll(initial);
+            logger.info("Assigned {} token buckets to {} shards ({})", BUCKETS, shards,
+                populated ? "all on shard 0, which holds the existing mappings" : "evenly");
+        }
+        catch (final DataIntegrityViolationException e) {
+            logger.info("Token buckets assigned concurrently by another replica");
+        }
+        return assignments.findAll();
+    }
+
+    private static <T> T join(final CompletableFuture<T> result)
+    {
+        try {
+            return result.join();
+        }
+        catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Assignment of a bucket.
+     *
+     * @param bucket         the bucket
+     * @param prefix         the first character of its tokens
+     * @param shard          the shard holding it
+     * @param movingTo       the shard it is being moved to, or {@code null}
+     * @param legacyAccounts whether it may hold mappings of accounts of other buckets
+     */
+    public record Bucket(int bucket, char prefix, int shard, Integer movingTo, boolean legacyAccounts)
+    {
+    }
+
+    /**
+     * Owner, move target and legacy flag of every bucket; the target is {@code -1} when a bucket is not being moved.
+     */
+    private record Routing(int[] owners, int[] movingTo, boolean[] legacy, boolean isMoving, long version)
+    {
+        static Routing allOn(final int shard)
+        {
+            final int[] owners = new int[BUCKETS];
+            final int[] movingTo = new int[BUCKETS];
+            Arrays.fill(owners, shard);
+            Arrays.fill(movingTo, -1);
+            return new Routing(owners, movingTo, new boolean[BUCKETS], false, 0);
+        }
+
+        static Routing of(final List<BucketAssignment> assignments, final int shards)
+        {
+            Routing routing = allOn(0);
+            for (final BucketAssignment assignment : assignments) {
+                if (assignment.getShard() >= shards
+                    || assignment.getMovingTo() != null && assignment.getMovingTo() >= shards) {
+                    throw new IllegalStateException("Token bucket " + assignment.getBucket()
+                        + " is assigned to a shard beyond tokenization.shards.count=" + shards);
+                }
+                routing = routing.with(assignment.getBucket(), assignment.getShard(), assignment.getMovingTo(),
+                    assignment.hasLegacyAccounts(), assignment.getVersion());
+            }
+            return routing;
+        }
+
+        Routing with(final int bucket, final int shard, final Integer target, final boolean legacyAccounts,
+                     final long assignmentVersion)
+        {
+            final int[] newOwners = owners.clone();
+            final int[] newMovingTo = movingTo.clone();
+            final boolean[] newLegacy = legacy.clone();
+            newOwners[bucket] = shard;
+            newMovingTo[bucket] = target == null ? -1 : target;
+            newLegacy[bucket] = legacyAccounts;
+            return new Routing(newOwners, newMovingTo, newLegacy, Arrays.stream(newMovingTo).anyMatch(to -> to >= 0),
+                Math.max(version, assignmentVersion));
+        }
+
+        int readShard(final int bucket)
+        {
+            return movingTo[bucket] >= 0 ? movingTo[bucket] : owners[bucket];
+        }
+
+        Set<Integer> legacyShards()
+        {
+            final Set<Integer> shards = new TreeSet<>();
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (legacy[bucket]) {
+                    shards.add(owners[bucket]);
+                    if (movingTo[bucket] >= 0) {
+                        shards.add(movingTo[bucket]);
+                    }
+                }
+            }
+            return shards;
+        }
+    }
+}
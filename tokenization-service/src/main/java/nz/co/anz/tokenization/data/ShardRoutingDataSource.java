@@ -0,0 +1,49 @@
+package nz.co.anz.tokenization.data;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data source of a sharded vault: one connection pool per shard, chosen by the {@link ShardContext} of the
+ * thread taking the connection.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable
+{
+    private final List<HikariDataSource> shards;
+
+    /**
+     * Constructor.
+     *
+     * @param shards the connection pool of every shard, by shard number
+     */
+    public ShardRoutingDataSource(final List<HikariDataSource> shards)
+    {
+        this.shards = List.copyOf(shards);
+        final Map<Object, Object> targets = HashMap.newHashMap(shards.size());
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(shards.getFirst());
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey()
+    {
+        return ShardContext.current();
+    }
+
+    /**
+     * Closes the connection pools of all shards.
+     */
+    @Override
+    public void close()
+    {
+        shards.forEach(HikariDataSource::close);
+    }
+}
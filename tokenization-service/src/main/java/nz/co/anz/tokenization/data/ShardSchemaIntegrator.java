@@ -0,0 +1,58 @@
+package nz.co.anz.tokenization.data;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.schema.spi.SchemaManagementToolCoordinator;
+
+/**
+ * Applies {@code spring.jpa.hibernate.ddl-auto} to every shard of a sharded vault, not only to shard {@code 0}.
+ * <p>
+ * Hibernate manages the schema of the connections it is given while it boots, i.e. of shard {@code 0}. Once the
+ * session factory is created, the same schema action is run again on each other shard, with the shard set in
+ * {@link ShardContext} so the {@link ShardRoutingDataSource} hands out its connections. Dropping the schema on
+ * shutdown ({@code create-drop}) is left to shard {@code 0}.
+ * </p>
+ */
+public class ShardSchemaIntegrator implements Integrator
+{
+    private final int shards;
+
+    /**
+     * Constructor.
+     *
+     * @param shards the number of shards
+     */
+    public ShardSchemaIntegrator(final int shards)
+    {
+        this.shards = shards;
+    }
+
+    @Override
+    public void integrate(final Metadata metadata, final BootstrapContext bootstrapContext,
+                          final SessionFactoryImplementor sessionFactory)
+    {
+        sessionFactory.addObserver(new SessionFactoryObserver()
+        {
+            @Override
+            public void sessionFactoryCreated(final SessionFactory factory)
+            {
+                for (int shard = 1; shard < shards; shard++) {
+                    ShardContext.run(shard, () -> SchemaManagementToolCoordinator.process(metadata,
+                        sessionFactory.getServiceRegistry(), sessionFactory.getProperties(), action -> { }));
+                }
+            }
+        });
+    }
+
+    @Override
+    public void disintegrate(final SessionFactoryImplementor sessionFactory,
+                             final SessionFactoryServiceRegistry serviceRegistry)
+    {
+        // Nothing to release.
+    }
+}
@@ -0,0 +1,110 @@
+package nz.co.anz.tokenization.data;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Commits mappings to the shard of their token, through one {@link VaultCommitter} per shard.
+ * <p>
+ * The mappings of a call are split by {@link ShardRouter#writeShardOf(String)} and the shards are committed in
+ * parallel, each in its own transaction with the configured durability. A call spanning several shards is
+ * therefore not atomic: if one shard fails, e.g. with a unique-constraint conflict, the others may have
+ * committed. Callers already handle that by re-checking before they retry, which finds the committed mappings.
+ * Every call runs through {@link ShardRouter#write(Runnable)}, so a rebalancing waits for it before it copies or
+ * deletes the bucket of a mapping.
+ * </p>
+ */
+public class ShardedVaultCommitter implements VaultCommitter, AutoCloseable
+{
+    private static final Logger logger = LogManager.getLogger(ShardedVaultCommitter.class);
+
+    private final ShardRouter shardRouter;
+    private final List<VaultCommitter> shards;
+    private final ExecutorService fanOut =
+        Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("vault-shard-commit-", 0).factory());
+
+    /**
+     * Constructor.
+     *
+     * @param shardRouter picks the shard of each mapping
+     * @param shards      the committer of every shard, by shard number; each created with the shard set in
+     *                    {@link ShardContext}
+     */
+    public ShardedVaultCommitter(final ShardRouter shardRouter, final List<VaultCommitter> shards)
+    {
+        this.shardRouter = shardRouter;
+        this.shards = List.copyOf(shards);
+    }
+
+    @Override
+    public void commit(final List<TokenEntity> mappings)
+    {
+        shardRouter.write(() -> commitByShard(mappings));
+    }
+
+    /**
+     * Commits the mappings still queued on every shard and stops the committers.
+     *
+     * @throws Exception if a committer fails to close
+     */
+    @Override
+    public void close() throws Exception
+    {
+        fanOut.close();
+        for (final VaultCommitter shard : shards) {
+            if (shard instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                }
+                catch (final Exception e) {
+                    logger.error("Vault committer of a shard failed to close", e);
+                }
+            }
+        }
+    }
+
+    private void commitByShard(final List<TokenEntity> mappings)
+    {
+        final Map<Integer, List<TokenEntity>> byShard = new LinkedHashMap<>();
+        for (final TokenEntity mapping : mappings) {
+            byShard.computeIfAbsent(shardRouter.writeShardOf(mapping.getToken()), shard -> new ArrayList<>())
+                .add(mapping);
+        }
+        if (byShard.size() <= 1) {
+            byShard.forEach(this::commitOn);
+            return;
+        }
+        final List<CompletableFuture<Void>> commits = byShard.entrySet().stream()
+            .map(shard -> CompletableFuture.runAsync(() -> commitOn(shard.getKey(), shard.getValue()), fanOut))
+            .toList();
+        RuntimeException failure = null;
+        for (final CompletableFuture<Void> commit : commits) {
+            try {
+                commit.join();
+            }
+            catch (final CompletionException e) {
+                // Every shard is waited for, so no commit is still running when the caller retries.
+                if (failure == null) {
+                    failure = e.getCause() instanceof RuntimeException cause ? cause : e;
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void commitOn(final int shard, final List<TokenEntity> mappings)
+    {
+        ShardContext.run(shard, () -> shards.get(shard).commit(mappings));
+    }
+}
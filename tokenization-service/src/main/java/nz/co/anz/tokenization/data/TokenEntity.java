@@ -1,29 +1,106 @@
 
 package nz.co.anz.tokenization.data;
 
+import nz.co.anz.tokenization.cache.AccountKey;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import org.springframework.data.domain.Persistable;
+
+import java.time.Instant;
 
 /**
  * Entity representing a token-to-account-number mapping.
+ * <p>
+ * The token is an application-assigned identifier, so the entity tracks its own
+ * "new" state. This lets {@code save}/{@code saveAll} go straight to {@code persist}
+ * (and therefore JDBC batch inserts) instead of issuing a {@code SELECT} per entity
+ * through {@code merge}.
+ * </p>
+ * <p>
+ * {@code createdAt} is only used to pick the most recently issued tokens for cache warm-up;
+ * rows inserted without it (e.g. by older versions) sort last.
+ * </p>
+ * <p>
+ * Accounts are looked up by {@code accountKey}, the 16-byte keyed hash of the account number's digits
+ * (see {@link nz.co.anz.tokenization.cache.AccountKeyHasher}), through its own unique index; the
+ * {@code accountNumber} column keeps the format the account was first tokenized in and is what detokenize
+ * returns. A row without a key is a duplicate that stays resolvable by token but is never handed out by tokenize
+ * again, because another row holds its account's key. Rows written by older versions carry no
+ * {@code account_duplicate} flag either: they are classified once, on startup, by {@link AccountKeyMigration},
+ * which keys them or flags them as duplicates.
+ * </p>
  */
 @Entity
-@Table(name = "tokens")
-public class TokenEntity {
+@Table(name = "tokens", indexes = {
+    @Index(name = "idx_tokens_created_at", columnList = "created_at"),
+    @Index(name = "idx_tokens_unclassified", columnList = "account_hash, account_duplicate")})
+public class TokenEntity implements Persistable<String> {
 
     @Id
     private String token;
 
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String accountNumber;
 
+    @Convert(converter = AccountKeyConverter.class)
+    @Column(name = "account_hash", unique = true, length = AccountKey.BYTES)
+    private AccountKey accountKey;
+
+    @Column(name = "created_at", updatable = false)
+    private Instant createdAt;
+
+    /**
+     * Whether the row is a keyless duplicate; {@code null} on rows of older versions not migrated yet.
+     */
+    @Column(name = "account_duplicate")
+    private Boolean duplicate;
+
+    @Transient
+    private boolean isNew = true;
+
     protected TokenEntity() {}
 
-    public TokenEntity(String token, String accountNumber) {
+    public TokenEntity(String token, String accountNumber, AccountKey accountKey) {
+        this(token, accountNumber, accountKey, Instant.now());
+    }
+
+    /**
+     * Creates a copy of a mapping, e.g. on another shard, keeping its creation time.
+     */
+    public TokenEntity(String token, String accountNumber, AccountKey accountKey, Instant createdAt) {
         this.token = token;
         this.accountNumber = accountNumber;
+        this.accountKey = accountKey;
+        this.createdAt = createdAt;
+        this.duplicate = accountKey == null;
+    }
+
+    /**
+     * Creates a mapping without an account key, i.e. a duplicate that is only ever resolved by token.
+     */
+    public TokenEntity(String token, String accountNumber) {
+        this(token, accountNumber, null);
+    }
+
+    /**
+     * Creates a copy of this mapping, e.g. on another shard, keeping its creation time. A copy of a row not
+     * migrated yet stays unclassified.
+     *
+     * @param accountKey the key of the copy; {@code null} if the target already holds another row of the account
+     */
+    TokenEntity copy(AccountKey accountKey) {
+        final TokenEntity copy = new TokenEntity(token, accountNumber, accountKey, createdAt);
+        if (this.accountKey == null && duplicate == null) {
+            copy.duplicate = null;
+        }
+        return copy;
     }
 
     public String getToken() {
@@ -33,4 +110,44 @@ public class TokenEntity {
     public String getAccountNumber() {
         return accountNumber;
     }
+
+    public AccountKey getAccountKey() {
+        return accountKey;
+    }
+
+    void setAccountKey(AccountKey accountKey) {
+        this.accountKey = accountKey;
+        this.duplicate = false;
+    }
+
+    /**
+     * @return {@code true} if the row has no key because another row holds its account's key
+     */
+    public boolean isDuplicate() {
+        return Boolean.TRUE.equals(duplicate);
+    }
+
+    void markDuplicate() {
+        this.duplicate = true;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public String getId() {
+        return token;
+    }
+
+    @Override
+    public boolean isNew() {
+        return isNew;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        this.isNew = false;
+    }
 }
@@ -1,12 +1,112 @@
 package nz.co.anz.tokenization.data;
 
+import nz.co.anz.tokenization.cache.AccountKey;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Repository for token mappings.
  */
 public interface TokenRepository extends JpaRepository<TokenEntity, String> {
+    /**
+     * Finds a mapping by the account number exactly as stored. The column is not indexed; lookups by
+     * account go through {@link #findByAccountKey(AccountKey)}.
+     *
+     * @param accountNumber the stored account number
+     * @return the mapping, if one is stored with exactly this account number
+     */
     Optional<TokenEntity> findByAccountNumber(final String accountNumber);
+
+    /**
+     * Returns the mapping that owns an account key.
+     *
+     * @param accountKey the keyed hash of the account number
+     * @return the mapping, if the account is tokenized
+     */
+    Optional<TokenEntity> findByAccountKey(final AccountKey accountKey);
+
+    /**
+     * Resolves the existing mappings for a batch of account keys with a single {@code IN} query on the
+     * {@code account_hash} index.
+     *
+     * @param accountKeys the keyed hashes of the account numbers to look up; must not be empty
+     * @return the mappings found, in no particular order; accounts without a mapping are absent
+     */
+    List<TokenEntity> findByAccountKeyIn(final Collection<AccountKey> accountKeys);
+
+    /**
+     * Returns the mappings of older versions, neither keyed nor flagged as duplicates, whose token sorts after
+     * {@code token}, in token order; used to backfill {@code account_hash} by keyset.
+     *
+     * @param token the last token of the previous page, or the empty string for the first page
+     * @param limit the page size
+     * @return up to {@code limit} mappings
+     */
+    List<TokenEntity> findByAccountKeyIsNullAndDuplicateIsNullAndTokenGreaterThanOrderByTokenAsc(final String token,
+                                                                                               final Limit limit);
+
+    /**
+     * Tells whether any mapping is neither keyed nor flagged as a duplicate; answered from the
+     * {@code idx_tokens_unclassified} index, so a migrated vault of any size, duplicates included, is recognised
+     * without scanning it.
+     *
+     * @return {@code true} if at least one mapping still has to be migrated
+     */
+    boolean existsByAccountKeyIsNullAndDuplicateIsNull();
+
+    /**
+     * Returns the most recently created mappings, newest first.
+     *
+     * @param limit the maximum number of mappings to return
+     * @return up to {@code limit} mappings
+     */
+    List<TokenEntity> findByOrderByCreatedAtDesc(final Limit limit);
+
+    /**
+     * Returns the mappings whose token sorts after {@code token}, in token order; used to page through
+     * the whole vault by keyset.
+     *
+     * @param token the last token of the previous page, or the empty string for the first page
+     * @param limit the page size
+     * @return up to {@code limit} mappings
+     */
+    List<TokenEntity> findByTokenGreaterThanOrderByTokenAsc(final String token, final Limit limit);
+
+    /**
+     * Returns the mappings whose token starts with {@code prefix} and sorts after {@code token}, in token order;
+     * used to page through one bucket of a sharded vault by keyset.
+     *
+     * @param prefix the first character of the bucket's tokens
+     * @param token  the last token of the previous page, or the empty string for the first page
+     * @param limit  the page size
+     * @return up to {@code limit} mappings
+     */
+    List<TokenEntity> findByTokenStartingWithAndTokenGreaterThanOrderByTokenAsc(final String prefix, final String token,
+                                                                               final Limit limit);
+
+    /**
+     * Returns the tokens that sort after {@code token}, in token order, without loading the mappings.
+     *
+     * @param token the last token of the previous page, or the empty string for the first page
+     * @param limit the page size
+     * @return up to {@code limit} tokens
+     */
+    @Query("select t.token from TokenEntity t where t.token > :token order by t.token")
+    List<String> findTokensAfter(@Param("token") final String token, final Limit limit);
+
+    /**
+     * Returns the tokens created at or after {@code since}.
+     *
+     * @param since the earliest creation time
+     * @return the tokens, in no particular order
+     */
+    @Query("select t.token from TokenEntity t where t.createdAt >= :since")
+    List<String> findTokensCreatedSince(@Param("since") final Instant since);
 }
@@ -0,0 +1,20 @@
+package nz.co.anz.tokenization.data;
+
+import java.util.List;
+
+/**
+ * Stores newly created token mappings with the configured {@link nz.co.anz.tokenization.properties.VaultDurability}.
+ */
+@FunctionalInterface
+public interface VaultCommitter
+{
+    /**
+     * Inserts {@code mappings} and returns once they are committed, and forced to disk if the durability
+     * mode requires it. Must not be called inside a transaction: the mappings may be committed by another thread.
+     *
+     * @param mappings new mappings
+     * @throws org.springframework.dao.DataIntegrityViolationException if one of the tokens or account keys
+     *         already exists; none of {@code mappings} is stored then
+     */
+    void commit(List<TokenEntity> mappings);
+}
@@ -4,6 +4,7 @@ import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.hibernate.validator.engine.HibernateConstraintViolation;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Global REST exception handler for the Tokenization service.
@@ -40,20 +42,36 @@ public class GlobalExceptionHandler {
     /**
      * Handles {@link TokenNotFoundException} thrown when a token cannot be resolved.
      *
-     * <p>Returns a {@code 404 Not Found} response with a descriptive error message.</p>
+     * <p>Returns a {@code 404 Not Found} response with a descriptive error message
+     * listing every unresolved token of the request.</p>
      *
      * @param ex the thrown {@link TokenNotFoundException}
      * @return a {@link ProblemDetail} describing the error
      */
     @ExceptionHandler(TokenNotFoundException.class)
     public ProblemDetail handleTokenNotFound(final TokenNotFoundException ex) {
-        logger.warn("Token not found: {}", ex.getMessage());
+        return tokenNotFound(ex.getTokens());
+    }
+
+    /**
+     * Builds the {@code 404 Not Found} {@link ProblemDetail} for unresolved tokens.
+     *
+     * <p>Unknown tokens are routine client errors (and what an enumeration attempt
+     * consists of), so they are only logged at debug level; their rate is
+     * published as the {@code tokenization.tokens.unknown} metric.</p>
+     *
+     * @param tokens every unresolved token of the request
+     * @return a {@link ProblemDetail} describing the error
+     */
+    public static ProblemDetail tokenNotFound(final List<String> tokens) {
+        logger.debug("Tokens not found: {}", tokens.size());
 
         final ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(
             HttpStatus.NOT_FOUND,
-            ex.getMessage()
+            TokenNotFoundException.messageFor(tokens)
         );
         problemDetail.setTitle("Token Not Found");
+        problemDetail.setProperty("tokens", tokens);
         problemDetail.setProperty("Timestamp", Instant.now());
         return problemDetail;
     }
@@ -87,7 +105,9 @@ public class GlobalExceptionHandler {
      * validation constraints.
      *
      * <p>Each constraint violation message is collected and returned in a
-     * {@code 400 Bad Request} response.</p>
+     * {@code 400 Bad Request} response. Violations of list element formats
+     * (e.g. {@code @AccountNumbers}) also report the indexes of the malformed
+     * elements as {@code invalidIndexes}.</p>
      *
      * @param ex the constraint violation exception
      * @return a {@link ProblemDetail} containing validation errors
@@ -100,7 +120,17 @@ public class GlobalExceptionHandler {
             .map(ConstraintViolation::getMessage)
             .toList();
 
+        final List<Integer> invalidIndexes = ex.getConstraintViolations()
+            .stream()
+            .map(GlobalExceptionHandler::elementIndex)
+            .filter(Objects::nonNull)
+            .sorted()
+            .toList();
+
         final ProblemDetail problemDetail = getProblemDetail(errors);
+        if (!invalidIndexes.isEmpty()) {
+            problemDetail.setProperty("invalidIndexes", invalidIndexes);
+        }
 
         return problemDetail;
     }
@@ -148,6 +178,19 @@ public class GlobalExceptionHandler {
         return problemDetail;
     }
 
+    /**
+     * Returns the index of the list element a violation refers to, if the constraint reported one.
+     *
+     * @param violation the constraint violation
+     * @return the element index, or {@code null}
+     */
+    private static Integer elementIndex(final ConstraintViolation<?> violation)
+    {
+        return violation instanceof HibernateConstraintViolation<?> hibernateViolation
+            ? hibernateViolation.getDynamicPayload(Integer.class)
+            : null;
+    }
+
     /**
      * Builds a standard {@code 400 Bad Request} {@link ProblemDetail}
      * for validation failures.
@@ -1,11 +1,40 @@
 
 package nz.co.anz.tokenization.exception;
 
+import java.util.List;
+
 /**
- * Exception thrown when a token cannot be resolved.
+ * Exception thrown when one or more tokens cannot be resolved.
+ * <p>
+ * Unknown tokens are an expected client error, not a fault, so the exception carries no stack trace.
+ * The REST detokenize path does not throw it at all (see {@code TokenLookup}).
+ * </p>
  */
 public class TokenNotFoundException extends RuntimeException {
+
+    private final List<String> tokens;
+
     public TokenNotFoundException(final String token) {
-        super("Token not found: " + token);
+        this(List.of(token));
+    }
+
+    public TokenNotFoundException(final List<String> tokens) {
+        super(messageFor(tokens), null, false, false);
+        this.tokens = List.copyOf(tokens);
+    }
+
+    /**
+     * @param tokens the tokens that could not be resolved
+     * @return the message reporting {@code tokens} as not found
+     */
+    public static String messageFor(final List<String> tokens) {
+        return (tokens.size() == 1 ? "Token not found: " : "Tokens not found: ") + String.join(", ", tokens);
+    }
+
+    /**
+     * @return every token that could not be resolved, in request order.
+     */
+    public List<String> getTokens() {
+        return tokens;
     }
 }
@@ -0,0 +1,107 @@
+package nz.co.anz.tokenization.grpc;
+
+import nz.co.anz.tokenization.properties.GrpcProperties;
+import io.grpc.BindableService;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.context.SmartLifecycle;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The gRPC server, on its own address and port ({@code tokenization.grpc.address} and {@code port}) in the same
+ * process as the REST API. It serves plaintext, so it listens on the loopback interface unless configured otherwise.
+ * <p>
+ * Calls run on virtual threads, like REST requests with {@code spring.threads.virtual.enabled}, as they block on
+ * the vault; the connection pool bounds the concurrent database work. The server is started last and stopped
+ * first with the application context, giving calls in progress up to {@code shutdown-grace-period} to complete.
+ * </p>
+ */
+public class GrpcServer implements SmartLifecycle
+{
+    private static final Logger logger = LogManager.getLogger(GrpcServer.class);
+
+    private final GrpcProperties properties;
+    private final List<BindableService> services;
+    private volatile ExecutorService executor;
+    private volatile Server server;
+
+    /**
+     * Constructor.
+     *
+     * @param properties the address, port and shutdown grace period
+     * @param services   the services served
+     */
+    public GrpcServer(final GrpcProperties properties, final List<BindableService> services)
+    {
+        this.properties = properties;
+        this.services = services;
+    }
+
+    @Override
+    public void start()
+    {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("grpc-", 0).factory());
+        final ServerBuilder<?> builder = NettyServerBuilder
+            .forAddress(new InetSocketAddress(properties.getAddress(), properties.getPort()))
+            .executor(executor);
+        services.forEach(builder::addService);
+        try {
+            server = builder.build().start();
+        }
+        catch (final IOException e) {
+            executor.close();
+            throw new IllegalStateException("gRPC server could not be started on " + properties.getAddress() + ":"
+                + properties.getPort(), e);
+        }
+        logger.info("gRPC server started on {}:{}", properties.getAddress(), server.getPort());
+    }
+
+    @Override
+    public void stop()
+    {
+        final Server running = server;
+        if (running == null) {
+            return;
+        }
+        running.shutdown();
+        try {
+            if (!running.awaitTermination(properties.getShutdownGracePeriod().toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("gRPC calls still running after {}, cancelling them", properties.getShutdownGracePeriod());
+                running.shutdownNow();
+            }
+        }
+        catch (final InterruptedException e) {
+            running.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        executor.close();
+        server = null;
+    }
+
+    @Override
+    public boolean isRunning()
+    {
+        return server != null;
+    }
+
+    /**
+     * @return the port the server listens on, e.g. the one picked for port {@code 0}
+     */
+    public int getPort()
+    {
+        final Server running = server;
+        if (running == null) {
+            throw new IllegalStateException("gRPC server is not running");
+        }
+        return running.getPort();
+    }
+}
@@ -0,0 +1,233 @@
+package nz.co.anz.tokenization.grpc;
+
+import nz.co.anz.tokenization.grpc.api.DetokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.DetokenizeResponse;
+import nz.co.anz.tokenization.grpc.api.TokenizationGrpc;
+import nz.co.anz.tokenization.grpc.api.TokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.TokenizeResponse;
+import nz.co.anz.tokenization.services.TokenLookup;
+import nz.co.anz.tokenization.services.TokenizationService;
+import nz.co.anz.tokenization.validators.Formats;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.stub.StreamObserver;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * gRPC counterpart of {@link nz.co.anz.tokenization.rest.TokenizationController}, backed by the same
+ * {@link TokenizationService}.
+ * <p>
+ * Tokens are exchanged as one {@code bytes} field of fixed-width ASCII tokens, {@value Formats#TOKEN_LENGTH} bytes
+ * each, and batches may hold up to {@code tokenization.grpc.max-batch-size} items. The streaming calls answer each
+ * request message in turn on the call's thread, so a stream is served one batch at a time, in order. Batches are
+ * validated like the REST requests; a malformed one fails the call with {@code INVALID_ARGUMENT}. Unknown tokens
+ * are reported in the {@link DetokenizeResponse} rather than failing the call, so a stream survives them.
+ * </p>
+ */
+public class TokenizationGrpcService extends TokenizationGrpc.TokenizationImplBase
+{
+    private static final Logger logger = LogManager.getLogger(TokenizationGrpcService.class);
+
+    private final TokenizationService tokenizationService;
+    private final int maxBatchSize;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenizationService tokenizes and detokenizes the batches
+     * @param maxBatchSize        account numbers or tokens per request message
+     */
+    public TokenizationGrpcService(final TokenizationService tokenizationService, final int maxBatchSize)
+    {
+        this.tokenizationService = tokenizationService;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @Override
+    public void tokenize(final TokenizeRequest request, final StreamObserver<TokenizeResponse> responseObserver)
+    {
+        answer(request, this::tokenize, responseObserver);
+    }
+
+    @Override
+    public void detokenize(final DetokenizeRequest request, final StreamObserver<DetokenizeResponse> responseObserver)
+    {
+        answer(request, this::detokenize, responseObserver);
+    }
+
+    @Override
+    public StreamObserver<TokenizeRequest> tokenizeStream(final StreamObserver<TokenizeResponse> responseObserver)
+    {
+        return new BatchStream<>(this::tokenize, responseObserver);
+    }
+
+    @Override
+    public StreamObserver<DetokenizeRequest> detokenizeStream(
+        final StreamObserver<DetokenizeResponse> responseObserver)
+    {
+        return new BatchStream<>(this::detokenize, responseObserver);
+    }
+
+    /**
+     * Encodes tokens back to back, {@value Formats#TOKEN_LENGTH} ASCII bytes each.
+     *
+     * @param tokens the tokens
+     * @return the encoded tokens
+     */
+    public static ByteString encode(final List<String> tokens)
+    {
+        final byte[] bytes = new byte[tokens.size() * Formats.TOKEN_LENGTH];
+        int position = 0;
+        for (final String token : tokens) {
+            for (int i = 0; i < Formats.TOKEN_LENGTH; i++) {
+                bytes[position++] = (byte) token.charAt(i);
+            }
+        }
+        // The array is never touched again, so it is wrapped instead of copied.
+        return UnsafeByteOperations.unsafeWrap(bytes);
+    }
+
+    /**
+     * Decodes tokens encoded by {@link #encode(List)}; every one is checked by {@link Formats#isToken(CharSequence)}.
+     *
+     * @param bytes the encoded tokens
+     * @return the tokens
+     * @throws StatusRuntimeException with {@code INVALID_ARGUMENT} if the bytes are not whole, well-formed tokens
+     */
+    public static List<String> decode(final ByteString bytes)
+    {
+        if (bytes.size() % Formats.TOKEN_LENGTH != 0) {
+            throw invalid("Tokens must be " + Formats.TOKEN_LENGTH + " bytes each");
+        }
+        final byte[] raw = bytes.toByteArray();
+        final List<String> tokens = new ArrayList<>(raw.length / Formats.TOKEN_LENGTH);
+        for (int offset = 0; offset < raw.length; offset += Formats.TOKEN_LENGTH) {
+            final String token = new String(raw, offset, Formats.TOKEN_LENGTH, StandardCharsets.US_ASCII);
+            if (!Formats.isToken(token)) {
+                throw invalid("Wrong token format at index " + tokens.size());
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    private TokenizeResponse tokenize(final TokenizeRequest request)
+    {
+        final List<String> accountNumbers = request.getAccountNumbersList();
+        checkSize(accountNumbers.size(), "account numbers");
+        for (int i = 0; i < accountNumbers.size(); i++) {
+            if (!Formats.isAccountNumber(accountNumbers.get(i))) {
+                throw invalid("Wrong account number format at index " + i);
+            }
+        }
+        return TokenizeResponse.newBuilder()
+            .setTokens(encode(tokenizationService.tokenize(accountNumbers)))
+            .build();
+    }
+
+    private DetokenizeResponse detokenize(final DetokenizeRequest request)
+    {
+        checkSize(request.getTokens().size() / Formats.TOKEN_LENGTH, "tokens");
+        final TokenLookup lookup = tokenizationService.lookup(decode(request.getTokens()));
+        return DetokenizeResponse.newBuilder()
+            .addAllAccountNumbers(lookup.accountNumbers())
+            .setUnknownTokens(encode(lookup.unknownTokens()))
+            .build();
+    }
+
+    private void checkSize(final int size, final String items)
+    {
+        if (size == 0) {
+            throw invalid("At least one of the " + items + " is required");
+        }
+        if (size > maxBatchSize) {
+            throw invalid("Maximum " + maxBatchSize + " " + items + " per request");
+        }
+    }
+
+    private static StatusRuntimeException invalid(final String description)
+    {
+        return Status.INVALID_ARGUMENT.withDescription(description).asRuntimeException();
+    }
+
+    private static <Q, R> void answer(final Q request, final Function<Q, R> handler,
+                                      final StreamObserver<R> responseObserver)
+    {
+        final R response;
+        try {
+            response = handler.apply(request);
+        }
+        catch (final RuntimeException e) {
+            responseObserver.onError(statusOf(e));
+            return;
+        }
+        responseObserver.onNext(response);
+        responseObserver.onCompleted();
+    }
+
+    private static StatusRuntimeException statusOf(final RuntimeException e)
+    {
+        if (e instanceof StatusRuntimeException status) {
+            return status;
+        }
+        // Never send the cause to the caller: it may carry account numbers.
+        logger.error("gRPC tokenization call failed", e);
+        return Status.INTERNAL.withDescription("Tokenization failed").asRuntimeException();
+    }
+
+    /**
+     * Answers every batch of a stream in turn; after a failed batch the rest of the stream is ignored.
+     */
+    private static final class BatchStream<Q, R> implements StreamObserver<Q>
+    {
+        private final Function<Q, R> handler;
+        private final StreamObserver<R> responseObserver;
+        private boolean failed;
+
+        private BatchStream(final Function<Q, R> handler, final StreamObserver<R> responseObserver)
+        {
+            this.handler = handler;
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(final Q request)
+        {
+            if (failed) {
+                return;
+            }
+            final R response;
+            try {
+                response = handler.apply(request);
+            }
+            catch (final RuntimeException e) {
+                failed = true;
+                responseObserver.onError(statusOf(e));
+                return;
+            }
+            responseObserver.onNext(response);
+        }
+
+        @Override
+        public void onError(final Throwable t)
+        {
+            logger.debug("gRPC stream cancelled by the client: {}", Status.fromThrowable(t));
+        }
+
+        @Override
+        public void onCompleted()
+        {
+            if (!failed) {
+                responseObserver.onCompleted();
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package nz.co.anz.tokenization.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Business metrics of the tokenization paths.
+ * <p>
+ * All meters are registered once up front, so recording is a handful of lock-free increments per request
+ * with no meter lookup or tag allocation on the request path:
+ * <ul>
+ *   <li>{@code tokenization.batch.size} - items per tokenize (distinct accounts) and detokenize call,
+ *       tagged by {@code operation}</li>
+ *   <li>{@code tokenization.tokens} - tokens handed out by tokenize, tagged by {@code result}:
+ *       {@code cached} (reverse cache), {@code existing} (database) or {@code created}</li>
+ *   <li>{@code tokenization.tokens.unknown} - unknown tokens looked up by detokenize, tagged by
+ *       {@code rejected_by}: {@code bloom_filter}, {@code negative_cache} or {@code database}</li>
+ *   <li>{@code tokenization.stream.lines} - lines of {@code /tokenize/stream} uploads, tagged by {@code result}:
+ *       {@code tokenized} or {@code rejected} (malformed)</li>
+ *   <li>{@code tokenization.stream.active} - streams being tokenized right now</li>
+ * </ul>
+ * HTTP latency, cache and repository metrics come from Spring Boot's own instrumentation.
+ * </p>
+ */
+@Component
+public class TokenizationMetrics
+{
+    /**
+     * Bucket boundaries of the batch size histograms: the REST endpoints accept up to 50 items,
+     * streamed chunks up to 1,000.
+     */
+    private static final double[] BATCH_SIZE_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 500, 1000};
+
+    private final DistributionSummary tokenizeBatchSize;
+    private final DistributionSummary detokenizeBatchSize;
+    private final Counter cachedTokens;
+    private final Counter existingTokens;
+    private final Counter createdTokens;
+    private final Counter bloomFilterRejections;
+    private final Counter negativeCacheRejections;
+    private final Counter databaseRejections;
+    private final Counter tokenizedStreamLines;
+    private final Counter rejectedStreamLines;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param registry the registry the meters are registered with
+     */
+    public TokenizationMetrics(final MeterRegistry registry)
+    {
+        this.tokenizeBatchSize = batchSize(registry, "tokenize");
+        this.detokenizeBatchSize = batchSize(registry, "detokenize");
+        this.cachedTokens = tokens(registry, "cached");
+        this.existingTokens = tokens(registry, "existing");
+        this.createdTokens = tokens(registry, "created");
+        this.bloomFilterRejections = unknownTokens(registry, "bloom_filter");
+        this.negativeCacheRejections = unknownTokens(registry, "negative_cache");
+        this.databaseRejections = unknownTokens(registry, "database");
+        this.tokenizedStreamLines = streamLines(registry, "tokenized");
+        this.rejectedStreamLines = streamLines(registry, "rejected");
+        Gauge.builder("tokenization.stream.active", activeStreams, AtomicInteger::get)
+            .description("Streams being tokenized")
+            .register(registry);
+    }
+
+    /**
+     * Records one tokenize call.
+     *
+     * @param cached   accounts answered from the reverse cache
+     * @param existing accounts whose existing mapping was read from the database
+     * @param created  accounts a new token was created for
+     */
+    public void recordTokenize(final int cached, final int existing, final int created)
+    {
+        tokenizeBatchSize.record(cached + existing + created);
+        cachedTokens.increment(cached);
+        existingTokens.increment(existing);
+        createdTokens.increment(created);
+    }
+
+    /**
+     * Records one detokenize call.
+     *
+     * @param tokens number of tokens in the call
+     */
+    public void recordDetokenize(final int tokens)
+    {
+        detokenizeBatchSize.record(tokens);
+    }
+
+    /**
+     * Records unknown tokens of a detokenize call.
+     *
+     * @param bloomFilter   tokens rejected by the Bloom filter
+     * @param negativeCache tokens rejected by the negative cache
+     * @param database      tokens the database was queried for in vain
+     */
+    public void recordUnknownTokens(final int bloomFilter, final int negativeCache, final int database)
+    {
+        bloomFilterRejections.increment(bloomFilter);
+        negativeCacheRejections.increment(negativeCache);
+        databaseRejections.increment(database);
+    }
+
+    /**
+     * Records the start of a streamed tokenization; every call must be followed by {@link #recordStreamEnd()}.
+     */
+    public void recordStreamStart()
+    {
+        activeStreams.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a streamed tokenization, completed or aborted.
+     */
+    public void recordStreamEnd()
+    {
+        activeStreams.decrementAndGet();
+    }
+
+    /**
+     * Records one chunk of a streamed tokenization.
+     *
+     * @param tokenized lines answered with a token
+     * @param rejected  malformed lines answered with an error
+     */
+    public void recordStreamChunk(final int tokenized, final int rejected)
+    {
+        tokenizedStreamLines.increment(tokenized);
+        rejectedStreamLines.increment(rejected);
+    }
+
+    private static DistributionSummary batchSize(final MeterRegistry registry, final String operation)
+    {
+        return DistributionSummary.builder("tokenization.batch.size")
+            .description("Items per tokenization call")
+            .tag("operation", operation)
+            .serviceLevelObjectives(BATCH_SIZE_BUCKETS)
+            .register(registry);
+    }
+
+    private static Counter tokens(final MeterRegistry registry, final String result)
+    {
+        return Counter.builder("tokenization.tokens")
+            .description("Tokens returned by tokenize, by where they came from")
+            .tag("result", result)
+            .register(registry);
+    }
+
+    private static Counter unknownTokens(final MeterRegistry registry, final String rejectedBy)
+    {
+        return Counter.builder("tokenization.tokens.unknown")
+            .description("Unknown tokens looked up by detokenize, by what rejected them")
+            .tag("rejected_by", rejectedBy)
+            .register(registry);
+    }
+
+    private static Counter streamLines(final MeterRegistry registry, final String result)
+    {
+        return Counter.builder("tokenization.stream.lines")
+            .description("Lines of streamed tokenizations, by outcome")
+            .tag("result", result)
+            .register(registry);
+    }
+}
@@ -0,0 +1,83 @@
+package nz.co.anz.tokenization.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.util.Base64;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the keyed account hash ({@code tokenization.account-key.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.account-key")
+@Validated
+public class AccountKeyProperties
+{
+    /**
+     * Minimum length of the HMAC secret in bytes.
+     */
+    public static final int MINIMUM_SECRET_BYTES = 32;
+
+    /**
+     * Base64-encoded HMAC secret the {@code account_hash} column is keyed with. It must be the same on every
+     * replica and must never change once mappings have been written, or existing accounts get new tokens. There is
+     * no default, so that no deployment runs with a secret published in the repository.
+     */
+    @NotBlank(message = "secret must be set, e.g. through TOKENIZATION_ACCOUNT_KEY_SECRET")
+    private String secret;
+
+    /**
+     * Mappings backfilled per transaction when {@code account_hash} is populated on startup.
+     */
+    @Positive
+    private int migrationBatchSize = 1000;
+
+    public String getSecret()
+    {
+        return secret;
+    }
+
+    public void setSecret(final String secret)
+    {
+        this.secret = secret;
+    }
+
+    public int getMigrationBatchSize()
+    {
+        return migrationBatchSize;
+    }
+
+    public void setMigrationBatchSize(final int migrationBatchSize)
+    {
+        this.migrationBatchSize = migrationBatchSize;
+    }
+
+    /**
+     * @return the decoded HMAC secret
+     */
+    public byte[] secretBytes()
+    {
+        return Base64.getDecoder().decode(secret);
+    }
+
+    /**
+     * @return {@code true} if the secret is valid Base64 of at least {@link #MINIMUM_SECRET_BYTES} bytes
+     */
+    @AssertTrue(message = "secret must be Base64 of at least 32 bytes")
+    public boolean isSecretValid()
+    {
+        if (secret == null) {
+            return true;
+        }
+        try {
+            return secretBytes().length >= MINIMUM_SECRET_BYTES;
+        }
+        catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
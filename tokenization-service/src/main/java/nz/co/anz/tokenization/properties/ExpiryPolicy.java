@@ -0,0 +1,23 @@
+package nz.co.anz.tokenization.properties;
+
+/**
+ * How entries of the {@code tokenToAccount} cache expire ({@code tokenization.cache.expiry}).
+ */
+public enum ExpiryPolicy
+{
+    /**
+     * Entries expire {@code ttl} after they were written, however often they are read.
+     */
+    WRITE,
+
+    /**
+     * Entries expire {@code ttl} after they were last read or written.
+     */
+    ACCESS,
+
+    /**
+     * Like {@link #ACCESS}, but each entry's lifetime is shortened by a fixed per-token fraction of up to
+     * {@code expiry-jitter}, so entries loaded together (e.g. by the startup warm-up) do not all expire together.
+     */
+    VARIABLE
+}
@@ -0,0 +1,101 @@
+package nz.co.anz.tokenization.properties;
+
+import nz.co.anz.tokenization.validators.PositiveDuration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the gRPC API ({@code tokenization.grpc.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.grpc")
+@Validated
+public class GrpcProperties
+{
+    /**
+     * Whether the gRPC server is started; off by default, as it serves detokenize over plaintext.
+     */
+    private boolean enabled;
+
+    /**
+     * Address the gRPC server listens on: the loopback interface by default, {@code 0.0.0.0} for every interface.
+     */
+    @NotBlank
+    private String address = "127.0.0.1";
+
+    /**
+     * Port of the gRPC server; {@code 0} picks a free one.
+     */
+    @Min(0)
+    @Max(65535)
+    private int port = 6565;
+
+    /**
+     * Account numbers or tokens per request message.
+     */
+    @Positive
+    private int maxBatchSize = 1000;
+
+    /**
+     * How long calls in progress may take to complete on shutdown.
+     */
+    @PositiveDuration
+    private Duration shutdownGracePeriod = Duration.ofSeconds(10);
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public String getAddress()
+    {
+        return address;
+    }
+
+    public void setAddress(final String address)
+    {
+        this.address = address;
+    }
+
+    public int getPort()
+    {
+        return port;
+    }
+
+    public void setPort(final int port)
+    {
+        this.port = port;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(final int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Duration getShutdownGracePeriod()
+    {
+        return shutdownGracePeriod;
+    }
+
+    public void setShutdownGracePeriod(final Duration shutdownGracePeriod)
+    {
+        this.shutdownGracePeriod = shutdownGracePeriod;
+    }
+}
@@ -0,0 +1,71 @@
+package nz.co.anz.tokenization.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the coalescing of vault lookups from concurrent requests ({@code tokenization.lookup.coalescing.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.lookup.coalescing")
+@Validated
+public class LookupCoalescingProperties
+{
+    private boolean enabled = true;
+
+    /**
+     * How long the first lookup of a group waits for more while lookups overlap. Zero queries whatever queued up
+     * during the previous query without waiting.
+     */
+    @NotNull
+    private Duration window = Duration.ofNanos(200_000);
+
+    /**
+     * Keys per query; a group that reaches this size is queried without waiting for the window, and a lookup of
+     * this many keys is queried on its own.
+     */
+    @Positive
+    private int maxBatchSize = 128;
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public Duration getWindow()
+    {
+        return window;
+    }
+
+    public void setWindow(final Duration window)
+    {
+        this.window = window;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(final int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    @AssertTrue(message = "window must not be negative")
+    public boolean isWindowValid()
+    {
+        return window == null || !window.isNegative();
+    }
+}
@@ -0,0 +1,119 @@
+package nz.co.anz.tokenization.properties;
+
+import nz.co.anz.tokenization.validators.PositiveDuration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the sharded token vault ({@code tokenization.shards.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.shards")
+@Validated
+public class ShardProperties
+{
+    /**
+     * Number of vault databases; {@code 1} keeps the single {@code spring.datasource} vault.
+     */
+    @Min(1)
+    @Max(62)
+    private int count = 1;
+
+    /**
+     * JDBC URL of every shard, by shard number; required when {@code count} is above one. The username, password
+     * and pool settings of {@code spring.datasource} apply to each.
+     */
+    private List<String> urls = new ArrayList<>();
+
+    /**
+     * How often the bucket assignment is re-read, so replicas follow a rebalancing within about this interval.
+     */
+    @PositiveDuration
+    private Duration refreshInterval = Duration.ofSeconds(5);
+
+    /**
+     * How long a replica keeps writing without having acknowledged the bucket assignment; after that it refuses
+     * writes until it can read and acknowledge it again. A rebalancing stops waiting for a replica whose last
+     * acknowledgement is older than twice this, so it must be well above {@code refresh-interval}.
+     */
+    @PositiveDuration
+    private Duration replicaTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Mappings copied, or deleted, per transaction when a bucket is moved between shards.
+     */
+    @Positive
+    private int moveBatchSize = 1_000;
+
+    public int getCount()
+    {
+        return count;
+    }
+
+    public void setCount(final int count)
+    {
+        this.count = count;
+    }
+
+    public List<String> getUrls()
+    {
+        return urls;
+    }
+
+    public void setUrls(final List<String> urls)
+    {
+        this.urls = urls;
+    }
+
+    public Duration getRefreshInterval()
+    {
+        return refreshInterval;
+    }
+
+    public void setRefreshInterval(final Duration refreshInterval)
+    {
+        this.refreshInterval = refreshInterval;
+    }
+
+    public Duration getReplicaTimeout()
+    {
+        return replicaTimeout;
+    }
+
+    public void setReplicaTimeout(final Duration replicaTimeout)
+    {
+        this.replicaTimeout = replicaTimeout;
+    }
+
+    public int getMoveBatchSize()
+    {
+        return moveBatchSize;
+    }
+
+    public void setMoveBatchSize(final int moveBatchSize)
+    {
+        this.moveBatchSize = moveBatchSize;
+    }
+
+    @AssertTrue(message = "urls must list one JDBC URL per shard when count is above one")
+    public boolean isUrlsValid()
+    {
+        return count == 1 || urls.size() == count;
+    }
+
+    @AssertTrue(message = "replica-timeout must be more than twice refresh-interval")
+    public boolean isReplicaTimeoutValid()
+    {
+        return replicaTimeout == null || refreshInterval == null
+            || replicaTimeout.compareTo(refreshInterval.multipliedBy(2)) > 0;
+    }
+}
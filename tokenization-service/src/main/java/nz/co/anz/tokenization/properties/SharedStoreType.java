@@ -0,0 +1,22 @@
+package nz.co.anz.tokenization.properties;
+
+/**
+ * Which store backs the shared second-level token cache ({@code tokenization.cache.shared.type}).
+ */
+public enum SharedStoreType
+{
+    /**
+     * No shared store; every near-cache miss goes to the database.
+     */
+    NONE,
+
+    /**
+     * An in-process store, for tests and for simulating replicas in one JVM.
+     */
+    MEMORY,
+
+    /**
+     * A Redis-protocol server at {@code tokenization.cache.shared.uri}.
+     */
+    REDIS
+}
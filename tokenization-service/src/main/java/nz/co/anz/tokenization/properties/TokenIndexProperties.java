@@ -0,0 +1,89 @@
+package nz.co.anz.tokenization.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.nio.file.Path;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the optional off-heap token index ({@code tokenization.index.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.index")
+@Validated
+public class TokenIndexProperties
+{
+    private boolean enabled;
+
+    /**
+     * File the index is memory-mapped from; reused across restarts after a clean shutdown. It holds account numbers
+     * in the clear, so there is no default: it must be set, to a private location, when the index is enabled.
+     */
+    private Path file;
+
+    /**
+     * Number of mappings the index can hold; the file takes 86 to 171 bytes per mapping of capacity.
+     */
+    @Positive
+    @Max(1L << 32)
+    private long capacity = 1_000_000;
+
+    /**
+     * Mappings read from the repository per query while the index is built.
+     */
+    @Positive
+    private int rebuildBatchSize = 10_000;
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public Path getFile()
+    {
+        return file;
+    }
+
+    public void setFile(final Path file)
+    {
+        this.file = file;
+    }
+
+    public long getCapacity()
+    {
+        return capacity;
+    }
+
+    public void setCapacity(final long capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return {@code true} if the index is disabled or has a file
+     */
+    @AssertTrue(message = "file must be set when the index is enabled")
+    public boolean isFileSet()
+    {
+        return !enabled || file != null;
+    }
+
+    public int getRebuildBatchSize()
+    {
+        return rebuildBatchSize;
+    }
+
+    public void setRebuildBatchSize(final int rebuildBatchSize)
+    {
+        this.rebuildBatchSize = rebuildBatchSize;
+    }
+}
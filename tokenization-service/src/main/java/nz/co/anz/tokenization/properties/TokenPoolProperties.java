@@ -0,0 +1,102 @@
+package nz.co.anz.tokenization.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.PositiveOrZero;
+
+/**
+ * Properties of the pool of pre-minted tokens ({@code tokenization.token-pool.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.token-pool")
+@Validated
+public class TokenPoolProperties
+{
+    private boolean enabled = true;
+
+    /**
+     * Tokens the pool can hold; rounded up to a power of two.
+     */
+    @Positive
+    @Max(1 << 24)
+    private int capacity = 16_384;
+
+    /**
+     * Pool depth below which the minter starts refilling.
+     */
+    @PositiveOrZero
+    private int lowWatermark = 4_096;
+
+    /**
+     * Pool depth the minter refills up to.
+     */
+    @Positive
+    private int highWatermark = 16_384;
+
+    /**
+     * Tokens minted per call to the token generator while refilling.
+     */
+    @Positive
+    private int mintBatchSize = 256;
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    public void setCapacity(final int capacity)
+    {
+        this.capacity = capacity;
+    }
+
+    public int getLowWatermark()
+    {
+        return lowWatermark;
+    }
+
+    public void setLowWatermark(final int lowWatermark)
+    {
+        this.lowWatermark = lowWatermark;
+    }
+
+    public int getHighWatermark()
+    {
+        return highWatermark;
+    }
+
+    public void setHighWatermark(final int highWatermark)
+    {
+        this.highWatermark = highWatermark;
+    }
+
+    public int getMintBatchSize()
+    {
+        return mintBatchSize;
+    }
+
+    public void setMintBatchSize(final int mintBatchSize)
+    {
+        this.mintBatchSize = mintBatchSize;
+    }
+
+    @AssertTrue(message = "low-watermark must be below high-watermark, and high-watermark at most capacity")
+    public boolean isWatermarksValid()
+    {
+        return lowWatermark < highWatermark && highWatermark <= capacity;
+    }
+}
@@ -0,0 +1,19 @@
+package nz.co.anz.tokenization.properties;
+
+/**
+ * How tokenize assigns tokens to accounts ({@code tokenization.token-strategy.type}).
+ */
+public enum TokenStrategy
+{
+    /**
+     * Each new account is given a random token, stored in the vault before it is handed out. Tokenize looks up
+     * existing mappings in the caches and the database.
+     */
+    RANDOM,
+
+    /**
+     * The token is derived from the canonical account number with a keyed HMAC, so tokenize needs no lookup.
+     * Mappings are written to the vault behind the response, in batches, if absent.
+     */
+    DETERMINISTIC
+}
@@ -0,0 +1,204 @@
+package nz.co.anz.tokenization.properties;
+
+import nz.co.anz.tokenization.validators.PositiveDuration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.time.Duration;
+import java.util.Base64;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the tokenization strategy ({@code tokenization.token-strategy.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.token-strategy")
+@Validated
+public class TokenStrategyProperties
+{
+    /**
+     * How tokens are assigned; see {@link TokenStrategy}.
+     */
+    @NotNull
+    private TokenStrategy type = TokenStrategy.RANDOM;
+
+    /**
+     * Base64-encoded HMAC secret the {@code DETERMINISTIC} tokens are derived with, unless {@code key-store} is
+     * set. It must be the same on every replica and must never change, or accounts get new tokens. There is no
+     * default: anyone knowing the secret can compute the token of any account.
+     */
+    private String secret;
+
+    /**
+     * PKCS12 key store holding the HMAC secret as a secret key entry, used instead of {@code secret}.
+     */
+    private Path keyStore;
+
+    /**
+     * Password of the key store and of its {@code key-alias} entry.
+     */
+    private String keyStorePassword = "";
+
+    /**
+     * Alias of the HMAC secret in the key store.
+     */
+    private String keyAlias;
+
+    /**
+     * How long the first {@code DETERMINISTIC} mappings not known to be in the vault wait for those of concurrent
+     * calls before they are written; the calls are answered once the batch is committed.
+     */
+    @PositiveDuration
+    private Duration flushInterval = Duration.ofMillis(2);
+
+    /**
+     * Mappings written per flush; a flush that reaches this size is written without waiting for the interval.
+     */
+    @Positive
+    private int maxBatchSize = 500;
+
+    /**
+     * Mappings waiting for the writer at most; calls beyond that write their mappings themselves, without batching.
+     */
+    @Positive
+    private int maxPending = 10_000;
+
+    public TokenStrategy getType()
+    {
+        return type;
+    }
+
+    public void setType(final TokenStrategy type)
+    {
+        this.type = type;
+    }
+
+    public String getSecret()
+    {
+        return secret;
+    }
+
+    public void setSecret(final String secret)
+    {
+        this.secret = secret;
+    }
+
+    public Path getKeyStore()
+    {
+        return keyStore;
+    }
+
+    public void setKeyStore(final Path keyStore)
+    {
+        this.keyStore = keyStore;
+    }
+
+    public String getKeyStorePassword()
+    {
+        return keyStorePassword;
+    }
+
+    public void setKeyStorePassword(final String keyStorePassword)
+    {
+        this.keyStorePassword = keyStorePassword;
+    }
+
+    public String getKeyAlias()
+    {
+        return keyAlias;
+    }
+
+    public void setKeyAlias(final String keyAlias)
+    {
+        this.keyAlias = keyAlias;
+    }
+
+    public Duration getFlushInterval()
+    {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(final Duration flushInterval)
+    {
+        this.flushInterval = flushInterval;
+    }
+
+    public int getMaxBatchSize()
+    {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(final int maxBatchSize)
+    {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxPending()
+    {
+        return maxPending;
+    }
+
+    public void setMaxPending(final int maxPending)
+    {
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * Reads the HMAC secret from the key store if one is configured, or decodes {@code secret} otherwise.
+     *
+     * @return the HMAC secret
+     * @throws IllegalStateException if the key store cannot be read or holds no secret key under {@code key-alias}
+     */
+    public byte[] secretBytes()
+    {
+        if (keyStore == null) {
+            return Base64.getDecoder().decode(secret);
+        }
+        try (InputStream in = Files.newInputStream(keyStore)) {
+            final KeyStore store = KeyStore.getInstance("PKCS12");
+            store.load(in, keyStorePassword.toCharArray());
+            final Key key = store.getKey(keyAlias, keyStorePassword.toCharArray());
+            if (key == null || key.getEncoded() == null) {
+                throw new IllegalStateException("No secret key " + keyAlias + " in " + keyStore);
+            }
+            return key.getEncoded();
+        }
+        catch (final IOException | GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot read the token key from " + keyStore, e);
+        }
+    }
+
+    /**
+     * @return {@code true} unless the strategy is {@code DETERMINISTIC} without a key store and alias or a valid
+     *         secret of at least {@link AccountKeyProperties#MINIMUM_SECRET_BYTES} bytes
+     */
+    @AssertTrue(message = "DETERMINISTIC needs key-store and key-alias, or a Base64 secret of at least 32 bytes")
+    public boolean isKeyValid()
+    {
+        if (type != TokenStrategy.DETERMINISTIC) {
+            return true;
+        }
+        if (keyStore != null) {
+            return keyAlias != null && !keyAlias.isBlank();
+        }
+        if (secret == null || secret.isBlank()) {
+            return false;
+        }
+        try {
+            return Base64.getDecoder().decode(secret).length >= AccountKeyProperties.MINIMUM_SECRET_BYTES;
+        }
+        catch (final IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package nz.co.anz.tokenization.properties;
+
+import nz.co.anz.tokenization.validators.PositiveDuration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the streaming {@code /tokenize/stream} endpoint.
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.stream")
+@Validated
+public class TokenStreamProperties
+{
+    /**
+     * Account numbers tokenized per batch; bounds the memory held per stream.
+     */
+    @Positive
+    @Max(1000)
+    private int chunkSize = 500;
+
+    /**
+     * How often progress and throughput of a running stream are logged.
+     */
+    @PositiveDuration
+    private Duration progressInterval = Duration.ofSeconds(10);
+
+    public int getChunkSize()
+    {
+        return chunkSize;
+    }
+
+    public void setChunkSize(final int chunkSize)
+    {
+        this.chunkSize = chunkSize;
+    }
+
+    public Duration getProgressInterval()
+    {
+        return progressInterval;
+    }
+
+    public void setProgressInterval(final Duration progressInterval)
+    {
+        this.progressInterval = progressInterval;
+    }
+}
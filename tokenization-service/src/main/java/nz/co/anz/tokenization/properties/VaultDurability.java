@@ -0,0 +1,26 @@
+package nz.co.anz.tokenization.properties;
+
+/**
+ * When a newly created token mapping counts as stored ({@code tokenization.vault.durability}).
+ */
+public enum VaultDurability
+{
+    /**
+     * Each tokenize call commits its own transaction and is answered once the commit is in the database's
+     * memory. A file-backed H2 writes commits to disk in the background, so a crash loses up to its
+     * {@code WRITE_DELAY} of acknowledged tokens. The fastest setting, and the only one for in-memory vaults.
+     */
+    ASYNC,
+
+    /**
+     * Each tokenize call commits its own transaction and forces it to disk before it is answered.
+     */
+    SYNC,
+
+    /**
+     * New mappings of concurrent tokenize calls are committed together, within
+     * {@code tokenization.vault.group-commit.window}, and forced to disk once per group. Every call is
+     * answered only after its group is on disk.
+     */
+    GROUP
+}
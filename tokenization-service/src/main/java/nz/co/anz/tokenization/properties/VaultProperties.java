@@ -0,0 +1,106 @@
+package nz.co.anz.tokenization.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+
+import java.time.Duration;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * Properties of the token vault's write path ({@code tokenization.vault.*}).
+ */
+@Component
+@ConfigurationProperties(prefix = "tokenization.vault")
+@Validated
+public class VaultProperties
+{
+    /**
+     * When new mappings are acknowledged; see {@link VaultDurability}.
+     */
+    @NotNull
+    private VaultDurability durability = VaultDurability.ASYNC;
+
+    /**
+     * Statement forcing committed transactions to disk in the {@code SYNC} and {@code GROUP} modes.
+     */
+    @NotBlank
+    private String syncStatement = "CHECKPOINT SYNC";
+
+    @Valid
+    private final GroupCommit groupCommit = new GroupCommit();
+
+    public VaultDurability getDurability()
+    {
+        return durability;
+    }
+
+    public void setDurability(final VaultDurability durability)
+    {
+        this.durability = durability;
+    }
+
+    public String getSyncStatement()
+    {
+        return syncStatement;
+    }
+
+    public void setSyncStatement(final String syncStatement)
+    {
+        this.syncStatement = syncStatement;
+    }
+
+    public GroupCommit getGroupCommit()
+    {
+        return groupCommit;
+    }
+
+    /**
+     * Properties of the {@code GROUP} durability mode ({@code tokenization.vault.group-commit.*}).
+     */
+    public static class GroupCommit
+    {
+        /**
+         * How long the first mappings of a group wait for more before the group is committed.
+         * Zero commits whatever queued up during the previous commit without waiting.
+         */
+        @NotNull
+        private Duration window = Duration.ofMillis(2);
+
+        /**
+         * Mappings per group; a group that reaches this size is committed without waiting for the window.
+         */
+        @Positive
+        private int maxBatchSize = 500;
+
+        public Duration getWindow()
+        {
+            return window;
+        }
+
+        public void setWindow(final Duration window)
+        {
+            this.window = window;
+        }
+
+        public int getMaxBatchSize()
+        {
+            return maxBatchSize;
+        }
+
+        public void setMaxBatchSize(final int maxBatchSize)
+        {
+            this.maxBatchSize = maxBatchSize;
+        }
+
+        @AssertTrue(message = "window must not be negative")
+        public boolean isWindowValid()
+        {
+            return window == null || !window.isNegative();
+        }
+    }
+}
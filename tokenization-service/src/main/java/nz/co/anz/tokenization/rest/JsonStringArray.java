@@ -0,0 +1,40 @@
+package nz.co.anz.tokenization.rest;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.List;
+
+/**
+ * Response body of {@code /tokenize} and {@code /detokenize}: a JSON array of strings.
+ * <p>
+ * Written by {@link JsonStringArrayHttpMessageConverter} straight from {@link #values()}, without Jackson;
+ * should another converter ever be chosen, {@link JsonValue} makes Jackson write the same array.
+ * </p>
+ */
+public final class JsonStringArray
+{
+    private final List<String> values;
+
+    private JsonStringArray(final List<String> values)
+    {
+        this.values = values;
+    }
+
+    /**
+     * @param values the elements of the array, none {@code null}
+     * @return the array of {@code values}, which are not copied
+     */
+    public static JsonStringArray of(final List<String> values)
+    {
+        return new JsonStringArray(values);
+    }
+
+    /**
+     * @return the elements of the array
+     */
+    @JsonValue
+    public List<String> values()
+    {
+        return values;
+    }
+}
@@ -0,0 +1,170 @@
+package nz.co.anz.tokenization.rest;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Writes a {@link JsonStringArray} as {@code application/json} without going through Jackson.
+ * <p>
+ * The exact UTF-8 length of the array is computed first, then the array is encoded into one buffer of that size
+ * and written with a {@code Content-Length}. Tokens and account numbers are plain ASCII, so that is one pass over
+ * the characters to measure and one to copy; other characters are escaped or UTF-8 encoded as Jackson would.
+ * The {@code Content-Length} also lets the server decide up front whether the response is large enough to be
+ * gzip compressed ({@code server.compression.*}).
+ * </p>
+ */
+public class JsonStringArrayHttpMessageConverter extends AbstractHttpMessageConverter<JsonStringArray>
+{
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Constructor; like Jackson's converter, without a {@code charset} parameter, as JSON is always UTF-8.
+     */
+    public JsonStringArrayHttpMessageConverter()
+    {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(final Class<?> clazz)
+    {
+        return JsonStringArray.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(final Class<?> clazz, @Nullable final MediaType mediaType)
+    {
+        return false;
+    }
+
+    @Override
+    protected JsonStringArray readInternal(final Class<? extends JsonStringArray> clazz,
+                                           final HttpInputMessage inputMessage)
+    {
+        throw new HttpMessageNotReadableException("JSON string arrays are only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(final JsonStringArray array, final HttpOutputMessage outputMessage) throws IOException
+    {
+        final byte[] json = encode(array.values());
+        outputMessage.getHeaders().setContentLength(json.length);
+        outputMessage.getBody().write(json);
+    }
+
+    /**
+     * Encodes {@code values} as a UTF-8 JSON array of strings.
+     *
+     * @param values the strings, none {@code null}
+     * @return the JSON array, in a buffer of exactly its length
+     */
+    public static byte[] encode(final List<String> values)
+    {
+        int length = values.isEmpty() ? 2 : values.size() * 3 + 1;
+        for (final String value : values) {
+            length += encodedLength(value);
+        }
+        final byte[] json = new byte[length];
+        int position = 0;
+        json[position++] = '[';
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            json[position++] = '"';
+            position = encode(values.get(i), json, position);
+            json[position++] = '"';
+        }
+        json[position] = ']';
+        return json;
+    }
+
+    private static int encodedLength(final String value)
+    {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x20) {
+                length += 6;
+            }
+            else if (c == '"' || c == '\\') {
+                length += 2;
+            }
+            else if (c < 0x80) {
+                length++;
+            }
+            else if (c < 0x800) {
+                length += 2;
+            }
+            else if (isSurrogatePair(value, i)) {
+                length += 4;
+                i++;
+            }
+            else if (Character.isSurrogate(c)) {
+                length++;
+            }
+            else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int encode(final String value, final byte[] json, final int offset)
+    {
+        int position = offset;
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            if (c < 0x20) {
+                json[position++] = '\\';
+                json[position++] = 'u';
+                json[position++] = '0';
+                json[position++] = '0';
+                json[position++] = HEX[c >> 4];
+                json[position++] = HEX[c & 0xF];
+            }
+            else if (c == '"' || c == '\\') {
+                json[position++] = '\\';
+                json[position++] = (byte) c;
+            }
+            else if (c < 0x80) {
+                json[position++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                json[position++] = (byte) (0xC0 | c >> 6);
+                json[position++] = (byte) (0x80 | c & 0x3F);
+            }
+            else if (isSurrogatePair(value, i)) {
+                final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                json[position++] = (byte) (0xF0 | codePoint >> 18);
+                json[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                json[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                json[position++] = (byte) (0x80 | codePoint & 0x3F);
+            }
+            else if (Character.isSurrogate(c)) {
+                // An unpaired surrogate has no UTF-8 encoding; replaced as String.getBytes would.
+                json[position++] = '?';
+            }
+            else {
+                json[position++] = (byte) (0xE0 | c >> 12);
+                json[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                json[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+
+    private static boolean isSurrogatePair(final String value, final int index)
+    {
+        return Character.isHighSurrogate(value.charAt(index)) && index + 1 < value.length()
+            && Character.isLowSurrogate(value.charAt(index + 1));
+    }
+}
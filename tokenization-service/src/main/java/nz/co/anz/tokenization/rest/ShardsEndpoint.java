@@ -0,0 +1,106 @@
+package nz.co.anz.tokenization.rest;
+
+import nz.co.anz.tokenization.data.ShardRebalancer;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenRepository;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Actuator endpoint of the sharded vault, {@code /actuator/shards}.
+ * <p>
+ * {@code GET} shows which token prefixes every shard holds, how many mappings it stores and the progress of the
+ * last rebalancing; {@code POST {"shards": n}} starts spreading the buckets evenly over the first {@code n} shards.
+ * </p>
+ * <p>
+ * It has no authentication of its own, so it is not exposed over HTTP by default; expose it on a management port
+ * bound to the loopback interface (see {@code application-sharded.properties}).
+ * </p>
+ */
+@Component
+@Endpoint(id = "shards")
+public class ShardsEndpoint
+{
+    private final ShardRouter shardRouter;
+    private final ShardRebalancer shardRebalancer;
+    private final TokenRepository repository;
+
+    /**
+     * Constructor.
+     *
+     * @param shardRouter     the bucket assignment
+     * @param shardRebalancer moves buckets between shards
+     * @param repository      counts the mappings of every shard
+     */
+    public ShardsEndpoint(final ShardRouter shardRouter, final ShardRebalancer shardRebalancer,
+                          final TokenRepository repository)
+    {
+        this.shardRouter = shardRouter;
+        this.shardRebalancer = shardRebalancer;
+        this.repository = repository;
+    }
+
+    /**
+     * @return the shards and the last rebalancing
+     */
+    @ReadOperation
+    public Shards shards()
+    {
+        final List<Long> mappings = shardRouter.onEachShard(repository::count);
+        final List<ShardRouter.Bucket> buckets = shardRouter.buckets();
+        final List<Shard> shards = new ArrayList<>(shardRouter.shards());
+        for (int shard = 0; shard < shardRouter.shards(); shard++) {
+            final StringBuilder prefixes = new StringBuilder();
+            final StringBuilder incoming = new StringBuilder();
+            for (final ShardRouter.Bucket bucket : buckets) {
+                if (bucket.shard() == shard) {
+                    prefixes.append(bucket.prefix());
+                }
+                if (bucket.movingTo() != null && bucket.movingTo() == shard) {
+                    incoming.append(bucket.prefix());
+                }
+            }
+            shards.add(new Shard(shard, prefixes.toString(), incoming.toString(), mappings.get(shard)));
+        }
+        return new Shards(shards, shardRebalancer.status());
+    }
+
+    /**
+     * Starts a rebalancing.
+     *
+     * @param shards the number of shards to spread the buckets over
+     * @return the status of the rebalancing started
+     */
+    @WriteOperation
+    public ShardRebalancer.Status rebalance(final int shards)
+    {
+        return shardRebalancer.rebalance(shards);
+    }
+
+    /**
+     * The shards of the vault.
+     *
+     * @param shards      every shard, by shard number
+     * @param rebalancing the progress of the current, or last, rebalancing
+     */
+    public record Shards(List<Shard> shards, ShardRebalancer.Status rebalancing)
+    {
+    }
+
+    /**
+     * A shard of the vault.
+     *
+     * @param shard    the shard number
+     * @param prefixes the first characters of the tokens it holds
+     * @param incoming the first characters of the tokens being moved to it
+     * @param mappings the mappings it stores, counting those of buckets being moved on both shards
+     */
+    public record Shard(int shard, String prefixes, String incoming, long mappings)
+    {
+    }
+}
@@ -1,17 +1,31 @@
 
 package nz.co.anz.tokenization.rest;
 
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.constraints.NotEmpty;
-import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import nz.co.anz.tokenization.exception.GlobalExceptionHandler;
+import nz.co.anz.tokenization.services.StreamingTokenizationService;
+import nz.co.anz.tokenization.services.TokenLookup;
 import nz.co.anz.tokenization.services.TokenizationService;
+import nz.co.anz.tokenization.validators.AccountNumbers;
+import nz.co.anz.tokenization.validators.Tokens;
 
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 /**
@@ -23,29 +37,55 @@ import java.util.List;
 public class TokenizationController {
 
     private final TokenizationService tokenizationService;
+    private final StreamingTokenizationService streamingTokenizationService;
 
-    public TokenizationController(TokenizationService tokenizationService) {
+    public TokenizationController(TokenizationService tokenizationService,
+                                  StreamingTokenizationService streamingTokenizationService) {
         this.tokenizationService = tokenizationService;
+        this.streamingTokenizationService = streamingTokenizationService;
     }
 
     /**
      * Improvement: this endpoint should be authenticated/authorised, and also rate limited.
      * @param accountNumbers
-     * @return a list of tokens.
+     * @return a list of tokens, written by {@link JsonStringArrayHttpMessageConverter}.
      */
     @PostMapping("/tokenize")
-    public List<String> tokenize(@RequestBody @NotEmpty @Size(max = 50, message = "Maximum 50 account numbers per request")
-        final List<@Pattern(regexp = "^(\\d{4}[-\\s]?){3}\\d{4}$", message = "Wrong account number format") String> accountNumbers) {
-        return tokenizationService.tokenize(accountNumbers);
+    public JsonStringArray tokenize(@RequestBody @NotEmpty @Size(max = 50, message = "Maximum 50 account numbers per request")
+        @AccountNumbers final List<String> accountNumbers) {
+        return JsonStringArray.of(tokenizationService.tokenize(accountNumbers));
+    }
+
+    /**
+     * Streams newline-delimited account numbers in and NDJSON tokens out, for backfill jobs too large
+     * for {@code /tokenize}. The body is consumed and answered chunk by chunk, so neither side is buffered
+     * in memory; see {@link StreamingTokenizationService#tokenize(BufferedReader, Writer)} for the line format.
+     * @param body the request body, one account number per line.
+     * @param response the response the results are streamed to.
+     */
+    @PostMapping(value = "/tokenize/stream",
+        consumes = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_PLAIN_VALUE},
+        produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void tokenizeStream(final InputStream body, final HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        final BufferedReader in = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        final Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+        streamingTokenizationService.tokenize(in, out);
     }
 
     /**
      * Improvement: this endpoint should be authenticated/authorised, and also rate limited.
-     * @return a list of accounts.
+     * Unknown tokens are answered with a {@code 404} problem detail without throwing.
+     * @return a list of accounts, written by {@link JsonStringArrayHttpMessageConverter}.
      */
     @PostMapping("/detokenize")
-    public List<String> detokenize(@RequestBody @NotEmpty @Size(max = 50, message = "Maximum 50 tokens per request")
-        final List<@Pattern(regexp = "^[A-Za-z0-9]{32}$", message = "Wrong token format.") String> tokens) {
-        return tokenizationService.detokenize(tokens);
+    public ResponseEntity<?> detokenize(@RequestBody @NotEmpty @Size(max = 50, message = "Maximum 50 tokens per request")
+        @Tokens final List<String> tokens) {
+        final TokenLookup lookup = tokenizationService.lookup(tokens);
+        if (!lookup.isResolved()) {
+            return ResponseEntity.of(GlobalExceptionHandler.tokenNotFound(lookup.unknownTokens())).build();
+        }
+        return ResponseEntity.ok(JsonStringArray.of(lookup.accountNumbers()));
     }
 }
@@ -0,0 +1,148 @@
+package nz.co.anz.tokenization.services;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.DeferredVaultWriter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.utils.AccountMasker;
+import nz.co.anz.tokenization.utils.HmacTokenGenerator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link TokenizationService} of the {@code DETERMINISTIC} token strategy.
+ * <p>
+ * Tokenize derives each account's token with {@link HmacTokenGenerator} instead of looking it up, and takes no
+ * lock, whether the account was seen before or not. Accounts whose derived token is already in the
+ * {@code accountToToken} cache are known to be in the vault and answered without touching the database; the others
+ * are written by the {@link DeferredVaultWriter} in one batch with those of concurrent calls, which the call waits
+ * for, and then published to the caches and the Bloom filter. So, as with random tokens, a token is handed out only
+ * once its mapping is committed with the configured durability, and resolves on every replica straight away.
+ * </p>
+ * <p>
+ * Detokenize goes through the {@link TokenFinder} as for random tokens, so tokens issued before the strategy was
+ * switched keep resolving.
+ * </p>
+ */
+public class DeterministicTokenizationService implements TokenizationService, AutoCloseable
+{
+    private static final Logger logger = LogManager.getLogger(DeterministicTokenizationService.class);
+
+    private final TokenFinder tokenFinder;
+    private final TokenMappingCache tokenMappingCache;
+    private final UnknownTokenFilter unknownTokenFilter;
+    private final AccountKeyHasher accountKeyHasher;
+    private final HmacTokenGenerator tokenGenerator;
+    private final DeferredVaultWriter vaultWriter;
+    private final TokenizationMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenFinder resolves tokens back to account numbers.
+     * @param tokenMappingCache the token/account caches shared with {@link TokenFinder}.
+     * @param unknownTokenFilter learns the new tokens before they are handed out.
+     * @param accountKeyHasher keys account numbers by their canonical form.
+     * @param tokenGenerator derives the tokens.
+     * @param vaultWriter writes the mappings to the vault, if absent, before they are handed out.
+     * @param metrics records batch sizes and token origins.
+     */
+    public DeterministicTokenizationService(final TokenFinder tokenFinder, final TokenMappingCache tokenMappingCache,
+                                            final UnknownTokenFilter unknownTokenFilter,
+                                            final AccountKeyHasher accountKeyHasher,
+                                            final HmacTokenGenerator tokenGenerator,
+                                            final DeferredVaultWriter vaultWriter, final TokenizationMetrics metrics)
+    {
+        this.tokenFinder = tokenFinder;
+        this.tokenMappingCache = tokenMappingCache;
+        this.unknownTokenFilter = unknownTokenFilter;
+        this.accountKeyHasher = accountKeyHasher;
+        this.tokenGenerator = tokenGenerator;
+        this.vaultWriter = vaultWriter;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Tokenizes the provided account numbers by deriving their tokens.
+     * <p>
+     * Equivalent formats of the same account share one token, duplicates within the request are derived once,
+     * and the result keeps the order of the input. The new mappings store the account number as first given.
+     * </p>
+     */
+    @Override
+    public List<String> tokenize(final List<String> accountNumbers)
+    {
+        final AccountKey[] accountKeys = new AccountKey[accountNumbers.size()];
+        final Map<AccountKey, String> distinctAccounts = LinkedHashMap.newLinkedHashMap(accountNumbers.size());
+        for (int i = 0; i < accountKeys.length; i++) {
+            accountKeys[i] = accountKeyHasher.keyOf(accountNumbers.get(i));
+            distinctAccounts.putIfAbsent(accountKeys[i], accountNumbers.get(i));
+        }
+
+        if (logger.isInfoEnabled()) {
+            for (final String accountNumber : distinctAccounts.values()) {
+                logger.info("Tokenizing account number: {}", AccountMasker.masked(accountNumber));
+            }
+        }
+
+        final Map<AccountKey, String> cachedTokens = tokenMappingCache.getTokens(distinctAccounts.keySet());
+        final Map<AccountKey, String> tokensByAccount = HashMap.newHashMap(distinctAccounts.size());
+        final List<TokenEntity> newMappings = new ArrayList<>();
+        for (final Map.Entry<AccountKey, String> account : distinctAccounts.entrySet()) {
+            // The first character routes the token to its account's shard; it stays the same for the account.
+            final String token = ShardRouter.inBucketOf(tokenGenerator.generate(account.getValue()), account.getKey());
+            tokensByAccount.put(account.getKey(), token);
+            if (!token.equals(cachedTokens.get(account.getKey()))) {
+                newMappings.add(new TokenEntity(token, account.getValue(), account.getKey()));
+            }
+        }
+        if (!newMappings.isEmpty()) {
+            vaultWriter.write(newMappings);
+            unknownTokenFilter.recordIssued(newMappings.stream().map(TokenEntity::getToken).toList());
+            tokenMappingCache.putAll(newMappings);
+        }
+        metrics.recordTokenize(distinctAccounts.size() - newMappings.size(), 0, newMappings.size());
+
+        final String[] tokens = new String[accountKeys.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokensByAccount.get(accountKeys[i]);
+        }
+        return Arrays.asList(tokens);
+    }
+
+    @Override
+    public List<String> detokenize(final List<String> tokens)
+    {
+        metrics.recordDetokenize(tokens.size());
+        return tokenFinder.resolveAll(tokens);
+    }
+
+    @Override
+    public TokenLookup lookup(final List<String> tokens)
+    {
+        metrics.recordDetokenize(tokens.size());
+        return tokenFinder.lookupAll(tokens);
+    }
+
+    /**
+     * Writes the mappings still queued to the vault, releasing their callers.
+     *
+     * @throws InterruptedException if interrupted while waiting for the writer
+     */
+    @Override
+    public void close() throws InterruptedException
+    {
+        vaultWriter.close();
+    }
+}
@@ -0,0 +1,23 @@
+package nz.co.anz.tokenization.services;
+
+import java.time.Duration;
+
+/**
+ * Outcome of one streamed tokenization.
+ *
+ * @param tokenized number of account numbers a token was returned for.
+ * @param rejected number of lines rejected as malformed.
+ * @param completed {@code false} if the stream was aborted by an error.
+ * @param elapsed time spent processing the stream.
+ */
+public record StreamSummary(long tokenized, long rejected, boolean completed, Duration elapsed)
+{
+    /**
+     * @return account numbers tokenized per second.
+     */
+    public long throughput()
+    {
+        final long millis = Math.max(1, elapsed.toMillis());
+        return tokenized * 1000 / millis;
+    }
+}
@@ -0,0 +1,29 @@
+package nz.co.anz.tokenization.services;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Tokenizes an unbounded stream of account numbers, for bulk jobs that exceed the
+ * 50-item limit of {@code /tokenize}.
+ */
+public interface StreamingTokenizationService
+{
+    /**
+     * Tokenizes newline-delimited account numbers read from {@code in} and writes one NDJSON
+     * line per input line to {@code out}, in input order.
+     * <p>
+     * Input lines may hold a bare account number or a JSON string; blank lines are skipped.
+     * Each output line is either {@code {"token":"..."}} or, for a malformed input line,
+     * {@code {"line":n,"error":"..."}}. Input is processed in fixed-size chunks, so memory use
+     * does not grow with the size of the stream.
+     * </p>
+     *
+     * @param in the account numbers, one per line.
+     * @param out receives the results; flushed after each chunk.
+     * @return a summary of the processed stream.
+     * @throws IOException if reading the input or writing the output fails.
+     */
+    StreamSummary tokenize(BufferedReader in, Writer out) throws IOException;
+}
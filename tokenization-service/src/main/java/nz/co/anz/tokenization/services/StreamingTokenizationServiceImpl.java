@@ -0,0 +1,303 @@
+package nz.co.anz.tokenization.services;
+
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenStreamProperties;
+import nz.co.anz.tokenization.validators.Formats;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Default implementation of {@link StreamingTokenizationService}.
+ * <p>
+ * Lines are buffered into chunks of {@code tokenization.stream.chunk-size} and each chunk goes through
+ * {@link TokenizationService#tokenize(List)}, i.e. the same set-based lookup, batch insert and
+ * single-flight path as {@code /tokenize}. Only the current chunk is held in memory, and at most
+ * {@value #MAX_LINE_LENGTH} characters of a line: the rest of a longer line is skipped and the line rejected.
+ * </p>
+ * <p>
+ * Progress is logged every {@code tokenization.stream.progress-interval}, and each chunk is counted in
+ * {@link TokenizationMetrics} as it is answered, next to the number of streams in flight.
+ * </p>
+ */
+@Service
+public class StreamingTokenizationServiceImpl implements StreamingTokenizationService
+{
+    private static final Logger logger = LogManager.getLogger(StreamingTokenizationServiceImpl.class);
+
+    private static final String WRONG_FORMAT = "Wrong account number format";
+
+    private static final String TOO_LONG = "Line too long";
+
+    /**
+     * Longest line accepted: a quoted account number of {@value Formats#MAX_ACCOUNT_NUMBER_LENGTH} characters, with
+     * room for surrounding whitespace.
+     */
+    static final int MAX_LINE_LENGTH = 64;
+
+    private final TokenizationService tokenizationService;
+    private final TokenStreamProperties properties;
+    private final TokenizationMetrics metrics;
+
+    /**
+     * Constructor.
+     *
+     * @param tokenizationService tokenizes each chunk.
+     * @param properties chunk size and progress reporting settings.
+     * @param metrics counts the lines and the streams in flight.
+     */
+    public StreamingTokenizationServiceImpl(final TokenizationService tokenizationService,
+                                            final TokenStreamProperties properties,
+                                            final TokenizationMetrics metrics)
+    {
+        this.tokenizationService = tokenizationService;
+        this.properties = properties;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public StreamSummary tokenize(final BufferedReader in, final Writer out) throws IOException
+    {
+        final Progress progress = new Progress(properties.getProgressInterval());
+        final Chunk chunk = new Chunk(properties.getChunkSize());
+
+        metrics.recordStreamStart();
+        try {
+            final Lines lines = new Lines(in);
+            long lineNumber = 0;
+            String line;
+            while ((line = lines.next()) != null) {
+                lineNumber++;
+                if (lines.isTooLong()) {
+                    chunk.reject(lineNumber, TOO_LONG);
+                    if (chunk.isFull()) {
+                        chunk.flush(out, progress);
+                    }
+                    continue;
+                }
+                final String accountNumber = unquote(line.strip());
+                if (accountNumber.isEmpty()) {
+                    continue;
+                }
+                if (Formats.isAccountNumber(accountNumber)) {
+                    chunk.add(lineNumber, accountNumber);
+                }
+                else {
+                    chunk.reject(lineNumber, WRONG_FORMAT);
+                }
+                if (chunk.isFull()) {
+                    chunk.flush(out, progress);
+                }
+            }
+            chunk.flush(out, progress);
+        }
+        catch (final RuntimeException e) {
+            // The response is already committed, so the failure can only be reported in-band.
+            logger.error("Streaming tokenization aborted after {} accounts", progress.tokenized, e);
+            out.write("{\"error\":\"Tokenization aborted\"}\n");
+            out.flush();
+            return progress.summary(false);
+        }
+        finally {
+            metrics.recordStreamEnd();
+        }
+
+        final StreamSummary summary = progress.summary(true);
+        logger.info("Streaming tokenization finished: {} accounts tokenized, {} lines rejected in {} ms ({} accounts/s)",
+            summary.tokenized(), summary.rejected(), summary.elapsed().toMillis(), summary.throughput());
+        return summary;
+    }
+
+    private static String unquote(final String line)
+    {
+        if (line.length() >= 2 && line.charAt(0) == '"' && line.charAt(line.length() - 1) == '"') {
+            return line.substring(1, line.length() - 1);
+        }
+        return line;
+    }
+
+    /**
+     * Lines of the input, read like {@link BufferedReader#readLine()} but keeping at most {@value #MAX_LINE_LENGTH}
+     * characters of each, so a line without an end cannot exhaust the heap.
+     */
+    private static final class Lines
+    {
+        private final Reader in;
+        private final char[] buffer = new char[8192];
+        private final StringBuilder line = new StringBuilder(MAX_LINE_LENGTH);
+        private int position;
+        private int limit;
+        private boolean skipLineFeed;
+        private boolean tooLong;
+
+        Lines(final Reader in)
+        {
+            this.in = in;
+        }
+
+        /**
+         * @return the next line, without its terminator and truncated if {@link #isTooLong()}; {@code null} at
+         * the end of the input
+         */
+        String next() throws IOException
+        {
+            line.setLength(0);
+            tooLong = false;
+            boolean started = false;
+            while (true) {
+                if (position == limit && !fill()) {
+                    return started ? line.toString() : null;
+                }
+                final char c = buffer[position++];
+                if (skipLineFeed) {
+                    // The second character of a \r\n terminator.
+                    skipLineFeed = false;
+                    if (c == '\n') {
+                        continue;
+                    }
+                }
+                if (c == '\n' || c == '\r') {
+                    skipLineFeed = c == '\r';
+                    return line.toString();
+                }
+                started = true;
+                if (line.length() < MAX_LINE_LENGTH) {
+                    line.append(c);
+                }
+                else {
+                    tooLong = true;
+                }
+            }
+        }
+
+        /**
+         * @return {@code true} if the last line read had more than {@value #MAX_LINE_LENGTH} characters
+         */
+        boolean isTooLong()
+        {
+            return tooLong;
+        }
+
+        private boolean fill() throws IOException
+        {
+            final int read = in.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return false;
+            }
+            position = 0;
+            limit = read;
+            return true;
+        }
+    }
+
+    /**
+     * The lines read since the last flush. Rejected lines are kept as {@code null} entries, with their
+     * error, so their errors are written in input order.
+     */
+    private final class Chunk
+    {
+        private final int capacity;
+        private final long[] lineNumbers;
+        private final String[] errors;
+        private final List<String> entries;
+        private final List<String> accountNumbers;
+
+        Chunk(final int capacity)
+        {
+            this.capacity = capacity;
+            this.lineNumbers = new long[capacity];
+            this.errors = new String[capacity];
+            this.entries = new ArrayList<>(capacity);
+            this.accountNumbers = new ArrayList<>(capacity);
+        }
+
+        void add(final long lineNumber, final String accountNumber)
+        {
+            lineNumbers[entries.size()] = lineNumber;
+            entries.add(accountNumber);
+            accountNumbers.add(accountNumber);
+        }
+
+        void reject(final long lineNumber, final String error)
+        {
+            lineNumbers[entries.size()] = lineNumber;
+            errors[entries.size()] = error;
+            entries.add(null);
+        }
+
+        boolean isFull()
+        {
+            return entries.size() == capacity;
+        }
+
+        void flush(final Writer out, final Progress progress) throws IOException
+        {
+            if (entries.isEmpty()) {
+                return;
+            }
+            final Iterator<String> tokens = accountNumbers.isEmpty()
+                ? List.<String>of().iterator()
+                : tokenizationService.tokenize(accountNumbers).iterator();
+
+            for (int i = 0; i < entries.size(); i++) {
+                if (entries.get(i) == null) {
+                    out.write("{\"line\":" + lineNumbers[i] + ",\"error\":\"" + errors[i] + "\"}\n");
+                }
+                else {
+                    out.write("{\"token\":\"" + tokens.next() + "\"}\n");
+                }
+            }
+            out.flush();
+
+            progress.record(accountNumbers.size(), entries.size() - accountNumbers.size());
+            metrics.recordStreamChunk(accountNumbers.size(), entries.size() - accountNumbers.size());
+            entries.clear();
+            accountNumbers.clear();
+        }
+    }
+
+    /**
+     * Running totals of one stream, logged at most once per progress interval.
+     */
+    private static final class Progress
+    {
+        private final long intervalNanos;
+        private final long startedAt = System.nanoTime();
+        private long lastReportAt = startedAt;
+        private long tokenized;
+        private long rejected;
+
+        Progress(final Duration interval)
+        {
+            this.intervalNanos = interval.toNanos();
+        }
+
+        void record(final int tokenizedInChunk, final int rejectedInChunk)
+        {
+            tokenized += tokenizedInChunk;
+            rejected += rejectedInChunk;
+
+            final long now = System.nanoTime();
+            if (now - lastReportAt >= intervalNanos) {
+                lastReportAt = now;
+                final StreamSummary summary = summary(true);
+                logger.info("Streaming tokenization progress: {} accounts tokenized, {} lines rejected ({} accounts/s)",
+                    summary.tokenized(), summary.rejected(), summary.throughput());
+            }
+        }
+
+        StreamSummary summary(final boolean completed)
+        {
+            return new StreamSummary(tokenized, rejected, completed, Duration.ofNanos(System.nanoTime() - startedAt));
+        }
+    }
+}
@@ -2,6 +2,8 @@ package nz.co.anz.tokenization.services;
 
 import nz.co.anz.tokenization.exception.TokenNotFoundException;
 
+import java.util.List;
+
 /**
  * Service interface responsible for resolving a token into its original value.
  */
@@ -16,4 +18,26 @@ public interface TokenFinder
      * @throws IllegalArgumentException if the token is invalid
      */
     String resolve(String token);
+
+    /**
+     * Resolves a batch of tokens to their original values.
+     * <p>
+     * Cached tokens are answered from the cache in one bulk lookup, and all misses are loaded
+     * from the repository with a single query before the cache is populated in bulk.
+     * </p>
+     *
+     * @param tokens the tokens to be resolved; must not be {@code null}
+     * @return the original values corresponding one-to-one with the input tokens, in the same order
+     * @throws TokenNotFoundException listing every token that cannot be resolved
+     */
+    List<String> resolveAll(List<String> tokens);
+
+    /**
+     * Resolves a batch of tokens like {@link #resolveAll(List)}, but reports unknown tokens in the result
+     * instead of throwing.
+     *
+     * @param tokens the tokens to be resolved; must not be {@code null}
+     * @return the account numbers of all tokens, or the tokens that cannot be resolved
+     */
+    TokenLookup lookupAll(List<String> tokens);
 }
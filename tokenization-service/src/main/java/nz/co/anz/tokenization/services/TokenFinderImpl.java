@@ -1,29 +1,89 @@
 package nz.co.anz.tokenization.services;
 
-import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
 import nz.co.anz.tokenization.exception.TokenNotFoundException;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 @Component
 public class TokenFinderImpl implements TokenFinder {
 
-    private final TokenRepository repository;
+    private final ShardRouter shardRouter;
+    private final TokenMappingCache tokenMappingCache;
+    private final UnknownTokenFilter unknownTokenFilter;
 
     /**
      * Constructor.
-     * @param repository the token repository.
+     * @param shardRouter reads the mappings from the shard of each token.
+     * @param tokenMappingCache the token mapping caches.
+     * @param unknownTokenFilter keeps lookups of unknown tokens off the repository.
      */
-    public TokenFinderImpl(final TokenRepository repository)
+    public TokenFinderImpl(final ShardRouter shardRouter, final TokenMappingCache tokenMappingCache,
+                           final UnknownTokenFilter unknownTokenFilter)
     {
-        this.repository = repository;
+        this.shardRouter = shardRouter;
+        this.tokenMappingCache = tokenMappingCache;
+        this.unknownTokenFilter = unknownTokenFilter;
     }
 
-    @Cacheable(cacheNames = "tokenToAccount", key = "#token")
     @Override
     public String resolve(final String token) {
-        return repository.findById(token)
-            .orElseThrow(() -> new TokenNotFoundException(token))
-            .getAccountNumber();
+        return resolveAll(List.of(token)).getFirst();
+    }
+
+    @Override
+    public List<String> resolveAll(final List<String> tokens) {
+        final TokenLookup lookup = lookupAll(tokens);
+        if (!lookup.isResolved()) {
+            throw new TokenNotFoundException(lookup.unknownTokens());
+        }
+        return lookup.accountNumbers();
+    }
+
+    @Override
+    public TokenLookup lookupAll(final List<String> tokens) {
+        final Map<String, String> accountsByToken = tokenMappingCache.getAccounts(tokens, this::load);
+
+        if (accountsByToken.size() < tokens.size()) {
+            final Set<String> unresolved = new LinkedHashSet<>();
+            for (final String token : tokens) {
+                if (!accountsByToken.containsKey(token)) {
+                    unresolved.add(token);
+                }
+            }
+            if (!unresolved.isEmpty()) {
+                return TokenLookup.unknown(List.copyOf(unresolved));
+            }
+        }
+
+        return TokenLookup.resolved(tokens.stream()
+            .map(accountsByToken::get)
+            .toList());
+    }
+
+    /**
+     * Loads the mappings of tokens missing from the caches, skipping the tokens known not to exist; the shards
+     * of a mixed batch are queried in parallel.
+     */
+    private List<TokenEntity> load(final List<String> tokens) {
+        final List<String> candidates = unknownTokenFilter.candidates(tokens);
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+        final List<TokenEntity> mappings = shardRouter.findAllById(candidates);
+        if (mappings.size() < candidates.size()) {
+            final Set<String> unknown = new HashSet<>(candidates);
+            mappings.forEach(mapping -> unknown.remove(mapping.getToken()));
+            unknownTokenFilter.recordUnknown(unknown);
+        }
+        return mappings;
     }
 }
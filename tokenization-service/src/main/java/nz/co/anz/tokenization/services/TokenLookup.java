@@ -0,0 +1,39 @@
+package nz.co.anz.tokenization.services;
+
+import java.util.List;
+
+/**
+ * Outcome of resolving a batch of tokens, returned instead of throwing when tokens are unknown.
+ *
+ * @param accountNumbers the account numbers, one-to-one with the tokens in request order; empty unless
+ *                       every token was resolved
+ * @param unknownTokens  the tokens that could not be resolved, in request order without duplicates
+ */
+public record TokenLookup(List<String> accountNumbers, List<String> unknownTokens)
+{
+    /**
+     * @param accountNumbers the account numbers of all tokens
+     * @return a lookup that resolved every token
+     */
+    public static TokenLookup resolved(final List<String> accountNumbers)
+    {
+        return new TokenLookup(accountNumbers, List.of());
+    }
+
+    /**
+     * @param unknownTokens the tokens that could not be resolved
+     * @return a lookup that failed on {@code unknownTokens}
+     */
+    public static TokenLookup unknown(final List<String> unknownTokens)
+    {
+        return new TokenLookup(List.of(), unknownTokens);
+    }
+
+    /**
+     * @return {@code true} if every token was resolved
+     */
+    public boolean isResolved()
+    {
+        return unknownTokens.isEmpty();
+    }
+}
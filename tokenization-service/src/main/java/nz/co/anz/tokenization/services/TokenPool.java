@@ -0,0 +1,182 @@
+package nz.co.anz.tokenization.services;
+
+import nz.co.anz.tokenization.properties.TokenPoolProperties;
+import nz.co.anz.tokenization.utils.MpmcRingBuffer;
+import nz.co.anz.tokenization.utils.TokenGenerator;
+import nz.co.anz.tokenization.validators.Formats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pool of pre-minted tokens, so that creating mappings does not wait for {@link java.security.SecureRandom}.
+ * <p>
+ * Tokens are held in a lock-free {@link MpmcRingBuffer}. A background minter thread refills it in batches from
+ * {@link TokenGenerator} whenever it drops below {@code low-watermark}, up to {@code high-watermark}, and parks
+ * in between; callers that take the pool below the low watermark wake it up. A caller that finds the pool
+ * drained, e.g. in a burst of first-time accounts, generates the missing tokens inline as before. Every token
+ * is taken from the pool at most once.
+ * </p>
+ * <p>
+ * Published metrics: {@code tokenization.token.pool.depth}, {@code tokenization.token.pool.minted} (its rate is
+ * the refill rate) and {@code tokenization.token.pool.taken}, tagged by {@code source}: {@code pool} or
+ * {@code inline}.
+ * </p>
+ */
+@Component
+public class TokenPool implements ApplicationRunner, MeterBinder
+{
+    private static final Logger logger = LogManager.getLogger(TokenPool.class);
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final TokenPoolProperties properties;
+    private final MpmcRingBuffer<String> tokens;
+    private final LongAdder minted = new LongAdder();
+    private final LongAdder takenFromPool = new LongAdder();
+    private final LongAdder generatedInline = new LongAdder();
+    private volatile Thread minter;
+    private volatile boolean stopped;
+
+    /**
+     * Constructor.
+     *
+     * @param properties capacity and watermarks of the pool
+     */
+    public TokenPool(final TokenPoolProperties properties)
+    {
+        this.properties = properties;
+        this.tokens = new MpmcRingBuffer<>(properties.isEnabled() ? properties.getCapacity() : 1);
+    }
+
+    @Override
+    public void run(final ApplicationArguments args)
+    {
+        start();
+    }
+
+    /**
+     * Starts the minter thread, which fills the pool up to the high watermark right away.
+     */
+    public void start()
+    {
+        if (properties.isEnabled() && minter == null) {
+            minter = Thread.ofPlatform().name("token-minter").daemon().start(this::mint);
+        }
+    }
+
+    /**
+     * Stops the minter thread; tokens still in the pool are not handed out any more.
+     */
+    @PreDestroy
+    public void stop()
+    {
+        stopped = true;
+        final Thread thread = minter;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Takes {@code count} tokens, from the pool as far as it holds them and generated inline otherwise.
+     *
+     * @param count the number of tokens
+     * @return {@code count} distinct tokens of {@link Formats#TOKEN_LENGTH} characters
+     */
+    public String[] take(final int count)
+    {
+        final String[] taken = new String[count];
+        int fromPool = 0;
+        if (!stopped) {
+            String token;
+            while (fromPool < count && (token = tokens.poll()) != null) {
+                taken[fromPool++] = token;
+            }
+        }
+        if (fromPool < count) {
+            final String[] generated = TokenGenerator.generate(count - fromPool, Formats.TOKEN_LENGTH);
+            System.arraycopy(generated, 0, taken, fromPool, generated.length);
+            generatedInline.add(generated.length);
+        }
+        takenFromPool.add(fromPool);
+        if (fromPool > 0 && tokens.size() < properties.getLowWatermark()) {
+            final Thread thread = minter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * @return the number of tokens in the pool
+     */
+    public int depth()
+    {
+        return tokens.size();
+    }
+
+    @Override
+    public void bindTo(final MeterRegistry registry)
+    {
+        Gauge.builder("tokenization.token.pool.depth", this, TokenPool::depth)
+            .description("Pre-minted tokens in the pool")
+            .register(registry);
+        FunctionCounter.builder("tokenization.token.pool.minted", minted, LongAdder::sum)
+            .description("Tokens minted into the pool")
+            .register(registry);
+        FunctionCounter.builder("tokenization.token.pool.taken", takenFromPool, LongAdder::sum)
+            .description("Tokens used for new mappings, by where they came from")
+            .tag("source", "pool")
+            .register(registry);
+        FunctionCounter.builder("tokenization.token.pool.taken", generatedInline, LongAdder::sum)
+            .description("Tokens used for new mappings, by where they came from")
+            .tag("source", "inline")
+            .register(registry);
+    }
+
+    private void mint()
+    {
+        final int highWatermark = Math.min(properties.getHighWatermark(), tokens.capacity());
+        refill(highWatermark);
+        while (!stopped) {
+            // Woken up by take() below the low watermark; the timeout only bounds a missed wake-up.
+            LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            if (tokens.size() < properties.getLowWatermark()) {
+                refill(highWatermark);
+            }
+        }
+    }
+
+    private void refill(final int highWatermark)
+    {
+        try {
+            int missing;
+            while (!stopped && (missing = highWatermark - tokens.size()) > 0) {
+                final String[] batch = TokenGenerator.generate(Math.min(missing, properties.getMintBatchSize()),
+                    Formats.TOKEN_LENGTH);
+                for (final String token : batch) {
+                    if (!tokens.offer(token)) {
+                        break;
+                    }
+                    minted.increment();
+                }
+            }
+        }
+        catch (final RuntimeException e) {
+            logger.warn("Token minting failed, tokens are generated inline until the next refill", e);
+        }
+    }
+}
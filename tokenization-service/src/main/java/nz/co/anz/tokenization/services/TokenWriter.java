@@ -0,0 +1,30 @@
+package nz.co.anz.tokenization.services;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+
+import java.util.Map;
+
+/**
+ * Service interface responsible for persisting new token mappings.
+ */
+public interface TokenWriter
+{
+    /**
+     * Creates token mappings for accounts that are not tokenized yet, committed together.
+     * <p>
+     * Callers are expected to serialise concurrent creation for the same account, e.g. by
+     * holding the account's lock across the call, which returns only after the new mappings are
+     * committed with the configured {@link nz.co.anz.tokenization.properties.VaultDurability}.
+     * Must not be called inside a transaction.
+     * </p>
+     *
+     * @param accountNumbers distinct accounts believed to have no mapping yet: the account number to store,
+     *                       keyed by the account's key
+     * @param recheck        whether to look for mappings committed since the caller's own lookup
+     *                       before creating new ones
+     * @return the token of every given account, keyed by account key
+     * @throws org.springframework.dao.DataIntegrityViolationException if another writer (e.g. on a
+     *         different node) created a mapping for one of the accounts concurrently
+     */
+    Map<AccountKey, String> createMappings(Map<AccountKey, String> accountNumbers, boolean recheck);
+}
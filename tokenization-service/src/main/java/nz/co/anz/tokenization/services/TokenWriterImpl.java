@@ -0,0 +1,84 @@
+package nz.co.anz.tokenization.services;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.VaultCommitter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class TokenWriterImpl implements TokenWriter
+{
+    private final ShardRouter shardRouter;
+    private final TokenMappingCache tokenMappingCache;
+    private final UnknownTokenFilter unknownTokenFilter;
+    private final VaultCommitter vaultCommitter;
+    private final TokenPool tokenPool;
+
+    /**
+     * Constructor.
+     *
+     * @param shardRouter re-checks existing mappings on the shard of each account.
+     * @param tokenMappingCache the token mapping caches, populated once the new mappings commit.
+     * @param unknownTokenFilter learns the new tokens before they are handed out.
+     * @param vaultCommitter stores the new mappings with the configured durability.
+     * @param tokenPool supplies the new tokens, pre-minted where possible.
+     */
+    public TokenWriterImpl(final ShardRouter shardRouter, final TokenMappingCache tokenMappingCache,
+                           final UnknownTokenFilter unknownTokenFilter, final VaultCommitter vaultCommitter,
+                           final TokenPool tokenPool)
+    {
+        this.shardRouter = shardRouter;
+        this.tokenMappingCache = tokenMappingCache;
+        this.unknownTokenFilter = unknownTokenFilter;
+        this.vaultCommitter = vaultCommitter;
+        this.tokenPool = tokenPool;
+    }
+
+    @Override
+    public Map<AccountKey, String> createMappings(final Map<AccountKey, String> accountNumbers, final boolean recheck)
+    {
+        final Map<AccountKey, String> tokensByAccount = HashMap.newHashMap(accountNumbers.size());
+        if (recheck) {
+            // A concurrent writer publishes to the cache before releasing the account lock,
+            // so the cache answers most rechecks without a query.
+            tokensByAccount.putAll(tokenMappingCache.getTokens(accountNumbers.keySet()));
+            final List<AccountKey> unresolved = accountNumbers.keySet().stream()
+                .filter(accountKey -> !tokensByAccount.containsKey(accountKey))
+                .toList();
+            if (!unresolved.isEmpty()) {
+                final List<TokenEntity> existingMappings = shardRouter.findByAccountKeyIn(unresolved);
+                existingMappings.forEach(entity -> tokensByAccount.put(entity.getAccountKey(), entity.getToken()));
+                tokenMappingCache.putAll(existingMappings);
+            }
+        }
+
+        final List<AccountKey> newAccounts = accountNumbers.keySet().stream()
+            .filter(accountKey -> !tokensByAccount.containsKey(accountKey))
+            .toList();
+        final String[] tokens = tokenPool.take(newAccounts.size());
+        final List<TokenEntity> newMappings = new ArrayList<>(newAccounts.size());
+        for (int i = 0; i < tokens.length; i++) {
+            final AccountKey accountKey = newAccounts.get(i);
+            // The first character routes the token to its account's shard.
+            tokens[i] = ShardRouter.inBucketOf(tokens[i], accountKey);
+            newMappings.add(new TokenEntity(tokens[i], accountNumbers.get(accountKey), accountKey));
+            tokensByAccount.put(accountKey, tokens[i]);
+        }
+        if (!newMappings.isEmpty()) {
+            // Returns once committed (and on disk if the durability mode requires it), so the
+            // caches are only published to, and the tokens only handed out, after that.
+            vaultCommitter.commit(newMappings);
+            unknownTokenFilter.recordIssued(List.of(tokens));
+            tokenMappingCache.putAll(newMappings);
+        }
+        return tokensByAccount;
+    }
+}
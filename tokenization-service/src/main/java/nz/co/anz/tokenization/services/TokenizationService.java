@@ -42,4 +42,14 @@ public interface TokenizationService
      * @throws IllegalArgumentException if the input list is null or empty
      */
     List<String> detokenize(List<String> tokens);
+
+    /**
+     * Detokenizes a collection of tokens like {@link #detokenize(List)}, but reports
+     * unknown tokens in the result instead of throwing, for callers that expect them.
+     *
+     * @param tokens a list of tokens to be detokenized;
+     *               must not be {@code null} or empty
+     * @return the account numbers of all tokens, or the tokens that cannot be resolved
+     */
+    TokenLookup lookup(List<String> tokens);
 }
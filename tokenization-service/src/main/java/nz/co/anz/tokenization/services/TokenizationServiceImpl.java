@@ -1,75 +1,187 @@
 
 package nz.co.anz.tokenization.services;
 
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.data.ShardRouter;
 import nz.co.anz.tokenization.data.TokenEntity;
-import nz.co.anz.tokenization.data.TokenRepository;
 import nz.co.anz.tokenization.exception.GlobalExceptionHandler;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
 import nz.co.anz.tokenization.utils.AccountMasker;
-import nz.co.anz.tokenization.utils.TokenGenerator;
+import nz.co.anz.tokenization.utils.StripedLocks;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.springframework.stereotype.Service;
+import org.springframework.dao.DataIntegrityViolationException;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Default implementation of {@link TokenizationService}.
+ * Default implementation of {@link TokenizationService}, for the {@code RANDOM} token strategy.
  */
-@Service
 public class TokenizationServiceImpl implements TokenizationService
 {
     private static Logger logger = LogManager.getLogger(GlobalExceptionHandler.class);
-    private final TokenRepository repository;
+
+    /**
+     * Number of lock stripes serialising token creation per account number.
+     */
+    private static final int ACCOUNT_LOCK_STRIPES = 1024;
+
+    /**
+     * Attempts at creating mappings before a unique-constraint conflict is given up on.
+     */
+    private static final int MAX_CREATE_ATTEMPTS = 3;
+
+    private final ShardRouter shardRouter;
     private final TokenFinder tokenFinder;
+    private final TokenMappingCache tokenMappingCache;
+    private final TokenWriter tokenWriter;
+    private final AccountKeyHasher accountKeyHasher;
+    private final TokenizationMetrics metrics;
+    private final StripedLocks accountLocks = new StripedLocks(ACCOUNT_LOCK_STRIPES);
 
     /**
      * Constructor.
      *
-     * @param repository the instance of {@link TokenRepository}.
+     * @param shardRouter looks up existing mappings on the shard of each account.
+     * @param tokenFinder resolves tokens back to account numbers.
+     * @param tokenMappingCache the token/account caches shared with {@link TokenFinder}.
+     * @param tokenWriter persists new mappings.
+     * @param accountKeyHasher keys account numbers by their canonical form.
+     * @param metrics records batch sizes and token origins.
      */
-    public TokenizationServiceImpl(final TokenRepository repository, final TokenFinder tokenFinder)
+    public TokenizationServiceImpl(final ShardRouter shardRouter, final TokenFinder tokenFinder,
+                                   final TokenMappingCache tokenMappingCache, final TokenWriter tokenWriter,
+                                   final AccountKeyHasher accountKeyHasher, final TokenizationMetrics metrics)
     {
-        this.repository = repository;
+        this.shardRouter = shardRouter;
         this.tokenFinder = tokenFinder;
+        this.tokenMappingCache = tokenMappingCache;
+        this.tokenWriter = tokenWriter;
+        this.accountKeyHasher = accountKeyHasher;
+        this.metrics = metrics;
     }
 
+    /**
+     * Tokenizes the provided account numbers as a single set-based batch.
+     * <p>
+     * Each account number is keyed once by the keyed hash of its digits, so equivalent formats of the same
+     * account share one token. Accounts found in the {@code accountToToken} cache are answered without
+     * touching the database. The remaining existing mappings are resolved with one {@code IN} query on the
+     * {@code account_hash} index (one per shard, in parallel, in a sharded vault), tokens are generated only for
+     * the accounts that are not yet tokenized, and the new mappings are persisted together in one transaction (per
+     * shard) so Hibernate can group them into JDBC batch inserts. Duplicate accounts within the request share a
+     * single token, a new mapping stores the account number as first given, and the result keeps the order of the
+     * input.
+     * </p>
+     * <p>
+     * Creation is single-flight per account: concurrent requests for the same account serialise on
+     * the account's lock stripe, and whoever gets the lock second finds the first one's mapping
+     * instead of inserting a duplicate.
+     * </p>
+     */
     @Override
     public List<String> tokenize(final List<String> accountNumbers)
     {
-        return accountNumbers.stream()
-            .map(this::tokenizeAccountNumber)
-            .toList();
+        final AccountKey[] accountKeys = new AccountKey[accountNumbers.size()];
+        final Map<AccountKey, String> distinctAccounts = LinkedHashMap.newLinkedHashMap(accountNumbers.size());
+        for (int i = 0; i < accountKeys.length; i++) {
+            accountKeys[i] = accountKeyHasher.keyOf(accountNumbers.get(i));
+            distinctAccounts.putIfAbsent(accountKeys[i], accountNumbers.get(i));
+        }
+        final Map<AccountKey, String> tokensByAccount = HashMap.newHashMap(distinctAccounts.size());
+        tokensByAccount.putAll(tokenMappingCache.getTokens(distinctAccounts.keySet()));
+        final int cached = tokensByAccount.size();
+        int existing = 0;
+        int created = 0;
+
+        if (logger.isInfoEnabled()) {
+            for (final String accountNumber : distinctAccounts.values()) {
+                logger.info("Tokenizing account number: {}", AccountMasker.masked(accountNumber));
+            }
+        }
+
+        if (tokensByAccount.size() < distinctAccounts.size()) {
+            final List<AccountKey> uncachedAccounts = distinctAccounts.keySet().stream()
+                .filter(accountKey -> !tokensByAccount.containsKey(accountKey))
+                .toList();
+            // Stamp the stripes before looking up, so creations that commit after the lookup are detected.
+            final int[] stripes = accountLocks.stripesOf(uncachedAccounts);
+            final long stamp = accountLocks.stamp(stripes);
+
+            final List<TokenEntity> existingMappings = shardRouter.findByAccountKeyIn(uncachedAccounts);
+            existingMappings.forEach(entity -> tokensByAccount.put(entity.getAccountKey(), entity.getToken()));
+            tokenMappingCache.putAll(existingMappings);
+            existing = existingMappings.size();
+
+            final Map<AccountKey, String> newAccounts = LinkedHashMap.newLinkedHashMap(uncachedAccounts.size());
+            for (final AccountKey accountKey : uncachedAccounts) {
+                if (!tokensByAccount.containsKey(accountKey)) {
+                    newAccounts.put(accountKey, distinctAccounts.get(accountKey));
+                }
+            }
+            if (!newAccounts.isEmpty()) {
+                tokensByAccount.putAll(createMappings(newAccounts, stripes, stamp));
+                created = newAccounts.size();
+            }
+        }
+        metrics.recordTokenize(cached, existing, created);
+
+        final String[] tokens = new String[accountKeys.length];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = tokensByAccount.get(accountKeys[i]);
+        }
+        return Arrays.asList(tokens);
     }
 
     /**
-     * Tokenizes the provided account number by either retrieving an existing token
-     * from the database or generating a new one.
+     * Creates mappings for accounts that had none at lookup time, holding their lock stripes until
+     * the insert has committed.
      * <p>
-     * If the account number has been tokenized previously, the existing token is returned.
-     * Otherwise, a new 32-character alphanumeric token is generated, persisted to the
-     * repository associated with the account number, and then returned.
+     * If any of the stripes advanced since {@code stamp} was taken, another request created mappings
+     * on them in the meantime and the writer re-checks before inserting. A unique-constraint
+     * violation means the mapping was created outside this process (another node), so the
+     * creation is retried with a re-check.
      * </p>
-     *
-     * @param accountNumber The raw account number string to be tokenized.
-     * @return A unique 32-character alphanumeric token representing the account number.
      */
-    private String tokenizeAccountNumber(final String accountNumber)
+    private Map<AccountKey, String> createMappings(final Map<AccountKey, String> accountNumbers, final int[] stripes,
+                                                   final long stamp)
     {
-        logger.info("Tokenizing account number: {}", AccountMasker.maskAccountNumber(accountNumber));
-        return repository.findByAccountNumber(accountNumber)
-            .map(TokenEntity::getToken)
-            .orElseGet(() -> {
-                final String token = TokenGenerator.generate(32);
-                repository.save(new TokenEntity(token, accountNumber));
-                return token;
-            });
+        boolean recheck = false;
+        for (int attempt = 1; ; attempt++) {
+            try (StripedLocks.Held held = accountLocks.lockAll(accountLocks.stripesOf(accountNumbers.keySet()))) {
+                recheck = recheck || accountLocks.stamp(stripes) != stamp;
+                final Map<AccountKey, String> tokens = tokenWriter.createMappings(accountNumbers, recheck);
+                held.advance();
+                return tokens;
+            }
+            catch (final DataIntegrityViolationException e) {
+                if (attempt >= MAX_CREATE_ATTEMPTS) {
+                    throw e;
+                }
+                logger.warn("Token mapping created concurrently elsewhere, retrying ({}/{})", attempt,
+                    MAX_CREATE_ATTEMPTS);
+                recheck = true;
+            }
+        }
     }
 
     @Override
     public List<String> detokenize(final List<String> tokens)
     {
-        return tokens.stream()
-            .map(tokenFinder::resolve)
-            .toList();
+        metrics.recordDetokenize(tokens.size());
+        return tokenFinder.resolveAll(tokens);
+    }
+
+    @Override
+    public TokenLookup lookup(final List<String> tokens)
+    {
+        metrics.recordDetokenize(tokens.size());
+        return tokenFinder.lookupAll(tokens);
     }
 }
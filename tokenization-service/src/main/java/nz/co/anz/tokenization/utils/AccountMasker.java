@@ -1,49 +1,134 @@
 package nz.co.anz.tokenization.utils;
 
-import org.apache.commons.lang3.StringUtils;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 /**
  * Util class to mask a given account.
  */
 public final class AccountMasker
 {
+    private static final String FULL_MASK = "****";
+
+    private static final int VISIBLE_DIGITS = 4;
+
     private AccountMasker()
     {
         // DO NOT INSTANTIATE ME.
     }
 
     /**
-     * Masks an account number for secure display using Apache Commons StringUtils.
+     * Masks an account number for secure display.
      * <p>Features:
      * <ul>
      *   <li>Null-safe and blank-safe input handling</li>
-     *   <li>Removes common separators (hyphens, spaces)</li>
+     *   <li>Removes common separators (hyphens, whitespace)</li>
      *   <li>Shows only last 4 digits for privacy</li>
-     *   <li>Input validation with custom error messages</li>
-     *   <li>Efficient string manipulation</li>
+     *   <li>Single pass into one pre-sized buffer, no intermediate Strings</li>
      * </ul>
      * </p>
      *
      * @param accountNumber The original account number, may be null or empty
      * @return Masked account number showing only last 4 digits
      */
-    public static String maskAccountNumber(String accountNumber) {
-        if (StringUtils.isBlank(accountNumber)) {
-            return "****";
+    public static String maskAccountNumber(final String accountNumber) {
+        if (accountNumber == null) {
+            return FULL_MASK;
+        }
+
+        // One pass copying the non-separator characters, then mask all but the last four in place.
+        final byte[] buffer = new byte[accountNumber.length()];
+        int length = 0;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            final char c = accountNumber.charAt(i);
+            if (!isSeparator(c)) {
+                // Valid account numbers are ASCII; anything else is masked rather than mangled.
+                buffer[length++] = c < 0x80 ? (byte) c : (byte) '*';
+            }
+        }
+        if (length < VISIBLE_DIGITS) {
+            return FULL_MASK;
         }
 
-        final String cleanNumber = StringUtils.replaceChars(accountNumber, "-", "");
+        Arrays.fill(buffer, 0, length - VISIBLE_DIGITS, (byte) '*');
+        return new String(buffer, 0, length, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Appends the masked form of {@code accountNumber} to {@code buffer} without allocating.
+     *
+     * @param accountNumber The original account number, may be null or empty
+     * @param buffer receives the masked account number
+     * @see #maskAccountNumber(String)
+     */
+    public static void appendMasked(final CharSequence accountNumber, final StringBuilder buffer) {
+        if (accountNumber == null) {
+            buffer.append(FULL_MASK);
+            return;
+        }
+
+        int length = 0;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            if (!isSeparator(accountNumber.charAt(i))) {
+                length++;
+            }
+        }
+        if (length < VISIBLE_DIGITS) {
+            buffer.append(FULL_MASK);
+            return;
+        }
 
-        if (StringUtils.length(cleanNumber) < 4) {
-            return "****";
+        int remainingMask = length - VISIBLE_DIGITS;
+        for (int i = 0; i < accountNumber.length(); i++) {
+            final char c = accountNumber.charAt(i);
+            if (isSeparator(c)) {
+                continue;
+            }
+            if (remainingMask > 0) {
+                buffer.append('*');
+                remainingMask--;
+            }
+            else {
+                buffer.append(c < 0x80 ? c : '*');
+            }
         }
+    }
 
-        // Get last 4 characters
-        final String lastFour = StringUtils.right(cleanNumber, 4);
+    /**
+     * Wraps an account number for logging, so it is masked only if the log event is actually formatted.
+     * <p>
+     * Use as a log parameter: {@code logger.info("Tokenizing {}", AccountMasker.masked(accountNumber))}.
+     * Log4j formats {@link StringBuilderFormattable} parameters straight into its reusable buffer.
+     * </p>
+     *
+     * @param accountNumber The original account number, may be null or empty
+     * @return a lazily masked view of the account number
+     */
+    public static StringBuilderFormattable masked(final String accountNumber) {
+        return new MaskedAccountNumber(accountNumber);
+    }
 
-        // Create mask of appropriate length
-        final String mask = StringUtils.repeat('*', StringUtils.length(cleanNumber) - 4);
+    /**
+     * Separators permitted by the account number format: hyphens and whitespace.
+     */
+    private static boolean isSeparator(final char c) {
+        return c == '-' || Character.isWhitespace(c);
+    }
 
-        return mask + lastFour;
+    private record MaskedAccountNumber(String accountNumber) implements StringBuilderFormattable
+    {
+        @Override
+        public void formatTo(final StringBuilder buffer)
+        {
+            appendMasked(accountNumber, buffer);
+        }
+
+        @Override
+        public String toString()
+        {
+            return maskAccountNumber(accountNumber);
+        }
     }
 }
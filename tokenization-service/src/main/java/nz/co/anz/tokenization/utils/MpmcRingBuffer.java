@@ -0,0 +1,119 @@
+package nz.co.anz.tokenization.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded, lock-free multi-producer multi-consumer FIFO queue on a ring of slots (D. Vyukov's bounded MPMC queue).
+ * <p>
+ * Each slot carries a sequence number telling producers and consumers whose turn it is: a producer claims the
+ * next enqueue position with one CAS, stores the element and publishes it by advancing the slot's sequence; a
+ * consumer does the same on the dequeue position. Neither blocks: {@link #offer} fails when the ring is full and
+ * {@link #poll} returns {@code null} when it is empty, so no thread, virtual or not, ever waits on a lock here.
+ * </p>
+ *
+ * @param <E> the element type
+ */
+public final class MpmcRingBuffer<E>
+{
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+
+    /**
+     * Constructor.
+     *
+     * @param capacity the minimum number of elements held; rounded up to a power of two
+     */
+    public MpmcRingBuffer(final int capacity)
+    {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        final int size = capacity == 1 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = size - 1;
+        this.sequences = new AtomicLongArray(size);
+        this.elements = new AtomicReferenceArray<>(size);
+        for (int i = 0; i < size; i++) {
+            sequences.setPlain(i, i);
+        }
+    }
+
+    /**
+     * Appends {@code element} unless the ring is full.
+     *
+     * @param element the element, not {@code null}
+     * @return {@code true} if the element was added
+     */
+    public boolean offer(final E element)
+    {
+        long position = enqueuePosition.get();
+        while (true) {
+            final int slot = (int) position & mask;
+            final long difference = sequences.getAcquire(slot) - position;
+            if (difference == 0) {
+                if (enqueuePosition.compareAndSet(position, position + 1)) {
+                    elements.setPlain(slot, element);
+                    sequences.setRelease(slot, position + 1);
+                    return true;
+                }
+                position = enqueuePosition.get();
+            }
+            else if (difference < 0) {
+                return false;
+            }
+            else {
+                position = enqueuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * Removes the oldest element.
+     *
+     * @return the element, or {@code null} if the ring is empty
+     */
+    public E poll()
+    {
+        long position = dequeuePosition.get();
+        while (true) {
+            final int slot = (int) position & mask;
+            final long difference = sequences.getAcquire(slot) - (position + 1);
+            if (difference == 0) {
+                if (dequeuePosition.compareAndSet(position, position + 1)) {
+                    final E element = elements.getPlain(slot);
+                    elements.setPlain(slot, null);
+                    sequences.setRelease(slot, position + mask + 1);
+                    return element;
+                }
+                position = dequeuePosition.get();
+            }
+            else if (difference < 0) {
+                return null;
+            }
+            else {
+                position = dequeuePosition.get();
+            }
+        }
+    }
+
+    /**
+     * @return the number of elements, exact when no thread is adding or removing elements
+     */
+    public int size()
+    {
+        final long size = enqueuePosition.get() - dequeuePosition.get();
+        return (int) Math.max(0, Math.min(size, capacity()));
+    }
+
+    /**
+     * @return the number of slots
+     */
+    public int capacity()
+    {
+        return mask + 1;
+    }
+}
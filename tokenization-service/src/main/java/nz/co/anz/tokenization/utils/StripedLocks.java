@@ -0,0 +1,141 @@
+package nz.co.anz.tokenization.utils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed set of {@link ReentrantLock}s that keys are hashed onto, with a version counter per stripe.
+ * <p>
+ * Callers lock every stripe of a batch of keys at once; stripes are always acquired in ascending
+ * order so two batches sharing stripes cannot deadlock. The version of a stripe is advanced by the
+ * lock holder after it has published a change, which lets another caller tell cheaply whether
+ * anything was written on its stripes since it last looked (see {@link #stamp(int[])}).
+ * </p>
+ * <p>
+ * {@link ReentrantLock} rather than {@code synchronized} is used deliberately: a virtual thread
+ * blocked on it unmounts from its carrier instead of pinning it.
+ * </p>
+ */
+public final class StripedLocks
+{
+    private final ReentrantLock[] locks;
+    private final AtomicLongArray versions;
+    private final int mask;
+
+    /**
+     * Constructor.
+     *
+     * @param stripes the number of stripes; must be a power of two
+     */
+    public StripedLocks(final int stripes)
+    {
+        if (stripes <= 0 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("Number of stripes must be a positive power of two: " + stripes);
+        }
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.versions = new AtomicLongArray(stripes);
+        this.mask = stripes - 1;
+    }
+
+    /**
+     * Maps keys onto their stripes.
+     *
+     * @param keys the keys
+     * @return the distinct stripe indexes of the keys, in ascending order
+     */
+    public int[] stripesOf(final Collection<?> keys)
+    {
+        return keys.stream()
+            .mapToInt(this::stripeOf)
+            .distinct()
+            .sorted()
+            .toArray();
+    }
+
+    /**
+     * Sums the versions of the given stripes. Versions only ever grow, so an unchanged stamp
+     * means no holder has advanced any of the stripes in between.
+     *
+     * @param stripes the stripe indexes
+     * @return the current stamp of the stripes
+     */
+    public long stamp(final int[] stripes)
+    {
+        long stamp = 0;
+        for (final int stripe : stripes) {
+            stamp += versions.get(stripe);
+        }
+        return stamp;
+    }
+
+    /**
+     * Locks all the given stripes in ascending order.
+     *
+     * @param stripes the stripe indexes, as returned by {@link #stripesOf(Collection)}
+     * @return a handle releasing the locks when closed
+     */
+    public Held lockAll(final int[] stripes)
+    {
+        final int[] ordered = stripes.clone();
+        Arrays.sort(ordered);
+        int locked = 0;
+        try {
+            for (final int stripe : ordered) {
+                locks[stripe].lock();
+                locked++;
+            }
+        }
+        catch (final RuntimeException e) {
+            unlock(ordered, locked);
+            throw e;
+        }
+        return new Held(ordered);
+    }
+
+    private int stripeOf(final Object key)
+    {
+        final int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void unlock(final int[] stripes, final int count)
+    {
+        for (int i = count - 1; i >= 0; i--) {
+            locks[stripes[i]].unlock();
+        }
+    }
+
+    /**
+     * A set of held stripe locks.
+     */
+    public final class Held implements AutoCloseable
+    {
+        private final int[] stripes;
+
+        private Held(final int[] stripes)
+        {
+            this.stripes = stripes;
+        }
+
+        /**
+         * Advances the version of every held stripe; call after publishing a change.
+         */
+        public void advance()
+        {
+            for (final int stripe : stripes) {
+                versions.incrementAndGet(stripe);
+            }
+        }
+
+        @Override
+        public void close()
+        {
+            unlock(stripes, stripes.length);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package nz.co.anz.tokenization.utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over tokens.
+ * <p>
+ * {@link #mightContain} never returns {@code false} for a token that was {@link #put}; it returns {@code true}
+ * for a token that was not with roughly the false-positive rate the filter was sized for, as long as no more
+ * than the expected number of tokens are added. Bits are set with lock-free CAS, so readers and writers never
+ * block each other.
+ * </p>
+ * <p>
+ * The probe positions are derived from two 64-bit hashes of the token by double hashing.
+ * </p>
+ */
+public final class TokenBloomFilter
+{
+    private static final double LN2 = Math.log(2);
+
+    private final AtomicLongArray words;
+    private final long bits;
+    private final int hashes;
+
+    private TokenBloomFilter(final long bits, final int hashes)
+    {
+        this.words = new AtomicLongArray(Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE));
+        this.bits = bits;
+        this.hashes = hashes;
+    }
+
+    /**
+     * Creates a filter sized for {@code expectedTokens} tokens at {@code falsePositiveRate}.
+     *
+     * @param expectedTokens    the number of tokens the filter is sized for
+     * @param falsePositiveRate the target false-positive rate, between 0 and 1 exclusive
+     * @return an empty filter
+     */
+    public static TokenBloomFilter create(final long expectedTokens, final double falsePositiveRate)
+    {
+        if (expectedTokens <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException(
+                "Invalid Bloom filter size: " + expectedTokens + " tokens at " + falsePositiveRate);
+        }
+        final long bits = Math.max(Long.SIZE,
+            (long) Math.ceil(-expectedTokens * Math.log(falsePositiveRate) / (LN2 * LN2)));
+        final int hashes = Math.max(1, (int) Math.round((double) bits / expectedTokens * LN2));
+        return new TokenBloomFilter(bits, hashes);
+    }
+
+    /**
+     * Adds a token.
+     *
+     * @param token the token
+     */
+    public void put(final CharSequence token)
+    {
+        final long hash1 = hash(token, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(token, 0xC2B2AE3D27D4EB4FL) | 1;
+        long combined = hash1;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bits;
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0) {
+                final long witness = words.compareAndExchange(word, current, current | mask);
+                if (witness == current) {
+                    break;
+                }
+                current = witness;
+            }
+            combined += hash2;
+        }
+    }
+
+    /**
+     * @param token the token
+     * @return {@code false} if the token was definitely never added
+     */
+    public boolean mightContain(final CharSequence token)
+    {
+        final long hash1 = hash(token, 0x9E3779B97F4A7C15L);
+        final long hash2 = hash(token, 0xC2B2AE3D27D4EB4FL) | 1;
+        long combined = hash1;
+        for (int i = 0; i < hashes; i++) {
+            final long bit = (combined & Long.MAX_VALUE) % bits;
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+            combined += hash2;
+        }
+        return true;
+    }
+
+    /**
+     * @return the size of the filter in bits
+     */
+    public long bitSize()
+    {
+        return bits;
+    }
+
+    /**
+     * @return the number of bits probed per token
+     */
+    public int hashFunctions()
+    {
+        return hashes;
+    }
+
+    private static long hash(final CharSequence token, final long seed)
+    {
+        long hash = seed;
+        for (int i = 0; i < token.length(); i++) {
+            hash = (hash ^ token.charAt(i)) * 0x100000001B3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+}
@@ -0,0 +1,19 @@
+package nz.co.anz.tokenization.validators;
+
+import java.util.List;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Validator implementation for {@link AccountNumbers}.
+ * <p>
+ * A {@code null} list is considered valid (use {@code @NotEmpty} to reject it); {@code null} elements are not.
+ */
+public class AccountNumbersValidator implements ConstraintValidator<AccountNumbers, List<String>> {
+
+    @Override
+    public boolean isValid(final List<String> value, final ConstraintValidatorContext context)
+    {
+        return value == null || ElementViolations.report(value, Formats::isAccountNumber, context);
+    }
+}
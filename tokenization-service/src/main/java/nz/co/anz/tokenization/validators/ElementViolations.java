@@ -0,0 +1,46 @@
+package nz.co.anz.tokenization.validators;
+
+import org.hibernate.validator.constraintvalidation.HibernateConstraintValidatorContext;
+
+import java.util.List;
+import java.util.function.Predicate;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Shared element check of the list-level format constraints.
+ */
+final class ElementViolations
+{
+    private ElementViolations()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    /**
+     * Checks every element of {@code values} and, if any is malformed, replaces the default violation with one
+     * violation per malformed element whose dynamic payload is the element's index.
+     *
+     * @return {@code true} if all elements are well-formed
+     */
+    static boolean report(final List<String> values, final Predicate<String> wellFormed,
+                          final ConstraintValidatorContext context)
+    {
+        boolean valid = true;
+        // Indexed access: no iterator is allocated on the (common) valid path.
+        for (int i = 0; i < values.size(); i++) {
+            if (wellFormed.test(values.get(i))) {
+                continue;
+            }
+            final HibernateConstraintValidatorContext hibernateContext =
+                context.unwrap(HibernateConstraintValidatorContext.class);
+            if (valid) {
+                hibernateContext.disableDefaultConstraintViolation();
+                valid = false;
+            }
+            hibernateContext.withDynamicPayload(i)
+                .buildConstraintViolationWithTemplate(hibernateContext.getDefaultConstraintMessageTemplate())
+                .addConstraintViolation();
+        }
+        return valid;
+    }
+}
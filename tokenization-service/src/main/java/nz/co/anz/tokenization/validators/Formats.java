@@ -0,0 +1,89 @@
+package nz.co.anz.tokenization.validators;
+
+/**
+ * Allocation-free format checks for account numbers and tokens.
+ * <p>
+ * Each check is a single linear scan equivalent to the regular expression it documents,
+ * without compiling or running a regex.
+ * </p>
+ */
+public final class Formats
+{
+    /**
+     * Length of a token.
+     */
+    public static final int TOKEN_LENGTH = 32;
+
+    private static final int ACCOUNT_NUMBER_GROUPS = 4;
+
+    private static final int ACCOUNT_NUMBER_GROUP_LENGTH = 4;
+
+    /**
+     * Length of the longest well-formed account number, with a separator between each group.
+     */
+    public static final int MAX_ACCOUNT_NUMBER_LENGTH = ACCOUNT_NUMBER_GROUPS * (ACCOUNT_NUMBER_GROUP_LENGTH + 1) - 1;
+
+    private Formats()
+    {
+        // DO NOT INSTANTIATE ME.
+    }
+
+    /**
+     * Checks {@code ^(\d{4}[-\s]?){3}\d{4}$}: four groups of four ASCII digits, optionally separated
+     * by a single hyphen or whitespace character.
+     *
+     * @param value the value to check, may be null
+     * @return {@code true} if {@code value} is a well-formed account number
+     */
+    public static boolean isAccountNumber(final CharSequence value)
+    {
+        if (value == null) {
+            return false;
+        }
+        final int length = value.length();
+        int position = 0;
+        for (int group = 0; group < ACCOUNT_NUMBER_GROUPS; group++) {
+            if (group > 0 && position < length && isSeparator(value.charAt(position))) {
+                position++;
+            }
+            if (position + ACCOUNT_NUMBER_GROUP_LENGTH > length) {
+                return false;
+            }
+            for (int end = position + ACCOUNT_NUMBER_GROUP_LENGTH; position < end; position++) {
+                final char c = value.charAt(position);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+        }
+        return position == length;
+    }
+
+    /**
+     * Checks {@code ^[A-Za-z0-9]{32}$}.
+     *
+     * @param value the value to check, may be null
+     * @return {@code true} if {@code value} is a well-formed token
+     */
+    public static boolean isToken(final CharSequence value)
+    {
+        if (value == null || value.length() != TOKEN_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < TOKEN_LENGTH; i++) {
+            final char c = value.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The separators matched by {@code [-\s]}: a hyphen or one of {@code [ \t\n\x0B\f\r]}.
+     */
+    private static boolean isSeparator(final char c)
+    {
+        return c == '-' || c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,47 @@
+package nz.co.anz.tokenization.validators;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+/**
+ * Ensures that every element of the annotated list is a well-formed token (see {@link Formats#isToken(CharSequence)}).
+ * <p>
+ * Validates the list in one pass instead of a per-element {@code @Pattern}. Each malformed element is reported as its
+ * own violation carrying the element's index as dynamic payload.
+ *
+ * <pre>
+ * {@code
+ * public List<String> endpoint(@RequestBody @Tokens final List<String> values)
+ * }
+ * </pre>
+ */
+@Constraint(validatedBy = TokensValidator.class)
+@Target({ ElementType.PARAMETER, ElementType.FIELD })
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Tokens {
+    /**
+     * Message to be displayed when validation fails.
+     *
+     * @return the message
+     */
+    String message() default "Wrong token format.";
+
+    /**
+     * Groups for the constraint.
+     *
+     * @return the groups
+     */
+    Class<?>[] groups() default {};
+
+    /**
+     * Payload for the constraint.
+     *
+     * @return the payload
+     */
+    Class<? extends Payload>[] payload() default {};
+}
@@ -0,0 +1,19 @@
+package nz.co.anz.tokenization.validators;
+
+import java.util.List;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+/**
+ * Validator implementation for {@link Tokens}.
+ * <p>
+ * A {@code null} list is considered valid (use {@code @NotEmpty} to reject it); {@code null} elements are not.
+ */
+public class TokensValidator implements ConstraintValidator<Tokens, List<String>> {
+
+    @Override
+    public boolean isValid(final List<String> value, final ConstraintValidatorContext context)
+    {
+        return value == null || ElementViolations.report(value, Formats::isToken, context);
+    }
+}
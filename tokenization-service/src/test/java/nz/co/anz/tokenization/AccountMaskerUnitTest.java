@@ -56,11 +56,30 @@ class AccountMaskerUnitTest
     void shouldMaskAccountNumberWithSpaces() {
         String result = AccountMasker.maskAccountNumber("1234 5678 9012 3456");
 
-        // spaces are preserved because only hyphens are removed
+        // spaces are separators, like hyphens, and are removed
         assertThat(result)
-            .endsWith("3456")
-            .matches("\\*+3456");
+            .isEqualTo("************3456");
+    }
+
+    @ParameterizedTest(name = "{index} -> when input is: {0}")
+    @NullAndEmptySource
+    @ValueSource(strings = {
+        "  ",
+        "1-2",
+        "1234567890123456",
+        "1234-5678-9012-3456",
+        "1234 5678 9012 3456",
+        "1234\t5678-9012 3456"
+    })
+    @DisplayName("Lazy log parameter formats to the same mask.")
+    void shouldFormatLazilyToSameMask(final String input) {
+        final StringBuilder buffer = new StringBuilder("account=");
+
+        AccountMasker.masked(input).formatTo(buffer);
 
-        assertThat(result.length()).isEqualTo(19);
+        assertThat(buffer.toString())
+            .isEqualTo("account=" + AccountMasker.maskAccountNumber(input));
+        assertThat(AccountMasker.masked(input))
+            .hasToString(AccountMasker.maskAccountNumber(input));
     }
 }
@@ -0,0 +1,185 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atMost;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import nz.co.anz.tokenization.cache.JitteredExpiry;
+import nz.co.anz.tokenization.cache.TokenToAccountLoader;
+import nz.co.anz.tokenization.configurations.CacheConfiguration;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.properties.ExpiryPolicy;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for the expiry and refresh policies of the {@code tokenToAccount} cache, driven by a fake clock.
+ */
+@DisplayName("Unit test for tokenToAccount cache expiry")
+class CacheExpiryUnitTest
+{
+    private static final String TOKEN = "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY";
+    private static final String ACCOUNT_NUMBER = "1234 5678 9012 3456";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private TokenRepository repository;
+    private TokenCacheProperties properties;
+
+    @BeforeEach
+    void setUp()
+    {
+        repository = mock(TokenRepository.class);
+        when(repository.findById(anyString()))
+            .thenAnswer(invocation -> Optional.of(new TokenEntity(invocation.getArgument(0), ACCOUNT_NUMBER)));
+        properties = new TokenCacheProperties();
+        properties.setTtl(Duration.ofMinutes(10));
+        properties.setMaximumSize(100);
+        properties.setInitialCapacity(10);
+    }
+
+    @Test
+    @DisplayName("With refresh-after-write, a token read every minute for an hour never misses.")
+    void refreshKeepsContinuouslyReadTokenCached()
+    {
+        // GIVEN
+        properties.setRefreshAfterWrite(Duration.ofMinutes(5));
+        final Cache<Object, Object> cache = buildCache();
+        cache.put(TOKEN, ACCOUNT_NUMBER);
+
+        // WHEN
+        for (int minute = 1; minute <= 60; minute++) {
+            advance(Duration.ofMinutes(1));
+
+            // THEN
+            assertThat(cache.getIfPresent(TOKEN)).as("minute %d", minute).isEqualTo(ACCOUNT_NUMBER);
+        }
+        assertThat(cache.stats().missCount()).isZero();
+        // AND: the mapping was reloaded in the background roughly every refresh interval
+        verify(repository, atLeast(10)).findById(TOKEN);
+        verify(repository, atMost(12)).findById(TOKEN);
+    }
+
+    @Test
+    @DisplayName("Without refresh, a token read every minute expires after the TTL.")
+    void writeExpiryDropsContinuouslyReadToken()
+    {
+        // GIVEN
+        final Cache<Object, Object> cache = buildCache();
+        cache.put(TOKEN, ACCOUNT_NUMBER);
+
+        // WHEN
+        for (int minute = 1; minute < 10; minute++) {
+            advance(Duration.ofMinutes(1));
+            assertThat(cache.getIfPresent(TOKEN)).isEqualTo(ACCOUNT_NUMBER);
+        }
+        advance(Duration.ofMinutes(1));
+
+        // THEN
+        assertThat(cache.getIfPresent(TOKEN)).isNull();
+        verify(repository, never()).findById(anyString());
+    }
+
+    @Test
+    @DisplayName("Access expiry keeps a read token cached and drops an idle one.")
+    void accessExpiryKeepsReadTokenCached()
+    {
+        // GIVEN
+        properties.setExpiry(ExpiryPolicy.ACCESS);
+        final Cache<Object, Object> cache = buildCache();
+        cache.put(TOKEN, ACCOUNT_NUMBER);
+        cache.put("IDLE_TOKEN", ACCOUNT_NUMBER);
+
+        // WHEN
+        for (int minute = 1; minute <= 30; minute++) {
+            advance(Duration.ofMinutes(1));
+            cache.getIfPresent(TOKEN);
+        }
+
+        // THEN
+        assertThat(cache.getIfPresent(TOKEN)).isEqualTo(ACCOUNT_NUMBER);
+        assertThat(cache.getIfPresent("IDLE_TOKEN")).isNull();
+    }
+
+    @Test
+    @DisplayName("Variable expiry spreads token lifetimes between ttl * (1 - jitter) and ttl.")
+    void variableExpirySpreadsLifetimes()
+    {
+        // GIVEN
+        final Duration ttl = Duration.ofMinutes(10);
+        final JitteredExpiry expiry = new JitteredExpiry(ttl, 0.2);
+
+        // WHEN
+        final long[] lifetimes = IntStream.range(0, 100)
+            .mapToLong(i -> expiry.lifetimeOf(TOKEN.substring(0, 28) + String.format("%04d", i)))
+            .toArray();
+
+        // THEN
+        assertThat(lifetimes).allSatisfy(lifetime ->
+            assertThat(lifetime).isBetween(Duration.ofMinutes(8).toNanos(), ttl.toNanos()));
+        assertThat(Arrays.stream(lifetimes).distinct().count())
+            .isGreaterThan(90);
+        assertThat(expiry.lifetimeOf(TOKEN)).isEqualTo(expiry.lifetimeOf(TOKEN));
+    }
+
+    @Test
+    @DisplayName("Variable expiry drops a token once its own lifetime has passed without reads.")
+    void variableExpiryDropsIdleTokenAfterItsLifetime()
+    {
+        // GIVEN
+        properties.setExpiry(ExpiryPolicy.VARIABLE);
+        final Cache<Object, Object> cache = buildCache();
+        final long lifetime = new JitteredExpiry(properties.getTtl(), properties.getExpiryJitter()).lifetimeOf(TOKEN);
+        cache.put(TOKEN, ACCOUNT_NUMBER);
+
+        // WHEN
+        advance(Duration.ofNanos(lifetime - 1));
+        final Object beforeExpiry = cache.getIfPresent(TOKEN);
+        advance(Duration.ofNanos(lifetime));
+
+        // THEN
+        assertThat(beforeExpiry).isEqualTo(ACCOUNT_NUMBER);
+        assertThat(cache.getIfPresent(TOKEN)).isNull();
+    }
+
+    @Test
+    @DisplayName("Refresh-after-write must be shorter than the TTL.")
+    void refreshMustBeShorterThanTtl()
+    {
+        // GIVEN,WHEN
+        properties.setRefreshAfterWrite(Duration.ofMinutes(10));
+
+        // THEN
+        assertThat(properties.isRefreshBeforeExpiry()).isFalse();
+        properties.setRefreshAfterWrite(Duration.ofMinutes(5));
+        assertThat(properties.isRefreshBeforeExpiry()).isTrue();
+        properties.setRefreshAfterWrite(null);
+        assertThat(properties.isRefreshBeforeExpiry()).isTrue();
+    }
+
+    private Cache<Object, Object> buildCache()
+    {
+        return CacheConfiguration.buildTokenToAccountCache(properties, (token, accountNumber, cause) -> { },
+            new TokenToAccountLoader(ShardRouter.unsharded(repository)), nanos::get, Runnable::run);
+    }
+
+    private void advance(final Duration duration)
+    {
+        nanos.addAndGet(duration.toNanos());
+    }
+}
@@ -0,0 +1,78 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.anz.tokenization.cache.CacheRemovalCounter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for {@link CacheRemovalCounter}.
+ */
+@DisplayName("Unit test for CacheRemovalCounter")
+class CacheRemovalCounterUnitTest
+{
+    private CacheRemovalCounter removalCounter;
+    private Cache<Object, Object> cache;
+
+    @BeforeEach
+    void setUp()
+    {
+        removalCounter = new CacheRemovalCounter("tokenToAccount", (token, accountNumber) -> token, 1.0);
+        cache = Caffeine.newBuilder()
+            .maximumSize(10)
+            .executor(Runnable::run)
+            .removalListener(removalCounter)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Removals are counted by cause.")
+    void countsRemovalsByCause()
+    {
+        // GIVEN
+        cache.put("TOKEN", "ACCOUNT");
+
+        // WHEN
+        cache.put("TOKEN", "OTHER_ACCOUNT");
+        cache.invalidate("TOKEN");
+        for (int i = 0; i < 25; i++) {
+            cache.put("TOKEN" + i, "ACCOUNT" + i);
+        }
+        cache.cleanUp();
+
+        // THEN
+        assertThat(removalCounter.count(RemovalCause.SIZE)).isEqualTo(15);
+        assertThat(removalCounter.count(RemovalCause.REPLACED)).isEqualTo(1);
+        assertThat(removalCounter.count(RemovalCause.EXPLICIT)).isEqualTo(1);
+        assertThat(removalCounter.count(RemovalCause.EXPIRED)).isZero();
+    }
+
+    @Test
+    @DisplayName("Counts are exposed as cache.removals metrics tagged by cache and cause.")
+    void exposesCountsAsMetrics()
+    {
+        // GIVEN
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        removalCounter.bindTo(registry);
+
+        // WHEN
+        cache.put("TOKEN", "ACCOUNT");
+        cache.invalidate("TOKEN");
+        cache.cleanUp();
+        removalCounter.logSummary();
+
+        // THEN
+        assertThat(registry.get("cache.removals")
+            .tag("cache", "tokenToAccount")
+            .tag("cause", "EXPLICIT")
+            .functionCounter()
+            .count()).isEqualTo(1.0);
+        assertThat(registry.get("cache.removals").functionCounters()).hasSize(RemovalCause.values().length);
+    }
+}
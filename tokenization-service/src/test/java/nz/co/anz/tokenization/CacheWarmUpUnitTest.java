@@ -0,0 +1,143 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.CacheWarmUp;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndex;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.data.domain.Limit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Unit test for {@link CacheWarmUp}.
+ */
+@DisplayName("Unit test for CacheWarmUp")
+class CacheWarmUpUnitTest
+{
+    private static final AccountKeyHasher ACCOUNT_KEY_HASHER = new AccountKeyHasher();
+    private static final TokenEntity FIRST = new TokenEntity("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "1111-1111-1111-1111",
+        ACCOUNT_KEY_HASHER.keyOf("1111-1111-1111-1111"));
+    private static final TokenEntity SECOND = new TokenEntity("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB", "2222-2222-2222-2222",
+        ACCOUNT_KEY_HASHER.keyOf("2222-2222-2222-2222"));
+
+    @TempDir
+    private Path directory;
+
+    private TokenRepository repository;
+    private Cache<Object, Object> tokenToAccountCache;
+    private TokenMappingCache tokenMappingCache;
+    private TokenCacheProperties properties;
+    private CacheWarmUp cacheWarmUp;
+
+    @BeforeEach
+    void setUp()
+    {
+        repository = mock(TokenRepository.class);
+        tokenToAccountCache = Caffeine.newBuilder().maximumSize(100).build();
+        tokenMappingCache = new TokenMappingCache(tokenToAccountCache, Caffeine.newBuilder().build(),
+            SharedTokenStore.none(), TokenIndex.none());
+        properties = new TokenCacheProperties();
+        properties.setMaximumSize(100);
+        properties.getWarmUp().setSnapshotFile(directory.resolve("snapshot").resolve("hot-tokens.txt"));
+        cacheWarmUp = new CacheWarmUp(repository, ShardRouter.unsharded(repository), tokenMappingCache, properties);
+    }
+
+    @Test
+    @DisplayName("Hot tokens written at shutdown are loaded back on startup.")
+    void warmsUpFromSnapshot() throws Exception
+    {
+        // GIVEN
+        tokenMappingCache.putAll(List.of(FIRST, SECOND));
+        cacheWarmUp.writeSnapshot();
+        tokenMappingCache.invalidateAll();
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(FIRST, SECOND));
+
+        // WHEN
+        cacheWarmUp.run(null);
+
+        // THEN
+        assertThat(Files.readAllLines(properties.getWarmUp().getSnapshotFile()))
+            .containsExactlyInAnyOrder(FIRST.getToken(), SECOND.getToken());
+        assertThat(tokenToAccountCache.asMap())
+            .containsEntry(FIRST.getToken(), FIRST.getAccountNumber())
+            .containsEntry(SECOND.getToken(), SECOND.getAccountNumber());
+        verify(repository, never()).findByOrderByCreatedAtDesc(any());
+    }
+
+    @Test
+    @DisplayName("Without a snapshot the most recent mappings are loaded, capped by the cache size.")
+    void warmsUpFromRecentMappings() throws Exception
+    {
+        // GIVEN
+        when(repository.findByOrderByCreatedAtDesc(Limit.of(100))).thenReturn(List.of(FIRST));
+
+        // WHEN
+        cacheWarmUp.run(null);
+
+        // THEN
+        assertThat(tokenToAccountCache.asMap()).containsOnlyKeys(FIRST.getToken());
+        assertThat(tokenMappingCache.getTokens(List.of(FIRST.getAccountKey())))
+            .containsEntry(FIRST.getAccountKey(), FIRST.getToken());
+    }
+
+    @Test
+    @DisplayName("A slow warm-up is abandoned after the timeout instead of blocking readiness.")
+    void warmUpTimesOut()
+    {
+        // GIVEN
+        properties.getWarmUp().setTimeout(Duration.ofMillis(100));
+        when(repository.findByOrderByCreatedAtDesc(any())).thenAnswer(invocation -> {
+            Thread.sleep(5_000);
+            return List.of(FIRST);
+        });
+
+        // WHEN
+        final long startedAt = System.nanoTime();
+        assertThatCode(() -> cacheWarmUp.run(null)).doesNotThrowAnyException();
+
+        // THEN
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(2));
+        assertThat(tokenToAccountCache.asMap()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Nothing is loaded or written when the warm-up is disabled.")
+    void disabledWarmUp() throws Exception
+    {
+        // GIVEN
+        properties.getWarmUp().setEnabled(false);
+        tokenMappingCache.putAll(List.of(FIRST));
+
+        // WHEN
+        cacheWarmUp.run(null);
+        cacheWarmUp.writeSnapshot();
+
+        // THEN
+        verifyNoInteractions(repository);
+        assertThat(properties.getWarmUp().getSnapshotFile()).doesNotExist();
+    }
+}
@@ -0,0 +1,245 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndex;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.DeferredVaultWriter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.data.VaultCommitter;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.services.DeterministicTokenizationService;
+import nz.co.anz.tokenization.services.TokenFinder;
+import nz.co.anz.tokenization.utils.HmacTokenGenerator;
+import nz.co.anz.tokenization.validators.Formats;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for the {@code DETERMINISTIC} token strategy: {@link HmacTokenGenerator}, {@link DeferredVaultWriter}
+ * and {@link DeterministicTokenizationService}.
+ */
+@DisplayName("Unit test for deterministic tokenization")
+class DeterministicTokenizationUnitTest
+{
+    private static final byte[] SECRET = "deterministic-token-unit-test-secret-0001".getBytes(StandardCharsets.US_ASCII);
+
+    private final HmacTokenGenerator tokenGenerator = new HmacTokenGenerator(SECRET, Formats.TOKEN_LENGTH);
+    private final AccountKeyHasher accountKeyHasher = new AccountKeyHasher();
+    private final Queue<List<TokenEntity>> commits = new ConcurrentLinkedQueue<>();
+    private TokenRepository repository;
+    private DeferredVaultWriter vaultWriter;
+
+    @BeforeEach
+    void setUp()
+    {
+        repository = mock(TokenRepository.class);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of());
+        when(repository.findByAccountKeyIn(anyCollection())).thenReturn(List.of());
+        vaultWriter = new DeferredVaultWriter(ShardRouter.unsharded(repository), commits::add, Duration.ofMillis(10),
+            500, 1000);
+    }
+
+    @AfterEach
+    void closeWriter() throws InterruptedException
+    {
+        vaultWriter.close();
+    }
+
+    @Test
+    @DisplayName("Tokens are well formed, the same for every format of an account and differ between accounts.")
+    void tokensAreDerivedFromCanonicalAccountNumber()
+    {
+        // GIVEN
+        final List<String> accountNumbers = IntStream.range(0, 1000)
+            .mapToObj(i -> String.format("4000-0000-0000-%04d", i))
+            .toList();
+
+        // WHEN
+        final List<String> tokens = accountNumbers.stream().map(tokenGenerator::generate).toList();
+
+        // THEN
+        assertThat(tokens).allSatisfy(token -> assertThat(Formats.isToken(token)).isTrue()).doesNotHaveDuplicates();
+        assertThat(tokenGenerator.generate("4111 1111 1111 1111"))
+            .isEqualTo(tokenGenerator.generate("4111-1111-1111-1111"))
+            .isEqualTo(tokenGenerator.generate("4111111111111111"))
+            .isEqualTo(new HmacTokenGenerator(SECRET, Formats.TOKEN_LENGTH).generate("4111111111111111"))
+            .isNotEqualTo(new HmacTokenGenerator(Arrays.copyOf(SECRET, 33), Formats.TOKEN_LENGTH)
+                .generate("4111111111111111"));
+    }
+
+    @Test
+    @DisplayName("Tokenize derives the tokens without any lookup and queues only the mappings not cached yet.")
+    @SuppressWarnings("unchecked")
+    void tokenizeDerivesTokensWithoutLookup()
+    {
+        // GIVEN
+        final TokenFinder tokenFinder = mock(TokenFinder.class);
+        final UnknownTokenFilter unknownTokenFilter = mock(UnknownTokenFilter.class);
+        final DeferredVaultWriter queuingWriter = mock(DeferredVaultWriter.class);
+        final TokenMappingCache tokenMappingCache = new TokenMappingCache(Caffeine.newBuilder().build(),
+            Caffeine.newBuilder().build(), SharedTokenStore.none(), TokenIndex.none());
+        final DeterministicTokenizationService service = new DeterministicTokenizationService(tokenFinder,
+            tokenMappingCache, unknownTokenFilter, accountKeyHasher, tokenGenerator, queuingWriter,
+            new TokenizationMetrics(new SimpleMeterRegistry()));
+
+        // WHEN
+        final List<String> first = service.tokenize(List.of("4111-1111-1111-1111", "4000 0000 0000 0002",
+            "4111111111111111"));
+        final List<String> again = service.tokenize(List.of("4111111111111111", "4000-0000-0000-0002"));
+
+        // THEN
+        assertThat(first).containsExactly(derived("4111111111111111"), derived("4000000000000002"),
+            derived("4111111111111111"));
+        assertThat(again).containsExactly(first.get(0), first.get(1));
+        final ArgumentCaptor<List<TokenEntity>> queued = ArgumentCaptor.forClass(List.class);
+        verify(queuingWriter).write(queued.capture());
+        verifyNoMoreInteractions(queuingWriter);
+        assertThat(queued.getValue())
+            .extracting(TokenEntity::getToken, TokenEntity::getAccountNumber)
+            .containsExactly(tuple(first.get(0), "4111-1111-1111-1111"), tuple(first.get(1), "4000 0000 0000 0002"));
+        verify(unknownTokenFilter).recordIssued(List.of(first.get(0), first.get(1)));
+        verifyNoInteractions(tokenFinder);
+    }
+
+    @Test
+    @DisplayName("The writer skips mappings already in the vault and does not take over an owned account key.")
+    void writerInsertsOnlyAbsentMappings() throws InterruptedException
+    {
+        // GIVEN
+        final TokenEntity existing = mapping("4000-0000-0000-0001");
+        final TokenEntity ownedElsewhere = mapping("4000-0000-0000-0002");
+        final TokenEntity absent = mapping("4000-0000-0000-0003");
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(existing));
+        when(repository.findByAccountKeyIn(anyCollection())).thenReturn(List.of(
+            new TokenEntity("RandomTokenIssuedBeforeTheSwitch", ownedElsewhere.getAccountNumber(),
+                ownedElsewhere.getAccountKey())));
+
+        // WHEN
+        vaultWriter.write(List.of(existing, ownedElsewhere, absent, ownedElsewhere));
+        vaultWriter.close();
+
+        // THEN
+        assertThat(commits).singleElement().satisfies(committed -> {
+            assertThat(committed).extracting(TokenEntity::getToken)
+                .containsExactly(ownedElsewhere.getToken(), absent.getToken());
+            assertThat(committed).extracting(TokenEntity::getAccountKey)
+                .containsExactly(null, absent.getAccountKey());
+        });
+    }
+
+    @Test
+    @DisplayName("A write returns once its mappings are committed, together with those of concurrent writes.")
+    void writeWaitsForBatchCommit() throws InterruptedException
+    {
+        // GIVEN
+        final List<TokenEntity> first = List.of(mapping("4000-0000-0000-0001"));
+        final List<TokenEntity> second = List.of(mapping("4000-0000-0000-0002"), mapping("4000-0000-0000-0003"));
+
+        // WHEN
+        final Thread concurrent = Thread.ofPlatform().start(() -> vaultWriter.write(second));
+        vaultWriter.write(first);
+        concurrent.join();
+
+        // THEN
+        assertThat(commits.stream().flatMap(List::stream)).extracting(TokenEntity::getToken)
+            .containsExactlyInAnyOrder(first.get(0).getToken(), second.get(0).getToken(), second.get(1).getToken());
+        assertThat(vaultWriter.pending()).isZero();
+    }
+
+    @Test
+    @DisplayName("Beyond max-pending queued mappings, a write is committed on the calling thread.")
+    void writeBeyondMaxPendingIsSynchronous() throws InterruptedException
+    {
+        // GIVEN
+        final Queue<String> committingThreads = new ConcurrentLinkedQueue<>();
+        final DeferredVaultWriter bounded = new DeferredVaultWriter(ShardRouter.unsharded(repository),
+            mappings -> committingThreads.add(Thread.currentThread().getName()), Duration.ofMillis(10), 500, 1);
+
+        // WHEN
+        bounded.write(List.of(mapping("4000-0000-0000-0001")));
+        bounded.write(List.of(mapping("4000-0000-0000-0002"), mapping("4000-0000-0000-0003")));
+        bounded.close();
+
+        // THEN
+        assertThat(committingThreads).containsExactly("vault-deferred-writer", Thread.currentThread().getName());
+    }
+
+    @Test
+    @DisplayName("A failed batch is written again call by call, and only a call failing again sees the exception.")
+    void writerRetriesFailedBatch() throws InterruptedException
+    {
+        // GIVEN
+        final DeferredVaultWriter failingOnce = new DeferredVaultWriter(ShardRouter.unsharded(repository),
+            new FailingOnce(), Duration.ofMillis(10), 500, 1000);
+        final DeferredVaultWriter failing = new DeferredVaultWriter(ShardRouter.unsharded(repository), mappings -> {
+            throw new QueryTimeoutException("vault unavailable");
+        }, Duration.ofMillis(10), 500, 1000);
+
+        // WHEN
+        failingOnce.write(List.of(mapping("4000-0000-0000-0001")));
+        failingOnce.close();
+
+        // THEN
+        assertThat(commits).singleElement().satisfies(committed -> assertThat(committed).hasSize(1));
+        assertThat(failingOnce.pending()).isZero();
+        assertThatThrownBy(() -> failing.write(List.of(mapping("4000-0000-0000-0002"))))
+            .isInstanceOf(QueryTimeoutException.class);
+        failing.close();
+    }
+
+    private String derived(final String accountNumber)
+    {
+        return ShardRouter.inBucketOf(tokenGenerator.generate(accountNumber), accountKeyHasher.keyOf(accountNumber));
+    }
+
+    private TokenEntity mapping(final String accountNumber)
+    {
+        final AccountKey accountKey = accountKeyHasher.keyOf(accountNumber);
+        return new TokenEntity(tokenGenerator.generate(accountNumber), accountNumber, accountKey);
+    }
+
+    private final class FailingOnce implements VaultCommitter
+    {
+        private boolean failed;
+
+        @Override
+        public void commit(final List<TokenEntity> mappings)
+        {
+            if (!failed) {
+                failed = true;
+                throw new QueryTimeoutException("vault unavailable");
+            }
+            commits.add(mappings);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.validators.Formats;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullAndEmptySource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+/**
+ * Unit test for {@link Formats}.
+ */
+@DisplayName("Unit test for Formats")
+class FormatsUnitTest
+{
+    private static final Pattern ACCOUNT_NUMBER_REGEX = Pattern.compile("^(\\d{4}[-\\s]?){3}\\d{4}$");
+
+    private static final Pattern TOKEN_REGEX = Pattern.compile("^[A-Za-z0-9]{32}$");
+
+    @ParameterizedTest(name = "{index} -> when input is: {0}")
+    @ValueSource(strings = {
+        "4111111111111111",
+        "4111-1111-1111-1111",
+        "4111 1111 1111 1111",
+        "4111-1111 11111111",
+        "4111\t1111\n1111\r1111"
+    })
+    @DisplayName("Well-formed account numbers are accepted.")
+    void shouldAcceptAccountNumbers(final String input) {
+        assertThat(Formats.isAccountNumber(input)).isTrue();
+    }
+
+    @ParameterizedTest(name = "{index} -> when input is: {0}")
+    @NullAndEmptySource
+    @ValueSource(strings = {
+        "411111111111111",
+        "41111111111111111",
+        "4111--1111-1111-1111",
+        "-4111-1111-1111-1111",
+        "4111-1111-1111-1111-",
+        "4111-1111-1111-111a",
+        "411-11111-1111-1111",
+        "4111_1111_1111_1111",
+        "٤111111111111111"
+    })
+    @DisplayName("Malformed account numbers are rejected.")
+    void shouldRejectAccountNumbers(final String input) {
+        assertThat(Formats.isAccountNumber(input)).isFalse();
+    }
+
+    @ParameterizedTest(name = "{index} -> when input is: {0}")
+    @NullAndEmptySource
+    @ValueSource(strings = {
+        "fvMymE7X0Je1IzMDgWooV5iGBPw0yoF",
+        "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFyy",
+        "fvMymE7X0Je1IzMDgWooV5iGBPw0yoF-",
+        "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFé"
+    })
+    @DisplayName("Malformed tokens are rejected.")
+    void shouldRejectTokens(final String input) {
+        assertThat(Formats.isToken(input)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Well-formed tokens are accepted.")
+    void shouldAcceptTokens() {
+        assertThat(Formats.isToken("fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Scans agree with the regular expressions they replace.")
+    void shouldAgreeWithRegex() {
+        // GIVEN: mostly digits, so a fair share of candidates are well-formed account numbers or tokens
+        final String alphabet = "01234567890123456789012345678901234567890123456789-- \tAz_";
+        final Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            final StringBuilder candidate = new StringBuilder();
+            final int length = 14 + random.nextInt(22);
+            for (int j = 0; j < length; j++) {
+                candidate.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            final String value = candidate.toString();
+
+            // WHEN, THEN
+            assertThat(Formats.isAccountNumber(value))
+                .as(value)
+                .isEqualTo(ACCOUNT_NUMBER_REGEX.matcher(value).matches());
+            assertThat(Formats.isToken(value))
+                .as(value)
+                .isEqualTo(TOKEN_REGEX.matcher(value).matches());
+        }
+    }
+}
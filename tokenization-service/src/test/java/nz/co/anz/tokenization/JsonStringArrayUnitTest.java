@@ -0,0 +1,85 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.anz.tokenization.rest.JsonStringArray;
+import nz.co.anz.tokenization.rest.JsonStringArrayHttpMessageConverter;
+import nz.co.anz.tokenization.utils.TokenGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit test for {@link JsonStringArrayHttpMessageConverter}.
+ */
+@DisplayName("Unit test for JsonStringArrayHttpMessageConverter")
+class JsonStringArrayUnitTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final JsonStringArrayHttpMessageConverter converter = new JsonStringArrayHttpMessageConverter();
+
+    @Test
+    @DisplayName("Tokens and account numbers are written byte for byte as Jackson writes them.")
+    void writesSameJsonAsJackson() throws Exception
+    {
+        // GIVEN
+        final List<String> tokens = Arrays.asList(TokenGenerator.generate(50, 32));
+        final List<String> accountNumbers = List.of("1234 5678 9012 3456", "4111-1111-1111-1111", "4111111111111111");
+
+        // WHEN,THEN
+        assertThat(JsonStringArrayHttpMessageConverter.encode(tokens)).isEqualTo(objectMapper.writeValueAsBytes(tokens));
+        assertThat(JsonStringArrayHttpMessageConverter.encode(accountNumbers))
+            .isEqualTo(objectMapper.writeValueAsBytes(accountNumbers));
+        assertThat(JsonStringArrayHttpMessageConverter.encode(List.of()))
+            .isEqualTo(objectMapper.writeValueAsBytes(List.of()));
+    }
+
+    @Test
+    @DisplayName("Other characters are escaped or UTF-8 encoded into valid JSON.")
+    void escapesAndEncodesOtherCharacters() throws Exception
+    {
+        // GIVEN
+        final List<String> values = List.of("quote\"backslash\\", "new\nline\u0001", "é€", "😀", "");
+
+        // WHEN
+        final byte[] json = JsonStringArrayHttpMessageConverter.encode(values);
+
+        // THEN
+        assertThat(objectMapper.readValue(json, new TypeReference<List<String>>() {})).isEqualTo(values);
+    }
+
+    @Test
+    @DisplayName("The array is written as application/json with its exact Content-Length.")
+    void writesContentTypeAndLength() throws Exception
+    {
+        // GIVEN
+        final MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+
+        // WHEN
+        converter.write(JsonStringArray.of(List.of("a", "b")), null, outputMessage);
+
+        // THEN
+        assertThat(outputMessage.getBodyAsString()).isEqualTo("[\"a\",\"b\"]");
+        assertThat(outputMessage.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(outputMessage.getHeaders().getContentLength()).isEqualTo(9);
+        assertThat(converter.canRead(JsonStringArray.class, MediaType.APPLICATION_JSON)).isFalse();
+        assertThat(converter.canWrite(List.class, MediaType.APPLICATION_JSON)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Jackson writes the same array should it be chosen instead.")
+    void jacksonWritesPlainArray() throws Exception
+    {
+        // GIVEN
+        final JsonStringArray array = JsonStringArray.of(List.of("a", "b"));
+
+        // WHEN,THEN
+        assertThat(objectMapper.writeValueAsString(array)).isEqualTo("[\"a\",\"b\"]");
+    }
+}
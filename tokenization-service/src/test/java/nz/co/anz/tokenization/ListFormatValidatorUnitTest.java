@@ -0,0 +1,114 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.validators.AccountNumbers;
+import nz.co.anz.tokenization.validators.AccountNumbersValidator;
+import nz.co.anz.tokenization.validators.Tokens;
+import nz.co.anz.tokenization.validators.TokensValidator;
+import org.hibernate.validator.engine.HibernateConstraintViolation;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.executable.ExecutableValidator;
+
+/**
+ * Unit test for {@link AccountNumbersValidator} and {@link TokensValidator}.
+ */
+@DisplayName("Unit test for list format validators")
+class ListFormatValidatorUnitTest
+{
+    private static ValidatorFactory validatorFactory;
+    private static ExecutableValidator validator;
+
+    static class Requests
+    {
+        public void tokenize(@AccountNumbers final List<String> accountNumbers)
+        {
+        }
+
+        public void detokenize(@Tokens final List<String> tokens)
+        {
+        }
+    }
+
+    @BeforeAll
+    static void setUp()
+    {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator().forExecutables();
+    }
+
+    @AfterAll
+    static void tearDown()
+    {
+        validatorFactory.close();
+    }
+
+    @Test
+    @DisplayName("Well-formed account numbers produce no violations.")
+    void validAccountNumbers() throws NoSuchMethodException
+    {
+        // GIVEN
+        final List<String> accountNumbers = List.of("4111-1111-1111-1111", "4111 1111 1111 1111", "4111111111111111");
+        // WHEN
+        final Set<ConstraintViolation<Requests>> violations = validate("tokenize", accountNumbers);
+        // THEN
+        assertThat(violations).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Each malformed account number is reported with its index.")
+    void malformedAccountNumbersReportIndexes() throws NoSuchMethodException
+    {
+        // GIVEN
+        final List<String> accountNumbers = Arrays.asList("4111-1111-1111-1111", "invalid", "4111111111111111", null);
+        // WHEN
+        final Set<ConstraintViolation<Requests>> violations = validate("tokenize", accountNumbers);
+        // THEN
+        assertThat(violations)
+            .extracting(ConstraintViolation::getMessage)
+            .containsOnly("Wrong account number format");
+        assertThat(violations)
+            .extracting(ListFormatValidatorUnitTest::index)
+            .containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    @DisplayName("Each malformed token is reported with its index.")
+    void malformedTokensReportIndexes() throws NoSuchMethodException
+    {
+        // GIVEN
+        final List<String> tokens = List.of("short", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoFy", "fvMymE7X0Je1IzMDgWooV5iGBPw0yoF-");
+        // WHEN
+        final Set<ConstraintViolation<Requests>> violations = validate("detokenize", tokens);
+        // THEN
+        assertThat(violations)
+            .extracting(ConstraintViolation::getMessage)
+            .containsOnly("Wrong token format.");
+        assertThat(violations)
+            .extracting(ListFormatValidatorUnitTest::index)
+            .containsExactlyInAnyOrder(0, 2);
+    }
+
+    private static Set<ConstraintViolation<Requests>> validate(final String methodName, final List<String> values)
+        throws NoSuchMethodException
+    {
+        final Method method = Requests.class.getMethod(methodName, List.class);
+        return validator.validateParameters(new Requests(), method, new Object[] {values});
+    }
+
+    private static Integer index(final ConstraintViolation<?> violation)
+    {
+        return violation.unwrap(HibernateConstraintViolation.class).getDynamicPayload(Integer.class);
+    }
+}
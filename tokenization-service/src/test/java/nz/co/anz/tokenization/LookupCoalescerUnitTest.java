@@ -0,0 +1,183 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import nz.co.anz.tokenization.data.LookupCoalescer;
+import nz.co.anz.tokenization.data.TokenEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for {@link LookupCoalescer}.
+ */
+@DisplayName("Unit test for LookupCoalescer")
+class LookupCoalescerUnitTest
+{
+    private static final String UNKNOWN_TOKEN = "UnknownTokenUnknownTokenUnknownT";
+
+    private final Queue<List<String>> queries = new ConcurrentLinkedQueue<>();
+    private final Queue<String> queryThreads = new ConcurrentLinkedQueue<>();
+    private LookupCoalescer<String> coalescer;
+
+    @AfterEach
+    void closeCoalescer() throws InterruptedException
+    {
+        if (coalescer != null) {
+            coalescer.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups share queries, and every caller gets the mappings of its own tokens.")
+    void concurrentLookupsShareQueries()
+    {
+        // GIVEN The first query is held, so the other lookups queue up behind it.
+        final CountDownLatch firstQuery = new CountDownLatch(1);
+        coalescer = coalescer(Duration.ofMillis(1), 128, tokens -> {
+            if (queries.size() == 1) {
+                await(firstQuery);
+            }
+            return vault(tokens);
+        });
+        final int callers = 64;
+
+        // WHEN
+        final List<List<TokenEntity>> found = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                final List<CompletableFuture<List<TokenEntity>>> lookups = IntStream.range(0, callers)
+                    .mapToObj(i -> CompletableFuture.supplyAsync(
+                        () -> coalescer.find(List.of(token(i), UNKNOWN_TOKEN)), executor))
+                    .toList();
+                while (coalescer.lookups() < callers) {
+                    Thread.sleep(1);
+                }
+                firstQuery.countDown();
+                return lookups.stream().map(CompletableFuture::join).toList();
+            }
+        });
+
+        // THEN
+        for (int i = 0; i < callers; i++) {
+            assertThat(found.get(i)).extracting(TokenEntity::getToken).containsExactly(token(i));
+        }
+        assertThat(coalescer.lookups()).isEqualTo(callers);
+        assertThat(coalescer.queries()).isEqualTo(queries.size()).isLessThan(callers);
+        assertThat(queries).allSatisfy(tokens -> assertThat(tokens).doesNotHaveDuplicates());
+    }
+
+    @Test
+    @DisplayName("A lone lookup is queried at once, without waiting for the window.")
+    void loneLookupDoesNotWait()
+    {
+        // GIVEN
+        coalescer = coalescer(Duration.ofSeconds(5), 128, this::vault);
+
+        // WHEN
+        final List<TokenEntity> found = assertTimeoutPreemptively(Duration.ofSeconds(1),
+            () -> coalescer.find(List.of(token(1))));
+
+        // THEN
+        assertThat(found).extracting(TokenEntity::getToken).containsExactly(token(1));
+        assertThat(queryThreads).containsExactly("vault-lookup-test");
+    }
+
+    @Test
+    @DisplayName("A lookup of max-batch-size tokens or more is queried on the caller's thread.")
+    void largeLookupIsQueriedByCaller()
+    {
+        // GIVEN
+        coalescer = coalescer(Duration.ofMillis(1), 4, this::vault);
+        final List<String> tokens = IntStream.range(0, 4).mapToObj(LookupCoalescerUnitTest::token).toList();
+
+        // WHEN
+        final List<TokenEntity> found = coalescer.find(tokens);
+
+        // THEN
+        assertThat(found).extracting(TokenEntity::getToken).containsExactlyElementsOf(tokens);
+        assertThat(queryThreads).containsExactly(Thread.currentThread().getName());
+    }
+
+    @Test
+    @DisplayName("A failed query fails the lookup, and later lookups are answered again.")
+    void failedQueryFailsLookup()
+    {
+        // GIVEN
+        coalescer = coalescer(Duration.ofMillis(1), 128, tokens -> {
+            if (tokens.contains(UNKNOWN_TOKEN)) {
+                throw new QueryTimeoutException("vault unavailable");
+            }
+            return vault(tokens);
+        });
+
+        // WHEN,THEN
+        assertThatThrownBy(() -> coalescer.find(List.of(UNKNOWN_TOKEN))).isInstanceOf(QueryTimeoutException.class);
+        assertThat(coalescer.find(List.of(token(2)))).extracting(TokenEntity::getToken).containsExactly(token(2));
+    }
+
+    @Test
+    @DisplayName("Lookups after closing are queried on the caller's thread.")
+    void closedCoalescerQueriesDirectly() throws InterruptedException
+    {
+        // GIVEN
+        coalescer = coalescer(Duration.ofMillis(1), 128, this::vault);
+        coalescer.close();
+
+        // WHEN
+        final List<TokenEntity> found = coalescer.find(List.of(token(3)));
+
+        // THEN
+        assertThat(found).extracting(TokenEntity::getToken).containsExactly(token(3));
+        assertThat(queryThreads).containsExactly(Thread.currentThread().getName());
+    }
+
+    private LookupCoalescer<String> coalescer(final Duration window, final int maxBatchSize,
+                                              final Function<List<String>, List<TokenEntity>> query)
+    {
+        return new LookupCoalescer<>("vault-lookup-test", tokens -> {
+            queries.add(tokens);
+            queryThreads.add(Thread.currentThread().getName());
+            return query.apply(tokens);
+        }, TokenEntity::getToken, window, maxBatchSize);
+    }
+
+    /**
+     * Knows every token but {@link #UNKNOWN_TOKEN}.
+     */
+    private List<TokenEntity> vault(final List<String> tokens)
+    {
+        return tokens.stream()
+            .filter(token -> !UNKNOWN_TOKEN.equals(token))
+            .map(token -> new TokenEntity(token, "4000-0000-0000-" + token.substring(28), null))
+            .toList();
+    }
+
+    private static String token(final int i)
+    {
+        return String.format("CoalescedTokenCoalescedToken%04d", i);
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,295 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.anz.tokenization.cache.OffHeapTokenIndex;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndexBuilder;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.properties.TokenIndexProperties;
+import nz.co.anz.tokenization.services.TokenFinderImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.data.domain.Limit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for {@link OffHeapTokenIndex} and {@link TokenIndexBuilder}.
+ */
+@DisplayName("Unit test for OffHeapTokenIndex")
+class OffHeapTokenIndexUnitTest
+{
+    private static final String TOKEN = "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY";
+    private static final String ACCOUNT_NUMBER = "1234 5678 9012 3456";
+
+    @TempDir
+    private Path directory;
+
+    private OffHeapTokenIndex index;
+
+    @AfterEach
+    void closeIndex()
+    {
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Indexed tokens resolve to their account numbers; other tokens are absent.")
+    void resolvesIndexedTokens() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 100_000);
+
+        // WHEN
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(index.put(token(i), accountNumber(i))).isTrue();
+        }
+
+        // THEN
+        assertThat(index.size()).isEqualTo(100_000);
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(index.get(token(i))).isEqualTo(accountNumber(i));
+        }
+        assertThat(index.get(token(100_000))).isNull();
+        assertThat(index.getAll(List.of(token(1), token(100_001))))
+            .containsExactly(Map.entry(token(1), accountNumber(1)));
+    }
+
+    @Test
+    @DisplayName("A token that is already indexed keeps its first mapping.")
+    void ignoresDuplicateToken() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 10);
+        index.put(TOKEN, ACCOUNT_NUMBER);
+
+        // WHEN
+        final boolean indexed = index.put(TOKEN, "9999 9999 9999 9999");
+
+        // THEN
+        assertThat(indexed).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(TOKEN)).isEqualTo(ACCOUNT_NUMBER);
+    }
+
+    @Test
+    @DisplayName("Mappings that do not fit a slot, and mappings beyond the capacity, are not indexed.")
+    void rejectsMappingsThatDoNotFit() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 10);
+
+        // WHEN,THEN
+        assertThat(index.put("not-a-token", ACCOUNT_NUMBER)).isFalse();
+        assertThat(index.put(TOKEN, "1".repeat(32))).isFalse();
+        assertThat(index.put(TOKEN, "1234 5678 9012 345€")).isFalse();
+        assertThat(index.get("not-a-token")).isNull();
+        int indexed = 0;
+        while (index.put(token(indexed), accountNumber(indexed))) {
+            indexed++;
+        }
+        assertThat((long) indexed).isEqualTo(index.maximumSize()).isGreaterThanOrEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("An index closed after being built is reused; one closed before is rebuilt.")
+    void reusesOnlyCompleteIndex() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 1000);
+        index.put(TOKEN, ACCOUNT_NUMBER);
+        index.close();
+
+        // WHEN incomplete
+        index = OffHeapTokenIndex.open(file(), 1000);
+
+        // THEN
+        assertThat(index.isComplete()).isFalse();
+        assertThat(index.get(TOKEN)).isNull();
+
+        // WHEN complete
+        index.put(TOKEN, ACCOUNT_NUMBER);
+        index.markComplete();
+        index.close();
+        index = OffHeapTokenIndex.open(file(), 1000);
+
+        // THEN
+        assertThat(index.isComplete()).isTrue();
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.get(TOKEN)).isEqualTo(ACCOUNT_NUMBER);
+
+        // WHEN reopened with a different capacity
+        index.close();
+        index = OffHeapTokenIndex.open(file(), 1_000_000);
+
+        // THEN
+        assertThat(index.isComplete()).isFalse();
+        assertThat(index.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("The index file and its directory are created accessible by the owner only.")
+    void fileIsOwnerOnly() throws Exception
+    {
+        assumeTrue(directory.getFileSystem().supportedFileAttributeViews().contains("posix"));
+        // GIVEN A file left world-readable.
+        Files.createDirectories(file().getParent());
+        Files.createFile(file(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-r--r--")));
+        final Path fresh = directory.resolve("fresh").resolve("tokens.idx");
+
+        // WHEN
+        OffHeapTokenIndex.open(fresh, 10).close();
+        index = OffHeapTokenIndex.open(file(), 10);
+
+        // THEN
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(fresh))).isEqualTo("rw-------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(fresh.getParent())))
+            .isEqualTo("rwx------");
+        assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(file()))).isEqualTo("rw-------");
+    }
+
+    @Test
+    @DisplayName("Enabling the index requires a file.")
+    void enabledIndexNeedsFile()
+    {
+        // GIVEN
+        final TokenIndexProperties properties = new TokenIndexProperties();
+
+        // WHEN,THEN
+        assertThat(properties.isFileSet()).isTrue();
+        properties.setEnabled(true);
+        assertThat(properties.isFileSet()).isFalse();
+        properties.setFile(file());
+        assertThat(properties.isFileSet()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Readers never see a partially written mapping.")
+    void readersSeeCompleteMappings() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 50_000);
+
+        // WHEN
+        final CompletableFuture<Void> writer = CompletableFuture.runAsync(() ->
+            IntStream.range(0, 50_000).forEach(i -> index.put(token(i), accountNumber(i))));
+        final CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            while (!writer.isDone()) {
+                for (int i = 0; i < 50_000; i += 97) {
+                    final String accountNumber = index.get(token(i));
+                    // THEN
+                    assertThat(accountNumber).isIn(null, accountNumber(i));
+                }
+            }
+        });
+
+        // THEN
+        CompletableFuture.allOf(writer, reader).join();
+        assertThat(index.size()).isEqualTo(50_000);
+    }
+
+    @Test
+    @DisplayName("The builder pages through the vault by token and marks the index complete.")
+    void buildsIndexFromRepository() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 1000);
+        final TokenRepository repository = mock(TokenRepository.class);
+        final List<TokenEntity> firstPage = List.of(new TokenEntity(token(1), accountNumber(1)),
+            new TokenEntity(token(2), accountNumber(2)));
+        final List<TokenEntity> lastPage = List.of(new TokenEntity(token(3), accountNumber(3)));
+        when(repository.findByTokenGreaterThanOrderByTokenAsc(eq(""), any(Limit.class))).thenReturn(firstPage);
+        when(repository.findByTokenGreaterThanOrderByTokenAsc(eq(token(2)), any(Limit.class))).thenReturn(lastPage);
+        final TokenIndexProperties properties = new TokenIndexProperties();
+        properties.setRebuildBatchSize(2);
+
+        // WHEN
+        final TokenIndexBuilder builder = new TokenIndexBuilder(repository, ShardRouter.unsharded(repository), index, properties);
+        builder.run(new DefaultApplicationArguments());
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (!index.isComplete()) {
+                Thread.sleep(10);
+            }
+        });
+
+        // THEN
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.get(token(3))).isEqualTo(accountNumber(3));
+    }
+
+    @Test
+    @DisplayName("Indexed tokens are resolved without touching the caches or the vault; misses are added.")
+    void finderUsesIndexFirst() throws Exception
+    {
+        // GIVEN
+        index = OffHeapTokenIndex.open(file(), 1000);
+        index.put(token(1), accountNumber(1));
+        final TokenRepository repository = mock(TokenRepository.class);
+        when(repository.findAllById(anyIterable())).thenReturn(List.of(new TokenEntity(token(2), accountNumber(2))));
+        final TokenMappingCache tokenMappingCache = new TokenMappingCache(Caffeine.newBuilder().build(),
+            Caffeine.newBuilder().build(), SharedTokenStore.none(), index);
+        final ShardRouter shardRouter = ShardRouter.unsharded(repository);
+        final TokenFinderImpl finder = new TokenFinderImpl(shardRouter, tokenMappingCache,
+            new UnknownTokenFilter(repository, shardRouter, new TokenCacheProperties(),
+                new TokenizationMetrics(new SimpleMeterRegistry())));
+
+        // WHEN
+        final String indexed = finder.resolve(token(1));
+
+        // THEN
+        assertThat(indexed).isEqualTo(accountNumber(1));
+        verify(repository, never()).findAllById(anyIterable());
+
+        // WHEN
+        final List<String> accountNumbers = finder.resolveAll(List.of(token(1), token(2)));
+
+        // THEN
+        assertThat(accountNumbers).containsExactly(accountNumber(1), accountNumber(2));
+        assertThat(index.get(token(2))).isEqualTo(accountNumber(2));
+    }
+
+    private Path file()
+    {
+        return directory.resolve("index").resolve("tokens.idx");
+    }
+
+    private static String token(final int i)
+    {
+        return String.format("OffHeapToken%020d", i);
+    }
+
+    private static String accountNumber(final int i)
+    {
+        return String.format("4000-0000-%04d-%04d", i / 10_000, i % 10_000);
+    }
+}
@@ -0,0 +1,283 @@
+package nz.co.anz.tokenization;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for a Redis server, speaking enough of RESP2 for {@code RedisSharedTokenStore}:
+ * {@code AUTH}, {@code PING}, {@code CLIENT}, {@code SELECT}, {@code GET}, {@code MGET}, {@code SET [EX]},
+ * {@code DEL} and {@code QUIT}. Every command but {@code AUTH} requires the password first. The stand-in can be
+ * stopped and started again on the same port to simulate an outage.
+ */
+public final class RedisStandIn implements AutoCloseable
+{
+    private final String password;
+    private final Map<String, Value> values = new ConcurrentHashMap<>();
+    private final Set<Socket> clients = ConcurrentHashMap.newKeySet();
+    private final AtomicLong commands = new AtomicLong();
+    private volatile ServerSocket serverSocket;
+    private int port;
+
+    /**
+     * Constructor; the stand-in is not listening until {@link #start()}.
+     *
+     * @param password the password clients must send with {@code AUTH}
+     */
+    public RedisStandIn(final String password)
+    {
+        this.password = password;
+    }
+
+    /**
+     * Listens on a free port, or on the port of the previous start.
+     *
+     * @return this stand-in
+     */
+    public RedisStandIn start()
+    {
+        try {
+            final ServerSocket socket = new ServerSocket();
+            socket.setReuseAddress(true);
+            socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+            port = socket.getLocalPort();
+            serverSocket = socket;
+            Thread.ofVirtual().name("redis-stand-in-accept").start(() -> accept(socket));
+            return this;
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stops listening and drops every client connection; the stored values are kept.
+     */
+    public void stop()
+    {
+        final ServerSocket socket = serverSocket;
+        serverSocket = null;
+        closeQuietly(socket);
+        clients.forEach(RedisStandIn::closeQuietly);
+        clients.clear();
+    }
+
+    @Override
+    public void close()
+    {
+        stop();
+    }
+
+    /**
+     * @param uriPassword the password to put in the URI
+     * @return the {@code redis://} URI of this stand-in with the given password
+     */
+    public String uri(final String uriPassword)
+    {
+        return "redis://:" + uriPassword + "@127.0.0.1:" + port;
+    }
+
+    /**
+     * @return the {@code redis://} URI of this stand-in with its password
+     */
+    public String uri()
+    {
+        return uri(password);
+    }
+
+    /**
+     * @param key the key
+     * @return the value stored under the key, {@code null} if there is none or it expired
+     */
+    public String get(final String key)
+    {
+        final Value value = values.get(key);
+        return value == null || value.isExpired() ? null : value.data();
+    }
+
+    /**
+     * @param key the key
+     * @return the seconds the key was last set to expire after, or -1 without expiry
+     */
+    public long expirySeconds(final String key)
+    {
+        final Value value = values.get(key);
+        return value == null ? -1 : value.ttlSeconds();
+    }
+
+    /**
+     * @return the commands answered so far, {@code AUTH} and the handshake included
+     */
+    public long commands()
+    {
+        return commands.get();
+    }
+
+    private void accept(final ServerSocket socket)
+    {
+        while (!socket.isClosed()) {
+            try {
+                final Socket client = socket.accept();
+                clients.add(client);
+                Thread.ofVirtual().name("redis-stand-in-client").start(() -> serve(client));
+            }
+            catch (final IOException e) {
+                // Stopped.
+            }
+        }
+    }
+
+    private void serve(final Socket client)
+    {
+        try (client;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(client.getInputStream()));
+             OutputStream out = new BufferedOutputStream(client.getOutputStream())) {
+            boolean authenticated = false;
+            while (true) {
+                final List<String> command = readCommand(in);
+                commands.incrementAndGet();
+                final String name = command.getFirst().toUpperCase(Locale.ROOT);
+                if ("AUTH".equals(name)) {
+                    authenticated = password.equals(command.getLast());
+                    write(out, authenticated ? "+OK\r\n" : "-WRONGPASS invalid username-password pair\r\n");
+                }
+                else if ("QUIT".equals(name)) {
+                    write(out, "+OK\r\n");
+                    return;
+                }
+                else if (!authenticated) {
+                    write(out, "-NOAUTH Authentication required.\r\n");
+                }
+                else {
+                    write(out, execute(name, command));
+                }
+                out.flush();
+            }
+        }
+        catch (final EOFException e) {
+            // Client disconnected.
+        }
+        catch (final IOException e) {
+            // Stopped.
+        }
+        finally {
+            clients.remove(client);
+        }
+    }
+
+    private String execute(final String name, final List<String> command)
+    {
+        return switch (name) {
+            case "PING" -> "+PONG\r\n";
+            case "CLIENT", "SELECT" -> "+OK\r\n";
+            case "GET" -> bulk(get(command.get(1)));
+            case "MGET" -> {
+                final StringBuilder reply = new StringBuilder("*").append(command.size() - 1).append("\r\n");
+                command.subList(1, command.size()).forEach(key -> reply.append(bulk(get(key))));
+                yield reply.toString();
+            }
+            case "SET" -> {
+                long ttlSeconds = -1;
+                for (int i = 3; i + 1 < command.size(); i++) {
+                    if ("EX".equalsIgnoreCase(command.get(i))) {
+                        ttlSeconds = Long.parseLong(command.get(i + 1));
+                    }
+                }
+                values.put(command.get(1),
+                    new Value(command.get(2), ttlSeconds, System.nanoTime() + ttlSeconds * 1_000_000_000L));
+                yield "+OK\r\n";
+            }
+            case "DEL" -> {
+                int deleted = 0;
+                for (final String key : command.subList(1, command.size())) {
+                    deleted += values.remove(key) == null ? 0 : 1;
+                }
+                yield ":" + deleted + "\r\n";
+            }
+            default -> "-ERR unknown command '" + name + "'\r\n";
+        };
+    }
+
+    private static List<String> readCommand(final DataInputStream in) throws IOException
+    {
+        final String header = readLine(in);
+        if (!header.startsWith("*")) {
+            throw new IOException("Inline commands are not supported: " + header);
+        }
+        final int count = Integer.parseInt(header.substring(1));
+        final List<String> command = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int length = Integer.parseInt(readLine(in).substring(1));
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            in.readFully(new byte[2]);
+            command.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return command;
+    }
+
+    private static String readLine(final InputStream in) throws IOException
+    {
+        final StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\r') {
+            if (c < 0) {
+                throw new EOFException();
+            }
+            line.append((char) c);
+        }
+        in.read();
+        return line.toString();
+    }
+
+    private static String bulk(final String value)
+    {
+        if (value == null) {
+            return "$-1\r\n";
+        }
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    private static void write(final OutputStream out, final String reply) throws IOException
+    {
+        out.write(reply.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void closeQuietly(final AutoCloseable closeable)
+    {
+        if (closeable == null) {
+            return;
+        }
+        try {
+            closeable.close();
+        }
+        catch (final Exception e) {
+            // Already closed.
+        }
+    }
+
+    private record Value(String data, long ttlSeconds, long expiresAt)
+    {
+        boolean isExpired()
+        {
+            return ttlSeconds >= 0 && System.nanoTime() - expiresAt > 0;
+        }
+    }
+}
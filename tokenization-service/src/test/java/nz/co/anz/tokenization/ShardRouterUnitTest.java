@@ -0,0 +1,118 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.data.ShardRebalancer;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.utils.TokenGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for the bucket routing of {@link ShardRouter} and the move plans of {@link ShardRebalancer}.
+ */
+@DisplayName("Unit test for ShardRouter and ShardRebalancer")
+class ShardRouterUnitTest
+{
+    private final AccountKeyHasher accountKeyHasher = new AccountKeyHasher();
+
+    @Test
+    @DisplayName("Every bucket has its own token prefix.")
+    void bucketsHaveDistinctPrefixes()
+    {
+        // GIVEN
+        final Set<Character> prefixes = new HashSet<>();
+
+        // WHEN,THEN
+        for (int bucket = 0; bucket < ShardRouter.BUCKETS; bucket++) {
+            final char prefix = ShardRouter.prefixOf(bucket);
+            assertThat(prefixes.add(prefix)).isTrue();
+            assertThat(ShardRouter.bucketOf(prefix + "rest-of-token")).isEqualTo(bucket);
+        }
+    }
+
+    @Test
+    @DisplayName("New tokens are put into the bucket of their account, keeping their length.")
+    void tokensAreInTheirAccountsBucket()
+    {
+        // GIVEN
+        final String[] tokens = TokenGenerator.generate(200, 32);
+
+        // WHEN,THEN
+        for (int i = 0; i < tokens.length; i++) {
+            final AccountKey accountKey = accountKeyHasher.keyOf(String.format("4000-0000-0000-%04d", i));
+            final String token = ShardRouter.inBucketOf(tokens[i], accountKey);
+            assertThat(token).hasSize(32).endsWith(tokens[i].substring(1));
+            assertThat(ShardRouter.bucketOf(token)).isEqualTo(ShardRouter.bucketOf(accountKey));
+        }
+    }
+
+    @Test
+    @DisplayName("Accounts are spread over all buckets.")
+    void accountsAreSpreadOverAllBuckets()
+    {
+        // GIVEN,WHEN
+        final long buckets = IntStream.range(0, 5000)
+            .map(i -> ShardRouter.bucketOf(accountKeyHasher.keyOf(String.format("4000-0000-%04d-0000", i))))
+            .distinct()
+            .count();
+
+        // THEN
+        assertThat(buckets).isEqualTo(ShardRouter.BUCKETS);
+    }
+
+    @Test
+    @DisplayName("Spreading the buckets of one shard over four moves three quarters of them, evenly.")
+    void planSpreadsBucketsEvenly()
+    {
+        // GIVEN
+        final int[] owners = new int[ShardRouter.BUCKETS];
+
+        // WHEN
+        final int[] targets = ShardRebalancer.plan(owners, 4);
+
+        // THEN
+        assertThat(shareOf(targets, 0)).isEqualTo(16);
+        assertThat(shareOf(targets, 1)).isEqualTo(16);
+        assertThat(shareOf(targets, 2)).isEqualTo(15);
+        assertThat(shareOf(targets, 3)).isEqualTo(15);
+        assertThat(moves(owners, targets)).isEqualTo(46);
+    }
+
+    @Test
+    @DisplayName("Growing or shrinking the shards only moves the buckets that have to.")
+    void planMovesAsFewBucketsAsPossible()
+    {
+        // GIVEN
+        final int[] owners = ShardRebalancer.plan(new int[ShardRouter.BUCKETS], 4);
+
+        // WHEN
+        final int[] grown = ShardRebalancer.plan(owners, 5);
+        final int[] shrunk = ShardRebalancer.plan(owners, 2);
+
+        // THEN
+        assertThat(shareOf(grown, 4)).isEqualTo(12);
+        assertThat(moves(owners, grown)).isEqualTo(12);
+        assertThat(shareOf(shrunk, 0)).isEqualTo(31);
+        assertThat(shareOf(shrunk, 1)).isEqualTo(31);
+        assertThat(moves(owners, shrunk)).isEqualTo(30);
+        assertThat(ShardRebalancer.plan(owners, 4)).isEqualTo(owners);
+    }
+
+    private static long shareOf(final int[] targets, final int shard)
+    {
+        return Arrays.stream(targets).filter(target -> target == shard).count();
+    }
+
+    private static long moves(final int[] owners, final int[] targets)
+    {
+        return IntStream.range(0, owners.length).filter(bucket -> owners[bucket] != targets[bucket]).count();
+    }
+}
@@ -0,0 +1,214 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.anz.tokenization.cache.InMemorySharedTokenStore;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndex;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.exception.TokenNotFoundException;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.services.TokenFinder;
+import nz.co.anz.tokenization.services.TokenFinderImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for the shared second-level token store, with three replicas simulated in one JVM.
+ * Each replica has its own near caches and finder; database load is measured as rows read from the vault.
+ */
+@DisplayName("Unit test for the shared token store")
+class SharedTokenStoreUnitTest
+{
+    private static final int REPLICAS = 3;
+    private static final int TOKENS = 300;
+    private static final int BATCH_SIZE = 50;
+
+    private final Map<String, String> vault = new HashMap<>();
+    private final AtomicInteger rowsRead = new AtomicInteger();
+    private final AtomicInteger queries = new AtomicInteger();
+    private TokenRepository repository;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp()
+    {
+        for (int i = 0; i < TOKENS; i++) {
+            vault.put(token(i), String.format("4000-0000-0000-%04d", i));
+        }
+        repository = mock(TokenRepository.class);
+        when(repository.findAllById(any())).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            final List<TokenEntity> found = new ArrayList<>();
+            for (final String token : (Iterable<String>) invocation.getArgument(0)) {
+                final String accountNumber = vault.get(token);
+                if (accountNumber != null) {
+                    found.add(new TokenEntity(token, accountNumber));
+                }
+            }
+            rowsRead.addAndGet(found.size());
+            return found;
+        });
+    }
+
+    @Test
+    @DisplayName("Without a shared store each of three replicas reads every token from the database.")
+    void withoutSharedStoreEveryReplicaLoadsFromDatabase()
+    {
+        // GIVEN
+        final List<TokenMappingCache> replicas = replicas(SharedTokenStore.none());
+
+        // WHEN
+        detokenizeAllTokensOn(replicas);
+
+        // THEN
+        assertThat(rowsRead).hasValue(REPLICAS * TOKENS);
+    }
+
+    @Test
+    @DisplayName("With a shared store three replicas read every token from the database only once.")
+    void sharedStoreCutsDatabaseLoadOfThreeReplicas()
+    {
+        // GIVEN
+        final List<TokenMappingCache> replicas = replicas(sharedStore());
+
+        // WHEN
+        detokenizeAllTokensOn(replicas);
+
+        // THEN Database load drops from 3x to 1x the working set
+        assertThat(rowsRead).hasValue(TOKENS);
+        assertThat(queries).hasValue(TOKENS / BATCH_SIZE);
+    }
+
+    @Test
+    @DisplayName("A token created on one replica is resolved by the others without a database read.")
+    void createdTokenIsWrittenThrough()
+    {
+        // GIVEN
+        final List<TokenMappingCache> replicas = replicas(sharedStore());
+        final String token = "NewTokenNewTokenNewTokenNewToken";
+        vault.put(token, "4111-1111-1111-1111");
+
+        // WHEN
+        replicas.get(0).putAll(List.of(new TokenEntity(token, "4111-1111-1111-1111")));
+
+        // THEN
+        assertThat(finder(replicas.get(1)).resolve(token)).isEqualTo("4111-1111-1111-1111");
+        assertThat(finder(replicas.get(2)).resolve(token)).isEqualTo("4111-1111-1111-1111");
+        assertThat(queries).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("An unknown token is looked up in the database once across three replicas.")
+    void unknownTokenIsCachedAsNegativeLookup()
+    {
+        // GIVEN
+        final List<TokenMappingCache> replicas = replicas(sharedStore());
+        final String unknownToken = "UnknownTokenUnknownTokenUnknownT";
+
+        // WHEN,THEN
+        for (final TokenMappingCache replica : replicas) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                assertThatThrownBy(() -> finder(replica).resolve(unknownToken))
+                    .isInstanceOf(TokenNotFoundException.class);
+            }
+        }
+        assertThat(queries).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("A failing shared store falls back to the database.")
+    void failingSharedStoreFallsBackToDatabase()
+    {
+        // GIVEN
+        final SharedTokenStore unavailable = new SharedTokenStore()
+        {
+            @Override
+            public Map<String, String> getAll(final Collection<String> tokens)
+            {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void putAll(final Map<String, String> accountsByToken)
+            {
+                throw new IllegalStateException("connection refused");
+            }
+
+            @Override
+            public void putNotFound(final Collection<String> tokens)
+            {
+                throw new IllegalStateException("connection refused");
+            }
+        };
+        final TokenMappingCache replica = replicas(unavailable).getFirst();
+
+        // WHEN
+        final List<String> accountNumbers = finder(replica).resolveAll(List.of(token(1), token(2)));
+
+        // THEN
+        assertThat(accountNumbers).containsExactly(vault.get(token(1)), vault.get(token(2)));
+        assertThat(rowsRead).hasValue(2);
+    }
+
+    private void detokenizeAllTokensOn(final List<TokenMappingCache> replicas)
+    {
+        for (final TokenMappingCache replica : replicas) {
+            final TokenFinder finder = finder(replica);
+            for (int from = 0; from < TOKENS; from += BATCH_SIZE) {
+                final List<String> batch = IntStream.range(from, from + BATCH_SIZE)
+                    .mapToObj(SharedTokenStoreUnitTest::token)
+                    .toList();
+                assertThat(finder.resolveAll(batch)).doesNotContainNull();
+            }
+        }
+    }
+
+    private static SharedTokenStore sharedStore()
+    {
+        return new InMemorySharedTokenStore(Duration.ofHours(1), Duration.ofMinutes(1), 10_000);
+    }
+
+    private static List<TokenMappingCache> replicas(final SharedTokenStore sharedTokenStore)
+    {
+        return IntStream.range(0, REPLICAS)
+            .mapToObj(i -> new TokenMappingCache(Caffeine.newBuilder().maximumSize(2000).build(),
+                Caffeine.newBuilder().maximumSize(2000).build(), sharedTokenStore, TokenIndex.none()))
+            .toList();
+    }
+
+    private TokenFinder finder(final TokenMappingCache replica)
+    {
+        final TokenCacheProperties properties = new TokenCacheProperties();
+        properties.getUnknownTokens().setEnabled(false);
+        final ShardRouter shardRouter = ShardRouter.unsharded(repository);
+        return new TokenFinderImpl(shardRouter, replica, new UnknownTokenFilter(repository, shardRouter, properties,
+            new TokenizationMetrics(new SimpleMeterRegistry())));
+    }
+
+    private static String token(final int i)
+    {
+        return String.format("SharedStoreToken%016d", i);
+    }
+}
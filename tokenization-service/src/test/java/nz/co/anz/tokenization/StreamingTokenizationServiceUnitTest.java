@@ -0,0 +1,196 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenStreamProperties;
+import nz.co.anz.tokenization.services.StreamSummary;
+import nz.co.anz.tokenization.services.StreamingTokenizationService;
+import nz.co.anz.tokenization.services.StreamingTokenizationServiceImpl;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+/**
+ * Unit test for {@link StreamingTokenizationService}.
+ */
+@DisplayName("Unit test for StreamingTokenizationService")
+class StreamingTokenizationServiceUnitTest
+{
+    private TokenizationService tokenizationService;
+    private SimpleMeterRegistry meterRegistry;
+    private StreamingTokenizationService streamingTokenizationService;
+
+    @BeforeEach
+    void setUp() {
+        tokenizationService = mock(TokenizationService.class);
+        when(tokenizationService.tokenize(anyList())).thenAnswer(invocation -> invocation.<List<String>>getArgument(0)
+            .stream()
+            .map(accountNumber -> "T" + accountNumber.substring(accountNumber.length() - 4))
+            .toList());
+
+        final TokenStreamProperties properties = new TokenStreamProperties();
+        properties.setChunkSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        streamingTokenizationService = new StreamingTokenizationServiceImpl(tokenizationService, properties,
+            new TokenizationMetrics(meterRegistry));
+    }
+
+    @DisplayName("Stream is tokenized chunk by chunk and answered in input order")
+    @Test
+    void testTokenizeInChunks() throws IOException {
+        // GIVEN
+        final String input = """
+            4111-1111-1111-0001
+            4111-1111-1111-0002
+            "4111 1111 1111 0003"
+
+            4111111111110004
+            4111-1111-1111-0005
+            """;
+        final StringWriter out = new StringWriter();
+
+        // WHEN
+        final StreamSummary summary = streamingTokenizationService.tokenize(new BufferedReader(new StringReader(input)), out);
+
+        // THEN
+        assertThat(out.toString().lines()).containsExactly(
+            "{\"token\":\"T0001\"}",
+            "{\"token\":\"T0002\"}",
+            "{\"token\":\"T0003\"}",
+            "{\"token\":\"T0004\"}",
+            "{\"token\":\"T0005\"}");
+        assertThat(summary.tokenized()).isEqualTo(5);
+        assertThat(summary.rejected()).isZero();
+        assertThat(summary.completed()).isTrue();
+        verify(tokenizationService).tokenize(List.of("4111-1111-1111-0001", "4111-1111-1111-0002"));
+        verify(tokenizationService).tokenize(List.of("4111 1111 1111 0003", "4111111111110004"));
+        verify(tokenizationService).tokenize(List.of("4111-1111-1111-0005"));
+    }
+
+    @DisplayName("Malformed lines are reported in place with their line number")
+    @Test
+    void testTokenizeRejectsMalformedLines() throws IOException {
+        // GIVEN
+        final String input = """
+            4111-1111-1111-0001
+            not-an-account
+            4111-1111-1111-0003
+            """;
+        final StringWriter out = new StringWriter();
+
+        // WHEN
+        final StreamSummary summary = streamingTokenizationService.tokenize(new BufferedReader(new StringReader(input)), out);
+
+        // THEN
+        assertThat(out.toString().lines()).containsExactly(
+            "{\"token\":\"T0001\"}",
+            "{\"line\":2,\"error\":\"Wrong account number format\"}",
+            "{\"token\":\"T0003\"}");
+        assertThat(summary.tokenized()).isEqualTo(2);
+        assertThat(summary.rejected()).isEqualTo(1);
+    }
+
+    @DisplayName("An overlong line is rejected without being buffered, and the stream goes on with the next line")
+    @Test
+    void testTokenizeRejectsOverlongLines() throws IOException {
+        // GIVEN A megabyte without a line break between two accounts, with Windows line endings.
+        final String input = "4111-1111-1111-0001\r\n" + "4".repeat(1 << 20) + "\r\n4111-1111-1111-0003\r\n";
+        final StringWriter out = new StringWriter();
+
+        // WHEN
+        final StreamSummary summary = streamingTokenizationService.tokenize(
+            new BufferedReader(new StringReader(input)), out);
+
+        // THEN
+        assertThat(out.toString().lines()).containsExactly(
+            "{\"token\":\"T0001\"}",
+            "{\"line\":2,\"error\":\"Line too long\"}",
+            "{\"token\":\"T0003\"}");
+        assertThat(summary.tokenized()).isEqualTo(2);
+        assertThat(summary.rejected()).isEqualTo(1);
+        verify(tokenizationService).tokenize(List.of("4111-1111-1111-0001"));
+        verify(tokenizationService).tokenize(List.of("4111-1111-1111-0003"));
+    }
+
+    @DisplayName("Tokenized and rejected lines are counted, and the stream is active only while it runs")
+    @Test
+    void testTokenizeRecordsMetrics() throws IOException {
+        // GIVEN
+        final double[] activeDuringStream = new double[1];
+        when(tokenizationService.tokenize(anyList())).thenAnswer(invocation -> {
+            activeDuringStream[0] = meterRegistry.get("tokenization.stream.active").gauge().value();
+            return List.of("T0001", "T0003");
+        });
+        final String input = """
+            4111-1111-1111-0001
+            not-an-account
+            4111-1111-1111-0003
+            """;
+
+        // WHEN
+        streamingTokenizationService.tokenize(new BufferedReader(new StringReader(input)), new StringWriter());
+
+        // THEN
+        assertThat(meterRegistry.get("tokenization.stream.lines").tag("result", "tokenized").counter().count())
+            .isEqualTo(2);
+        assertThat(meterRegistry.get("tokenization.stream.lines").tag("result", "rejected").counter().count())
+            .isEqualTo(1);
+        assertThat(activeDuringStream[0]).isEqualTo(1);
+        assertThat(meterRegistry.get("tokenization.stream.active").gauge().value()).isZero();
+    }
+
+    @DisplayName("A chunk of only malformed lines is not sent for tokenization")
+    @Test
+    void testTokenizeSkipsChunksWithoutAccounts() throws IOException {
+        // GIVEN
+        final StringWriter out = new StringWriter();
+
+        // WHEN
+        streamingTokenizationService.tokenize(new BufferedReader(new StringReader("abc\ndef\n")), out);
+
+        // THEN
+        assertThat(out.toString().lines()).hasSize(2);
+        verify(tokenizationService, never()).tokenize(anyList());
+    }
+
+    @DisplayName("A failure mid-stream is reported in-band and stops the stream")
+    @Test
+    void testTokenizeReportsFailureInBand() throws IOException {
+        // GIVEN
+        when(tokenizationService.tokenize(anyList()))
+            .thenReturn(List.of("T0001", "T0002"))
+            .thenThrow(new IllegalStateException("database unavailable"));
+        final String input = """
+            4111-1111-1111-0001
+            4111-1111-1111-0002
+            4111-1111-1111-0003
+            """;
+        final StringWriter out = new StringWriter();
+
+        // WHEN
+        final StreamSummary summary = streamingTokenizationService.tokenize(new BufferedReader(new StringReader(input)), out);
+
+        // THEN
+        assertThat(out.toString().lines()).containsExactly(
+            "{\"token\":\"T0001\"}",
+            "{\"token\":\"T0002\"}",
+            "{\"error\":\"Tokenization aborted\"}");
+        assertThat(summary.completed()).isFalse();
+        assertThat(summary.tokenized()).isEqualTo(2);
+    }
+}
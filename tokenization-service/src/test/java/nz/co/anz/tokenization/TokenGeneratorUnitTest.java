@@ -0,0 +1,70 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import nz.co.anz.tokenization.utils.TokenGenerator;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Unit tests for {@link TokenGenerator}.
+ */
+@DisplayName("Unit tests for Token Generator.")
+class TokenGeneratorUnitTest
+{
+    private static final String ALPHANUMERIC = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    @Test
+    @DisplayName("Single token has the requested length and only alphanumeric characters.")
+    void shouldGenerateAlphanumericTokenOfRequestedLength()
+    {
+        assertThat(TokenGenerator.generate(32)).matches("^[A-Za-z0-9]{32}$");
+    }
+
+    @ParameterizedTest(name = "{index} -> {0} tokens of length {1}")
+    @CsvSource({"0, 32", "1, 32", "50, 32", "500, 8"})
+    @DisplayName("Batch generation returns the requested number of distinct tokens.")
+    void shouldGenerateBatchOfDistinctTokens(final int count, final int length)
+    {
+        final String[] tokens = TokenGenerator.generate(count, length);
+
+        assertThat(tokens).hasSize(count)
+            .allSatisfy(token -> assertThat(token).hasSize(length).matches("^[A-Za-z0-9]+$"))
+            .doesNotHaveDuplicates();
+    }
+
+    @Test
+    @DisplayName("Every alphabet character is drawn with roughly equal frequency.")
+    void shouldDrawCharactersUniformly()
+    {
+        // GIVEN
+        final int samples = 62 * 10_000;
+        final Map<Character, Integer> counts = new HashMap<>();
+
+        // WHEN
+        for (final String token : TokenGenerator.generate(samples / 31, 31)) {
+            for (final char c : token.toCharArray()) {
+                counts.merge(c, 1, Integer::sum);
+            }
+        }
+
+        // THEN every character appears, each within 10% of the expected 10,000 (about 10 standard deviations)
+        assertThat(counts).hasSize(ALPHANUMERIC.length());
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(9_000, 11_000));
+        assertThat(counts.keySet()).allMatch(c -> ALPHANUMERIC.indexOf(c) >= 0);
+    }
+
+    @Test
+    @DisplayName("Non-positive length or negative count is rejected.")
+    void shouldRejectInvalidArguments()
+    {
+        assertThatThrownBy(() -> TokenGenerator.generate(0)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> TokenGenerator.generate(-1, 32)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
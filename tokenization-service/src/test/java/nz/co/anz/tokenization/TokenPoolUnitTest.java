@@ -0,0 +1,185 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import nz.co.anz.tokenization.properties.TokenPoolProperties;
+import nz.co.anz.tokenization.services.TokenPool;
+import nz.co.anz.tokenization.utils.MpmcRingBuffer;
+import nz.co.anz.tokenization.validators.Formats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for {@link TokenPool} and {@link MpmcRingBuffer}.
+ */
+@DisplayName("Unit test for TokenPool")
+class TokenPoolUnitTest
+{
+    private TokenPool tokenPool;
+
+    @AfterEach
+    void stopPool()
+    {
+        if (tokenPool != null) {
+            tokenPool.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("The ring buffer is bounded, FIFO and empty once drained.")
+    void ringBufferIsBounded()
+    {
+        // GIVEN
+        final MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(3);
+
+        // WHEN
+        final List<Boolean> offered = IntStream.range(0, 5).mapToObj(ring::offer).toList();
+
+        // THEN
+        assertThat(ring.capacity()).isEqualTo(4);
+        assertThat(offered).containsExactly(true, true, true, true, false);
+        assertThat(ring.size()).isEqualTo(4);
+        assertThat(List.of(ring.poll(), ring.poll(), ring.poll(), ring.poll())).containsExactly(0, 1, 2, 3);
+        assertThat(ring.poll()).isNull();
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("Concurrent producers and consumers neither lose nor duplicate elements.")
+    void ringBufferHandsOutEveryElementOnce()
+    {
+        // GIVEN
+        final MpmcRingBuffer<Integer> ring = new MpmcRingBuffer<>(64);
+        final int producers = 4;
+        final int perProducer = 20_000;
+        final Set<Integer> consumed = ConcurrentHashMap.newKeySet();
+
+        // WHEN
+        try (ExecutorService threads = Executors.newFixedThreadPool(producers * 2)) {
+            final List<CompletableFuture<Void>> tasks = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                final int first = p * perProducer;
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    for (int i = first; i < first + perProducer; i++) {
+                        while (!ring.offer(i)) {
+                            Thread.yield();
+                        }
+                    }
+                }, threads));
+                tasks.add(CompletableFuture.runAsync(() -> {
+                    for (int i = 0; i < perProducer; i++) {
+                        Integer element;
+                        while ((element = ring.poll()) == null) {
+                            Thread.yield();
+                        }
+                        assertThat(consumed.add(element)).isTrue();
+                    }
+                }, threads));
+            }
+            CompletableFuture.allOf(tasks.toArray(CompletableFuture[]::new)).join();
+        }
+
+        // THEN
+        assertThat(consumed).hasSize(producers * perProducer);
+        assertThat(ring.poll()).isNull();
+    }
+
+    @Test
+    @DisplayName("The minter fills the pool to the high watermark and refills it once taken below the low one.")
+    void minterKeepsPoolBetweenWatermarks()
+    {
+        // GIVEN
+        tokenPool = new TokenPool(properties(true));
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenPool.bindTo(meterRegistry);
+
+        // WHEN
+        tokenPool.start();
+
+        // THEN
+        awaitDepth(256);
+
+        // WHEN
+        final String[] tokens = tokenPool.take(200);
+
+        // THEN
+        assertThat(tokens).doesNotContainNull().doesNotHaveDuplicates()
+            .allSatisfy(token -> assertThat(token).hasSize(Formats.TOKEN_LENGTH));
+        awaitDepth(256);
+        assertThat(meterRegistry.get("tokenization.token.pool.minted").functionCounter().count()).isEqualTo(456);
+        assertThat(meterRegistry.get("tokenization.token.pool.taken").tag("source", "pool").functionCounter().count())
+            .isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Tokens beyond what the pool holds are generated inline.")
+    void drainedPoolFallsBackToInlineGeneration()
+    {
+        // GIVEN
+        tokenPool = new TokenPool(properties(true));
+        final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        tokenPool.bindTo(meterRegistry);
+        tokenPool.start();
+        awaitDepth(256);
+        tokenPool.stop();
+
+        // WHEN
+        final String[] tokens = tokenPool.take(300);
+
+        // THEN
+        assertThat(tokens).hasSize(300).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(meterRegistry.get("tokenization.token.pool.taken").tag("source", "inline").functionCounter().count())
+            .isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("A disabled pool generates every token inline.")
+    void disabledPoolGeneratesInline()
+    {
+        // GIVEN
+        tokenPool = new TokenPool(properties(false));
+        tokenPool.start();
+
+        // WHEN
+        final String[] tokens = tokenPool.take(50);
+
+        // THEN
+        assertThat(Arrays.stream(tokens).distinct()).hasSize(50);
+        assertThat(tokenPool.depth()).isZero();
+    }
+
+    private void awaitDepth(final int depth)
+    {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            while (tokenPool.depth() != depth) {
+                Thread.sleep(10);
+            }
+        });
+    }
+
+    private static TokenPoolProperties properties(final boolean enabled)
+    {
+        final TokenPoolProperties properties = new TokenPoolProperties();
+        properties.setEnabled(enabled);
+        properties.setCapacity(256);
+        properties.setLowWatermark(64);
+        properties.setHighWatermark(256);
+        properties.setMintBatchSize(32);
+        return properties;
+    }
+}
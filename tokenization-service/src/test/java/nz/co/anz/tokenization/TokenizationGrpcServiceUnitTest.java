@@ -0,0 +1,250 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import nz.co.anz.tokenization.grpc.TokenizationGrpcService;
+import nz.co.anz.tokenization.grpc.api.DetokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.DetokenizeResponse;
+import nz.co.anz.tokenization.grpc.api.TokenizationGrpc;
+import nz.co.anz.tokenization.grpc.api.TokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.TokenizeResponse;
+import nz.co.anz.tokenization.services.TokenLookup;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit test for {@link TokenizationGrpcService}, served in-process.
+ */
+@DisplayName("Unit test for TokenizationGrpcService")
+class TokenizationGrpcServiceUnitTest
+{
+    private static final String ACCOUNT_1 = "4111-1111-1111-1111";
+    private static final String ACCOUNT_2 = "4222-2222-2222-2222";
+    private static final String TOKEN_1 = "TokenOneTokenOneTokenOneTokenOne";
+    private static final String TOKEN_2 = "TokenTwoTokenTwoTokenTwoTokenTwo";
+
+    private final TokenizationService tokenizationService = mock(TokenizationService.class);
+    private Server server;
+    private ManagedChannel channel;
+    private TokenizationGrpc.TokenizationBlockingStub blockingStub;
+
+    @BeforeEach
+    void startServer() throws IOException
+    {
+        final String name = InProcessServerBuilder.generateName();
+        server = InProcessServerBuilder.forName(name)
+            .directExecutor()
+            .addService(new TokenizationGrpcService(tokenizationService, 2))
+            .build()
+            .start();
+        channel = InProcessChannelBuilder.forName(name).directExecutor().build();
+        blockingStub = TokenizationGrpc.newBlockingStub(channel);
+    }
+
+    @AfterEach
+    void stopServer() throws InterruptedException
+    {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Tokenize answers the tokens of a batch back to back in one bytes field.")
+    void tokenizeEncodesTokens()
+    {
+        // GIVEN
+        when(tokenizationService.tokenize(List.of(ACCOUNT_1, ACCOUNT_2))).thenReturn(List.of(TOKEN_1, TOKEN_2));
+
+        // WHEN
+        final TokenizeResponse response = blockingStub.tokenize(
+            TokenizeRequest.newBuilder().addAccountNumbers(ACCOUNT_1).addAccountNumbers(ACCOUNT_2).build());
+
+        // THEN
+        assertThat(response.getTokens().toStringUtf8()).isEqualTo(TOKEN_1 + TOKEN_2);
+        assertThat(TokenizationGrpcService.decode(response.getTokens())).containsExactly(TOKEN_1, TOKEN_2);
+    }
+
+    @Test
+    @DisplayName("Detokenize answers the account numbers of known tokens.")
+    void detokenizeResolvesTokens()
+    {
+        // GIVEN
+        when(tokenizationService.lookup(List.of(TOKEN_1, TOKEN_2)))
+            .thenReturn(TokenLookup.resolved(List.of(ACCOUNT_1, ACCOUNT_2)));
+
+        // WHEN
+        final DetokenizeResponse response = blockingStub.detokenize(detokenizeRequest(TOKEN_1, TOKEN_2));
+
+        // THEN
+        assertThat(response.getAccountNumbersList()).containsExactly(ACCOUNT_1, ACCOUNT_2);
+        assertThat(response.getUnknownTokens().isEmpty()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Detokenize reports unknown tokens instead of failing the call.")
+    void detokenizeReportsUnknownTokens()
+    {
+        // GIVEN
+        when(tokenizationService.lookup(List.of(TOKEN_1, TOKEN_2))).thenReturn(TokenLookup.unknown(List.of(TOKEN_2)));
+
+        // WHEN
+        final DetokenizeResponse response = blockingStub.detokenize(detokenizeRequest(TOKEN_1, TOKEN_2));
+
+        // THEN
+        assertThat(response.getAccountNumbersList()).isEmpty();
+        assertThat(TokenizationGrpcService.decode(response.getUnknownTokens())).containsExactly(TOKEN_2);
+    }
+
+    @Test
+    @DisplayName("Malformed batches fail with INVALID_ARGUMENT without reaching the service.")
+    void malformedBatchesAreRejected()
+    {
+        // WHEN,THEN
+        assertStatus(() -> blockingStub.tokenize(TokenizeRequest.newBuilder().addAccountNumbers("4111").build()),
+            Status.Code.INVALID_ARGUMENT, "Wrong account number format at index 0");
+        assertStatus(() -> blockingStub.tokenize(TokenizeRequest.getDefaultInstance()),
+            Status.Code.INVALID_ARGUMENT, "At least one of the account numbers is required");
+        assertStatus(() -> blockingStub.detokenize(detokenizeRequest(TOKEN_1, TOKEN_2, TOKEN_1)),
+            Status.Code.INVALID_ARGUMENT, "Maximum 2 tokens per request");
+        assertStatus(() -> blockingStub.detokenize(
+                DetokenizeRequest.newBuilder().setTokens(ByteString.copyFromUtf8(TOKEN_1 + "4")).build()),
+            Status.Code.INVALID_ARGUMENT, "Tokens must be 32 bytes each");
+        assertStatus(() -> blockingStub.detokenize(detokenizeRequest("TokenOneTokenOneTokenOneTokenOn!")),
+            Status.Code.INVALID_ARGUMENT, "Wrong token format at index 0");
+        verifyNoInteractions(tokenizationService);
+    }
+
+    @Test
+    @DisplayName("A failure of the service is reported as INTERNAL without its cause.")
+    void serviceFailureIsInternal()
+    {
+        // GIVEN
+        when(tokenizationService.tokenize(anyList())).thenThrow(new QueryTimeoutException("vault of " + ACCOUNT_1));
+
+        // WHEN,THEN
+        assertStatus(() -> blockingStub.tokenize(TokenizeRequest.newBuilder().addAccountNumbers(ACCOUNT_1).build()),
+            Status.Code.INTERNAL, "Tokenization failed");
+    }
+
+    @Test
+    @DisplayName("A tokenize stream answers every batch in order on the same call.")
+    void tokenizeStreamAnswersEveryBatch() throws InterruptedException
+    {
+        // GIVEN
+        when(tokenizationService.tokenize(List.of(ACCOUNT_1))).thenReturn(List.of(TOKEN_1));
+        when(tokenizationService.tokenize(List.of(ACCOUNT_2))).thenReturn(List.of(TOKEN_2));
+        final Responses<TokenizeResponse> responses = new Responses<>();
+
+        // WHEN
+        final StreamObserver<TokenizeRequest> requests = TokenizationGrpc.newStub(channel).tokenizeStream(responses);
+        requests.onNext(TokenizeRequest.newBuilder().addAccountNumbers(ACCOUNT_1).build());
+        requests.onNext(TokenizeRequest.newBuilder().addAccountNumbers(ACCOUNT_2).build());
+        requests.onCompleted();
+
+        // THEN
+        assertThat(((TokenizeResponse) responses.next()).getTokens().toStringUtf8()).isEqualTo(TOKEN_1);
+        assertThat(((TokenizeResponse) responses.next()).getTokens().toStringUtf8()).isEqualTo(TOKEN_2);
+        assertThat(responses.next()).isEqualTo(Responses.COMPLETED);
+    }
+
+    @Test
+    @DisplayName("A detokenize stream survives unknown tokens, and a malformed batch ends it.")
+    void detokenizeStreamEndsOnMalformedBatch() throws InterruptedException
+    {
+        // GIVEN
+        when(tokenizationService.lookup(List.of(TOKEN_1))).thenReturn(TokenLookup.unknown(List.of(TOKEN_1)));
+        when(tokenizationService.lookup(List.of(TOKEN_2))).thenReturn(TokenLookup.resolved(List.of(ACCOUNT_2)));
+        final Responses<DetokenizeResponse> responses = new Responses<>();
+
+        // WHEN
+        final StreamObserver<DetokenizeRequest> requests =
+            TokenizationGrpc.newStub(channel).detokenizeStream(responses);
+        requests.onNext(detokenizeRequest(TOKEN_1));
+        requests.onNext(detokenizeRequest(TOKEN_2));
+        requests.onNext(DetokenizeRequest.getDefaultInstance());
+        requests.onNext(detokenizeRequest(TOKEN_2));
+        requests.onCompleted();
+
+        // THEN
+        final DetokenizeResponse unknown = (DetokenizeResponse) responses.next();
+        assertThat(TokenizationGrpcService.decode(unknown.getUnknownTokens())).containsExactly(TOKEN_1);
+        assertThat(((DetokenizeResponse) responses.next()).getAccountNumbersList()).containsExactly(ACCOUNT_2);
+        assertThat(responses.next()).isInstanceOfSatisfying(StatusRuntimeException.class,
+            e -> assertThat(e.getStatus().getCode()).isEqualTo(Status.Code.INVALID_ARGUMENT));
+        verify(tokenizationService).lookup(List.of(TOKEN_2));
+    }
+
+    private static DetokenizeRequest detokenizeRequest(final String... tokens)
+    {
+        return DetokenizeRequest.newBuilder().setTokens(TokenizationGrpcService.encode(List.of(tokens))).build();
+    }
+
+    private static void assertStatus(final Runnable call, final Status.Code code, final String description)
+    {
+        assertThatThrownBy(call::run)
+            .isInstanceOfSatisfying(StatusRuntimeException.class, e -> {
+                assertThat(e.getStatus().getCode()).isEqualTo(code);
+                assertThat(e.getStatus().getDescription()).isEqualTo(description);
+            });
+    }
+
+    /**
+     * Collects what the server sends on a stream: responses, then {@link #COMPLETED} or the error.
+     */
+    private static final class Responses<R> implements StreamObserver<R>
+    {
+        private static final Object COMPLETED = new Object();
+
+        private final BlockingQueue<Object> received = new LinkedBlockingQueue<>();
+
+        private Object next() throws InterruptedException
+        {
+            final Object next = received.poll(5, TimeUnit.SECONDS);
+            assertThat(next).as("stream event").isNotNull();
+            return next;
+        }
+
+        @Override
+        public void onNext(final R response)
+        {
+            received.add(response);
+        }
+
+        @Override
+        public void onError(final Throwable t)
+        {
+            received.add(t);
+        }
+
+        @Override
+        public void onCompleted()
+        {
+            received.add(COMPLETED);
+        }
+    }
+}
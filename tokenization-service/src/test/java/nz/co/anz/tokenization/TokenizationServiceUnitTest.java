@@ -3,21 +3,43 @@ package nz.co.anz.tokenization;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import nz.co.anz.tokenization.cache.AccountKey;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.cache.SharedTokenStore;
+import nz.co.anz.tokenization.cache.TokenIndex;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
 import nz.co.anz.tokenization.data.TokenEntity;
 import nz.co.anz.tokenization.data.TokenRepository;
 import nz.co.anz.tokenization.exception.TokenNotFoundException;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.properties.TokenPoolProperties;
 import nz.co.anz.tokenization.services.TokenFinder;
 import nz.co.anz.tokenization.services.TokenFinderImpl;
+import nz.co.anz.tokenization.services.TokenPool;
 import nz.co.anz.tokenization.services.TokenizationService;
 import nz.co.anz.tokenization.services.TokenizationServiceImpl;
+import nz.co.anz.tokenization.services.TokenWriter;
+import nz.co.anz.tokenization.services.TokenWriterImpl;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -27,13 +49,15 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.Arrays;
 import java.util.List;
-import java.util.Optional;
 
 /**
  * Unit test for {@link TokenizationService}.
@@ -51,15 +75,85 @@ class TokenizationServiceUnitTest
             return mock(TokenRepository.class);
         }
 
+        @Bean
+        Cache<Object, Object> tokenToAccountCache()
+        {
+            return Caffeine.newBuilder().build();
+        }
+
+        @Bean
+        Cache<Object, Object> accountToTokenCache()
+        {
+            return Caffeine.newBuilder().build();
+        }
+
+        @Bean
+        AccountKeyHasher accountKeyHasher()
+        {
+            return new AccountKeyHasher();
+        }
+
+        @Bean
+        TokenMappingCache tokenMappingCache()
+        {
+            return new TokenMappingCache(tokenToAccountCache(), accountToTokenCache(), SharedTokenStore.none(),
+                TokenIndex.none());
+        }
+
         @Bean
         TokenFinder tokenFinder()
         {
-            return new TokenFinderImpl(tokenRepository());
+            return new TokenFinderImpl(shardRouter(), tokenMappingCache(), unknownTokenFilter());
         }
 
         @Bean
-        TokenizationService tokenizationService(final TokenRepository tokenRepository, final TokenFinder tokenFinder) {
-            return new TokenizationServiceImpl(tokenRepository, tokenFinder);
+        TokenWriter tokenWriter()
+        {
+            return new TokenWriterImpl(shardRouter(), tokenMappingCache(), unknownTokenFilter(),
+                mappings -> tokenRepository().saveAllAndFlush(mappings), tokenPool());
+        }
+
+        @Bean
+        ShardRouter shardRouter()
+        {
+            return ShardRouter.unsharded(tokenRepository());
+        }
+
+        @Bean
+        TokenPool tokenPool()
+        {
+            final TokenPoolProperties properties = new TokenPoolProperties();
+            properties.setEnabled(false);
+            return new TokenPool(properties);
+        }
+
+        @Bean
+        UnknownTokenFilter unknownTokenFilter()
+        {
+            final TokenCacheProperties properties = new TokenCacheProperties();
+            properties.getUnknownTokens().setEnabled(false);
+            return new UnknownTokenFilter(tokenRepository(), shardRouter(), properties, tokenizationMetrics());
+        }
+
+        @Bean
+        MeterRegistry meterRegistry()
+        {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        TokenizationMetrics tokenizationMetrics()
+        {
+            return new TokenizationMetrics(meterRegistry());
+        }
+
+        @Bean
+        TokenizationService tokenizationService(final ShardRouter shardRouter, final TokenFinder tokenFinder,
+                                                final TokenMappingCache tokenMappingCache, final TokenWriter tokenWriter,
+                                                final AccountKeyHasher accountKeyHasher,
+                                                final TokenizationMetrics tokenizationMetrics) {
+            return new TokenizationServiceImpl(shardRouter, tokenFinder, tokenMappingCache, tokenWriter,
+                accountKeyHasher, tokenizationMetrics);
         }
     }
 
@@ -69,8 +163,21 @@ class TokenizationServiceUnitTest
     @Autowired
     private TokenRepository tokenRepository;
 
+    @Autowired
+    @Qualifier("tokenToAccountCache")
+    private Cache<Object, Object> tokenToAccountCache;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AccountKeyHasher accountKeyHasher;
+
     @Captor
-    private ArgumentCaptor<TokenEntity> tokenEntityCaptor;
+    private ArgumentCaptor<List<TokenEntity>> tokenEntitiesCaptor;
 
     private AutoCloseable closeable;
 
@@ -83,6 +190,7 @@ class TokenizationServiceUnitTest
     void tearDown() throws Exception {
         closeable.close();
         Mockito.reset(tokenRepository);
+        tokenMappingCache.invalidateAll();
     }
 
     @DisplayName("Tokenize should return existing token when one account in request is already tokenized")
@@ -92,15 +200,16 @@ class TokenizationServiceUnitTest
         final String accountNumberInRequest = "4111-1111-1111-1111";
         final String existingToken = "EXISTING_TOKEN";
 
-        when(tokenRepository.findByAccountNumber(accountNumberInRequest))
-            .thenReturn(Optional.of(new TokenEntity(existingToken, accountNumberInRequest)));
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping(existingToken, accountNumberInRequest)));
 
         // WHEN
         final List<String> result = tokenizationService.tokenize(List.of(accountNumberInRequest));
 
         // THEN
         assertThat(result).containsExactly(existingToken);
-        verify(tokenRepository).findByAccountNumber(accountNumberInRequest);
+        verify(tokenRepository).findByAccountKeyIn(keysOf(accountNumberInRequest));
+        verify(tokenRepository, never()).saveAllAndFlush(anyList());
     }
 
     @DisplayName("Tokenize should return correct tokens for multiple accounts")
@@ -112,18 +221,16 @@ class TokenizationServiceUnitTest
         final String token1 = "TOKEN_ONE";
         final String token2 = "TOKEN_TWO";
 
-        when(tokenRepository.findByAccountNumber(account1))
-            .thenReturn(Optional.of(new TokenEntity(token1, account1)));
-        when(tokenRepository.findByAccountNumber(account2))
-            .thenReturn(Optional.of(new TokenEntity(token2, account2)));
+        // Repository returns the mappings in a different order from the request.
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping(token2, account2), mapping(token1, account1)));
 
         // WHEN
         final List<String> result = tokenizationService.tokenize(List.of(account1, account2));
 
         // THEN
         assertThat(result).containsExactly(token1, token2);
-        verify(tokenRepository).findByAccountNumber(account1);
-        verify(tokenRepository).findByAccountNumber(account2);
+        verify(tokenRepository, times(1)).findByAccountKeyIn(keysOf(account1, account2));
     }
 
     @DisplayName("Tokenize should generate and persist token when one account in request is new")
@@ -131,8 +238,8 @@ class TokenizationServiceUnitTest
     void testTokenizeNewAccount() {
         // GIVEN
         final String accountNumberInRequest = "4444-3333-2222-1111";
-        when(tokenRepository.findByAccountNumber(accountNumberInRequest))
-            .thenReturn(Optional.empty());
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of());
 
         // WHEN
         final List<String> tokens = tokenizationService.tokenize(List.of(accountNumberInRequest));
@@ -144,7 +251,10 @@ class TokenizationServiceUnitTest
             .asString()
             .hasSize(32)
             .matches("^[A-Za-z0-9]+$");
-        verify(tokenRepository).save(Mockito.any(TokenEntity.class));
+        verify(tokenRepository).saveAllAndFlush(tokenEntitiesCaptor.capture());
+        assertThat(tokenEntitiesCaptor.getValue())
+            .extracting(TokenEntity::getToken, TokenEntity::getAccountNumber)
+            .containsExactly(tuple(tokens.getFirst(), accountNumberInRequest));
     }
 
     @DisplayName("Tokenize should generate and persist tokens when multiple accounts in request are new")
@@ -154,7 +264,7 @@ class TokenizationServiceUnitTest
         final String account1 = "4444-3333-2222-1111";
         final String account2 = "9999-8888-7777-6666";
 
-        when(tokenRepository.findByAccountNumber(anyString())).thenReturn(Optional.empty());
+        when(tokenRepository.findByAccountKeyIn(anyCollection())).thenReturn(List.of());
 
         // WHEN
         final List<String> tokens = tokenizationService.tokenize(List.of(account1, account2));
@@ -170,32 +280,145 @@ class TokenizationServiceUnitTest
         // Verify tokens are unique
         assertThat(tokens.getFirst()).isNotEqualTo(tokens.get(1));
 
-        // Verify two different entities were saved
-        verify(tokenRepository, times(2)).save(tokenEntityCaptor.capture());
+        // Verify both entities were saved in a single batch
+        verify(tokenRepository, times(1)).saveAllAndFlush(tokenEntitiesCaptor.capture());
 
-        final List<TokenEntity> savedEntities = tokenEntityCaptor.getAllValues();
+        final List<TokenEntity> savedEntities = tokenEntitiesCaptor.getValue();
         assertThat(savedEntities).extracting(TokenEntity::getAccountNumber)
             .containsExactlyInAnyOrder(account1, account2);
     }
 
+    @DisplayName("Tokenize should mint one token for duplicate new accounts and reuse existing ones in a mixed batch")
+    @Test
+    void testTokenizeMixedBatchWithDuplicates() {
+        // GIVEN
+        final String existingAccount = "1111-2222-3333-4444";
+        final String existingToken = "EXISTING_TOKEN";
+        final String newAccount = "5555-6666-7777-8888";
+
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping(existingToken, existingAccount)));
+
+        // WHEN
+        final List<String> tokens = tokenizationService.tokenize(
+            List.of(newAccount, existingAccount, newAccount, existingAccount));
+
+        // THEN
+        assertThat(tokens).hasSize(4);
+        assertThat(tokens.get(0)).isEqualTo(tokens.get(2)).matches("^[A-Za-z0-9]{32}$");
+        assertThat(tokens.get(1)).isEqualTo(existingToken);
+        assertThat(tokens.get(3)).isEqualTo(existingToken);
+
+        verify(tokenRepository, times(1)).findByAccountKeyIn(keysOf(newAccount, existingAccount));
+        verify(tokenRepository, times(1)).saveAllAndFlush(tokenEntitiesCaptor.capture());
+        assertThat(tokenEntitiesCaptor.getValue())
+            .extracting(TokenEntity::getAccountNumber)
+            .containsExactly(newAccount);
+    }
+
+    @DisplayName("Tokenize should count tokens by origin and record the batch size")
+    @Test
+    void testTokenizeRecordsMetrics() {
+        // GIVEN
+        final String existingAccount = "1111-2222-3333-4444";
+        final String newAccount = "5555-6666-7777-8888";
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping("EXISTING_TOKEN", existingAccount)));
+        final double cachedBefore = tokenCount("cached");
+        final double existingBefore = tokenCount("existing");
+        final double createdBefore = tokenCount("created");
+        final long batchesBefore = meterRegistry.get("tokenization.batch.size").tag("operation", "tokenize").summary().count();
+
+        // WHEN
+        tokenizationService.tokenize(List.of(newAccount, existingAccount, newAccount));
+        tokenizationService.tokenize(List.of(newAccount));
+
+        // THEN
+        assertThat(tokenCount("existing") - existingBefore).isEqualTo(1);
+        assertThat(tokenCount("created") - createdBefore).isEqualTo(1);
+        assertThat(tokenCount("cached") - cachedBefore).isEqualTo(1);
+        assertThat(meterRegistry.get("tokenization.batch.size").tag("operation", "tokenize").summary().count())
+            .isEqualTo(batchesBefore + 2);
+    }
+
+    @DisplayName("Tokenize should answer repeat accounts from the reverse cache without a repository lookup")
+    @Test
+    void testTokenizeReverseCacheHit() {
+        // GIVEN The first request finds the mapping in the repository and caches it.
+        final String accountNumber = "4111-1111-1111-1111";
+        final String existingToken = "EXISTING_TOKEN";
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping(existingToken, accountNumber)));
+        tokenizationService.tokenize(List.of(accountNumber));
+        Mockito.clearInvocations(tokenRepository);
+
+        // WHEN
+        final List<String> tokens = tokenizationService.tokenize(List.of(accountNumber, accountNumber));
+
+        // THEN
+        assertThat(tokens).containsExactly(existingToken, existingToken);
+        verify(tokenRepository, never()).findByAccountKeyIn(anyCollection());
+        verify(tokenRepository, never()).saveAllAndFlush(anyList());
+    }
+
+    @DisplayName("Tokenize should populate both cache directions for newly created mappings")
+    @Test
+    void testTokenizeNewAccountPopulatesBothCaches() {
+        // GIVEN
+        final String accountNumber = "4444-3333-2222-1111";
+        when(tokenRepository.findByAccountKeyIn(anyCollection())).thenReturn(List.of());
+
+        // WHEN
+        final String token = tokenizationService.tokenize(List.of(accountNumber)).getFirst();
+
+        // THEN
+        assertThat(tokenToAccountCache.getIfPresent(token)).isEqualTo(accountNumber);
+        assertThat(tokenMappingCache.getTokens(keysOf(accountNumber))).containsEntry(accountKeyHasher.keyOf(accountNumber), token);
+        // AND: detokenizing the new token is served from the cache
+        assertThat(tokenizationService.detokenize(List.of(token))).containsExactly(accountNumber);
+        verify(tokenRepository, never()).findAllById(anyIterable());
+    }
+
+    @DisplayName("Tokenize should retry with a re-check when the mapping was created concurrently on another node")
+    @Test
+    void testTokenizeRetriesOnUniqueConstraintConflict() {
+        // GIVEN The first lookup misses, the insert conflicts, and the re-check finds the other node's mapping.
+        final String accountNumber = "4444-3333-2222-1111";
+        final String otherNodeToken = "OTHER_NODE_TOKEN";
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of())
+            .thenReturn(List.of(mapping(otherNodeToken, accountNumber)));
+        when(tokenRepository.saveAllAndFlush(anyList()))
+            .thenThrow(new DataIntegrityViolationException("Unique index or primary key violation"));
+
+        // WHEN
+        final List<String> tokens = tokenizationService.tokenize(List.of(accountNumber));
+
+        // THEN
+        assertThat(tokens).containsExactly(otherNodeToken);
+        verify(tokenRepository, times(2)).findByAccountKeyIn(keysOf(accountNumber));
+        verify(tokenRepository, times(1)).saveAllAndFlush(anyList());
+    }
+
     @DisplayName("Detokenize should return original account number for valid token")
     @Test
     void testDetokenizeSuccess() {
         // GIVEN
         final String token = "VALID_TOKEN";
         final String accountNumber = "4444-1111-2222-3333";
-        when(tokenRepository.findById(token))
-            .thenReturn(Optional.of(new TokenEntity(token, accountNumber)));
+        when(tokenRepository.findAllById(anyIterable()))
+            .thenReturn(List.of(new TokenEntity(token, accountNumber)));
 
         // WHEN
         final List<String> accounts = tokenizationService.detokenize(List.of(token));
 
         // THEN
         assertThat(accounts).containsExactly(accountNumber);
-        verify(tokenRepository).findById(token);
+        verify(tokenRepository).findAllById(List.of(token));
+        assertThat(tokenToAccountCache.getIfPresent(token)).isEqualTo(accountNumber);
     }
 
-    @DisplayName("Detokenize should return original account numbers for multiple valid tokens")
+    @DisplayName("Detokenize should return original account numbers for multiple valid tokens with one repository query")
     @Test
     void testDetokenizeMultipleAccounts() {
         // GIVEN
@@ -204,18 +427,38 @@ class TokenizationServiceUnitTest
         final String token2 = "TOKEN_TWO";
         final String account2 = "5555-6666-7777-8888";
 
-        when(tokenRepository.findById(token1))
-            .thenReturn(Optional.of(new TokenEntity(token1, account1)));
-        when(tokenRepository.findById(token2))
-            .thenReturn(Optional.of(new TokenEntity(token2, account2)));
+        when(tokenRepository.findAllById(anyIterable()))
+            .thenReturn(List.of(new TokenEntity(token2, account2), new TokenEntity(token1, account1)));
 
         // WHEN
-        final List<String> accounts = tokenizationService.detokenize(List.of(token1, token2));
+        final List<String> accounts = tokenizationService.detokenize(List.of(token1, token2, token1));
 
         // THEN
-        assertThat(accounts).containsExactly(account1, account2);
-        verify(tokenRepository).findById(token1);
-        verify(tokenRepository).findById(token2);
+        assertThat(accounts).containsExactly(account1, account2, account1);
+        verify(tokenRepository, times(1)).findAllById(anyIterable());
+        verify(tokenRepository, never()).findById(anyString());
+    }
+
+    @DisplayName("Detokenize should only load cache misses from the repository")
+    @Test
+    void testDetokenizePartialCacheHit() {
+        // GIVEN
+        final String cachedToken = "CACHED_TOKEN";
+        final String cachedAccount = "1111-2222-3333-4444";
+        final String missingToken = "MISSING_TOKEN";
+        final String missingAccount = "5555-6666-7777-8888";
+        tokenToAccountCache.put(cachedToken, cachedAccount);
+
+        when(tokenRepository.findAllById(anyIterable()))
+            .thenReturn(List.of(new TokenEntity(missingToken, missingAccount)));
+
+        // WHEN
+        final List<String> accounts = tokenizationService.detokenize(List.of(cachedToken, missingToken));
+
+        // THEN
+        assertThat(accounts).containsExactly(cachedAccount, missingAccount);
+        verify(tokenRepository).findAllById(List.of(missingToken));
+        assertThat(tokenToAccountCache.getIfPresent(missingToken)).isEqualTo(missingAccount);
     }
 
     @DisplayName("Detokenize should throw TokenNotFoundException when token does not exist")
@@ -223,12 +466,83 @@ class TokenizationServiceUnitTest
     void testDetokenizeTokenNotFound() {
         // GIVEN
         final String token = "UNKNOWN_TOKEN";
-        when(tokenRepository.findById(token)).thenReturn(Optional.empty());
+        when(tokenRepository.findAllById(anyIterable())).thenReturn(List.of());
 
         // WHEN, THEN
         assertThatThrownBy(() -> tokenizationService.detokenize(List.of(token)))
             .isInstanceOf(TokenNotFoundException.class)
             .hasMessage("Token not found: " + token);
-        verify(tokenRepository).findById(token);
+        verify(tokenRepository).findAllById(List.of(token));
+        assertThat(tokenToAccountCache.getIfPresent(token)).isNull();
+    }
+
+    @DisplayName("Detokenize should report every unresolved token rather than only the first one")
+    @Test
+    void testDetokenizeReportsAllUnresolvedTokens() {
+        // GIVEN
+        final String knownToken = "KNOWN_TOKEN";
+        when(tokenRepository.findAllById(anyIterable()))
+            .thenReturn(List.of(new TokenEntity(knownToken, "1111-2222-3333-4444")));
+
+        // WHEN, THEN
+        assertThatThrownBy(() -> tokenizationService.detokenize(List.of("UNKNOWN_ONE", knownToken, "UNKNOWN_TWO")))
+            .isInstanceOf(TokenNotFoundException.class)
+            .hasMessage("Tokens not found: UNKNOWN_ONE, UNKNOWN_TWO")
+            .extracting(ex -> ((TokenNotFoundException) ex).getTokens())
+            .isEqualTo(List.of("UNKNOWN_ONE", "UNKNOWN_TWO"));
+    }
+
+    @DisplayName("Tokenize should map equivalent formats of an account to one token and store the first format")
+    @Test
+    void testTokenizeEquivalentFormats() {
+        // GIVEN
+        final List<String> formats = List.of("4111-1111-1111-1111", "4111 1111 1111 1111", "4111111111111111");
+        when(tokenRepository.findByAccountKeyIn(anyCollection())).thenReturn(List.of());
+
+        // WHEN
+        final List<String> tokens = tokenizationService.tokenize(formats);
+
+        // THEN
+        assertThat(tokens).hasSize(3).containsOnly(tokens.getFirst());
+        verify(tokenRepository).findByAccountKeyIn(keysOf("4111111111111111"));
+        verify(tokenRepository).saveAllAndFlush(tokenEntitiesCaptor.capture());
+        assertThat(tokenEntitiesCaptor.getValue())
+            .extracting(TokenEntity::getAccountNumber, TokenEntity::getAccountKey)
+            .containsExactly(tuple("4111-1111-1111-1111", accountKeyHasher.keyOf("4111111111111111")));
+        // AND: a later request in another format is answered from the reverse cache
+        assertThat(tokenizationService.tokenize(List.of("4111 1111-1111 1111"))).containsExactly(tokens.getFirst());
+    }
+
+    @DisplayName("Detokenize of a duplicate mapping without an account key should not change the account's token")
+    @Test
+    void testDetokenizeDuplicateMappingKeepsAccountToken() {
+        // GIVEN The account was tokenized twice by an older version; only the first mapping owns the key.
+        final String accountNumber = "4111-1111-1111-1111";
+        when(tokenRepository.findByAccountKeyIn(anyCollection()))
+            .thenReturn(List.of(mapping("PRIMARY_TOKEN", accountNumber)));
+        tokenizationService.tokenize(List.of(accountNumber));
+        when(tokenRepository.findAllById(anyIterable()))
+            .thenReturn(List.of(new TokenEntity("DUPLICATE_TOKEN", "4111 1111 1111 1111")));
+
+        // WHEN
+        final List<String> accounts = tokenizationService.detokenize(List.of("DUPLICATE_TOKEN"));
+
+        // THEN
+        assertThat(accounts).containsExactly("4111 1111 1111 1111");
+        assertThat(tokenizationService.tokenize(List.of("4111 1111 1111 1111"))).containsExactly("PRIMARY_TOKEN");
+    }
+
+    private TokenEntity mapping(final String token, final String accountNumber) {
+        return new TokenEntity(token, accountNumber, accountKeyHasher.keyOf(accountNumber));
+    }
+
+    private List<AccountKey> keysOf(final String... accountNumbers) {
+        return Arrays.stream(accountNumbers)
+            .map(accountKeyHasher::keyOf)
+            .toList();
+    }
+
+    private double tokenCount(final String result) {
+        return meterRegistry.get("tokenization.tokens").tag("result", result).counter().count();
     }
 }
@@ -0,0 +1,175 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.metrics.TokenizationMetrics;
+import nz.co.anz.tokenization.properties.SharedStoreType;
+import nz.co.anz.tokenization.properties.TokenCacheProperties;
+import nz.co.anz.tokenization.utils.TokenBloomFilter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Limit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for {@link TokenBloomFilter} and {@link UnknownTokenFilter}.
+ */
+@DisplayName("Unit test for UnknownTokenFilter")
+class UnknownTokenFilterUnitTest
+{
+    private static final String UNKNOWN_TOKEN = "UnknownTokenUnknownTokenUnknownT";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TokenCacheProperties properties = new TokenCacheProperties();
+    private TokenRepository repository;
+    private UnknownTokenFilter filter;
+
+    @BeforeEach
+    void setUp()
+    {
+        repository = mock(TokenRepository.class);
+        when(repository.count()).thenReturn(3L);
+        when(repository.findTokensAfter(eq(""), any(Limit.class))).thenReturn(List.of(token(1), token(2), token(3)));
+        when(repository.findTokensCreatedSince(any(Instant.class))).thenReturn(List.of());
+        properties.getUnknownTokens().setExpectedTokens(1000);
+        properties.getUnknownTokens().setBloomFilterEnabled(true);
+        filter = new UnknownTokenFilter(repository, ShardRouter.unsharded(repository), properties,
+            new TokenizationMetrics(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("The Bloom filter has no false negatives and about the configured false-positive rate.")
+    void bloomFilterMeetsFalsePositiveRate()
+    {
+        // GIVEN
+        final TokenBloomFilter bloomFilter = TokenBloomFilter.create(100_000, 0.01);
+
+        // WHEN
+        IntStream.range(0, 100_000).forEach(i -> bloomFilter.put(token(i)));
+
+        // THEN
+        assertThat(IntStream.range(0, 100_000).allMatch(i -> bloomFilter.mightContain(token(i)))).isTrue();
+        final long falsePositives = IntStream.range(100_000, 200_000)
+            .filter(i -> bloomFilter.mightContain(token(i)))
+            .count();
+        assertThat(falsePositives).isLessThan(1500);
+    }
+
+    @Test
+    @DisplayName("Until the Bloom filter is built every token is a candidate.")
+    void passesEveryTokenBeforeBuild()
+    {
+        // GIVEN
+        final List<String> tokens = List.of(token(1), UNKNOWN_TOKEN);
+
+        // WHEN
+        final List<String> candidates = filter.candidates(tokens);
+
+        // THEN
+        assertThat(candidates).isSameAs(tokens);
+    }
+
+    @Test
+    @DisplayName("Once built, tokens that were never issued are rejected without a database lookup.")
+    void rejectsUnknownTokensAfterBuild()
+    {
+        // GIVEN
+        filter.build();
+
+        // WHEN
+        final List<String> candidates = filter.candidates(List.of(token(1), UNKNOWN_TOKEN, token(3)));
+
+        // THEN
+        assertThat(candidates).containsExactly(token(1), token(3));
+        assertThat(meterRegistry.get("tokenization.tokens.unknown").tag("rejected_by", "bloom_filter").counter()
+            .count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Without bloom-filter-enabled only tokens the database did not know are rejected.")
+    void rejectsOnlyConfirmedUnknownTokensByDefault()
+    {
+        // GIVEN A token issued by another writer since the build, not refreshed yet.
+        properties.getUnknownTokens().setBloomFilterEnabled(false);
+        filter.build();
+        final List<String> tokens = List.of(token(1), token(4), UNKNOWN_TOKEN);
+
+        // WHEN
+        final List<String> candidates = filter.candidates(tokens);
+        filter.recordUnknown(List.of(UNKNOWN_TOKEN));
+
+        // THEN
+        assertThat(candidates).isSameAs(tokens);
+        assertThat(filter.candidates(tokens)).containsExactly(token(1), token(4));
+    }
+
+    @Test
+    @DisplayName("The Bloom filter is only accepted with a shared store that outlives two refreshes.")
+    void bloomFilterNeedsSharedStore()
+    {
+        // GIVEN
+        final TokenCacheProperties.UnknownTokens unknownTokens = properties.getUnknownTokens();
+        unknownTokens.setRefreshInterval(Duration.ofSeconds(30));
+
+        // WHEN,THEN
+        assertThat(properties.isBloomFilterBacked()).isFalse();
+        properties.getShared().setType(SharedStoreType.MEMORY);
+        assertThat(properties.isBloomFilterBacked()).isTrue();
+        properties.getShared().setTtl(Duration.ofMinutes(1));
+        assertThat(properties.isBloomFilterBacked()).isFalse();
+        unknownTokens.setBloomFilterEnabled(false);
+        assertThat(properties.isBloomFilterBacked()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Tokens issued after the build, here or by another writer, are candidates.")
+    void acceptsTokensIssuedAfterBuild()
+    {
+        // GIVEN
+        filter.build();
+        when(repository.findTokensCreatedSince(any(Instant.class))).thenReturn(List.of(token(5)));
+
+        // WHEN
+        filter.recordIssued(List.of(token(4)));
+        filter.refresh();
+
+        // THEN
+        assertThat(filter.candidates(List.of(token(4), token(5)))).containsExactly(token(4), token(5));
+    }
+
+    @Test
+    @DisplayName("An unknown token is rejected by the negative cache until it is issued.")
+    void negativeCacheRejectsUnknownTokenUntilIssued()
+    {
+        // GIVEN Before the build only the negative cache applies.
+        filter.recordUnknown(List.of(UNKNOWN_TOKEN));
+
+        // WHEN,THEN
+        assertThat(filter.candidates(List.of(token(1), UNKNOWN_TOKEN))).containsExactly(token(1));
+        filter.recordIssued(List.of(UNKNOWN_TOKEN));
+        assertThat(filter.candidates(List.of(token(1), UNKNOWN_TOKEN))).containsExactly(token(1), UNKNOWN_TOKEN);
+        assertThat(meterRegistry.get("tokenization.tokens.unknown").tag("rejected_by", "negative_cache").counter()
+            .count()).isEqualTo(1);
+        assertThat(meterRegistry.get("tokenization.tokens.unknown").tag("rejected_by", "database").counter()
+            .count()).isEqualTo(1);
+    }
+
+    private static String token(final int i)
+    {
+        return String.format("BloomToken%022d", i);
+    }
+}
@@ -0,0 +1,189 @@
+package nz.co.anz.tokenization;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import nz.co.anz.tokenization.data.DirectVaultCommitter;
+import nz.co.anz.tokenization.data.GroupVaultCommitter;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Unit test for {@link DirectVaultCommitter} and {@link GroupVaultCommitter}.
+ */
+@DisplayName("Unit test for the vault committers")
+class VaultCommitterUnitTest
+{
+    private static final String CONFLICTING_TOKEN = "ConflictingTokenConflictingToken";
+
+    private final Queue<List<TokenEntity>> transactions = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger syncs = new AtomicInteger();
+    private TokenRepository repository;
+    private GroupVaultCommitter groupVaultCommitter;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp()
+    {
+        repository = mock(TokenRepository.class);
+        when(repository.saveAllAndFlush(anyList())).thenAnswer(invocation -> {
+            final List<TokenEntity> mappings = invocation.getArgument(0);
+            if (mappings.stream().anyMatch(mapping -> CONFLICTING_TOKEN.equals(mapping.getToken()))) {
+                throw new DataIntegrityViolationException("duplicate account_hash");
+            }
+            transactions.add(mappings);
+            return mappings;
+        });
+    }
+
+    @AfterEach
+    void closeCommitter() throws InterruptedException
+    {
+        if (groupVaultCommitter != null) {
+            groupVaultCommitter.close();
+        }
+    }
+
+    @Test
+    @DisplayName("SYNC commits and syncs every call on its own.")
+    void directCommitterSyncsEveryCommit()
+    {
+        // GIVEN
+        final DirectVaultCommitter committer =
+            new DirectVaultCommitter(repository, mock(PlatformTransactionManager.class), syncs::incrementAndGet);
+
+        // WHEN
+        committer.commit(List.of(mapping(1)));
+        committer.commit(List.of(mapping(2)));
+
+        // THEN
+        assertThat(transactions).hasSize(2);
+        assertThat(syncs).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("GROUP commits concurrent calls together and syncs once per group before releasing them.")
+    void groupCommitterCommitsConcurrentCallsTogether()
+    {
+        // GIVEN
+        groupVaultCommitter = groupCommitter(Duration.ofMillis(50), 500);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        // WHEN
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<CompletableFuture<Void>> calls = IntStream.range(0, 20)
+                .mapToObj(i -> CompletableFuture.runAsync(() -> {
+                    await(start);
+                    groupVaultCommitter.commit(List.of(mapping(i)));
+                    // THEN Released only after its group was synced
+                    assertThat(syncs.get()).isPositive();
+                }, callers))
+                .toList();
+            start.countDown();
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+        }
+
+        // THEN
+        assertThat(transactions.stream().mapToInt(List::size).sum()).isEqualTo(20);
+        assertThat(transactions.size()).isLessThan(20);
+        assertThat(syncs).hasValue(transactions.size());
+    }
+
+    @Test
+    @DisplayName("A full group is committed without waiting for the window.")
+    void groupCommitterCommitsFullGroupImmediately()
+    {
+        // GIVEN
+        groupVaultCommitter = groupCommitter(Duration.ofHours(1), 2);
+
+        // WHEN,THEN
+        assertTimeoutPreemptively(Duration.ofSeconds(10),
+            () -> groupVaultCommitter.commit(List.of(mapping(1), mapping(2))));
+        assertThat(syncs).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("A conflicting call fails on its own; the others in its group are committed.")
+    void groupCommitterIsolatesConflictingCall()
+    {
+        // GIVEN
+        groupVaultCommitter = groupCommitter(Duration.ofMillis(200), 500);
+
+        // WHEN
+        final CompletableFuture<Void> conflicting = CompletableFuture.runAsync(() ->
+            groupVaultCommitter.commit(List.of(new TokenEntity(CONFLICTING_TOKEN, "4111-1111-1111-1111"))));
+        final CompletableFuture<Void> other = CompletableFuture.runAsync(() ->
+            groupVaultCommitter.commit(List.of(mapping(1))));
+
+        // THEN
+        other.join();
+        assertThatThrownBy(conflicting::join).hasCauseInstanceOf(DataIntegrityViolationException.class);
+        assertThat(transactions).singleElement()
+            .satisfies(mappings -> assertThat(mappings).extracting(TokenEntity::getToken)
+                .containsExactly(mapping(1).getToken()));
+        assertThat(syncs).hasValue(1);
+    }
+
+    @Test
+    @DisplayName("Mappings queued when the committer is closed are still committed.")
+    void groupCommitterCommitsQueuedMappingsOnClose() throws InterruptedException
+    {
+        // GIVEN
+        groupVaultCommitter = groupCommitter(Duration.ofMillis(500), 500);
+        final CompletableFuture<Void> call = CompletableFuture.runAsync(() ->
+            groupVaultCommitter.commit(List.of(mapping(1))));
+        // Queued well within the window
+        Thread.sleep(50);
+
+        // WHEN
+        groupVaultCommitter.close();
+
+        // THEN
+        call.join();
+        assertThat(transactions).hasSize(1);
+        assertThatThrownBy(() -> groupVaultCommitter.commit(List.of(mapping(2))))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private GroupVaultCommitter groupCommitter(final Duration window, final int maxBatchSize)
+    {
+        return new GroupVaultCommitter(repository, mock(PlatformTransactionManager.class), syncs::incrementAndGet,
+            window, maxBatchSize);
+    }
+
+    private static void await(final CountDownLatch latch)
+    {
+        try {
+            latch.await();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TokenEntity mapping(final int i)
+    {
+        return new TokenEntity(String.format("GroupCommitToken%016d", i), String.format("4000-0000-0000-%04d", i));
+    }
+}
@@ -0,0 +1,167 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Closed-loop load test of {@code /tokenize}: a fixed number of clients each send their next request as soon as
+ * the previous one completes, for {@code load.duration} (default {@code PT10S}) after a short warm-up.
+ * <p>
+ * Subclasses pin the server's thread mode. Each run prints throughput and p99 latency and appends them to
+ * {@code build/reports/load/results.csv}, so the platform-thread and virtual-thread runs can be compared.
+ * Run with {@code ./gradlew loadTest}; these tests are excluded from {@code ./gradlew test}.
+ * </p>
+ */
+@Tag("load")
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+abstract class AbstractTokenizationLoadTest
+{
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT10S"));
+
+    private static final int ACCOUNTS = 10_000;
+
+    private static final int ACCOUNTS_PER_REQUEST = 10;
+
+    private static final Path RESULTS = Path.of("build", "reports", "load", "results.csv");
+
+    @LocalServerPort
+    private int port;
+
+    /**
+     * @return the thread mode under test, for reporting
+     */
+    abstract String mode();
+
+    @ParameterizedTest(name = "{0} concurrent clients")
+    @ValueSource(ints = {200, 1_000, 5_000})
+    void tokenizeUnderLoad(final int clients) throws Exception {
+        // GIVEN
+        final URI uri = URI.create("http://localhost:" + port + "/tokenize");
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final List<Future<ClientResult>> results = new ArrayList<>(clients);
+
+        // WHEN every client loops on /tokenize with a mix of existing and new accounts
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                 .executor(executor)
+                 .version(HttpClient.Version.HTTP_1_1)
+                 .connectTimeout(Duration.ofSeconds(30))
+                 .build()) {
+            for (int i = 0; i < clients; i++) {
+                final long seed = i;
+                results.add(executor.submit(() -> {
+                    startGate.await();
+                    return runClient(httpClient, uri, new SplittableRandom(seed));
+                }));
+            }
+            final long startedAt = System.nanoTime();
+            startGate.countDown();
+
+            long requests = 0;
+            long errors = 0;
+            final List<long[]> latencies = new ArrayList<>(clients);
+            for (final Future<ClientResult> result : results) {
+                final ClientResult clientResult = result.get();
+                requests += clientResult.count();
+                errors += clientResult.errors();
+                latencies.add(Arrays.copyOf(clientResult.latencies(), clientResult.count()));
+            }
+            final Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt).minus(WARM_UP);
+
+            // THEN
+            final long[] all = latencies.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+            final double throughput = requests * 1_000.0 / Math.max(1, elapsed.toMillis());
+            final double p99 = all.length == 0 ? 0 : all[(int) Math.min(all.length - 1, Math.ceil(all.length * 0.99) - 1)] / 1e6;
+            report(clients, requests, errors, throughput, p99);
+
+            assertThat(requests).isPositive();
+            assertThat(errors).isZero();
+        }
+    }
+
+    private ClientResult runClient(final HttpClient httpClient, final URI uri, final SplittableRandom random) {
+        final long warmUpEndsAt = System.nanoTime() + WARM_UP.toNanos();
+        final long endsAt = warmUpEndsAt + DURATION.toNanos();
+        long[] latencies = new long[256];
+        int count = 0;
+        int errors = 0;
+
+        long now;
+        while ((now = System.nanoTime()) < endsAt) {
+            final String body = IntStream.range(0, ACCOUNTS_PER_REQUEST)
+                .mapToObj(i -> String.format("\"4000-%04d-%04d-0000\"", random.nextInt(ACCOUNTS / 1_000), random.nextInt(1_000)))
+                .collect(Collectors.joining(",", "[", "]"));
+            final HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("Content-Type", "application/json")
+                .timeout(Duration.ofSeconds(60))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+            boolean failed;
+            try {
+                failed = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() != 200;
+            }
+            catch (final IOException e) {
+                failed = true;
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (now < warmUpEndsAt) {
+                continue;
+            }
+            if (failed) {
+                errors++;
+                continue;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = System.nanoTime() - now;
+        }
+        return new ClientResult(latencies, count, errors);
+    }
+
+    private void report(final int clients, final long requests, final long errors, final double throughput,
+                        final double p99) throws IOException {
+        final String line = String.format("%s,%d,%d,%d,%.1f,%.2f", mode(), clients, requests, errors, throughput, p99);
+        System.out.printf("Load test [%s] clients=%d requests=%d errors=%d throughput=%.1f req/s p99=%.2f ms%n",
+            mode(), clients, requests, errors, throughput, p99);
+        Files.createDirectories(RESULTS.getParent());
+        if (Files.notExists(RESULTS)) {
+            Files.writeString(RESULTS, "mode,clients,requests,errors,throughput_rps,p99_ms\n");
+        }
+        Files.writeString(RESULTS, line + "\n", StandardOpenOption.APPEND);
+    }
+
+    private record ClientResult(long[] latencies, int count, int errors)
+    {
+    }
+}
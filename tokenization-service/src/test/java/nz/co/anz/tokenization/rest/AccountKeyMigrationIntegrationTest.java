@@ -0,0 +1,99 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.data.AccountKeyMigration;
+import nz.co.anz.tokenization.data.TokenEntity;
+import nz.co.anz.tokenization.data.TokenRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+/**
+ * This is the integration test for the backfill of {@code account_hash} on mappings written by older versions.
+ */
+@Tag("integration")
+@DisplayName("Account Key Migration Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class AccountKeyMigrationIntegrationTest {
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @Autowired
+    private AccountKeyMigration accountKeyMigration;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("Migration keys the oldest mapping of each account and keeps the duplicates resolvable")
+    @Sql({ "classpath:sql/legacy-token-mappings.sql"})
+    void migrationKeysOldestMappingPerAccount() {
+        // GIVEN One account was tokenized in three formats, another one once, all without an account key.
+
+        // WHEN
+        final AccountKeyMigration.Result result = accountKeyMigration.migrate();
+
+        // THEN
+        assertThat(result).isEqualTo(new AccountKeyMigration.Result(2, 2));
+        assertThat(tokenRepository.findAll())
+            .filteredOn(entity -> entity.getAccountKey() != null)
+            .extracting(TokenEntity::getToken)
+            .containsExactlyInAnyOrder("LegacySpacesLegacySpacesLegacySp", "LegacyUniqueLegacyUniqueLegacyUn");
+        assertThat(tokenRepository.findAll())
+            .filteredOn(TokenEntity::isDuplicate)
+            .extracting(TokenEntity::getToken)
+            .containsExactlyInAnyOrder("LegacyDashesLegacyDashesLegacyDa", "LegacyDigitsLegacyDigitsLegacyDi");
+        // AND: every format of the account now tokenizes to the oldest token
+        assertThat(tokenize(List.of("4111-1111-1111-1111", "4111111111111111", "5222-2222-2222-2222")))
+            .containsExactly("LegacySpacesLegacySpacesLegacySp", "LegacySpacesLegacySpacesLegacySp",
+                "LegacyUniqueLegacyUniqueLegacyUn");
+        assertThat(tokenRepository.count()).isEqualTo(4);
+        // AND: the duplicates still detokenize
+        assertThat(webClient.post()
+            .uri("/detokenize")
+            .bodyValue(List.of("LegacyDashesLegacyDashesLegacyDa", "LegacyDigitsLegacyDigitsLegacyDi"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult()
+            .getResponseBody())
+            .containsExactly("4111-1111-1111-1111", "4111111111111111");
+        // AND: a second run finds nothing left to classify, duplicates included
+        assertThat(tokenRepository.existsByAccountKeyIsNullAndDuplicateIsNull()).isFalse();
+        assertThat(accountKeyMigration.migrate()).isEqualTo(new AccountKeyMigration.Result(0, 0));
+    }
+
+    private List<String> tokenize(final List<String> accountNumbers) {
+        return webClient.post()
+            .uri("/tokenize")
+            .bodyValue(accountNumbers)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult()
+            .getResponseBody();
+    }
+}
@@ -0,0 +1,98 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.data.TokenRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Concurrency stress test for /tokenize: many simultaneous first-time requests for one account.
+ */
+@Tag("integration")
+@DisplayName("Concurrent Tokenization Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class ConcurrentTokenizationIntegrationTest
+{
+    private static final int CLIENTS = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("200 concurrent requests for one new account create exactly one mapping and all succeed")
+    void concurrentTokenizeOfOneAccountCoalescesOntoOneInsert() throws Exception {
+        // GIVEN
+        final String accountNumber = "4000 1234 5678 9010";
+        final HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/tokenize"))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(List.of(accountNumber))))
+            .build();
+        final CountDownLatch startGate = new CountDownLatch(1);
+        final List<Future<HttpResponse<String>>> responses = new ArrayList<>(CLIENTS);
+
+        // WHEN 200 virtual threads fire the same request at once
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder().executor(executor).build()) {
+            for (int i = 0; i < CLIENTS; i++) {
+                responses.add(executor.submit(() -> {
+                    startGate.await();
+                    return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                }));
+            }
+            startGate.countDown();
+
+            // THEN Every request succeeded with the same token
+            final List<String> tokens = new ArrayList<>(CLIENTS);
+            for (final Future<HttpResponse<String>> response : responses) {
+                assertThat(response.get().statusCode()).isEqualTo(200);
+                tokens.addAll(objectMapper.readValue(response.get().body(), new TypeReference<List<String>>() {}));
+            }
+            assertThat(tokens).hasSize(CLIENTS);
+            assertThat(tokens).containsOnly(tokens.getFirst());
+
+            // AND: exactly one row has been persisted
+            assertThat(tokenRepository.count()).isEqualTo(1);
+            assertThat(tokenRepository.findByAccountNumber(accountNumber))
+                .hasValueSatisfying(entity -> assertThat(entity.getToken()).isEqualTo(tokens.getFirst()));
+        }
+    }
+}
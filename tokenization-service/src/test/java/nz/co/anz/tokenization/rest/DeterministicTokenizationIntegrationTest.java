@@ -0,0 +1,95 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import nz.co.anz.tokenization.TokenizationServiceMain;
+import nz.co.anz.tokenization.properties.TokenStrategy;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * This is the integration test for switching a vault from the {@code RANDOM} to the {@code DETERMINISTIC} token
+ * strategy: tokens of both strategies keep resolving across restarts.
+ */
+@Tag("integration")
+@DisplayName("Deterministic Tokenization Integration Tests")
+class DeterministicTokenizationIntegrationTest {
+
+    private static final String SECRET = "ZGV0ZXJtaW5pc3RpYy10b2tlbi1pbnRlZ3JhdGlvbi10ZXN0LTAwMDE=";
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Random tokens issued before the switch and deterministic ones detokenize after a restart")
+    void tokensOfBothStrategiesResolve() {
+        // GIVEN
+        final String randomToken;
+        try (ConfigurableApplicationContext context = start(TokenStrategy.RANDOM)) {
+            randomToken = context.getBean(TokenizationService.class).tokenize(List.of("4111-1111-1111-1111")).getFirst();
+        }
+        final List<String> deterministicTokens;
+        try (ConfigurableApplicationContext context = start(TokenStrategy.DETERMINISTIC)) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+            deterministicTokens = service.tokenize(List.of("4111 1111 1111 1111", "4000-0000-0000-0002"));
+
+            // THEN Answered once the mappings are written, and resolvable at once
+            assertThat(deterministicTokens).doesNotContain(randomToken);
+            assertThat(service.detokenize(deterministicTokens))
+                .containsExactly("4111 1111 1111 1111", "4000-0000-0000-0002");
+        }
+
+        // WHEN
+        try (ConfigurableApplicationContext context = start(TokenStrategy.DETERMINISTIC)) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+
+            // THEN
+            assertThat(service.detokenize(List.of(randomToken, deterministicTokens.get(0), deterministicTokens.get(1))))
+                .containsExactly("4111-1111-1111-1111", "4111 1111 1111 1111", "4000-0000-0000-0002");
+            assertThat(service.tokenize(List.of("4111111111111111", "4000000000000002")))
+                .isEqualTo(deterministicTokens);
+        }
+    }
+
+    @Test
+    @DisplayName("Startup fails without the token secret under DETERMINISTIC, and without the account-key secret")
+    void startupFailsWithoutSecrets() {
+        // WHEN,THEN
+        assertThatThrownBy(() -> start(TokenStrategy.DETERMINISTIC, "tokenization.token-strategy.secret="))
+            .hasStackTraceContaining("DETERMINISTIC needs key-store and key-alias, or a Base64 secret");
+        assertThatThrownBy(() -> start(TokenStrategy.RANDOM, "tokenization.account-key.secret="))
+            .hasStackTraceContaining("secret must be set");
+    }
+
+    private ConfigurableApplicationContext start(final TokenStrategy strategy, final String... overrides) {
+        final Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("tokenization.vault.directory", directory.toString());
+        properties.put("tokenization.token-strategy.type", strategy.name());
+        properties.put("tokenization.token-strategy.secret", SECRET);
+        properties.put("tokenization.grpc.port", "0");
+        for (final String override : overrides) {
+            properties.put(override.substring(0, override.indexOf('=')), override.substring(override.indexOf('=') + 1));
+        }
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(WebApplicationType.NONE)
+            .profiles("persistent")
+            .properties("spring.main.banner-mode=off")
+            // Arguments, as the profile's own settings take precedence over default properties.
+            .run(properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new));
+    }
+}
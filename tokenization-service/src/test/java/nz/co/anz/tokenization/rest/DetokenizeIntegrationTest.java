@@ -46,6 +46,8 @@ class DetokenizeIntegrationTest {
     void clearCache() {
         Optional.ofNullable(cacheManager.getCache("tokenToAccount"))
             .ifPresent(Cache::clear);
+        Optional.ofNullable(cacheManager.getCache("accountToToken"))
+            .ifPresent(Cache::clear);
     }
 
     @Test
@@ -213,4 +215,59 @@ class DetokenizeIntegrationTest {
             .extracting(Cache.ValueWrapper::get)
             .isEqualTo("5555 6666 7777 8888");
     }
+
+    @Test
+    @DisplayName("Detokenize reports every unknown token in one response")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void detokenizeReportsAllUnknownTokens() {
+        // GIVEN
+        final List<String> request = List.of(
+            "YYYYYYYYYYYYYYYYYYYYYYYYYYYYYYYY",
+            "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY",
+            "ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ");
+
+        // WHEN
+        final EntityExchangeResult<ProblemDetail> result = webClient.post()
+            .uri("/detokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody(ProblemDetail.class)
+            .returnResult();
+
+        // THEN
+        assertThat(result.getResponseBody().getDetail())
+            .isEqualTo("Tokens not found: YYYYYYYYYYYYYYYYYYYYYYYYYYYYYYYY, ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ");
+        assertThat(result.getResponseBody().getProperties())
+            .containsEntry("tokens", List.of("YYYYYYYYYYYYYYYYYYYYYYYYYYYYYYYY", "ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+        // AND: the resolvable token was still cached by the bulk load
+        assertThat(cacheManager.getCache("tokenToAccount").get("uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY"))
+            .extracting(Cache.ValueWrapper::get)
+            .isEqualTo("1234 5678 9012 3456");
+    }
+
+    @Test
+    @DisplayName("Detokenize combines cache hits with one database load for the misses")
+    @Sql({ "classpath:sql/existing-two-token-mappings.sql"})
+    void detokenizeResolvesPartialCacheHits() {
+        // GIVEN One token is cached, the other one only exists in the database.
+        final Cache cache = cacheManager.getCache("tokenToAccount");
+        cache.put("AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA", "1111 2222 3333 4444");
+        final List<String> request = List.of("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB", "AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA");
+
+        // WHEN
+        final EntityExchangeResult<List<String>> result = webClient.post()
+            .uri("/detokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        assertThat(result.getResponseBody()).containsExactly("5555 6666 7777 8888", "1111 2222 3333 4444");
+        assertThat(cache.get("BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB"))
+            .extracting(Cache.ValueWrapper::get)
+            .isEqualTo("5555 6666 7777 8888");
+    }
 }
@@ -0,0 +1,114 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.data.TokenRepository;
+import nz.co.anz.tokenization.grpc.GrpcServer;
+import nz.co.anz.tokenization.grpc.TokenizationGrpcService;
+import nz.co.anz.tokenization.grpc.api.DetokenizeRequest;
+import nz.co.anz.tokenization.grpc.api.DetokenizeResponse;
+import nz.co.anz.tokenization.grpc.api.TokenizationGrpc;
+import nz.co.anz.tokenization.grpc.api.TokenizeRequest;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is the integration test for the gRPC API, served next to the REST API by the same application.
+ */
+@Tag("integration")
+@DisplayName("gRPC API Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"}, properties = "tokenization.grpc.enabled=true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class GrpcIntegrationTest {
+
+    private static final List<String> ACCOUNT_NUMBERS = List.of("4111-1111-1111-1111", "4222-2222-2222-2222");
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private GrpcServer grpcServer;
+
+    private ManagedChannel channel;
+
+    @BeforeEach
+    void openChannel() {
+        channel = ManagedChannelBuilder.forAddress("localhost", grpcServer.getPort()).usePlaintext().build();
+    }
+
+    @AfterEach
+    void closeChannel() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    @DisplayName("Tokens issued over gRPC are detokenized over REST")
+    void grpcTokensResolveOverRest() {
+        // GIVEN
+        final TokenizationGrpc.TokenizationBlockingStub stub = TokenizationGrpc.newBlockingStub(channel);
+
+        // WHEN
+        final List<String> tokens = TokenizationGrpcService.decode(stub.tokenize(
+            TokenizeRequest.newBuilder().addAllAccountNumbers(ACCOUNT_NUMBERS).build()).getTokens());
+
+        // THEN
+        assertThat(tokens).hasSize(2).doesNotHaveDuplicates();
+        assertThat(tokenRepository.findAll()).hasSize(2);
+        final List<String> accountNumbers = webClient.post()
+            .uri("/detokenize")
+            .bodyValue(tokens)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult()
+            .getResponseBody();
+        assertThat(accountNumbers).isEqualTo(ACCOUNT_NUMBERS);
+    }
+
+    @Test
+    @DisplayName("Tokens issued over REST are detokenized over gRPC, and unknown ones are reported")
+    void restTokensResolveOverGrpc() {
+        // GIVEN
+        final List<String> tokens = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(ACCOUNT_NUMBERS)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult()
+            .getResponseBody();
+        final TokenizationGrpc.TokenizationBlockingStub stub = TokenizationGrpc.newBlockingStub(channel);
+
+        // WHEN
+        final DetokenizeResponse known = stub.detokenize(DetokenizeRequest.newBuilder()
+            .setTokens(TokenizationGrpcService.encode(tokens))
+            .build());
+        final DetokenizeResponse unknown = stub.detokenize(DetokenizeRequest.newBuilder()
+            .setTokens(TokenizationGrpcService.encode(List.of(tokens.getFirst(), "A".repeat(32))))
+            .build());
+
+        // THEN
+        assertThat(known.getAccountNumbersList()).isEqualTo(ACCOUNT_NUMBERS);
+        assertThat(unknown.getAccountNumbersList()).isEmpty();
+        assertThat(TokenizationGrpcService.decode(unknown.getUnknownTokens())).containsExactly("A".repeat(32));
+    }
+}
@@ -0,0 +1,191 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.TokenizationServiceMain;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+
+/**
+ * Open-loop load test of single-item {@code /tokenize} and {@code /detokenize} requests, with and without
+ * coalescing their vault lookups ({@code tokenization.lookup.coalescing.enabled}).
+ * <p>
+ * Requests are sent at a fixed rate of {@code load.rate} per second (default 5,000), alternating between
+ * detokenizing a known token and tokenizing a known account, both picked at random from a vault far larger than
+ * the caches, so nearly every request needs a lookup. Latency is measured from the time a request was due, so a
+ * stalled server is not hidden by requests that were sent late. Each run prints the database queries per second
+ * and p50/p99 latency and appends them to {@code build/reports/load/coalescing.csv}.
+ * Run with {@code ./gradlew loadTest}; these tests are excluded from {@code ./gradlew test}.
+ * </p>
+ */
+@Tag("load")
+@DisplayName("Load test of lookup coalescing")
+class LookupCoalescingLoadTest
+{
+    private static final Duration WARM_UP = Duration.ofSeconds(2);
+
+    private static final Duration DURATION = Duration.parse(System.getProperty("load.duration", "PT10S"));
+
+    private static final int RATE = Integer.getInteger("load.rate", 5_000);
+
+    private static final int ACCOUNTS = 20_000;
+
+    private static final Path RESULTS = Path.of("build", "reports", "load", "coalescing.csv");
+
+    @ParameterizedTest(name = "coalescing enabled: {0}")
+    @ValueSource(booleans = {false, true})
+    void singleItemRequestsAtFixedRate(final boolean coalescing) throws Exception {
+        try (ConfigurableApplicationContext context = start(coalescing);
+             ExecutorService clientExecutor = Executors.newVirtualThreadPerTaskExecutor();
+             ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient httpClient = HttpClient.newBuilder()
+                 .executor(clientExecutor)
+                 .version(HttpClient.Version.HTTP_1_1)
+                 .connectTimeout(Duration.ofSeconds(30))
+                 .build()) {
+            // GIVEN a vault of ACCOUNTS mappings, and caches holding a few percent of them
+            final List<String> accountNumbers = IntStream.range(0, ACCOUNTS)
+                .mapToObj(i -> String.format("4000-0000-%04d-%04d", i / 10_000, i % 10_000))
+                .toList();
+            final TokenizationService service = context.getBean(TokenizationService.class);
+            final List<String> tokens = new ArrayList<>(ACCOUNTS);
+            for (int from = 0; from < ACCOUNTS; from += 50) {
+                tokens.addAll(service.tokenize(accountNumbers.subList(from, from + 50)));
+            }
+            final String baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            final Statistics statistics = context.getBean(EntityManagerFactory.class)
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+            // WHEN requests are sent at RATE per second, each on its own virtual thread
+            final long interval = 1_000_000_000L / RATE;
+            final int warmUpRequests = (int) (WARM_UP.toNanos() / interval);
+            final int requests = warmUpRequests + (int) (DURATION.toNanos() / interval);
+            final long[] latencies = new long[requests];
+            final SplittableRandom random = new SplittableRandom(42);
+            long queriesBefore = 0;
+            long measuredFrom = 0;
+            final long startedAt = System.nanoTime();
+            for (int i = 0; i < requests; i++) {
+                final long due = startedAt + i * interval;
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                if (i == warmUpRequests) {
+                    queriesBefore = statistics.getPrepareStatementCount();
+                    measuredFrom = System.nanoTime();
+                }
+                final int item = random.nextInt(ACCOUNTS);
+                final HttpRequest request = i % 2 == 0
+                    ? post(baseUri + "/detokenize", tokens.get(item))
+                    : post(baseUri + "/tokenize", accountNumbers.get(item));
+                final int index = i;
+                senders.submit(() -> latencies[index] = send(httpClient, request, due));
+            }
+            // Waits for the requests in flight before counting the queries they made.
+            senders.shutdown();
+            assertThat(senders.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+            final double seconds = (System.nanoTime() - measuredFrom) / 1e9;
+            final double queriesPerSecond = (statistics.getPrepareStatementCount() - queriesBefore) / seconds;
+
+            // THEN
+            final long[] measured = Arrays.copyOfRange(latencies, warmUpRequests, requests);
+            final long errors = Arrays.stream(measured).filter(latency -> latency < 0).count();
+            final long[] sorted = Arrays.stream(measured).filter(latency -> latency >= 0).sorted().toArray();
+            report(coalescing, measured.length, errors, queriesPerSecond, percentile(sorted, 0.50),
+                percentile(sorted, 0.99));
+
+            assertThat(sorted).isNotEmpty();
+            assertThat(errors).isZero();
+        }
+    }
+
+    private static ConfigurableApplicationContext start(final boolean coalescing) {
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .properties("spring.main.banner-mode=off")
+            // Arguments, as default properties would lose to application.properties.
+            .run("--server.port=0",
+                "--tokenization.grpc.port=0",
+                "--spring.datasource.url=jdbc:h2:mem:coalescing-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.generate_statistics=true",
+                "--tokenization.lookup.coalescing.enabled=" + coalescing,
+                "--tokenization.cache.maximum-size=1000",
+                "--tokenization.cache.account-to-token.maximum-size=1000",
+                "--tokenization.cache.warm-up.enabled=false",
+                "--tokenization.cache.unknown-tokens.enabled=false",
+                "--logging.level.nz.co.anz=WARN");
+    }
+
+    private static HttpRequest post(final String uri, final String item) {
+        return HttpRequest.newBuilder(URI.create(uri))
+            .header("Content-Type", "application/json")
+            .timeout(Duration.ofSeconds(60))
+            .POST(HttpRequest.BodyPublishers.ofString("[\"" + item + "\"]"))
+            .build();
+    }
+
+    /**
+     * @return the latency since the request was due, or -1 if it failed
+     */
+    private static long send(final HttpClient httpClient, final HttpRequest request, final long due) {
+        try {
+            final int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status == 200 ? System.nanoTime() - due : -1;
+        }
+        catch (final IOException e) {
+            return -1;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    private static double percentile(final long[] sorted, final double percentile) {
+        return sorted.length == 0 ? 0
+            : sorted[(int) Math.min(sorted.length - 1, Math.ceil(sorted.length * percentile) - 1)] / 1e6;
+    }
+
+    private void report(final boolean coalescing, final long requests, final long errors,
+                        final double queriesPerSecond, final double p50, final double p99) throws IOException {
+        final String line = String.format("%s,%d,%d,%d,%.1f,%.2f,%.2f", coalescing, RATE, requests, errors,
+            queriesPerSecond, p50, p99);
+        System.out.printf("Load test [coalescing=%s] rate=%d req/s requests=%d errors=%d queries=%.1f/s "
+            + "p50=%.2f ms p99=%.2f ms%n", coalescing, RATE, requests, errors, queriesPerSecond, p50, p99);
+        Files.createDirectories(RESULTS.getParent());
+        if (Files.notExists(RESULTS)) {
+            Files.writeString(RESULTS, "coalescing,rate_rps,requests,errors,queries_per_s,p50_ms,p99_ms\n");
+        }
+        Files.writeString(RESULTS, line + "\n", StandardOpenOption.APPEND);
+    }
+}
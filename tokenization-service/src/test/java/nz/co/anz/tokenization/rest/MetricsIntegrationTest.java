@@ -0,0 +1,79 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+/**
+ * This is the integration test for the Prometheus scrape endpoint.
+ */
+@Tag("integration")
+@DisplayName("Metrics Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class MetricsIntegrationTest
+{
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("Prometheus endpoint exposes cache, latency, repository and tokenization metrics")
+    void testPrometheusScrape() {
+        // GIVEN
+        final List<String> tokens = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(List.of("4111-1111-1111-1111", "5222-2222-2222-2222"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(String.class)
+            .returnResult()
+            .getResponseBody();
+        webClient.post()
+            .uri("/detokenize")
+            .bodyValue(tokens)
+            .exchange()
+            .expectStatus().isOk();
+
+        // WHEN
+        final String scrape = webClient.get()
+            .uri("/actuator/prometheus")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        // THEN
+        assertThat(scrape)
+            .contains("cache_gets_total{cache=\"tokenToAccount\"")
+            .contains("cache_gets_total{cache=\"accountToToken\"")
+            .contains("cache_removals_total{")
+            .contains("http_server_requests_seconds_bucket{")
+            .contains("uri=\"/tokenize\"")
+            .contains("uri=\"/detokenize\"")
+            .contains("spring_data_repository_invocations_seconds_bucket{")
+            .contains("tokenization_batch_size_bucket{")
+            .contains("tokenization_tokens_total{result=\"created\"");
+    }
+}
@@ -0,0 +1,74 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.TokenizationServiceMain;
+import nz.co.anz.tokenization.properties.VaultDurability;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
+
+/**
+ * This is the integration test for the file-backed vault of the {@code persistent} profile: tokens survive a
+ * restart in every durability mode.
+ */
+@Tag("integration")
+@DisplayName("Persistent Vault Integration Tests")
+class PersistentVaultIntegrationTest {
+
+    @TempDir
+    private Path directory;
+
+    @ParameterizedTest
+    @EnumSource(VaultDurability.class)
+    @DisplayName("Tokens created concurrently are detokenized, and handed out again, after a restart")
+    void tokensSurviveRestart(final VaultDurability durability) {
+        // GIVEN
+        final List<String> accountNumbers = IntStream.range(0, 40)
+            .mapToObj(i -> String.format("4000-0000-0000-%04d", i))
+            .toList();
+        final List<String> tokens;
+        try (ConfigurableApplicationContext context = start(durability);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+            final List<CompletableFuture<String>> calls = accountNumbers.stream()
+                .map(accountNumber -> CompletableFuture.supplyAsync(
+                    () -> service.tokenize(List.of(accountNumber)).getFirst(), clients))
+                .toList();
+            tokens = calls.stream().map(CompletableFuture::join).toList();
+        }
+
+        // WHEN
+        try (ConfigurableApplicationContext context = start(durability)) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+
+            // THEN
+            assertThat(service.detokenize(tokens)).isEqualTo(accountNumbers);
+            assertThat(service.tokenize(accountNumbers)).isEqualTo(tokens);
+        }
+    }
+
+    private ConfigurableApplicationContext start(final VaultDurability durability) {
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(WebApplicationType.NONE)
+            .profiles("persistent")
+            .properties("spring.main.banner-mode=off")
+            // Arguments, as the profile's own settings take precedence over default properties.
+            .run("--tokenization.vault.directory=" + directory, "--tokenization.vault.durability=" + durability,
+                "--tokenization.grpc.port=0");
+    }
+}
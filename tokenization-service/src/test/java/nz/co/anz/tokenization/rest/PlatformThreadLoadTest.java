@@ -0,0 +1,20 @@
+package nz.co.anz.tokenization.rest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Load test of {@code /tokenize} served on platform threads (Tomcat worker pool).
+ */
+@DisplayName("Load test on platform threads (Tomcat worker pool)")
+@TestPropertySource(locations = {"/integration-test.properties"}, properties = {"spring.threads.virtual.enabled=false"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class PlatformThreadLoadTest extends AbstractTokenizationLoadTest
+{
+    @Override
+    String mode()
+    {
+        return "platform";
+    }
+}
@@ -0,0 +1,293 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.TokenizationServiceMain;
+import nz.co.anz.tokenization.cache.AccountKeyHasher;
+import nz.co.anz.tokenization.data.ShardRebalancer;
+import nz.co.anz.tokenization.data.ShardRouter;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This is the integration test for the {@code sharded} profile: mappings are spread over four databases and stay
+ * resolvable while their buckets are moved between them.
+ */
+@Tag("integration")
+@DisplayName("Sharded Vault Integration Tests")
+class ShardedVaultIntegrationTest {
+
+    @Test
+    @DisplayName("Tokens are spread over the shards and keep resolving while the buckets are moved to two shards")
+    void tokensResolveWhileRebalancing() throws Exception {
+        // GIVEN
+        final List<String> accountNumbers = accountNumbers(0, 400);
+        try (ConfigurableApplicationContext context = start();
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+            final ShardsEndpoint shardsEndpoint = context.getBean(ShardsEndpoint.class);
+            final List<String> tokens = service.tokenize(accountNumbers);
+            assertThat(shardsEndpoint.shards().shards())
+                .allSatisfy(shard -> assertThat(shard.mappings()).isPositive())
+                .extracting(ShardsEndpoint.Shard::prefixes)
+                .allSatisfy(prefixes -> assertThat(prefixes).isNotEmpty());
+
+            // WHEN Clients keep tokenizing old and new accounts, and detokenizing, while the buckets move.
+            final AtomicBoolean rebalancing = new AtomicBoolean(true);
+            final List<CompletableFuture<Integer>> traffic = new ArrayList<>();
+            for (int client = 0; client < 4; client++) {
+                final int first = 1000 + client * 1000;
+                traffic.add(CompletableFuture.supplyAsync(() -> {
+                    int calls = 0;
+                    while (rebalancing.get()) {
+                        final int known = calls % 350;
+                        final List<String> batch = new ArrayList<>(accountNumbers.subList(known, known + 50));
+                        batch.addAll(accountNumbers(first + calls * 10, first + calls * 10 + 10));
+                        final List<String> batchTokens = service.tokenize(batch);
+                        assertThat(batchTokens.subList(0, 50)).isEqualTo(tokens.subList(known, known + 50));
+                        assertThat(service.detokenize(batchTokens)).isEqualTo(batch);
+                        calls++;
+                    }
+                    return calls;
+                }, clients));
+            }
+            final ShardRebalancer rebalancer = context.getBean(ShardRebalancer.class);
+            assertThat(shardsEndpoint.rebalance(2).running()).isTrue();
+            final ShardRebalancer.Status status = rebalancer.await(Duration.ofMinutes(1));
+            rebalancing.set(false);
+
+            // THEN
+            assertThat(traffic.stream().mapToInt(CompletableFuture::join).sum()).isPositive();
+            assertThat(status.running()).isFalse();
+            assertThat(status.failure()).isNull();
+            assertThat(status.bucketsMoved()).isEqualTo(status.bucketsToMove()).isEqualTo(30);
+            final ShardsEndpoint.Shards shards = shardsEndpoint.shards();
+            assertThat(shards.shards())
+                .extracting(ShardsEndpoint.Shard::mappings)
+                .satisfies(mappings -> {
+                    assertThat(mappings.get(0)).isPositive();
+                    assertThat(mappings.get(1)).isPositive();
+                    assertThat(mappings.get(2)).isZero();
+                    assertThat(mappings.get(3)).isZero();
+                });
+            assertThat(shards.shards().stream().map(ShardsEndpoint.Shard::incoming).collect(Collectors.joining()))
+                .isEmpty();
+            assertThat(service.detokenize(tokens)).isEqualTo(accountNumbers);
+            assertThat(service.tokenize(accountNumbers)).isEqualTo(tokens);
+        }
+    }
+
+    @Test
+    @DisplayName("Accounts tokenized by older versions keep their tokens after their buckets are spread")
+    void legacyTokensSurviveRebalancing() throws Exception {
+        // GIVEN A single-database vault written by an older version: random tokens, no account keys.
+        final String vault = UUID.randomUUID().toString();
+        final List<String> accountNumbers = accountNumbers(0, 124);
+        final List<String> legacyTokens = IntStream.range(0, accountNumbers.size())
+            .mapToObj(i -> String.format("%cLegacyToken%020d", ShardRouter.prefixOf(i % ShardRouter.BUCKETS), i))
+            .toList();
+        try (ConfigurableApplicationContext single = new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.main.banner-mode=off")
+            .run("--spring.datasource.url=" + shardUrl(vault, 0),
+                "--spring.jpa.hibernate.ddl-auto=update",
+                "--tokenization.cache.warm-up.enabled=false",
+                "--tokenization.grpc.port=0")) {
+            final JdbcTemplate jdbcTemplate = single.getBean(JdbcTemplate.class);
+            for (int i = 0; i < legacyTokens.size(); i++) {
+                jdbcTemplate.update("INSERT INTO tokens (token, account_number, created_at) VALUES (?, ?, ?)",
+                    legacyTokens.get(i), accountNumbers.get(i), Timestamp.from(Instant.parse("2024-01-01T00:00:00Z")));
+            }
+        }
+
+        try (ConfigurableApplicationContext context = start(vault)) {
+            final TokenizationService service = context.getBean(TokenizationService.class);
+            final ShardsEndpoint shardsEndpoint = context.getBean(ShardsEndpoint.class);
+            assertThat(context.getBean(ShardRouter.class).buckets()).allMatch(ShardRouter.Bucket::legacyAccounts);
+
+            // WHEN
+            assertThat(shardsEndpoint.rebalance(4).running()).isTrue();
+            final ShardRebalancer.Status status = context.getBean(ShardRebalancer.class).await(Duration.ofMinutes(1));
+
+            // THEN
+            assertThat(status.failure()).isNull();
+            assertThat(shardsEndpoint.shards().shards())
+                .allSatisfy(shard -> assertThat(shard.mappings()).isPositive());
+            assertThat(service.tokenize(accountNumbers)).isEqualTo(legacyTokens);
+            assertThat(service.detokenize(legacyTokens)).isEqualTo(accountNumbers);
+            assertThat(shardsEndpoint.shards().shards().stream().mapToLong(ShardsEndpoint.Shard::mappings).sum())
+                .isEqualTo(accountNumbers.size());
+        }
+    }
+
+    @Test
+    @DisplayName("A vault sharded from empty looks new accounts up on the shard of their bucket only")
+    void newAccountsAreLookedUpOnTheirShard() throws Exception {
+        // GIVEN A fresh vault whose shards 1 to 3 cannot be queried, and accounts of buckets held by shard 0.
+        final String vault = UUID.randomUUID().toString();
+        try (ConfigurableApplicationContext context = start(vault)) {
+            final AccountKeyHasher accountKeyHasher = context.getBean(AccountKeyHasher.class);
+            final List<String> accountNumbers = accountNumbers(0, 400).stream()
+                .filter(accountNumber -> ShardRouter.bucketOf(accountKeyHasher.keyOf(accountNumber)) % 4 == 0)
+                .toList();
+            assertThat(context.getBean(ShardRouter.class).buckets())
+                .noneMatch(ShardRouter.Bucket::legacyAccounts);
+            for (int shard = 1; shard < 4; shard++) {
+                execute(vault, shard, "ALTER TABLE TOKENS RENAME TO TOKENS_UNAVAILABLE");
+            }
+
+            // WHEN
+            final List<String> tokens = context.getBean(TokenizationService.class).tokenize(accountNumbers);
+
+            // THEN
+            assertThat(tokens).hasSize(accountNumbers.size()).doesNotContainNull();
+            assertThat(context.getBean(TokenizationService.class).detokenize(tokens)).isEqualTo(accountNumbers);
+        }
+    }
+
+    @Test
+    @DisplayName("A replica that can no longer read the bucket assignment stops writing and loses nothing to a move")
+    void staleReplicaLosesNoMappings() throws Exception {
+        // GIVEN A second replica, whose database user loses access to the bucket assignment once it is running.
+        final String vault = UUID.randomUUID().toString();
+        try (ConfigurableApplicationContext context = start(vault);
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int shard = 0; shard < 4; shard++) {
+                execute(vault, shard, "CREATE USER STALE PASSWORD 'stale'",
+                    "GRANT SELECT, INSERT, UPDATE, DELETE ON TOKENS, SHARD_BUCKETS, SHARD_REPLICAS TO STALE");
+            }
+            try (ConfigurableApplicationContext stale = startStale(vault)) {
+                execute(vault, 0, "REVOKE SELECT ON SHARD_BUCKETS FROM STALE");
+                final TokenizationService writer = stale.getBean(TokenizationService.class);
+
+                // WHEN The stale replica keeps tokenizing new accounts while the other one moves the buckets.
+                final AtomicBoolean rebalancing = new AtomicBoolean(true);
+                final Map<String, String> written = new ConcurrentHashMap<>();
+                final AtomicInteger refused = new AtomicInteger();
+                final CompletableFuture<Void> traffic = CompletableFuture.runAsync(() -> {
+                    for (int first = 0; rebalancing.get(); first += 10) {
+                        final List<String> batch = accountNumbers(first, first + 10);
+                        try {
+                            final List<String> tokens = writer.tokenize(batch);
+                            for (int i = 0; i < batch.size(); i++) {
+                                written.put(tokens.get(i), batch.get(i));
+                            }
+                        }
+                        catch (final RuntimeException e) {
+                            refused.incrementAndGet();
+                        }
+                    }
+                }, clients);
+                final ShardsEndpoint shardsEndpoint = context.getBean(ShardsEndpoint.class);
+                assertThat(shardsEndpoint.rebalance(2).running()).isTrue();
+                final ShardRebalancer.Status status =
+                    context.getBean(ShardRebalancer.class).await(Duration.ofMinutes(1));
+                rebalancing.set(false);
+                traffic.join();
+
+                // THEN Everything the stale replica wrote was moved, and it refused writes instead of writing stale.
+                assertThat(status.failure()).isNull();
+                assertThat(written).isNotEmpty();
+                assertThat(refused.get()).isPositive();
+                final List<String> tokens = List.copyOf(written.keySet());
+                assertThat(context.getBean(TokenizationService.class).detokenize(tokens))
+                    .isEqualTo(tokens.stream().map(written::get).toList());
+                assertThat(shardsEndpoint.shards().shards())
+                    .extracting(ShardsEndpoint.Shard::mappings)
+                    .satisfies(mappings -> {
+                        assertThat(mappings.get(2)).isZero();
+                        assertThat(mappings.get(3)).isZero();
+                    });
+            }
+        }
+    }
+
+    private static List<String> accountNumbers(final int from, final int to) {
+        return IntStream.range(from, to)
+            .mapToObj(i -> String.format("4000-0000-%04d-%04d", i / 10000, i % 10000))
+            .toList();
+    }
+
+    private static String shardUrl(final String vault, final int shard) {
+        return "jdbc:h2:mem:" + vault + "-" + shard + ";DB_CLOSE_DELAY=-1";
+    }
+
+    private static ConfigurableApplicationContext start() {
+        return start(UUID.randomUUID().toString());
+    }
+
+    private static ConfigurableApplicationContext start(final String vault, final String... arguments) {
+        final String urls = IntStream.range(0, 4)
+            .mapToObj(shard -> shardUrl(vault, shard))
+            .collect(Collectors.joining(","));
+        // By name, as a property given twice on the command line would be joined with a comma.
+        final Map<String, String> args = new LinkedHashMap<>();
+        Stream.concat(Stream.of("--tokenization.shards.urls=" + urls,
+                    "--tokenization.shards.refresh-interval=PT0.1S",
+                    "--tokenization.shards.replica-timeout=PT1S",
+                    "--tokenization.shards.move-batch-size=7",
+                    "--tokenization.cache.warm-up.enabled=false",
+                    "--tokenization.grpc.port=0"),
+                Stream.of(arguments))
+            .forEach(argument -> args.put(argument.substring(0, argument.indexOf('=')), argument));
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(WebApplicationType.NONE)
+            .profiles("sharded")
+            .properties("spring.main.banner-mode=off")
+            // Arguments, as the profile's own settings take precedence over default properties.
+            .run(args.values().toArray(String[]::new));
+    }
+
+    /**
+     * Starts a second replica on the vault of {@link #start(String, String...)} as the restricted user {@code STALE},
+     * which leaves the schema to the first one.
+     */
+    private static ConfigurableApplicationContext startStale(final String vault) {
+        final String urls = IntStream.range(0, 4)
+            // Without DB_CLOSE_DELAY, which only an admin may set; the first replica keeps the databases open.
+            .mapToObj(shard -> "jdbc:h2:mem:" + vault + "-" + shard)
+            .collect(Collectors.joining(","));
+        return start(vault, "--tokenization.shards.urls=" + urls,
+            "--spring.datasource.username=STALE",
+            "--spring.datasource.password=stale",
+            "--spring.jpa.hibernate.ddl-auto=none");
+    }
+
+    private static void execute(final String vault, final int shard, final String... statements) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(shardUrl(vault, shard), "sa", "");
+             Statement statement = connection.createStatement()) {
+            for (final String sql : statements) {
+                statement.execute(sql);
+            }
+        }
+    }
+}
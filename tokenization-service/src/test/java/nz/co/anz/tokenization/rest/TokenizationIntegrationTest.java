@@ -2,15 +2,24 @@ package nz.co.anz.tokenization.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import nz.co.anz.tokenization.cache.TokenMappingCache;
 import nz.co.anz.tokenization.data.TokenEntity;
 import nz.co.anz.tokenization.data.TokenRepository;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Tag;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
 import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.jdbc.Sql;
@@ -18,9 +27,12 @@ import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
 
 /**
  * This is the integration test for /tokenize endpoint.
@@ -40,6 +52,17 @@ public class TokenizationIntegrationTest {
     @Autowired
     private TokenRepository tokenRepository;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
     @Test
     @DisplayName("Tokenize fails when request body is missing")
     void testTokenizeFailedWhenRequestBodyMissing() {
@@ -79,6 +102,28 @@ public class TokenizationIntegrationTest {
         assertThat(tokenRepository.findAll()).isEmpty();
     }
 
+    @Test
+    @DisplayName("Tokenize reports the index of every malformed account number")
+    void tokenizeReportsIndexesOfInvalidAccountNumbers() {
+        // GIVEN
+        final List<String> accountNumbers = List.of("4111-1111-1111-1111", "invalid-account", "4111111111111111", "1234");
+
+        // WHEN
+        final EntityExchangeResult<ProblemDetail> result = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(accountNumbers)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(ProblemDetail.class)
+            .returnResult();
+
+        // THEN
+        assertThat(result.getResponseBody().getProperties())
+            .containsEntry("invalidIndexes", List.of(1, 3))
+            .containsEntry("errors", List.of("Wrong account number format", "Wrong account number format"));
+        assertThat(tokenRepository.findAll()).isEmpty();
+    }
+
     @Test
     @DisplayName("Tokenize fails when account number format is invalid")
     void tokenizeFailsWhenAccountFormatInvalid() {
@@ -163,4 +208,151 @@ public class TokenizationIntegrationTest {
             .as("Database size should still be 1")
             .isEqualTo(1);
     }
+
+    @Test
+    @DisplayName("Tokenize of 50 new account numbers costs one lookup query and one insert batch")
+    void tokenizeBatchUsesSetBasedStatements()
+    {
+        // GIVEN
+        final List<String> request = IntStream.range(0, 50)
+            .mapToObj(i -> String.format("4000-0000-0000-%04d", i))
+            .toList();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        final EntityExchangeResult<List<String>> tokensInResponse = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        assertThat(tokensInResponse.getResponseBody()).hasSize(50).doesNotHaveDuplicates();
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(50);
+        assertThat(statistics.getPrepareStatementCount())
+            .as("One IN lookup plus one batched INSERT statement")
+            .isEqualTo(2);
+        assertThat(tokenRepository.count()).isEqualTo(50);
+    }
+
+    @Test
+    @DisplayName("Tokenize keeps input order and maps duplicate account numbers to one token")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void tokenizePreservesOrderForDuplicatesAndExistingAccounts()
+    {
+        // GIVEN
+        final String existingToken = "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY";
+        final List<String> request = List.of(
+            "4111-1111-1111-1111",
+            "1234 5678 9012 3456",
+            "4111-1111-1111-1111");
+
+        // WHEN
+        final EntityExchangeResult<List<String>> tokensInResponse = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        final List<String> tokens = tokensInResponse.getResponseBody();
+        assertThat(tokens).hasSize(3);
+        assertThat(tokens.get(0)).matches(TOKEN_REGEX).isEqualTo(tokens.get(2));
+        assertThat(tokens.get(1)).isEqualTo(existingToken);
+        assertThat(tokenRepository.count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Repeat tokenize of a known account is served from the account-to-token cache")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void tokenizeRepeatAccountHitsReverseCache()
+    {
+        // GIVEN The first request loads the existing mapping from the database.
+        final List<String> request = List.of("1234 5678 9012 3456");
+        final String existingToken = "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY";
+        webClient.post().uri("/tokenize").bodyValue(request).exchange().expectStatus().isOk();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        final EntityExchangeResult<List<String>> tokensInResponse = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        assertThat(tokensInResponse.getResponseBody()).containsExactly(existingToken);
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Tokenize maps every format of an existing account to its one token")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void tokenizeEquivalentFormatsShareOneToken()
+    {
+        // GIVEN The account is stored as "1234 5678 9012 3456".
+        final List<String> request = List.of("1234-5678-9012-3456", "1234567890123456", "1234 5678-9012 3456");
+        final String existingToken = "uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY";
+
+        // WHEN
+        final EntityExchangeResult<List<String>> tokensInResponse = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        assertThat(tokensInResponse.getResponseBody()).containsExactly(existingToken, existingToken, existingToken);
+        assertThat(tokenRepository.count()).isEqualTo(1);
+        assertThat(tokenRepository.findById(existingToken).orElseThrow().getAccountNumber())
+            .isEqualTo("1234 5678 9012 3456");
+    }
+
+    @Test
+    @DisplayName("Tokenize compresses a 50-token response for gzip clients but not a single token")
+    void tokenizeNegotiatesGzipForLargeResponses() throws IOException
+    {
+        // GIVEN
+        final List<String> request = IntStream.range(0, 50)
+            .mapToObj(i -> String.format("4000-0000-0000-%04d", i))
+            .toList();
+
+        // WHEN
+        final byte[] compressed = webClient.post()
+            .uri("/tokenize")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .bodyValue(request)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectHeader().contentType(MediaType.APPLICATION_JSON)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+        // THEN
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            assertThat(new ObjectMapper().readValue(in, new TypeReference<List<String>>() {}))
+                .hasSize(50)
+                .allMatch(token -> token.matches(TOKEN_REGEX));
+        }
+        webClient.post()
+            .uri("/tokenize")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .bodyValue(request.subList(0, 1))
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().doesNotExist(HttpHeaders.CONTENT_ENCODING)
+            .expectHeader().contentLength(36);
+    }
 }
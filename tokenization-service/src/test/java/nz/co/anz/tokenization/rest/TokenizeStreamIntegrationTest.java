@@ -0,0 +1,114 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.data.TokenRepository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This is the integration test for /tokenize/stream endpoint.
+ */
+@Tag("integration")
+@DisplayName("Streaming Tokenization Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"}, properties = {"tokenization.stream.chunk-size=100"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class TokenizeStreamIntegrationTest
+{
+    private static final String TOKEN_LINE_REGEX = "^\\{\"token\":\"[a-zA-Z0-9]{32}\"}$";
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private TokenRepository tokenRepository;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("Stream of more accounts than one chunk returns one token per line in input order")
+    void testTokenizeStreamAcrossChunks() {
+        // GIVEN
+        final List<String> accountNumbers = IntStream.range(0, 250)
+            .mapToObj(i -> String.format("4111-2222-3333-%04d", i))
+            .toList();
+
+        // WHEN
+        final List<String> lines = tokenizeStream(String.join("\n", accountNumbers));
+
+        // THEN
+        assertThat(lines)
+            .hasSize(250)
+            .allMatch(line -> line.matches(TOKEN_LINE_REGEX));
+        assertThat(tokenRepository.count()).isEqualTo(250);
+        final String fifthToken = lines.get(4).substring(10, 42);
+        assertThat(tokenRepository.findById(fifthToken))
+            .hasValueSatisfying(entity -> assertThat(entity.getAccountNumber()).isEqualTo(accountNumbers.get(4)));
+    }
+
+    @Test
+    @DisplayName("Streamed tokens match /tokenize and malformed lines are reported in place")
+    void testTokenizeStreamMatchesTokenize() {
+        // GIVEN
+        final String accountNumber = "4111-1111-1111-1111";
+        final List<String> tokens = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(List.of(accountNumber))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBodyList(String.class)
+            .returnResult()
+            .getResponseBody();
+
+        // WHEN
+        final List<String> lines = tokenizeStream(Stream.of(accountNumber, "1234", accountNumber));
+
+        // THEN
+        assertThat(lines).containsExactly(
+            "{\"token\":\"" + tokens.getFirst() + "\"}",
+            "{\"line\":2,\"error\":\"Wrong account number format\"}",
+            "{\"token\":\"" + tokens.getFirst() + "\"}");
+        assertThat(tokenRepository.count()).isEqualTo(1);
+    }
+
+    private List<String> tokenizeStream(final Stream<String> lines) {
+        return tokenizeStream(lines.collect(Collectors.joining("\n")));
+    }
+
+    private List<String> tokenizeStream(final String body) {
+        return webClient.post()
+            .uri("/tokenize/stream")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody()
+            .lines()
+            .toList();
+    }
+}
@@ -0,0 +1,91 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.RedisStandIn;
+import nz.co.anz.tokenization.TokenizationServiceMain;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+import nz.co.anz.tokenization.services.TokenLookup;
+import nz.co.anz.tokenization.services.TokenizationService;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * This is the integration test for two replicas writing to the same vault: a token created on one is detokenized
+ * on the other long before the other's Bloom filter refresh ({@code PT30S}) would pick it up.
+ */
+@Tag("integration")
+@DisplayName("Two Writer Integration Tests")
+class TwoWriterIntegrationTest {
+
+    private static final String ACCOUNT_NUMBER = "4111-1111-1111-1111";
+
+    private static final String UNKNOWN_TOKEN = "UnknownTokenUnknownTokenUnknownT";
+
+    private final String vaultUrl = "jdbc:h2:mem:two-writers-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    @Test
+    @DisplayName("A token created on one replica is detokenized on the other, which had looked it up as unknown")
+    void tokenFromOtherReplicaResolvesWithNegativeCache() {
+        try (ConfigurableApplicationContext first = start();
+             ConfigurableApplicationContext second = start()) {
+            // GIVEN The second replica has already confirmed some token unknown.
+            final TokenizationService reader = second.getBean(TokenizationService.class);
+            assertThat(reader.lookup(List.of(UNKNOWN_TOKEN)).unknownTokens()).containsExactly(UNKNOWN_TOKEN);
+
+            // WHEN
+            final String token = first.getBean(TokenizationService.class).tokenize(List.of(ACCOUNT_NUMBER)).getFirst();
+
+            // THEN
+            assertThat(reader.lookup(List.of(token))).isEqualTo(TokenLookup.resolved(List.of(ACCOUNT_NUMBER)));
+            assertThat(reader.lookup(List.of(UNKNOWN_TOKEN)).unknownTokens()).containsExactly(UNKNOWN_TOKEN);
+        }
+    }
+
+    @Test
+    @DisplayName("With the Bloom filter, a token created on one replica is found through the shared store")
+    void tokenFromOtherReplicaResolvesWithBloomFilter() {
+        try (RedisStandIn redis = new RedisStandIn("two-writer-password").start()) {
+            final String[] filtered = {"--tokenization.cache.unknown-tokens.bloom-filter-enabled=true",
+                "--tokenization.cache.shared.type=REDIS", "--tokenization.cache.shared.uri=" + redis.uri()};
+            try (ConfigurableApplicationContext first = start(filtered);
+                 ConfigurableApplicationContext second = start(filtered)) {
+                // GIVEN The second replica's filter is complete and rejects tokens it has not seen.
+                second.getBean(UnknownTokenFilter.class).build();
+                final TokenizationService reader = second.getBean(TokenizationService.class);
+                assertThat(reader.lookup(List.of(UNKNOWN_TOKEN)).unknownTokens()).containsExactly(UNKNOWN_TOKEN);
+
+                // WHEN
+                final String token = first.getBean(TokenizationService.class).tokenize(List.of(ACCOUNT_NUMBER))
+                    .getFirst();
+
+                // THEN
+                assertThat(reader.lookup(List.of(token))).isEqualTo(TokenLookup.resolved(List.of(ACCOUNT_NUMBER)));
+            }
+        }
+    }
+
+    private ConfigurableApplicationContext start(final String... arguments) {
+        final List<String> args = new ArrayList<>(List.of(
+            "--spring.datasource.url=" + vaultUrl,
+            // The second replica must not drop the schema of the first.
+            "--spring.jpa.hibernate.ddl-auto=update",
+            "--tokenization.grpc.port=0",
+            "--tokenization.cache.warm-up.enabled=false"));
+        args.addAll(List.of(arguments));
+        return new SpringApplicationBuilder(TokenizationServiceMain.class)
+            .web(WebApplicationType.NONE)
+            .properties("spring.main.banner-mode=off")
+            // Arguments, as default properties would lose to application.properties.
+            .run(args.toArray(String[]::new));
+    }
+}
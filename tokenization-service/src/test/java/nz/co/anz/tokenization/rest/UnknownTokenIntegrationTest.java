@@ -0,0 +1,109 @@
+package nz.co.anz.tokenization.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import nz.co.anz.tokenization.cache.TokenMappingCache;
+import nz.co.anz.tokenization.cache.UnknownTokenFilter;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.ProblemDetail;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+
+/**
+ * This is the integration test for /detokenize of unknown tokens with the Bloom filter, backed by an in-process
+ * shared store, and the negative cache enabled.
+ */
+@Tag("integration")
+@DisplayName("/detokenize Unknown Token Integration Tests")
+@TestPropertySource(locations = {"/integration-test.properties"},
+    properties = {"tokenization.cache.unknown-tokens.bloom-filter-enabled=true",
+        "tokenization.cache.shared.type=MEMORY"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Sql(scripts = "classpath:sql/clear-test.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+class UnknownTokenIntegrationTest {
+
+    @Autowired
+    private WebTestClient webClient;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private TokenMappingCache tokenMappingCache;
+
+    @Autowired
+    private UnknownTokenFilter unknownTokenFilter;
+
+    @AfterEach
+    void clearCaches() {
+        tokenMappingCache.invalidateAll();
+    }
+
+    @Test
+    @DisplayName("Detokenize of a token that was never issued fails without a database query")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void detokenizeRejectsUnknownTokenWithoutQuery() {
+        // GIVEN The Bloom filter covers the fixture.
+        unknownTokenFilter.build();
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // WHEN
+        final EntityExchangeResult<ProblemDetail> result = webClient.post()
+            .uri("/detokenize")
+            .bodyValue(List.of("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ"))
+            .exchange()
+            .expectStatus().isNotFound()
+            .expectBody(ProblemDetail.class)
+            .returnResult();
+
+        // THEN
+        assertThat(result.getResponseBody().getDetail()).isEqualTo("Token not found: ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ");
+        assertThat(result.getResponseBody().getProperties())
+            .containsEntry("tokens", List.of("ZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZZ"));
+        assertThat(statistics.getPrepareStatementCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Detokenize resolves existing tokens and tokens issued after the Bloom filter was built")
+    @Sql({ "classpath:sql/existing-token-mapping.sql"})
+    void detokenizeResolvesIssuedTokens() {
+        // GIVEN
+        unknownTokenFilter.build();
+        final List<String> tokens = webClient.post()
+            .uri("/tokenize")
+            .bodyValue(List.of("4111-1111-1111-1111"))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult()
+            .getResponseBody();
+        tokenMappingCache.invalidateAll();
+
+        // WHEN
+        final EntityExchangeResult<List<String>> result = webClient.post()
+            .uri("/detokenize")
+            .bodyValue(List.of("uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY", tokens.getFirst()))
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(new ParameterizedTypeReference<List<String>>() {})
+            .returnResult();
+
+        // THEN
+        assertThat(result.getResponseBody()).containsExactly("1234 5678 9012 3456", "4111-1111-1111-1111");
+    }
+}
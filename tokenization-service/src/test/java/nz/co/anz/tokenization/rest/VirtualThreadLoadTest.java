@@ -0,0 +1,20 @@
+package nz.co.anz.tokenization.rest;
+
+import org.junit.jupiter.api.DisplayName;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+
+/**
+ * Load test of {@code /tokenize} served on virtual threads.
+ */
+@DisplayName("Load test on virtual threads")
+@TestPropertySource(locations = {"/integration-test.properties"}, properties = {"spring.threads.virtual.enabled=true"})
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class VirtualThreadLoadTest extends AbstractTokenizationLoadTest
+{
+    @Override
+    String mode()
+    {
+        return "virtual";
+    }
+}
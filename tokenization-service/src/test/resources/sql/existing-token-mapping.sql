@@ -1 +1 @@
-INSERT INTO tokens (token, account_number) VALUES ('uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY', '1234 5678 9012 3456');
\ No newline at end of file
+INSERT INTO tokens (token, account_number, account_hash) VALUES ('uS8vN3dph7ttuKMHbuk4Hsbbln1aAvLY', '1234 5678 9012 3456', X'77654461b90899c892c7c825e9897dea');
\ No newline at end of file
@@ -1,2 +1,2 @@
-INSERT INTO tokens (token, account_number) VALUES ('AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA', '1111 2222 3333 4444');
-INSERT INTO tokens (token, account_number) VALUES ('BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB', '5555 6666 7777 8888');
\ No newline at end of file
+INSERT INTO tokens (token, account_number, account_hash) VALUES ('AAAAAAAAAAAAAAAAAAAAAAAAAAAAAAAA', '1111 2222 3333 4444', X'4fadf86fc2d441432eb2256258957535');
+INSERT INTO tokens (token, account_number, account_hash) VALUES ('BBBBBBBBBBBBBBBBBBBBBBBBBBBBBBBB', '5555 6666 7777 8888', X'75f46c0a46cd85b25b47a52b1b8f3012');
\ No newline at end of file
@@ -0,0 +1,4 @@
+INSERT INTO tokens (token, account_number, created_at) VALUES ('LegacyDashesLegacyDashesLegacyDa', '4111-1111-1111-1111', TIMESTAMP WITH TIME ZONE '2024-01-02 00:00:00+00');
+INSERT INTO tokens (token, account_number, created_at) VALUES ('LegacySpacesLegacySpacesLegacySp', '4111 1111 1111 1111', TIMESTAMP WITH TIME ZONE '2024-01-01 00:00:00+00');
+INSERT INTO tokens (token, account_number, created_at) VALUES ('LegacyDigitsLegacyDigitsLegacyDi', '4111111111111111', TIMESTAMP WITH TIME ZONE '2024-01-03 00:00:00+00');
+INSERT INTO tokens (token, account_number, created_at) VALUES ('LegacyUniqueLegacyUniqueLegacyUn', '5222 2222 2222 2222', TIMESTAMP WITH TIME ZONE '2024-01-01 00:00:00+00');